@@ -20,6 +20,7 @@ CREATE CACHED TABLE "SALESMANAGER"."CATEGORY"(
 );          
 ALTER TABLE "SALESMANAGER"."CATEGORY" ADD CONSTRAINT "SALESMANAGER"."CONSTRAINT_3" PRIMARY KEY("CATEGORY_ID"); 
 -- 4 +/- SELECT COUNT(*) FROM SALESMANAGER.CATEGORY;           
+CREATE INDEX "SALESMANAGER"."CATEGORY_LINEAGE_IDX" ON "SALESMANAGER"."CATEGORY"("MERCHANT_ID", "LINEAGE");    
 CREATE CACHED TABLE "SALESMANAGER"."CATEGORY_DESCRIPTION"(
     "DESCRIPTION_ID" BIGINT NOT NULL,
     "DATE_CREATED" TIMESTAMP,
@@ -5,6 +5,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import javax.persistence.Cacheable;
 import javax.persistence.CascadeType;
 import javax.persistence.Column;
 import javax.persistence.Embedded;
@@ -14,6 +15,7 @@ import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
@@ -23,6 +25,9 @@ import javax.persistence.UniqueConstraint;
 import javax.validation.Valid;
 import javax.validation.constraints.NotEmpty;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
 import com.salesmanager.core.model.common.audit.AuditSection;
 import com.salesmanager.core.model.common.audit.Auditable;
 import com.salesmanager.core.model.generic.SalesManagerEntity;
@@ -31,9 +36,12 @@ import com.salesmanager.core.model.merchant.MerchantStore;
 @Entity
 @EntityListeners(value = com.salesmanager.core.model.common.audit.AuditListener.class)
 @Table(name = "CATEGORY",uniqueConstraints=
-    @UniqueConstraint(columnNames = {"MERCHANT_ID", "CODE"}) )
+    @UniqueConstraint(columnNames = {"MERCHANT_ID", "CODE"}),
+    indexes = { @Index(name = "CATEGORY_LINEAGE_IDX", columnList = "MERCHANT_ID, LINEAGE") })
 
 
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class Category extends SalesManagerEntity<Long, Category> implements Auditable {
     private static final long serialVersionUID = 1L;
     
@@ -47,6 +55,7 @@ public class Category extends SalesManagerEntity<Long, Category> implements Audi
     private AuditSection auditSection = new AuditSection();
 
     @Valid
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @OneToMany(mappedBy="category", cascade = CascadeType.ALL, fetch = FetchType.LAZY)
     private Set<CategoryDescription> descriptions = new HashSet<CategoryDescription>();
 
@@ -58,6 +67,7 @@ public class Category extends SalesManagerEntity<Long, Category> implements Audi
     @JoinColumn(name = "PARENT_ID")
     private Category parent;
     
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
     @OneToMany(mappedBy = "parent", cascade = CascadeType.REMOVE)
     private List<Category> categories = new ArrayList<Category>();
     
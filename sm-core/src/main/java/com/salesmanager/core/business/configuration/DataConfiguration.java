@@ -14,6 +14,8 @@ import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
 import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
 import org.springframework.transaction.PlatformTransactionManager;
 
+import com.salesmanager.core.business.configuration.db.IdentifierGeneratorStrategies;
+import com.salesmanager.core.business.configuration.db.SegmentIdentifierGenerator;
 import com.zaxxer.hikari.HikariDataSource;
 
 
@@ -58,6 +60,28 @@ public class DataConfiguration {
     
     @Value("${db.preferredTestQuery}")
     private String testQuery;
+
+    /**
+     * Second level cache hits and misses by region, off unless enabled as
+     * statistics are collected on every session
+     */
+    @Value("${hibernate.generate_statistics:false}")
+    private String statistics;
+
+    /**
+     * Ids of the SM_SEQUENCER entities, legacy, pooled or sequence
+     */
+    @Value("${db.id.strategy:pooled}")
+    private String idStrategy;
+
+    @Value("${db.id.blockSize:100}")
+    private String idBlockSize;
+
+    /**
+     * Statements sent at once on flush, 0 disables jdbc batching
+     */
+    @Value("${db.jdbc.batchSize:50}")
+    private String batchSize;
     
     @Value("${db.minPoolSize}")
     private int minPoolSize;
@@ -106,10 +130,22 @@ public class DataConfiguration {
         hibernateProperties.setProperty("hibernate.cache.use_second_level_cache", "true");
         hibernateProperties.setProperty("hibernate.cache.use_query_cache", "true");
         hibernateProperties.setProperty("hibernate.cache.region.factory_class", "org.hibernate.cache.ehcache.EhCacheRegionFactory");
+        hibernateProperties.setProperty("net.sf.ehcache.configurationResourceName", "/spring/ehcache-hibernate.xml");
+        hibernateProperties.setProperty("hibernate.generate_statistics", statistics);
+        // cached one-to-many collections are evicted when the owning side of an element changes
+        hibernateProperties.setProperty("hibernate.cache.auto_evict_collection_cache", "true");
         hibernateProperties.setProperty("hibernate.connection.CharSet", "utf8");
         hibernateProperties.setProperty("hibernate.connection.characterEncoding", "utf8");
         hibernateProperties.setProperty("hibernate.connection.useUnicode", "true");
         hibernateProperties.setProperty("hibernate.id.new_generator_mappings", "false");
+        hibernateProperties.setProperty("hibernate.ejb.identifier_generator_strategy_provider", IdentifierGeneratorStrategies.class.getName());
+        hibernateProperties.setProperty(SegmentIdentifierGenerator.STRATEGY, idStrategy);
+        hibernateProperties.setProperty(SegmentIdentifierGenerator.BLOCK_SIZE, idBlockSize);
+        // inserts and updates are grouped by entity so each group is one batch
+        hibernateProperties.setProperty("hibernate.jdbc.batch_size", batchSize);
+        hibernateProperties.setProperty("hibernate.order_inserts", "true");
+        hibernateProperties.setProperty("hibernate.order_updates", "true");
+        hibernateProperties.setProperty("hibernate.jdbc.batch_versioned_data", "true");
         // hibernateProperties.setProperty("hibernate.globally_quoted_identifiers", "true");
         return hibernateProperties;
     }
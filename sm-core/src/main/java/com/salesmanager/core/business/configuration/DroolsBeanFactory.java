@@ -1,97 +1,191 @@
 package com.salesmanager.core.business.configuration;
 
 import java.io.IOException;
-import java.util.Arrays;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.drools.decisiontable.DecisionTableProviderImpl;
+import org.kie.api.KieBase;
 import org.kie.api.KieServices;
 import org.kie.api.builder.KieBuilder;
 import org.kie.api.builder.KieFileSystem;
-import org.kie.api.builder.KieModule;
-import org.kie.api.builder.KieRepository;
+import org.kie.api.builder.Message;
 import org.kie.api.builder.ReleaseId;
+import org.kie.api.command.Command;
+import org.kie.api.command.KieCommands;
 import org.kie.api.io.Resource;
 import org.kie.api.runtime.KieContainer;
 import org.kie.api.runtime.KieSession;
+import org.kie.api.runtime.StatelessKieSession;
 import org.kie.internal.builder.DecisionTableConfiguration;
 import org.kie.internal.builder.DecisionTableInputType;
 import org.kie.internal.builder.KnowledgeBuilderFactory;
 import org.kie.internal.io.ResourceFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+/**
+ * Compiles drools rule resources (drl files and decision tables) and keeps
+ * the resulting {@link KieBase} in memory. A rule resource is compiled the
+ * first time it is used, callers then get cheap sessions created from the
+ * cached KieBase. When a reload interval is configured the resource last
+ * modified date is checked at most once per interval and the KieBase is
+ * rebuilt when the file changed, the previous module is then removed from
+ * the kie repository and its container disposed.
+ */
 @Component
 public class DroolsBeanFactory {
-	
-	
-	@Value("${config.shipping.rule.priceByDistance}")
-	private String priceByDistance;
-	
-	@Value("${config.shipping.rule.shippingModuleDecision}")
-	private String shippingDecision;
-	
-
-    private static final String RULES_PATH = "com/salesmanager/drools/rules/";
-    private KieServices kieServices = KieServices.Factory.get();
 
-    private  KieFileSystem getKieFileSystem() throws IOException{
-        KieFileSystem kieFileSystem = kieServices.newKieFileSystem();
-        List<String> rules=Arrays.asList(priceByDistance,shippingDecision);
-        for(String rule:rules){
-            kieFileSystem.write(ResourceFactory.newClassPathResource(rule));
-        }
-        return kieFileSystem;
-    }
+	private static final Logger LOGGER = LoggerFactory.getLogger(DroolsBeanFactory.class);
 
-    public KieContainer getKieContainer() throws IOException {
-        getKieRepository();
+	/**
+	 * Interval in seconds between two checks for modified rule files, 0
+	 * disables hot reload
+	 */
+	@Value("${config.rules.reloadInterval:0}")
+	private long reloadInterval;
 
-        KieBuilder kb = kieServices.newKieBuilder(getKieFileSystem());
-        kb.buildAll();
 
-        KieModule kieModule = kb.getKieModule();
+    public static final String RULES_PATH = "com/salesmanager/drools/rules/";
+    private KieServices kieServices = KieServices.Factory.get();
 
-        return kieServices.newKieContainer(kieModule.getReleaseId());
+    private final Map<String, CompiledRules> kieBases = new ConcurrentHashMap<String, CompiledRules>();
+    private final AtomicLong compilations = new AtomicLong();
 
+    /**
+     * Stateful session created from the cached KieBase of a classpath
+     * resource. The caller has to dispose the session.
+     */
+    public KieSession getKieSession(Resource dt) {
+        return getKieBase(dt.getSourcePath()).newKieSession();
     }
 
-    private void getKieRepository() {
-        final KieRepository kieRepository = kieServices.getRepository();
-        kieRepository.addKieModule(kieRepository::getDefaultReleaseId);
+    /**
+     * Stateless session created from the cached KieBase of a classpath
+     * resource
+     * @param rules classpath of a drl or decision table resource
+     */
+    public StatelessKieSession getStatelessKieSession(String rules) {
+        return getKieBase(rules).newStatelessKieSession();
     }
 
-    public KieSession getKieSession(){
-        getKieRepository();
-        KieFileSystem kieFileSystem = kieServices.newKieFileSystem();
+    /**
+     * Runs the rules of a classpath resource against a list of facts in a
+     * stateless session. The global is only visible to this execution.
+     * @param rules classpath of a drl or decision table resource
+     * @param globalName name of the global declared in the rules
+     * @param global global receiving the rules decision
+     * @param facts
+     */
+    public void execute(String rules, String globalName, Object global, Object... facts) {
+        KieCommands kieCommands = kieServices.getCommands();
+        List<Command<?>> commands = new ArrayList<Command<?>>();
+        commands.add(kieCommands.newSetGlobal(globalName, global));
+        for (Object fact : facts) {
+            commands.add(kieCommands.newInsert(fact));
+        }
+        getStatelessKieSession(rules).execute(kieCommands.newBatchExecution(commands));
+    }
+
+    /**
+     * KieBase compiled from a classpath resource, compiled once and rebuilt
+     * when the underlying file changes
+     * @param rules classpath of a drl or decision table resource
+     */
+    public KieBase getKieBase(String rules) {
+        CompiledRules compiled = kieBases.computeIfAbsent(rules, this::compile);
+        if (reloadInterval > 0 && compiled.isStale(reloadInterval * 1000)) {
+            synchronized (compiled) {
+                if (compiled.isStale(reloadInterval * 1000)) {
+                    compiled.checked = System.currentTimeMillis();
+                    if (lastModified(rules) > compiled.lastModified) {
+                        LOGGER.info("Rules [" + rules + "] changed, recompiling");
+                        CompiledRules recompiled = compile(rules);
+                        kieBases.put(rules, recompiled);
+                        release(compiled);
+                        return recompiled.kieBase;
+                    }
+                }
+            }
+        }
+        return compiled.kieBase;
+    }
 
-        kieFileSystem.write(ResourceFactory.newClassPathResource(RULES_PATH + priceByDistance));
-        kieFileSystem.write(ResourceFactory.newClassPathResource(RULES_PATH + shippingDecision));
-        
-        KieBuilder kb = kieServices.newKieBuilder(kieFileSystem);
-        kb.buildAll();
-        KieModule kieModule = kb.getKieModule();
+    /**
+     * Number of rule compilations since startup
+     */
+    public long getCompilationCount() {
+        return compilations.get();
+    }
 
-        KieContainer kContainer = kieServices.newKieContainer(kieModule.getReleaseId());
+    private CompiledRules compile(String rules) {
 
-        return kContainer.newKieSession();
+        long lastModified = lastModified(rules);
 
-    }
+        ReleaseId releaseId = kieServices.newReleaseId("com.shopizer.rules",
+        		rules.replaceAll("[^A-Za-z0-9]", "-"), String.valueOf(compilations.incrementAndGet()));
 
-    public KieSession getKieSession(Resource dt) {
-        KieFileSystem kieFileSystem = kieServices.newKieFileSystem()
-            .write(dt);
+        KieFileSystem kieFileSystem = kieServices.newKieFileSystem();
+        kieFileSystem.generateAndWritePomXML(releaseId);
+        kieFileSystem.write(ResourceFactory.newClassPathResource(rules));
 
-       KieBuilder kieBuilder = kieServices.newKieBuilder(kieFileSystem)
-            .buildAll();
+        KieBuilder kieBuilder = kieServices.newKieBuilder(kieFileSystem).buildAll();
+        if (kieBuilder.getResults().hasMessages(Message.Level.ERROR)) {
+        	throw new IllegalStateException("Cannot compile rules [" + rules + "] " + kieBuilder.getResults().toString());
+        }
 
-        KieRepository kieRepository = kieServices.getRepository();
+        KieContainer kieContainer = kieServices.newKieContainer(releaseId);
 
-        ReleaseId krDefaultReleaseId = kieRepository.getDefaultReleaseId();
+        CompiledRules compiled = new CompiledRules();
+        compiled.releaseId = releaseId;
+        compiled.kieContainer = kieContainer;
+        compiled.kieBase = kieContainer.getKieBase();
+        compiled.lastModified = lastModified;
+        compiled.checked = System.currentTimeMillis();
+        return compiled;
+    }
+
+    /**
+     * Removes replaced rules from the kie repository, sessions already
+     * created from their KieBase keep working
+     */
+    private void release(CompiledRules replaced) {
+        kieServices.getRepository().removeKieModule(replaced.releaseId);
+        replaced.kieContainer.dispose();
+    }
+
+    private long lastModified(String rules) {
+        URL url = getClass().getClassLoader().getResource(rules);
+        if (url == null) {
+        	return 0L;
+        }
+        try {
+        	URLConnection connection = url.openConnection();
+        	connection.setUseCaches(false);
+        	return connection.getLastModified();
+        } catch (IOException e) {
+        	LOGGER.warn("Cannot read last modified date of rules [" + rules + "]", e);
+        	return 0L;
+        }
+    }
 
-        KieContainer kieContainer = kieServices.newKieContainer(krDefaultReleaseId);
+    private static class CompiledRules {
+    	private volatile ReleaseId releaseId;
+    	private volatile KieContainer kieContainer;
+    	private volatile KieBase kieBase;
+    	private volatile long lastModified;
+    	private volatile long checked;
 
-        return kieContainer.newKieSession();
+    	boolean isStale(long interval) {
+    		return System.currentTimeMillis() - checked > interval;
+    	}
     }
 
     /*
@@ -0,0 +1,22 @@
+package com.salesmanager.core.business.configuration.db;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.hibernate.id.MultipleHiLoPerTableGenerator;
+import org.hibernate.jpa.spi.IdentifierGeneratorStrategyProvider;
+
+/**
+ * With hibernate.id.new_generator_mappings=false the entities mapped with
+ * GenerationType.TABLE use the legacy hi/lo table generator, it is replaced
+ * by {@link SegmentIdentifierGenerator}
+ */
+public class IdentifierGeneratorStrategies implements IdentifierGeneratorStrategyProvider {
+
+	@Override
+	public Map<String, Class<?>> getStrategies() {
+		return Collections.<String, Class<?>>singletonMap(
+				MultipleHiLoPerTableGenerator.class.getName(), SegmentIdentifierGenerator.class);
+	}
+
+}
@@ -0,0 +1,345 @@
+package com.salesmanager.core.business.configuration.db;
+
+import java.io.Serializable;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Properties;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.hibernate.HibernateException;
+import org.hibernate.MappingException;
+import org.hibernate.boot.model.relational.Database;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.config.spi.ConfigurationService;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.jdbc.env.spi.JdbcEnvironment;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.Configurable;
+import org.hibernate.id.IdentifierGeneratorHelper;
+import org.hibernate.id.MultipleHiLoPerTableGenerator;
+import org.hibernate.id.PersistentIdentifierGenerator;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.hibernate.service.ServiceRegistry;
+import org.hibernate.type.Type;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Generator of the entities mapped with
+ * <code>@TableGenerator(table = "SM_SEQUENCER", ...)</code>, registered in
+ * place of the legacy hi/lo table generator by
+ * {@link IdentifierGeneratorStrategies}.
+ * <p>
+ * The strategy is read from the <code>shopizer.id.strategy</code> setting
+ * <ul>
+ * <li>legacy: one SM_SEQUENCER update, in its own transaction, every
+ * <code>allocationSize</code> ids of the entity</li>
+ * <li>pooled (default): each node reserves blocks of
+ * <code>shopizer.id.block_size</code> ids from the same SM_SEQUENCER row and
+ * fetches the next block in the background once half of the current block is
+ * used. Rows keep their hi/lo meaning so values only move forward and nodes
+ * still running the legacy strategy get ids outside of the reserved blocks.
+ * Blocks are reserved on one connection kept apart from the pool at startup,
+ * ids are asked by transactions already holding a pooled connection and
+ * waiting for another one would deadlock once they hold the whole pool</li>
+ * <li>sequence: a database sequence by SM_SEQUENCER row with a pooled-lo
+ * optimizer, created starting after the ids already given by the table. Falls
+ * back to pooled when the dialect has no sequences. SM_SEQUENCER is no longer
+ * updated, every node must use this strategy</li>
+ * </ul>
+ */
+public class SegmentIdentifierGenerator implements PersistentIdentifierGenerator, Configurable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(SegmentIdentifierGenerator.class);
+
+	public static final String STRATEGY = "shopizer.id.strategy";
+	public static final String BLOCK_SIZE = "shopizer.id.block_size";
+
+	public static final String LEGACY = "legacy";
+	public static final String POOLED = "pooled";
+	public static final String SEQUENCE = "sequence";
+
+	private static final int DEFAULT_BLOCK_SIZE = 100;
+
+	private static final ExecutorService PREFETCH = Executors.newCachedThreadPool(r -> {
+		Thread t = new Thread(r, "id-block-prefetch");
+		t.setDaemon(true);
+		return t;
+	});
+
+	/** connection of the block reservations by connection provider **/
+	private static final Map<ConnectionProvider, Reservations> RESERVATIONS = Collections
+			.synchronizedMap(new WeakHashMap<ConnectionProvider, Reservations>());
+
+	/** creates and, in legacy mode, increments the SM_SEQUENCER rows **/
+	private final MultipleHiLoPerTableGenerator table = new MultipleHiLoPerTableGenerator();
+	private SequenceStyleGenerator sequence;
+
+	private String strategy;
+	private Type type;
+	private Properties params;
+	private ServiceRegistry serviceRegistry;
+	private ConnectionProvider connections;
+	private Reservations reservations;
+
+	private String tableName;
+	private String pkColumn;
+	private String valueColumn;
+	private String row;
+	/** ids given by one increment of the row **/
+	private long unit;
+	/** increments of the row by block **/
+	private long increments;
+
+	private long next;
+	private long end;
+	private Future<long[]> pending;
+
+	@Override
+	public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
+
+		this.type = type;
+		this.params = params;
+		this.serviceRegistry = serviceRegistry;
+		table.configure(type, params, serviceRegistry);
+
+		Map<?, ?> settings = serviceRegistry.getService(ConfigurationService.class).getSettings();
+		Object value = settings.get(STRATEGY);
+		strategy = value == null ? POOLED : value.toString().trim().toLowerCase();
+		Object size = settings.get(BLOCK_SIZE);
+		int blockSize = size == null ? DEFAULT_BLOCK_SIZE : Integer.parseInt(size.toString().trim());
+
+		Dialect dialect = serviceRegistry.getService(JdbcEnvironment.class).getDialect();
+		if (SEQUENCE.equals(strategy) && !dialect.supportsSequences()) {
+			LOGGER.warn("Dialect " + dialect + " has no sequences, ids use the pooled strategy");
+			strategy = POOLED;
+		}
+		if (!LEGACY.equals(strategy) && !POOLED.equals(strategy) && !SEQUENCE.equals(strategy)) {
+			throw new MappingException("Unknown " + STRATEGY + " " + strategy);
+		}
+
+		pkColumn = params.getProperty(MultipleHiLoPerTableGenerator.PK_COLUMN_NAME, "sequence_name");
+		valueColumn = params.getProperty(MultipleHiLoPerTableGenerator.VALUE_COLUMN_NAME, "sequence_next_hi_value");
+		row = params.getProperty(MultipleHiLoPerTableGenerator.PK_VALUE_NAME, params.getProperty(TABLE));
+		unit = Integer.parseInt(params.getProperty(MultipleHiLoPerTableGenerator.MAX_LO, String.valueOf(Short.MAX_VALUE))) + 1L;
+		increments = Math.max(1, (blockSize + unit - 1) / unit);
+		connections = serviceRegistry.getService(ConnectionProvider.class);
+		if (POOLED.equals(strategy)) {
+			reservations = RESERVATIONS.computeIfAbsent(connections, Reservations::new);
+		}
+	}
+
+	@Override
+	public void registerExportables(Database database) {
+		table.registerExportables(database);
+		tableName = (String) table.generatorKey();
+
+		if (SEQUENCE.equals(strategy)) {
+			Properties sequenceParams = new Properties();
+			sequenceParams.putAll(params);
+			sequenceParams.setProperty(SequenceStyleGenerator.SEQUENCE_PARAM, "SM_SEQ_" + row);
+			sequenceParams.setProperty(SequenceStyleGenerator.INCREMENT_PARAM, String.valueOf(increments * unit));
+			sequenceParams.setProperty(SequenceStyleGenerator.OPT_PARAM, "pooled-lo");
+			sequenceParams.setProperty(SequenceStyleGenerator.INITIAL_PARAM, String.valueOf(firstSequenceValue()));
+			sequence = new SequenceStyleGenerator();
+			sequence.configure(type, sequenceParams, serviceRegistry);
+			sequence.registerExportables(database);
+		}
+	}
+
+	@Override
+	public Serializable generate(SharedSessionContractImplementor session, Object object) throws HibernateException {
+		if (LEGACY.equals(strategy)) {
+			return table.generate(session, object);
+		}
+		if (sequence != null) {
+			return sequence.generate(session, object);
+		}
+		return IdentifierGeneratorHelper.getIntegralDataTypeHolder(type.getReturnedClass())
+				.initialize(nextId()).makeValue();
+	}
+
+	private synchronized long nextId() {
+		if (next >= end) {
+			long[] block = null;
+			if (pending != null) {
+				try {
+					block = pending.get();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new HibernateException("Interrupted while waiting for ids of " + row, e);
+				} catch (ExecutionException e) {
+					LOGGER.warn("Prefetch of ids of " + row + " failed, fetching them now", e.getCause());
+				}
+				pending = null;
+			}
+			if (block == null) {
+				block = reserve();
+			}
+			next = block[0];
+			end = block[1];
+		}
+		long id = next++;
+		if (pending == null && (end - next) * 2 <= increments * unit) {
+			pending = PREFETCH.submit(this::reserve);
+		}
+		return id;
+	}
+
+	/**
+	 * Moves the SM_SEQUENCER row forward by a block in its own transaction
+	 * @return first id and end (exclusive) of the block
+	 */
+	private long[] reserve() {
+		try {
+			synchronized (reservations) {
+				Connection connection = reservations.connection();
+				try {
+					long hi;
+					do {
+						hi = readRow(connection);
+					} while (!updateRow(connection, hi));
+					connection.commit();
+					// legacy hi/lo never gives id 0
+					return new long[] { Math.max(1, hi * unit), (hi + increments) * unit };
+				} catch (SQLException e) {
+					reservations.rollback();
+					throw e;
+				}
+			}
+		} catch (SQLException e) {
+			throw new HibernateException("Cannot reserve ids of " + row + " in " + tableName, e);
+		}
+	}
+
+	private long readRow(Connection connection) throws SQLException {
+		try (PreparedStatement select = connection.prepareStatement(
+				"select " + valueColumn + " from " + tableName + " where " + pkColumn + " = ?")) {
+			select.setString(1, row);
+			try (ResultSet rs = select.executeQuery()) {
+				if (rs.next()) {
+					return rs.getLong(1);
+				}
+			}
+		}
+		try (PreparedStatement insert = connection.prepareStatement(
+				"insert into " + tableName + " (" + pkColumn + ", " + valueColumn + ") values (?, ?)")) {
+			insert.setString(1, row);
+			insert.setLong(2, 0);
+			insert.executeUpdate();
+		}
+		return 0;
+	}
+
+	private boolean updateRow(Connection connection, long hi) throws SQLException {
+		try (PreparedStatement update = connection.prepareStatement(
+				"update " + tableName + " set " + valueColumn + " = ? where " + valueColumn + " = ? and " + pkColumn + " = ?")) {
+			update.setLong(1, hi + increments);
+			update.setLong(2, hi);
+			update.setString(3, row);
+			return update.executeUpdate() == 1;
+		}
+	}
+
+	/**
+	 * First id after the ones given by SM_SEQUENCER, only used when the
+	 * sequence gets created
+	 */
+	private int firstSequenceValue() {
+		try {
+			Connection connection = connections.getConnection();
+			try (PreparedStatement select = connection.prepareStatement(
+					"select " + valueColumn + " from " + tableName + " where " + pkColumn + " = ?")) {
+				select.setString(1, row);
+				try (ResultSet rs = select.executeQuery()) {
+					if (rs.next()) {
+						return (int) Math.min(Integer.MAX_VALUE, Math.max(1, rs.getLong(1) * unit));
+					}
+				}
+			} finally {
+				connections.closeConnection(connection);
+			}
+		} catch (SQLException e) {
+			// no SM_SEQUENCER yet
+			LOGGER.debug("No ids given by " + tableName + " for " + row, e);
+		}
+		return 1;
+	}
+
+	/**
+	 * Connection of a provider only used to reserve blocks, taken when the
+	 * generators get configured while the pool is idle and taken again when
+	 * it got closed by the database
+	 */
+	private static class Reservations {
+
+		private static final int VALIDATION_TIMEOUT = 5;
+
+		private final ConnectionProvider connections;
+		private Connection connection;
+
+		Reservations(ConnectionProvider connections) {
+			this.connections = connections;
+			try {
+				connection();
+			} catch (SQLException e) {
+				LOGGER.warn("Cannot open the connection of the id reservations, opened on first use", e);
+			}
+		}
+
+		synchronized Connection connection() throws SQLException {
+			if (connection != null && !connection.isValid(VALIDATION_TIMEOUT)) {
+				release();
+			}
+			if (connection == null) {
+				connection = connections.getConnection();
+				connection.setAutoCommit(false);
+			}
+			return connection;
+		}
+
+		synchronized void rollback() {
+			try {
+				connection.rollback();
+			} catch (SQLException e) {
+				LOGGER.debug("Cannot roll back the id reservation", e);
+				release();
+			}
+		}
+
+		private void release() {
+			try {
+				connections.closeConnection(connection);
+			} catch (SQLException e) {
+				LOGGER.debug("Cannot close the connection of the id reservations", e);
+			}
+			connection = null;
+		}
+	}
+
+	@Override
+	public Object generatorKey() {
+		return sequence != null ? sequence.generatorKey() : table.generatorKey();
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	public String[] sqlCreateStrings(Dialect dialect) throws HibernateException {
+		return table.sqlCreateStrings(dialect);
+	}
+
+	@Override
+	@SuppressWarnings("deprecation")
+	public String[] sqlDropStrings(Dialect dialect) throws HibernateException {
+		return table.sqlDropStrings(dialect);
+	}
+
+}
@@ -0,0 +1,169 @@
+package com.salesmanager.core.business.modules.cms.common;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import com.salesmanager.core.model.content.OutputContentFile;
+
+/**
+ * Image served by the image controller. Carries what is needed to answer
+ * conditional requests (ETag, last modified, length) so a 304 does not
+ * require reading the image, and writes the image bytes (or a range of
+ * them) straight to the response channel.
+ *
+ * File system images are sent with {@link FileChannel#transferTo}, images
+ * returned by other CMS implementations are written from a single byte
+ * array which can be shared by a cache.
+ */
+public abstract class ImageResource {
+
+	private final String fileName;
+	private final String mimeType;
+	private final long contentLength;
+	private final long lastModified;
+	private final String eTag;
+
+	protected ImageResource(String fileName, String mimeType, long contentLength, long lastModified, String eTag) {
+		this.fileName = fileName;
+		this.mimeType = mimeType;
+		this.contentLength = contentLength;
+		this.lastModified = lastModified;
+		this.eTag = eTag;
+	}
+
+	/**
+	 * Image from the file system, only file attributes are read
+	 */
+	public static ImageResource of(Path path, String mimeType) throws IOException {
+		long length = Files.size(path);
+		long lastModified = Files.getLastModifiedTime(path).toMillis();
+		String eTag = new StringBuilder().append('"').append(Long.toHexString(length)).append('-')
+				.append(Long.toHexString(lastModified)).append('"').toString();
+		return new FileImageResource(path, mimeType, length, lastModified, eTag);
+	}
+
+	/**
+	 * Image loaded in memory by a CMS implementation, the ETag is a digest
+	 * of the content
+	 */
+	public static ImageResource of(OutputContentFile file) {
+		return of(file.getFileName(), file.getMimeType(), file.getFile(), -1L);
+	}
+
+	public static ImageResource of(String fileName, String mimeType, ByteArrayOutputStream content, long lastModified) {
+		return of(fileName, mimeType, content.toByteArray(), lastModified);
+	}
+
+	public static ImageResource of(String fileName, String mimeType, byte[] content, long lastModified) {
+		try {
+			byte[] digest = MessageDigest.getInstance("MD5").digest(content);
+			StringBuilder eTag = new StringBuilder().append('"');
+			for (byte b : digest) {
+				eTag.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+			}
+			eTag.append('"');
+			return new BufferImageResource(fileName, mimeType, content, lastModified, eTag.toString());
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public String getFileName() {
+		return fileName;
+	}
+
+	public String getMimeType() {
+		return mimeType;
+	}
+
+	public long getContentLength() {
+		return contentLength;
+	}
+
+	/**
+	 * @return epoch milliseconds, -1 when unknown
+	 */
+	public long getLastModified() {
+		return lastModified;
+	}
+
+	public String getETag() {
+		return eTag;
+	}
+
+	/**
+	 * Images held in memory can be kept in a cache, file system images are
+	 * left to the OS page cache
+	 */
+	public abstract boolean isInMemory();
+
+	/**
+	 * Writes length bytes starting at position
+	 */
+	public abstract void writeTo(WritableByteChannel channel, long position, long length) throws IOException;
+
+	public void writeTo(WritableByteChannel channel) throws IOException {
+		writeTo(channel, 0, contentLength);
+	}
+
+	private static class FileImageResource extends ImageResource {
+
+		private final Path path;
+
+		FileImageResource(Path path, String mimeType, long contentLength, long lastModified, String eTag) {
+			super(path.getFileName().toString(), mimeType, contentLength, lastModified, eTag);
+			this.path = path;
+		}
+
+		@Override
+		public boolean isInMemory() {
+			return false;
+		}
+
+		@Override
+		public void writeTo(WritableByteChannel channel, long position, long length) throws IOException {
+			try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+				long sent = 0;
+				while (sent < length) {
+					long transferred = file.transferTo(position + sent, length - sent, channel);
+					if (transferred <= 0) {
+						break;// file truncated
+					}
+					sent += transferred;
+				}
+			}
+		}
+	}
+
+	private static class BufferImageResource extends ImageResource {
+
+		private final byte[] content;
+
+		BufferImageResource(String fileName, String mimeType, byte[] content, long lastModified, String eTag) {
+			super(fileName, mimeType, content.length, lastModified, eTag);
+			this.content = content;
+		}
+
+		@Override
+		public boolean isInMemory() {
+			return true;
+		}
+
+		@Override
+		public void writeTo(WritableByteChannel channel, long position, long length) throws IOException {
+			ByteBuffer buffer = ByteBuffer.wrap(content, (int) position, (int) length);
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,99 @@
+package com.salesmanager.core.business.modules.cms.common;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.business.utils.ExpiringCache;
+
+/**
+ * Least recently used cache of in memory images weighted by image size.
+ * The total size of cached images never exceeds maxBytes, so heap usage
+ * stays bounded whatever the number of distinct images requested; images
+ * larger than maxEntryBytes are never cached.
+ *
+ * Images are kept at most config.cms.imageCache.ttl seconds.
+ */
+@Component("imageResourceCache")
+public class ImageResourceCache {
+
+	@Value("${config.cms.imageCache.maxBytes:67108864}")
+	private long maxBytes;
+
+	@Value("${config.cms.imageCache.maxEntryBytes:1048576}")
+	private long maxEntryBytes;
+
+	@Value("${config.cms.imageCache.ttl:300}")
+	private long ttl;
+
+	private ExpiringCache<String, ImageResource> images;
+
+	public ImageResourceCache() {
+	}
+
+	public ImageResourceCache(long maxBytes, long maxEntryBytes, long ttl) {
+		this.maxBytes = maxBytes;
+		this.maxEntryBytes = maxEntryBytes;
+		this.ttl = ttl;
+		init();
+	}
+
+	@PostConstruct
+	public void init() {
+		images = new ExpiringCache<String, ImageResource>(ttl)
+				.maxWeight(maxBytes, ImageResource::getContentLength)
+				.keepIf(image -> image.isInMemory() && image.getContentLength() <= maxEntryBytes);
+	}
+
+	public ImageResource get(String key) {
+		return images.get(key);
+	}
+
+	/**
+	 * Cached image or the image returned by the loader, a single loader runs
+	 * for concurrent misses of the same key
+	 * @return null when the loader returns null
+	 * @throws ServiceException thrown by the loader
+	 */
+	public ImageResource get(String key, ExpiringCache.Loader<ImageResource, ServiceException> loader)
+			throws ServiceException {
+		return images.get(key, loader);
+	}
+
+	public void put(String key, ImageResource image) {
+		images.put(key, image);
+	}
+
+	/**
+	 * Removes every image which key starts with prefix
+	 */
+	public void invalidate(String prefix) {
+		images.invalidateIf(key -> key.startsWith(prefix));
+	}
+
+	public long getBytes() {
+		return images.getWeight();
+	}
+
+	public int getSize() {
+		return images.size();
+	}
+
+	public long getHitCount() {
+		return images.getHitCount();
+	}
+
+	public long getMissCount() {
+		return images.getMissCount();
+	}
+
+	/**
+	 * @return times a loader ran
+	 */
+	public long getLoadCount() {
+		return images.getLoadCount();
+	}
+
+}
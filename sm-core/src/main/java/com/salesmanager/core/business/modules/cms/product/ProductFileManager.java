@@ -1,10 +1,21 @@
 package com.salesmanager.core.business.modules.cms.product;
 
-
+import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.model.catalog.product.image.ProductImage;
+import com.salesmanager.core.model.content.ImageContentFile;
 
 public abstract class ProductFileManager
     implements ProductImagePut, ProductImageGet, ProductImageRemove {
 
-
+  /**
+   * Stores a generated rendition of a product image as is, next to the
+   * SMALL images
+   * 
+   * @param productImage
+   * @param contentImage
+   * @throws ServiceException
+   */
+  public abstract void addProductImageRendition(ProductImage productImage,
+      ImageContentFile contentImage) throws ServiceException;
 
 }
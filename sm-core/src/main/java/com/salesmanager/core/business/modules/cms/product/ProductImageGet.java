@@ -3,6 +3,7 @@ package com.salesmanager.core.business.modules.cms.product;
 import java.util.List;
 import com.salesmanager.core.business.exception.ServiceException;
 import com.salesmanager.core.business.modules.cms.common.ImageGet;
+import com.salesmanager.core.business.modules.cms.common.ImageResource;
 import com.salesmanager.core.model.catalog.product.Product;
 import com.salesmanager.core.model.catalog.product.file.ProductImageSize;
 import com.salesmanager.core.model.catalog.product.image.ProductImage;
@@ -27,6 +28,23 @@ public interface ProductImageGet extends ImageGet {
 
   OutputContentFile getProductImage(ProductImage productImage) throws ServiceException;
 
+  /**
+   * Image to be streamed to a client, null if the image does not exist
+   * 
+   * @param merchantStoreCode
+   * @param productCode
+   * @param imageName
+   * @param size
+   * @return
+   * @throws ServiceException
+   */
+  default ImageResource getProductImageResource(final String merchantStoreCode,
+      final String productCode, final String imageName, final ProductImageSize size)
+      throws ServiceException {
+    OutputContentFile image = getProductImage(merchantStoreCode, productCode, imageName, size);
+    return image == null || image.getFile() == null ? null : ImageResource.of(image);
+  }
+
   List<OutputContentFile> getImages(Product product) throws ServiceException;
 
 
@@ -260,11 +260,16 @@ public class CmsImageFileManagerImpl implements ProductAssetsManager {
 
       StringBuilder nodePath = new StringBuilder();
       nodePath.append(productImage.getProduct().getMerchantStore().getCode())
-          .append(Constants.SLASH).append(productImage.getProduct().getSku());
+          .append(Constants.SLASH).append(productImage.getProduct().getSku())
+          .append(Constants.SLASH);
 
+      // delete small
+      Node<String, Object> smallNode = this.getNode(nodePath.toString() + SMALL);
+      smallNode.remove(productImage.getProductImage());
 
-      Node<String, Object> productNode = this.getNode(nodePath.toString());
-      productNode.remove(productImage.getProductImage());
+      // delete large
+      Node<String, Object> largeNode = this.getNode(nodePath.toString() + LARGE);
+      largeNode.remove(productImage.getProductImage());
 
 
 
@@ -293,7 +298,7 @@ public class CmsImageFileManagerImpl implements ProductAssetsManager {
 
       Node<String, Object> merchantNode = this.getNode(nodePath.toString());
 
-      merchantNode.remove(product.getSku());
+      merchantNode.removeChild(product.getSku());
 
 
 
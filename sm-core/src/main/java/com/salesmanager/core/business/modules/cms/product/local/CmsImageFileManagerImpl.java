@@ -2,6 +2,7 @@ package com.salesmanager.core.business.modules.cms.product.local;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.URLConnection;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -12,6 +13,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.salesmanager.core.business.constants.Constants;
 import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.business.modules.cms.common.ImageResource;
 import com.salesmanager.core.business.modules.cms.impl.CMSManager;
 import com.salesmanager.core.business.modules.cms.impl.LocalCacheManagerImpl;
 import com.salesmanager.core.business.modules.cms.product.ProductAssetsManager;
@@ -273,6 +275,31 @@ public class CmsImageFileManagerImpl
 
   }
 
+  /**
+   * root/products/<merchant code>/<sku>/<SMALL|LARGE>/image, only file attributes are read
+   */
+  @Override
+  public ImageResource getProductImageResource(String merchantStoreCode, String productCode,
+      String imageName, ProductImageSize size) throws ServiceException {
+
+    try {
+
+      Path root = Paths.get(buildRootPath()).toAbsolutePath().normalize();
+      Path path = root.resolve(merchantStoreCode).resolve(productCode)
+          .resolve(size == ProductImageSize.LARGE ? LARGE : SMALL).resolve(imageName).normalize();
+
+      if (!path.startsWith(root) || !Files.isRegularFile(path)) {
+        return null;
+      }
+
+      return ImageResource.of(path, URLConnection.getFileNameMap().getContentTypeFor(imageName));
+
+    } catch (Exception e) {
+      throw new ServiceException(e);
+    }
+
+  }
+
 
   private String buildRootPath() {
     return new StringBuilder().append(getRootName()).append(Constants.SLASH).append(ROOT_CONTAINER)
@@ -0,0 +1,392 @@
+package com.salesmanager.core.business.modules.common;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.http.HttpHost;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestClientBuilder;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import static org.apache.commons.lang3.BooleanUtils.isTrue;
+
+/**
+ * Long lived elasticsearch writer shared by entity index processors.
+ *
+ * Index requests are queued in a bounded queue and sent as bulk requests
+ * by a single background thread, either when a batch is full or when the
+ * flush interval elapses. When the queue is full (elasticsearch slow or
+ * down) the overflow policy applies:
+ *
+ * DROP  - the request is discarded and counted
+ * BLOCK - the caller waits up to the flush interval, then the request is dropped
+ * SPILL - the request is appended to a local spill file replayed once
+ *         elasticsearch accepts bulk requests again
+ */
+@Component("bulkIndexer")
+public class BulkIndexer implements Closeable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(BulkIndexer.class);
+
+	public enum OverflowPolicy {
+		DROP, BLOCK, SPILL
+	}
+
+	@Value("${elasticsearch.server.host}")
+	private List<String> hosts;
+
+	@Value("${elasticsearch.server.protocole}")
+	private String protocol;
+
+	@Value("${elasticsearch.server.port}")
+	private int port;
+
+	@Value("${elasticsearch.security.enabled}")
+	private Boolean securityEnabled;
+
+	@Value("${elasticsearch.security.user}")
+	private String user;
+
+	@Value("${elasticsearch.security.password}")
+	private String password;
+
+	@Value("${elasticsearch.indexer.queueCapacity:10000}")
+	private int queueCapacity;
+
+	@Value("${elasticsearch.indexer.batchSize:500}")
+	private int batchSize;
+
+	/** milliseconds **/
+	@Value("${elasticsearch.indexer.flushInterval:1000}")
+	private long flushInterval;
+
+	@Value("${elasticsearch.indexer.overflow:DROP}")
+	private OverflowPolicy overflowPolicy;
+
+	@Value("${elasticsearch.indexer.spillFile:${java.io.tmpdir}/shopizer-events.ndjson}")
+	private File spillFile;
+
+	private RestHighLevelClient client;
+	private BlockingQueue<IndexRequest> queue;
+	private ScheduledExecutorService flusher;
+
+	private final AtomicBoolean flushRequested = new AtomicBoolean();
+	private final Object spillLock = new Object();
+
+	private final AtomicLong indexed = new AtomicLong();
+	private final AtomicLong batches = new AtomicLong();
+	private final AtomicLong failures = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicLong spilled = new AtomicLong();
+	private final AtomicLong replayed = new AtomicLong();
+	private volatile int lastBatchSize;
+
+	public BulkIndexer() {
+	}
+
+	public BulkIndexer(RestHighLevelClient client, int queueCapacity, int batchSize, long flushInterval,
+			OverflowPolicy overflowPolicy, File spillFile) {
+		this.client = client;
+		this.queueCapacity = queueCapacity;
+		this.batchSize = batchSize;
+		this.flushInterval = flushInterval;
+		this.overflowPolicy = overflowPolicy;
+		this.spillFile = spillFile;
+		init();
+	}
+
+	@PostConstruct
+	public void init() {
+		if (client == null) {
+			client = client();
+		}
+		queue = new ArrayBlockingQueue<IndexRequest>(queueCapacity);
+		flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "bulk-indexer");
+			t.setDaemon(true);
+			return t;
+		});
+		flusher.scheduleWithFixedDelay(this::flushQuietly, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+	}
+
+	private RestHighLevelClient client() {
+
+		List<HttpHost> nodes = hosts.stream().map(m -> new HttpHost(m, port, protocol)).collect(Collectors.toList());
+		RestClientBuilder builder = RestClient.builder(nodes.toArray(new HttpHost[nodes.size()]));
+
+		if (isTrue(securityEnabled)) {
+			final CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
+			credentialsProvider.setCredentials(AuthScope.ANY, new UsernamePasswordCredentials(user, password));
+			builder.setHttpClientConfigCallback(httpClientBuilder ->
+					httpClientBuilder.setDefaultCredentialsProvider(credentialsProvider));
+		}
+
+		return new RestHighLevelClient(builder);
+	}
+
+	/**
+	 * Queues an index request, never blocks longer than the flush interval
+	 * @param request
+	 * @return false if the request was dropped, true when it is queued or
+	 *         spilled
+	 */
+	public boolean add(IndexRequest request) {
+
+		boolean queued = queue.offer(request);
+		if (!queued && overflowPolicy == OverflowPolicy.BLOCK) {
+			try {
+				queued = queue.offer(request, flushInterval, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		if (!queued) {
+			if (overflowPolicy == OverflowPolicy.SPILL) {
+				return spill(Collections.singletonList(request));
+			}
+			dropped.incrementAndGet();
+			return false;
+		}
+
+		if (queue.size() >= batchSize && flushRequested.compareAndSet(false, true)) {
+			flusher.execute(this::flushQuietly);
+		}
+		return true;
+	}
+
+	private void flushQuietly() {
+		flushRequested.set(false);
+		try {
+			flush();
+		} catch (Exception e) {
+			LOGGER.error("Cannot flush bulk index requests", e);
+		}
+	}
+
+	/**
+	 * Sends every queued request as bulk requests of at most batchSize
+	 * documents
+	 */
+	public synchronized void flush() {
+
+		List<IndexRequest> batch = new ArrayList<IndexRequest>(batchSize);
+		while (queue.drainTo(batch, batchSize) > 0) {
+			if (!send(batch)) {
+				if (overflowPolicy == OverflowPolicy.SPILL) {
+					spill(batch);
+				} else {
+					dropped.addAndGet(batch.size());
+				}
+				return;
+			}
+			batch.clear();
+		}
+
+		replay();
+	}
+
+	private boolean send(List<IndexRequest> requests) {
+		BulkRequest bulk = new BulkRequest();
+		requests.forEach(bulk::add);
+		return send(bulk);
+	}
+
+	private boolean send(BulkRequest bulk) {
+		try {
+			BulkResponse response = client.bulk(bulk, RequestOptions.DEFAULT);
+			batches.incrementAndGet();
+			lastBatchSize = bulk.numberOfActions();
+			if (response.hasFailures()) {
+				for (BulkItemResponse item : response.getItems()) {
+					if (item.isFailed()) {
+						failures.incrementAndGet();
+						LOGGER.error("Cannot index document [" + item.getId() + "] " + item.getFailureMessage());
+					} else {
+						indexed.incrementAndGet();
+					}
+				}
+			} else {
+				indexed.addAndGet(bulk.numberOfActions());
+			}
+			return true;
+		} catch (Exception e) {
+			failures.addAndGet(bulk.numberOfActions());
+			LOGGER.error("Cannot send bulk request of " + bulk.numberOfActions() + " documents", e);
+			return false;
+		}
+	}
+
+	/**
+	 * @return false when the requests were dropped
+	 */
+	private boolean spill(List<IndexRequest> requests) {
+		if (spillFile == null) {
+			dropped.addAndGet(requests.size());
+			return false;
+		}
+		synchronized (spillLock) {
+			return write(requests);
+		}
+	}
+
+	private boolean write(List<IndexRequest> requests) {
+		try (BufferedWriter writer = Files.newBufferedWriter(spillFile.toPath(), StandardCharsets.UTF_8,
+				StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+			for (IndexRequest request : requests) {
+				writer.write("{\"index\":{\"_index\":\"" + request.index() + "\",\"_id\":\"" + request.id() + "\"}}");
+				writer.newLine();
+				writer.write(request.source().utf8ToString());
+				writer.newLine();
+			}
+			spilled.addAndGet(requests.size());
+			return true;
+		} catch (IOException e) {
+			dropped.addAndGet(requests.size());
+			LOGGER.error("Cannot spill index requests to " + spillFile, e);
+			return false;
+		}
+	}
+
+	/**
+	 * Sends back spilled documents. The spill file is moved aside while it is
+	 * replayed and removed once every document was accepted, an interrupted
+	 * replay starts over on next flush (documents keep their ids so replaying
+	 * twice only overwrites them)
+	 */
+	private void replay() {
+		if (spillFile == null) {
+			return;
+		}
+		File replaying = new File(spillFile.getPath() + ".replay");
+		synchronized (spillLock) {
+			if (!replaying.exists() && !(spillFile.exists() && spillFile.renameTo(replaying))) {
+				return;
+			}
+		}
+		try (BufferedReader reader = Files.newBufferedReader(replaying.toPath(), StandardCharsets.UTF_8)) {
+			StringBuilder lines = new StringBuilder();
+			int documents = 0;
+			String action;
+			while ((action = reader.readLine()) != null) {
+				String source = reader.readLine();
+				if (source == null) {
+					break;
+				}
+				lines.append(action).append('\n').append(source).append('\n');
+				if (++documents == batchSize) {
+					if (!replay(lines)) {
+						return;
+					}
+					lines.setLength(0);
+					documents = 0;
+				}
+			}
+			if (documents > 0 && !replay(lines)) {
+				return;
+			}
+		} catch (IOException e) {
+			LOGGER.error("Cannot replay spilled index requests from " + replaying, e);
+			return;
+		}
+		if (!replaying.delete()) {
+			LOGGER.warn("Cannot delete replayed spill file " + replaying);
+		}
+	}
+
+	private boolean replay(StringBuilder lines) throws IOException {
+		byte[] data = lines.toString().getBytes(StandardCharsets.UTF_8);
+		BulkRequest bulk = new BulkRequest();
+		bulk.add(data, 0, data.length, XContentType.JSON);
+		if (send(bulk)) {
+			replayed.addAndGet(bulk.numberOfActions());
+			return true;
+		}
+		return false;
+	}
+
+	@Override
+	public void close() throws IOException {
+		flusher.shutdown();
+		try {
+			flusher.awaitTermination(flushInterval, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		flush();
+		client.close();
+	}
+
+	/**
+	 * Client used by jobs sending their own bulk and index requests
+	 */
+	public RestHighLevelClient getClient() {
+		return client;
+	}
+
+	public int getQueueDepth() {
+		return queue.size();
+	}
+
+	public long getIndexedCount() {
+		return indexed.get();
+	}
+
+	public long getBatchCount() {
+		return batches.get();
+	}
+
+	public int getLastBatchSize() {
+		return lastBatchSize;
+	}
+
+	public long getFailureCount() {
+		return failures.get();
+	}
+
+	public long getDroppedCount() {
+		return dropped.get();
+	}
+
+	public long getSpilledCount() {
+		return spilled.get();
+	}
+
+	public long getReplayedCount() {
+		return replayed.get();
+	}
+
+}
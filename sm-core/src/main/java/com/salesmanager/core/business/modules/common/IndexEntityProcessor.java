@@ -1,64 +1,49 @@
 package com.salesmanager.core.business.modules.common;
 
-import java.util.List;
-import java.util.stream.Collectors;
+import javax.inject.Inject;
 
-import org.apache.commons.lang3.BooleanUtils;
-import org.apache.http.HttpHost;
-import org.apache.http.auth.AuthScope;
-import org.apache.http.auth.UsernamePasswordCredentials;
-import org.apache.http.client.CredentialsProvider;
-import org.apache.http.impl.client.BasicCredentialsProvider;
-import org.apache.http.impl.nio.client.HttpAsyncClientBuilder;
-import org.elasticsearch.client.RestClient;
-import org.elasticsearch.client.RestClientBuilder;
-import org.elasticsearch.client.RestHighLevelClient;
-import org.springframework.beans.factory.annotation.Value;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.common.xcontent.XContentType;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.salesmanager.core.model.customer.Customer;
 import com.salesmanager.core.model.generic.SalesManagerEntity;
-
-import static org.apache.commons.lang3.BooleanUtils.isTrue;
+import com.salesmanager.core.model.merchant.MerchantStore;
 
 public class IndexEntityProcessor {
 	
 	protected static final String INDEX_NAME = "events_";
 	
+	/**
+	 * Thread safe writer shared by all processors
+	 */
+	private static final ObjectWriter WRITER = new ObjectMapper()
+			.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false)
+			.writer();
 
-	@Value("${elasticsearch.server.host}")
-	private List<String> hosts;
-	
-	@Value("${elasticsearch.server.protocole}")
-	private String protocol;
-	
-	@Value("${elasticsearch.server.port}")
-	private int port;
-	
-	@Value("${elasticsearch.security.enabled}")
-	private Boolean securityEnabled;
+	@Inject
+	private BulkIndexer bulkIndexer;
 	
-	@Value("${elasticsearch.security.user}")
-	private String user;
-	
-	@Value("${elasticsearch.security.password}")
-	private String password;
-	
-	protected RestHighLevelClient client() throws Exception {
+	/**
+	 * Queues an entity event document in events_<STORE_CODE> index, documents
+	 * are sent in bulk by {@link BulkIndexer}
+	 * @return false if the document was dropped
+	 */
+	@SuppressWarnings("rawtypes")
+	protected boolean index(String entityType, String event, SalesManagerEntity entity, Customer customer, MerchantStore store) throws JsonProcessingException {
+
+		String json = WRITER.writeValueAsString(new Mapping(entityType, event, entity, customer));
+
+		String indexName = new StringBuilder().append(INDEX_NAME).append(store.getCode().toLowerCase()).toString();
 
-		List<HttpHost> nodes = getHosts().stream().map(m -> new HttpHost(m, getPort(), getProtocol())).collect(Collectors.toList());
-		RestClientBuilder builder = RestClient.builder(nodes.toArray(new HttpHost[nodes.size()]));
-		
-        final CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
-        credentialsProvider.setCredentials(AuthScope.ANY,
-            new UsernamePasswordCredentials(user,
-            		password));
-		
-        if (isTrue(securityEnabled)) {
-              builder.setHttpClientConfigCallback(httpClientBuilder ->
-					  httpClientBuilder.setDefaultCredentialsProvider(credentialsProvider));
-        }
+		IndexRequest indexRequest = new IndexRequest(indexName);
+		indexRequest.id(String.valueOf(entity.getId()));
+		indexRequest.source(json, XContentType.JSON);
 
-		return new RestHighLevelClient(builder);
+		return bulkIndexer.add(indexRequest);
 	}
 	
 	protected class Mapping {
@@ -89,17 +74,4 @@ public class IndexEntityProcessor {
 		}
 	}
 
-	protected List<String> getHosts() {
-		return hosts;
-	}
-
-	protected String getProtocol() {
-		return protocol;
-	}
-
-	protected int getPort() {
-		return port;
-	}
-
-
 }
@@ -0,0 +1,211 @@
+package com.salesmanager.core.business.modules.integration.shipping;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.apache.http.client.ResponseHandler;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Http client shared by the shipping carrier integrations. Connections are
+ * pooled and kept alive, every call is bounded by the connect and read
+ * timeouts.
+ *
+ * Each carrier has a circuit breaker: after config.shipping.breaker.failures
+ * consecutive failures the carrier is not called for
+ * config.shipping.breaker.openTime milliseconds, then a single call decides
+ * whether it is called again. Call durations are kept in a
+ * {@link LatencyHistogram} per carrier.
+ */
+@Component
+public class CarrierHttpClient {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(CarrierHttpClient.class);
+
+	@Value("${config.shipping.http.maxConnections:50}")
+	private int maxConnections;
+
+	/** milliseconds to connect and to obtain a pooled connection **/
+	@Value("${config.shipping.http.connectTimeout:2000}")
+	private int connectTimeout;
+
+	/** milliseconds without data from the carrier **/
+	@Value("${config.shipping.http.readTimeout:5000}")
+	private int readTimeout;
+
+	/** milliseconds an idle connection is kept when the carrier does not tell **/
+	@Value("${config.shipping.http.keepAlive:30000}")
+	private long keepAlive;
+
+	@Value("${config.shipping.breaker.failures:5}")
+	private int failureThreshold;
+
+	@Value("${config.shipping.breaker.openTime:30000}")
+	private long openTime;
+
+	private CloseableHttpClient client;
+
+	private final Map<String, Carrier> carriers = new ConcurrentHashMap<String, Carrier>();
+
+	private final List<Consumer<String>> listeners = new CopyOnWriteArrayList<Consumer<String>>();
+
+	@PostConstruct
+	public void init() {
+		PoolingHttpClientConnectionManager connections = new PoolingHttpClientConnectionManager(keepAlive,
+				TimeUnit.MILLISECONDS);
+		connections.setMaxTotal(maxConnections);
+		connections.setDefaultMaxPerRoute(maxConnections);
+
+		RequestConfig requestConfig = RequestConfig.custom().setConnectTimeout(connectTimeout)
+				.setConnectionRequestTimeout(connectTimeout).setSocketTimeout(readTimeout).build();
+
+		client = HttpClients.custom().setConnectionManager(connections).setDefaultRequestConfig(requestConfig)
+				.setKeepAliveStrategy((response, context) -> {
+					long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+					return duration > 0 ? duration : keepAlive;
+				}).evictExpiredConnections().evictIdleConnections(keepAlive, TimeUnit.MILLISECONDS).build();
+	}
+
+	@PreDestroy
+	public void shutdown() throws IOException {
+		client.close();
+	}
+
+	/**
+	 * @param carrier
+	 *            module code of the carrier
+	 * @throws CarrierUnavailableException
+	 *             when the circuit breaker of the carrier is open
+	 */
+	public <T> T execute(String carrier, HttpUriRequest request, ResponseHandler<T> handler) throws IOException {
+
+		Carrier state = carrier(carrier);
+		if (!state.allowCall(System.currentTimeMillis())) {
+			throw new CarrierUnavailableException(carrier);
+		}
+
+		long start = System.nanoTime();
+		try {
+			T response = client.execute(request, handler);
+			state.succeeded();
+			return response;
+		} catch (IOException | RuntimeException e) {
+			if (state.failed(System.currentTimeMillis())) {
+				LOGGER.warn("Carrier " + carrier + " not called for " + openTime + " ms after " + failureThreshold
+						+ " failures");
+			}
+			throw e;
+		} finally {
+			state.latencies.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+		}
+	}
+
+	/**
+	 * @return durations of the calls to the carrier
+	 */
+	public LatencyHistogram getLatencies(String carrier) {
+		return carrier(carrier).latencies;
+	}
+
+	/**
+	 * @return true when calls to the carrier are refused
+	 */
+	public boolean isOpen(String carrier) {
+		Carrier state = carriers.get(carrier);
+		return state != null && state.isOpen(System.currentTimeMillis());
+	}
+
+	/**
+	 * Calls the listener with the code of each carrier called so far and of
+	 * each carrier called for the first time later, used to publish the
+	 * latencies and breaker state of every carrier
+	 */
+	public void onNewCarrier(Consumer<String> listener) {
+		listeners.add(listener);
+		for (String carrier : carriers.keySet()) {
+			listener.accept(carrier);
+		}
+	}
+
+	private Carrier carrier(String code) {
+		Carrier state = carriers.get(code);
+		if (state != null) {
+			return state;
+		}
+		Carrier created = new Carrier();
+		state = carriers.putIfAbsent(code, created);
+		if (state != null) {
+			return state;
+		}
+		for (Consumer<String> listener : listeners) {
+			try {
+				listener.accept(code);
+			} catch (RuntimeException e) {
+				LOGGER.warn("Carrier listener failed for " + code, e);
+			}
+		}
+		return created;
+	}
+
+	private class Carrier {
+
+		private final LatencyHistogram latencies = new LatencyHistogram();
+
+		private int failures;
+		private long openUntil;
+		/** the single call made once the breaker was open long enough **/
+		private boolean trial;
+
+		synchronized boolean allowCall(long now) {
+			if (failures < failureThreshold) {
+				return true;
+			}
+			if (now < openUntil || trial) {
+				return false;
+			}
+			trial = true;
+			return true;
+		}
+
+		synchronized void succeeded() {
+			failures = 0;
+			trial = false;
+		}
+
+		/**
+		 * @return true when the breaker opens
+		 */
+		synchronized boolean failed(long now) {
+			boolean wasOpen = failures >= failureThreshold;
+			failures++;
+			trial = false;
+			if (failures >= failureThreshold) {
+				openUntil = now + openTime;
+				return !wasOpen;
+			}
+			return false;
+		}
+
+		synchronized boolean isOpen(long now) {
+			return failures >= failureThreshold && (now < openUntil || trial);
+		}
+	}
+
+}
@@ -0,0 +1,16 @@
+package com.salesmanager.core.business.modules.integration.shipping;
+
+import java.io.IOException;
+
+/**
+ * A carrier is not called because its recent calls failed
+ */
+public class CarrierUnavailableException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	public CarrierUnavailableException(String carrier) {
+		super("Carrier " + carrier + " is unavailable after repeated failures");
+	}
+
+}
@@ -0,0 +1,66 @@
+package com.salesmanager.core.business.modules.integration.shipping;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts of call durations in fixed millisecond buckets. Thread safe.
+ */
+public class LatencyHistogram {
+
+	/** upper bound (inclusive) of each bucket but the last one, in milliseconds **/
+	private static final long[] BOUNDS = { 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000 };
+
+	private final AtomicLongArray counts = new AtomicLongArray(BOUNDS.length + 1);
+
+	public void record(long millis) {
+		int bucket = 0;
+		while (bucket < BOUNDS.length && millis > BOUNDS[bucket]) {
+			bucket++;
+		}
+		counts.incrementAndGet(bucket);
+	}
+
+	public long getCount() {
+		long count = 0;
+		for (int i = 0; i < counts.length(); i++) {
+			count += counts.get(i);
+		}
+		return count;
+	}
+
+	/**
+	 * @param percentile
+	 *            between 0 and 100
+	 * @return upper bound of the bucket holding the percentile, -1 when
+	 *         nothing was recorded, Long.MAX_VALUE above the last bound
+	 */
+	public long getPercentile(double percentile) {
+		long count = getCount();
+		if (count == 0) {
+			return -1;
+		}
+		long rank = (long) Math.ceil(count * percentile / 100);
+		long seen = 0;
+		for (int i = 0; i < BOUNDS.length; i++) {
+			seen += counts.get(i);
+			if (seen >= rank) {
+				return BOUNDS[i];
+			}
+		}
+		return Long.MAX_VALUE;
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder histogram = new StringBuilder();
+		for (int i = 0; i < counts.length(); i++) {
+			if (histogram.length() > 0) {
+				histogram.append(' ');
+			}
+			histogram.append(i < BOUNDS.length ? "<=" + BOUNDS[i] : ">" + BOUNDS[BOUNDS.length - 1]).append("ms:")
+					.append(counts.get(i));
+		}
+		return histogram.toString();
+	}
+
+}
@@ -0,0 +1,492 @@
+package com.salesmanager.core.business.modules.integration.shipping.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Packs items in boxes. Items of the same size and weight are placed by
+ * blocks rather than one by one, largest items first, in the free space of
+ * an open box nearest to its corner they fit in (any of the 6 orientations)
+ * without exceeding the maximum weight of the box. Free spaces are the
+ * largest boxes left between the blocks, they may overlap, so the room left
+ * beside several blocks can still take a large item.
+ *
+ * When items do not fit in the open boxes, the smaller items coming next
+ * fill the spaces left first, then a box of the smallest type holding all the
+ * remaining items is opened, or of the type holding the most when none can.
+ *
+ * Heavy items may fill a box by weight before its volume, so items are also
+ * packed by their share of the largest box (volume or weight, the largest),
+ * the packing shipping the fewest boxes, then the least volume, is kept.
+ */
+public class BoxPacker {
+
+	private static final double EPSILON = 1e-9;
+
+	private final List<BoxType> boxTypes;
+
+	public BoxPacker(List<BoxType> boxTypes) {
+		this.boxTypes = new ArrayList<BoxType>(boxTypes);
+		this.boxTypes.sort(Comparator.comparingDouble(BoxType::getVolume));
+	}
+
+	/**
+	 * @return the boxes, null when an item does not fit in any box type
+	 */
+	public List<Box> pack(List<Item> items) {
+
+		List<Group> groups = group(items);
+		List<OpenBox> boxes = packGroups(groups);
+		if (boxes == null) {
+			return null;
+		}
+
+		BoxType largest = boxTypes.get(boxTypes.size() - 1);
+		List<Group> byShare = new ArrayList<Group>(groups);
+		byShare.sort(Comparator.comparingDouble((Group g) -> g.share(largest)).reversed()
+				.thenComparing(Comparator.comparingDouble((Group g) -> g.volume).reversed()));
+		if (!byShare.equals(groups)) {
+			List<OpenBox> other = packGroups(byShare);
+			if (other != null && (other.size() < boxes.size()
+					|| other.size() == boxes.size() && volume(other) < volume(boxes))) {
+				boxes = other;
+			}
+		}
+
+		List<Box> packed = new ArrayList<Box>(boxes.size());
+		for (OpenBox box : boxes) {
+			packed.add(new Box(box.type, box.weight, box.count));
+		}
+		return packed;
+	}
+
+	/**
+	 * Packs the groups in their order, the counts of the groups are not kept
+	 */
+	private List<OpenBox> packGroups(List<Group> groups) {
+
+		List<Group> remaining = new ArrayList<Group>(groups.size());
+		for (Group group : groups) {
+			remaining.add(group.copy());
+		}
+		List<OpenBox> boxes = new ArrayList<OpenBox>();
+
+		for (int g = 0; g < remaining.size(); g++) {
+			Group group = remaining.get(g);
+			place(boxes, group);
+			if (group.count > 0) {
+				// spaces too small for this group take the next ones first
+				for (Group next : remaining.subList(g + 1, remaining.size())) {
+					place(boxes, next);
+				}
+			}
+			while (group.count > 0) {
+				BoxType type = select(remaining.subList(g, remaining.size()));
+				if (type == null) {
+					return null;
+				}
+				OpenBox box = new OpenBox(type);
+				box.place(group);
+				boxes.add(box);
+			}
+		}
+		return boxes;
+	}
+
+	private void place(List<OpenBox> boxes, Group group) {
+		for (OpenBox box : boxes) {
+			if (group.count == 0) {
+				break;
+			}
+			box.place(group);
+		}
+	}
+
+	private double volume(List<OpenBox> boxes) {
+		double volume = 0;
+		for (OpenBox box : boxes) {
+			volume += box.type.getVolume();
+		}
+		return volume;
+	}
+
+	/**
+	 * Type of the next box, the first group must have at least one item
+	 * placed in it
+	 */
+	private BoxType select(List<Group> remaining) {
+		BoxType best = null;
+		double bestVolume = 0;
+		for (BoxType type : boxTypes) {
+			OpenBox box = new OpenBox(type);
+			double volume = 0;
+			boolean all = true;
+			for (int i = 0; i < remaining.size(); i++) {
+				Group group = remaining.get(i).copy();
+				int placed = box.place(group);
+				if (i == 0 && placed == 0) {
+					volume = -1;
+					break;
+				}
+				volume += placed * group.volume;
+				all &= group.count == 0;
+			}
+			if (volume < 0) {
+				continue;
+			}
+			if (all) {
+				return type;
+			}
+			if (volume > bestVolume + EPSILON) {
+				best = type;
+				bestVolume = volume;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Same items together, largest first
+	 */
+	private List<Group> group(List<Item> items) {
+		Map<String, Group> groups = new LinkedHashMap<String, Group>();
+		for (Item item : items) {
+			if (item.getQuantity() <= 0) {
+				continue;
+			}
+			double[] sides = { item.getWidth(), item.getHeight(), item.getLength() };
+			Arrays.sort(sides);
+			String key = sides[0] + "x" + sides[1] + "x" + sides[2] + "x" + item.getWeight();
+			Group group = groups.get(key);
+			if (group == null) {
+				groups.put(key, new Group(sides, item.getWeight(), item.getQuantity()));
+			} else {
+				group.count += item.getQuantity();
+			}
+		}
+		List<Group> sorted = new ArrayList<Group>(groups.values());
+		sorted.sort(Comparator.comparingDouble((Group g) -> g.volume).reversed()
+				.thenComparing(Comparator.comparingDouble((Group g) -> g.weight).reversed()));
+		return sorted;
+	}
+
+	private static class Group {
+
+		/** ascending **/
+		private final double[] sides;
+		private final double weight;
+		private final double volume;
+		private int count;
+
+		Group(double[] sides, double weight, int count) {
+			this.sides = sides;
+			this.weight = weight;
+			this.volume = sides[0] * sides[1] * sides[2];
+			this.count = count;
+		}
+
+		Group copy() {
+			return new Group(sides, weight, count);
+		}
+
+		/**
+		 * Part of a box taken by an item, by volume or weight
+		 */
+		double share(BoxType type) {
+			double share = volume / type.getVolume();
+			return type.getMaxWeight() > 0 ? Math.max(share, weight / type.getMaxWeight()) : share;
+		}
+	}
+
+	private static class OpenBox {
+
+		private final BoxType type;
+		/**
+		 * free spaces as x, y, z, width, height, length, the largest boxes
+		 * left between the blocks, they may overlap
+		 **/
+		private final List<double[]> spaces = new ArrayList<double[]>();
+		private double weight;
+		private int count;
+
+		OpenBox(BoxType type) {
+			this.type = type;
+			spaces.add(new double[] { 0, 0, 0, type.getWidth(), type.getHeight(), type.getLength() });
+		}
+
+		/**
+		 * Places as many items of the group as possible
+		 * @return items placed
+		 */
+		int place(Group group) {
+			int placed = 0;
+			boolean fits = true;
+			while (group.count > 0 && fits) {
+				int byWeight = group.count;
+				if (type.getMaxWeight() > 0 && group.weight > 0) {
+					byWeight = (int) Math.min(group.count, Math.floor((type.getMaxWeight() - weight) / group.weight + EPSILON));
+				}
+				fits = false;
+				for (int i = 0; i < spaces.size() && byWeight > 0; i++) {
+					int n = placeBlock(i, group, byWeight);
+					if (n > 0) {
+						group.count -= n;
+						weight += n * group.weight;
+						count += n;
+						placed += n;
+						fits = true;
+						break;
+					}
+				}
+			}
+			return placed;
+		}
+
+		/**
+		 * Places a block of at most max items in the corner of a free space,
+		 * in the orientation holding the most
+		 */
+		private int placeBlock(int index, Group group, int max) {
+			double[] space = spaces.get(index);
+			double[] best = null;
+			int bestCapacity = 0;
+			for (double[] o : orientations(group.sides)) {
+				int capacity = fit(space[3], o[0]) * fit(space[4], o[1]) * fit(space[5], o[2]);
+				if (Math.min(capacity, max) > Math.min(bestCapacity, max)) {
+					best = o;
+					bestCapacity = capacity;
+				}
+			}
+			if (best == null) {
+				return 0;
+			}
+
+			int nx = fit(space[3], best[0]);
+			int ny = fit(space[4], best[1]);
+			int n = Math.min(bestCapacity, max);
+			double[] block;
+			int placed;
+			if (n >= nx * ny) {
+				int layers = n / (nx * ny);
+				block = new double[] { nx * best[0], ny * best[1], layers * best[2] };
+				placed = layers * nx * ny;
+			} else if (n >= nx) {
+				int rows = n / nx;
+				block = new double[] { nx * best[0], rows * best[1], best[2] };
+				placed = rows * nx;
+			} else {
+				block = new double[] { n * best[0], best[1], best[2] };
+				placed = n;
+			}
+			occupy(new double[] { space[0], space[1], space[2], block[0], block[1], block[2] });
+			return placed;
+		}
+
+		/**
+		 * Splits the free spaces overlapping a block in the largest spaces
+		 * left around it
+		 */
+		private void occupy(double[] block) {
+			List<double[]> free = new ArrayList<double[]>(spaces.size() + 4);
+			for (double[] space : spaces) {
+				if (!overlaps(space, block)) {
+					free.add(space);
+					continue;
+				}
+				for (int axis = 0; axis < 3; axis++) {
+					double before = block[axis] - space[axis];
+					if (before > EPSILON) {
+						double[] piece = space.clone();
+						piece[axis + 3] = before;
+						free.add(piece);
+					}
+					double after = space[axis] + space[axis + 3] - block[axis] - block[axis + 3];
+					if (after > EPSILON) {
+						double[] piece = space.clone();
+						piece[axis] = block[axis] + block[axis + 3];
+						piece[axis + 3] = after;
+						free.add(piece);
+					}
+				}
+			}
+			spaces.clear();
+			for (int i = 0; i < free.size(); i++) {
+				boolean contained = false;
+				for (int j = 0; j < free.size() && !contained; j++) {
+					// of two equal spaces the first one is kept
+					contained = i != j && contains(free.get(j), free.get(i)) && (j < i || !contains(free.get(i), free.get(j)));
+				}
+				if (!contained) {
+					spaces.add(free.get(i));
+				}
+			}
+			// nearest to the corner of the box first
+			spaces.sort(Comparator.comparingDouble((double[] space) -> space[0] + space[1] + space[2]));
+		}
+
+		private static boolean overlaps(double[] a, double[] b) {
+			for (int axis = 0; axis < 3; axis++) {
+				if (a[axis] + a[axis + 3] <= b[axis] + EPSILON || b[axis] + b[axis + 3] <= a[axis] + EPSILON) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private static boolean contains(double[] outer, double[] inner) {
+			for (int axis = 0; axis < 3; axis++) {
+				if (inner[axis] < outer[axis] - EPSILON
+						|| inner[axis] + inner[axis + 3] > outer[axis] + outer[axis + 3] + EPSILON) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private static int fit(double space, double side) {
+			return (int) Math.floor(space / side + EPSILON);
+		}
+
+		private static List<double[]> orientations(double[] s) {
+			List<double[]> orientations = new ArrayList<double[]>(6);
+			orientations.add(new double[] { s[0], s[1], s[2] });
+			orientations.add(new double[] { s[0], s[2], s[1] });
+			orientations.add(new double[] { s[1], s[0], s[2] });
+			orientations.add(new double[] { s[1], s[2], s[0] });
+			orientations.add(new double[] { s[2], s[0], s[1] });
+			orientations.add(new double[] { s[2], s[1], s[0] });
+			return orientations;
+		}
+	}
+
+	/**
+	 * A quantity of identical items
+	 */
+	public static class Item {
+
+		private final double width;
+		private final double height;
+		private final double length;
+		private final double weight;
+		private final int quantity;
+
+		public Item(double width, double height, double length, double weight, int quantity) {
+			this.width = width;
+			this.height = height;
+			this.length = length;
+			this.weight = weight;
+			this.quantity = quantity;
+		}
+
+		public double getWidth() {
+			return width;
+		}
+
+		public double getHeight() {
+			return height;
+		}
+
+		public double getLength() {
+			return length;
+		}
+
+		public double getWeight() {
+			return weight;
+		}
+
+		public int getQuantity() {
+			return quantity;
+		}
+	}
+
+	/**
+	 * Inner dimensions, weight of the empty box and maximum weight of the
+	 * items it holds (0 for no maximum)
+	 */
+	public static class BoxType {
+
+		private final String code;
+		private final double width;
+		private final double height;
+		private final double length;
+		private final double weight;
+		private final double maxWeight;
+
+		public BoxType(String code, double width, double height, double length, double weight, double maxWeight) {
+			this.code = code;
+			this.width = width;
+			this.height = height;
+			this.length = length;
+			this.weight = weight;
+			this.maxWeight = maxWeight;
+		}
+
+		public String getCode() {
+			return code;
+		}
+
+		public double getWidth() {
+			return width;
+		}
+
+		public double getHeight() {
+			return height;
+		}
+
+		public double getLength() {
+			return length;
+		}
+
+		public double getWeight() {
+			return weight;
+		}
+
+		public double getMaxWeight() {
+			return maxWeight;
+		}
+
+		public double getVolume() {
+			return width * height * length;
+		}
+	}
+
+	/**
+	 * A packed box, immutable
+	 */
+	public static class Box {
+
+		private final BoxType type;
+		private final double itemsWeight;
+		private final int itemCount;
+
+		Box(BoxType type, double itemsWeight, int itemCount) {
+			this.type = type;
+			this.itemsWeight = itemsWeight;
+			this.itemCount = itemCount;
+		}
+
+		public BoxType getType() {
+			return type;
+		}
+
+		public double getItemsWeight() {
+			return itemsWeight;
+		}
+
+		public int getItemCount() {
+			return itemCount;
+		}
+
+		/**
+		 * @return weight of the box with its items
+		 */
+		public double getWeight() {
+			return type.getWeight() + itemsWeight;
+		}
+	}
+
+}
@@ -10,8 +10,6 @@ import javax.inject.Inject;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
-import org.kie.api.runtime.KieSession;
-import org.kie.internal.io.ResourceFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -142,13 +140,9 @@ public class CustomShippingQuoteRules implements ShippingQuoteModule {
 		LOGGER.debug("Setting input parameters " + inputParameters.toString());
 		
 		
-		KieSession kieSession=droolsBeanFactory.getKieSession(ResourceFactory.newClassPathResource("com/salesmanager/drools/rules/PriceByDistance.drl"));
-		
 		DecisionResponse resp = new DecisionResponse();
 		
-        kieSession.insert(inputParameters);
-        kieSession.setGlobal("decision",resp);
-        kieSession.fireAllRules();
+		droolsBeanFactory.execute(DroolsBeanFactory.RULES_PATH + "PriceByDistance.drl", "decision", resp, inputParameters);
         //System.out.println(resp.getCustomPrice());
 
 		if(resp.getCustomPrice() != null) {
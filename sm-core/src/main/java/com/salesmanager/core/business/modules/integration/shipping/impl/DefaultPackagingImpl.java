@@ -2,11 +2,17 @@ package com.salesmanager.core.business.modules.integration.shipping.impl;
 
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import javax.inject.Inject;
 
+import org.springframework.beans.factory.annotation.Value;
+
 import com.salesmanager.core.business.exception.ServiceException;
 import com.salesmanager.core.business.services.shipping.ShippingService;
 import com.salesmanager.core.business.services.system.MerchantLogService;
@@ -15,6 +21,7 @@ import com.salesmanager.core.model.catalog.product.attribute.ProductAttribute;
 import com.salesmanager.core.model.merchant.MerchantStore;
 import com.salesmanager.core.model.shipping.PackageDetails;
 import com.salesmanager.core.model.shipping.ShippingConfiguration;
+import com.salesmanager.core.model.shipping.ShippingPackageType;
 import com.salesmanager.core.model.shipping.ShippingProduct;
 import com.salesmanager.core.model.system.MerchantLog;
 import com.salesmanager.core.modules.integration.shipping.model.Packaging;
@@ -28,6 +35,20 @@ public class DefaultPackagingImpl implements Packaging {
 	@Inject
 	private MerchantLogService merchantLogService;
 	
+	/** recent packings by box types and cart items **/
+	@Value("${config.shipping.packingCacheSize:1000}")
+	private int packingCacheSize;
+	
+	private final Map<String, List<BoxPacker.Box>> packings = Collections.synchronizedMap(
+			new LinkedHashMap<String, List<BoxPacker.Box>>(16, 0.75f, true) {
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, List<BoxPacker.Box>> eldest) {
+					return size() > packingCacheSize;
+				}
+			});
+	
 	/** default dimensions **/
 	private final static Double defaultWeight = 1D;
 	private final static Double defaultHeight = 4D;
@@ -44,37 +65,26 @@ public class DefaultPackagingImpl implements Packaging {
 			throw new ServiceException("Product list cannot be null !!");
 		}
 
-		double width = 0;
-		double length = 0;
-		double height = 0;
-		double weight = 0;
-		double maxweight = 0;
-
-		//int treshold = 0;
-		
-		
 		ShippingConfiguration shippingConfiguration = shippingService.getShippingConfiguration(store);
 		if(shippingConfiguration==null) {
 			throw new ServiceException("ShippingConfiguration not found for merchant " + store.getCode());
 		}
 		
-		width = (double) shippingConfiguration.getBoxWidth();
-		length = (double) shippingConfiguration.getBoxLength();
-		height = (double) shippingConfiguration.getBoxHeight();
-		weight = shippingConfiguration.getBoxWeight();
-		maxweight = shippingConfiguration.getMaxWeight();
-		
-
-
-		List<PackageDetails> boxes = new ArrayList<PackageDetails>();
-
-		// maximum number of boxes
-		int maxBox = 100;
-		int iterCount = 0;
-
-		List<Product> individualProducts = new ArrayList<Product>();
+		List<BoxPacker.BoxType> boxTypes = getBoxTypes(shippingConfiguration);
+		if (boxTypes.isEmpty()) {
+			
+			merchantLogService.save(new MerchantLog(store,"shipping","Check shipping box configuration, it has a volume of "
+							+ (double) shippingConfiguration.getBoxWidth() * shippingConfiguration.getBoxLength() * shippingConfiguration.getBoxHeight()
+							+ " and a maximum weight of "
+							+ shippingConfiguration.getMaxWeight()
+							+ ". Those values must be greater than 0."));
+			
+			throw new ServiceException("Product configuration exceeds box configuraton");
+			
+		}
 
-		// need to put items individually
+		// same items are packed together, not one by one
+		List<BoxPacker.Item> items = new ArrayList<BoxPacker.Item>();
 		for(ShippingProduct shippingProduct : products){
 
 			Product product = shippingProduct.getProduct();
@@ -82,8 +92,6 @@ public class DefaultPackagingImpl implements Packaging {
 				continue;
 			}
 
-			int qty = shippingProduct.getQuantity();
-
 			Set<ProductAttribute> attrs = shippingProduct.getProduct().getAttributes();
 
 			// set attributes values
@@ -111,196 +119,43 @@ public class DefaultPackagingImpl implements Packaging {
 				}
 			}
 			
-
-
-			if (qty > 1) {
-
-				for (int i = 1; i <= qty; i++) {
-					Product temp = new Product();
-					temp.setProductHeight(h);
-					temp.setProductLength(l);
-					temp.setProductWidth(wd);
-					temp.setProductWeight(w);
-					temp.setAttributes(product.getAttributes());
-					temp.setDescriptions(product.getDescriptions());
-					individualProducts.add(temp);
-				}
-			} else {
-				Product temp = new Product();
-				temp.setProductHeight(h);
-				temp.setProductLength(l);
-				temp.setProductWidth(wd);
-				temp.setProductWeight(w);
-				temp.setAttributes(product.getAttributes());
-				temp.setDescriptions(product.getDescriptions());
-				individualProducts.add(temp);
-			}
-			iterCount++;
-		}
-
-		if (iterCount == 0) {
-			return null;
-		}
-
-		int productCount = individualProducts.size();
-
-		List<PackingBox> boxesList = new ArrayList<PackingBox>();
-
-		//start the creation of boxes
-		PackingBox box = new PackingBox();
-		// set box max volume
-		double maxVolume = width * length * height;
-
-		if (maxVolume == 0 || maxweight == 0) {
-			
-			merchantLogService.save(new MerchantLog(store,"shipping","Check shipping box configuration, it has a volume of "
-							+ maxVolume + " and a maximum weight of "
-							+ maxweight
-							+ ". Those values must be greater than 0."));
-			
-			throw new ServiceException("Product configuration exceeds box configuraton");
-			
-
-		}
-		
-		
-		box.setVolumeLeft(maxVolume);
-		box.setWeightLeft(maxweight);
-
-		boxesList.add(box);//assign first box
-
-		//int boxCount = 1;
-		List<Product> assignedProducts = new ArrayList<Product>();
-
-		// calculate the volume for the next object
-		if (assignedProducts.size() > 0) {
-			individualProducts.removeAll(assignedProducts);
-			assignedProducts = new ArrayList<Product>();
-		}
-
-		boolean productAssigned = false;
-
-		for(Product p : individualProducts) {
-
-			//Set<ProductAttribute> attributes = p.getAttributes();
-			productAssigned = false;
-
-			double productWeight = p.getProductWeight().doubleValue();
-
-
-			// validate if product fits in the box
-			if (p.getProductWidth().doubleValue() > width
-					|| p.getProductHeight().doubleValue() > height
-					|| p.getProductLength().doubleValue() > length) {
-				// log message to customer
-				merchantLogService.save(new MerchantLog(store,"shipping","Product "
-						+ p.getSku()
-						+ " has a demension larger than the box size specified. Will use per item calculation."));
-				throw new ServiceException("Product configuration exceeds box configuraton");
-
-			}
-
-			if (productWeight > maxweight) {
-				merchantLogService.save(new MerchantLog(store,"shipping","Product "
-						+ p.getSku()
-						+ " has a weight larger than the box maximum weight specified. Will use per item calculation."));
-				
-				throw new ServiceException("Product configuration exceeds box configuraton");
-
-			}
-
-			double productVolume = (p.getProductWidth().doubleValue()
-					* p.getProductHeight().doubleValue() * p
-					.getProductLength().doubleValue());
-
-			if (productVolume == 0) {
+			if (wd.signum() <= 0 || h.signum() <= 0 || l.signum() <= 0) {
 				
 				merchantLogService.save(new MerchantLog(store,"shipping","Product "
-						+ p.getSku()
+						+ product.getSku()
 						+ " has one of the dimension set to 0 and therefore cannot calculate the volume"));
 				
 				throw new ServiceException("Product configuration exceeds box configuraton");
 				
-
-			}
-			
-			if (productVolume > maxVolume) {
-				
-				throw new ServiceException("Product configuration exceeds box configuraton");
-				
-			}
-
-			//List boxesList = boxesList;
-
-			// try each box
-			//Iterator boxIter = boxesList.iterator();
-			for (PackingBox pbox : boxesList) {
-				double volumeLeft = pbox.getVolumeLeft();
-				double weightLeft = pbox.getWeightLeft();
-
-				if ((volumeLeft * .75) >= productVolume
-						&& pbox.getWeightLeft() >= productWeight) {// fit the item
-																	// in this
-																	// box
-					// fit in the current box
-					volumeLeft = volumeLeft - productVolume;
-					pbox.setVolumeLeft(volumeLeft);
-					weightLeft = weightLeft - productWeight;
-					pbox.setWeightLeft(weightLeft);
-
-					assignedProducts.add(p);
-					productCount--;
-
-					double w = pbox.getWeight();
-					w = w + productWeight;
-					pbox.setWeight(w);
-					productAssigned = true;
-					maxBox--;
-					break;
-
-				}
-
 			}
 
-			if (!productAssigned) {// create a new box
-
-				box = new PackingBox();
-				// set box max volume
-				box.setVolumeLeft(maxVolume);
-				box.setWeightLeft(maxweight);
+			items.add(new BoxPacker.Item(wd.doubleValue(), h.doubleValue(), l.doubleValue(), w.doubleValue(), shippingProduct.getQuantity()));
+		}
 
-				boxesList.add(box);
+		if (items.isEmpty()) {
+			return null;
+		}
 
-				double volumeLeft = box.getVolumeLeft() - productVolume;
-				box.setVolumeLeft(volumeLeft);
-				double weightLeft = box.getWeightLeft() - productWeight;
-				box.setWeightLeft(weightLeft);
-				assignedProducts.add(p);
-				productCount--;
-				double w = box.getWeight();
-				w = w + productWeight;
-				box.setWeight(w);
-				maxBox--;
+		String key = packingKey(boxTypes, items);
+		List<BoxPacker.Box> packed = packings.get(key);
+		if (packed == null) {
+			packed = new BoxPacker(boxTypes).pack(items);
+			if (packed == null) {
+				merchantLogService.save(new MerchantLog(store,"shipping","A product of the shopping cart"
+						+ " has a dimension or a weight larger than the box size specified. Will use per item calculation."));
+				throw new ServiceException("Product configuration exceeds box configuraton");
 			}
-
+			packings.put(key, packed);
 		}
 
-		// now prepare the shipping info
-
-		// number of boxes
-
-		//Iterator ubIt = usedBoxesList.iterator();
-
-		System.out.println("###################################");
-		System.out.println("Number of boxes " + boxesList.size());
-		System.out.println("###################################");
-
-		for(PackingBox pb : boxesList) {
+		List<PackageDetails> boxes = new ArrayList<PackageDetails>(packed.size());
+		for(BoxPacker.Box pb : packed) {
 			PackageDetails details = new PackageDetails();
-			details.setShippingHeight(height);
-			details.setShippingLength(length);
-			details.setShippingWeight(weight + box.getWeight());
-			details.setShippingWidth(width);
+			details.setCode(pb.getType().getCode());
+			details.setShippingHeight(pb.getType().getHeight());
+			details.setShippingLength(pb.getType().getLength());
+			details.setShippingWeight(pb.getWeight());
+			details.setShippingWidth(pb.getType().getWidth());
 			details.setItemName(store.getCode());
 			boxes.add(details);
 		}
@@ -308,6 +163,47 @@ public class DefaultPackagingImpl implements Packaging {
 		return boxes;
 
 	}
+	
+	/**
+	 * Box packages of the store, the box of the shipping configuration when
+	 * there is none
+	 */
+	private List<BoxPacker.BoxType> getBoxTypes(ShippingConfiguration shippingConfiguration) {
+		List<BoxPacker.BoxType> boxTypes = new ArrayList<BoxPacker.BoxType>();
+		for (com.salesmanager.core.model.shipping.Package box : shippingConfiguration.getPackages()) {
+			if (box.getShipPackageType() != ShippingPackageType.ITEM
+					&& box.getBoxWidth() * box.getBoxHeight() * box.getBoxLength() > 0) {
+				boxTypes.add(new BoxPacker.BoxType(box.getCode(), box.getBoxWidth(), box.getBoxHeight(), box.getBoxLength(),
+						box.getBoxWeight(), box.getMaxWeight()));
+			}
+		}
+		if (boxTypes.isEmpty() && shippingConfiguration.getMaxWeight() > 0 && (double) shippingConfiguration.getBoxWidth()
+				* shippingConfiguration.getBoxHeight() * shippingConfiguration.getBoxLength() > 0) {
+			boxTypes.add(new BoxPacker.BoxType(null, shippingConfiguration.getBoxWidth(), shippingConfiguration.getBoxHeight(),
+					shippingConfiguration.getBoxLength(), shippingConfiguration.getBoxWeight(), shippingConfiguration.getMaxWeight()));
+		}
+		return boxTypes;
+	}
+	
+	/**
+	 * Box types and the items of the cart in any order
+	 */
+	private String packingKey(List<BoxPacker.BoxType> boxTypes, List<BoxPacker.Item> items) {
+		StringBuilder key = new StringBuilder();
+		for (BoxPacker.BoxType type : boxTypes) {
+			key.append(type.getCode()).append(':').append(type.getWidth()).append('x').append(type.getHeight()).append('x').append(type.getLength())
+					.append('x').append(type.getWeight()).append('x').append(type.getMaxWeight()).append(';');
+		}
+		List<String> units = new ArrayList<String>(items.size());
+		for (BoxPacker.Item item : items) {
+			double[] sides = { item.getWidth(), item.getHeight(), item.getLength() };
+			Arrays.sort(sides);
+			units.add(sides[0] + "x" + sides[1] + "x" + sides[2] + "x" + item.getWeight() + "*" + item.getQuantity());
+		}
+		Collections.sort(units);
+		key.append('|').append(String.join(";", units));
+		return key.toString();
+	}
 
 	@Override
 	public List<PackageDetails> getItemPackagesDetails(
@@ -400,37 +296,3 @@ public class DefaultPackagingImpl implements Packaging {
 
 
 }
-
-
-class PackingBox {
-
-	private double volumeLeft;
-	private double weightLeft;
-	private double weight;
-
-	public double getVolumeLeft() {
-		return volumeLeft;
-	}
-
-	public void setVolumeLeft(double volumeLeft) {
-		this.volumeLeft = volumeLeft;
-	}
-
-	public double getWeight() {
-		return weight;
-	}
-
-	public void setWeight(double weight) {
-		this.weight = weight;
-	}
-
-	public double getWeightLeft() {
-		return weightLeft;
-	}
-
-	public void setWeightLeft(double weightLeft) {
-		this.weightLeft = weightLeft;
-	}
-
-}
-
@@ -10,6 +10,8 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 
+import javax.inject.Inject;
+
 import org.apache.commons.digester.Digester;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
@@ -19,12 +21,11 @@ import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
 import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.salesmanager.core.business.modules.integration.shipping.CarrierHttpClient;
 import com.salesmanager.core.business.utils.DataUtils;
 import com.salesmanager.core.model.common.Delivery;
 import com.salesmanager.core.model.merchant.MerchantStore;
@@ -51,6 +52,11 @@ public class UPSShippingQuote implements ShippingQuoteModule {
 	
 	private static final Logger LOGGER = LoggerFactory.getLogger(UPSShippingQuote.class);
 
+	private static final String MODULE_CODE = "ups";
+
+	@Inject
+	private CarrierHttpClient carrierHttpClient;
+
 
 	@Override
 	public void validateModuleConfiguration(
@@ -378,7 +384,6 @@ public class UPSShippingQuote implements ShippingQuoteModule {
 			LOGGER.debug("UPS QUOTE REQUEST " + xmlbuffer.toString());
 
 
-			try(CloseableHttpClient httpclient = HttpClients.createDefault()) {
 			//HttpClient client = new HttpClient();
 			httppost = new HttpPost(protocol + "://" + host + ":" + port
 					+ url);
@@ -397,7 +402,7 @@ public class UPSShippingQuote implements ShippingQuoteModule {
 					throw new ClientProtocolException("UPS quote communication error " + status);
 				}
 			};
-			String data = httpclient.execute(httppost, responseHandler);
+			String data = carrierHttpClient.execute(MODULE_CODE, httppost, responseHandler);
 
 			//int result = response.getStatusLine().getStatusCode();
 			//int result = client.executeMethod(httppost);
@@ -614,7 +619,6 @@ public class UPSShippingQuote implements ShippingQuoteModule {
 
 
 			return shippingOptions;
-	}
 		} catch (Exception e1) {
 			LOGGER.error("UPS quote error",e1);
 			throw new IntegrationException(e1);
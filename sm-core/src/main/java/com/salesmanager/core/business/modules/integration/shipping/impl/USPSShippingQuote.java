@@ -21,14 +21,13 @@ import org.apache.http.HttpResponse;
 import org.apache.http.client.ClientProtocolException;
 import org.apache.http.client.ResponseHandler;
 import org.apache.http.client.methods.HttpGet;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClients;
 import org.apache.http.util.EntityUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.salesmanager.core.business.constants.Constants;
 import com.salesmanager.core.business.services.reference.country.CountryService;
+import com.salesmanager.core.business.modules.integration.shipping.CarrierHttpClient;
 import com.salesmanager.core.business.utils.DataUtils;
 import com.salesmanager.core.business.utils.ProductPriceUtils;
 import com.salesmanager.core.constants.MeasureUnit;
@@ -58,10 +57,15 @@ public class USPSShippingQuote implements ShippingQuoteModule {
 	
 	private static final Logger LOGGER = LoggerFactory.getLogger(USPSShippingQuote.class);
 
+	private static final String MODULE_CODE = "usps";
+
 	
 	@Inject
 	private ProductPriceUtils productPriceUtils;
 	
+	@Inject
+	private CarrierHttpClient carrierHttpClient;
+	
 	@Inject
 	private CountryService countryService;
 	
@@ -425,7 +429,6 @@ public class USPSShippingQuote implements ShippingQuoteModule {
 
 			LOGGER.debug("USPS QUOTE REQUEST " + xmlbuffer.toString());
 			//HttpClient client = new HttpClient();
-			try(CloseableHttpClient httpclient = HttpClients.createDefault()) {
 			@SuppressWarnings("deprecation")
 			String encoded = java.net.URLEncoder.encode(xmlbuffer.toString());
 
@@ -453,7 +456,7 @@ public class USPSShippingQuote implements ShippingQuoteModule {
 				}
 			};
 
-            String data = httpclient.execute(httpget, responseHandler);
+            String data = carrierHttpClient.execute(MODULE_CODE, httpget, responseHandler);
 /*			int result = client.executeMethod(httpget);
 			if (result != 200) {
 				LOGGER.error("Communication Error with usps quote " + result + " "
@@ -661,7 +664,6 @@ public class USPSShippingQuote implements ShippingQuoteModule {
 			}*/
 
 			return shippingOptions;
-			}
 
 		} catch (Exception e1) {
 			LOGGER.error("Error in USPS shipping quote ",e1);
@@ -1,18 +1,9 @@
 package com.salesmanager.core.business.modules.order;
 
-import org.elasticsearch.action.DocWriteResponse;
-import org.elasticsearch.action.index.IndexRequest;
-import org.elasticsearch.action.index.IndexResponse;
-import org.elasticsearch.client.RequestOptions;
-import org.elasticsearch.client.RestHighLevelClient;
-import org.elasticsearch.common.xcontent.XContentType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
 import com.salesmanager.core.business.modules.common.IndexEntityProcessor;
 import com.salesmanager.core.model.customer.Customer;
 import com.salesmanager.core.model.merchant.MerchantStore;
@@ -57,38 +48,11 @@ public class IndexOrderProcessor extends IndexEntityProcessor implements OrderPr
 
 
 
-	/**
-	 * TODO migrate to
-	 * ExecutorService threadpool = Executors.newCachedThreadPool();
-	 * @param order
-	 * @param customer
-	 * @param store
-	 */
-	@Async
 	private void process(String event, Order order, Customer customer, MerchantStore store)  {
 		try {
-			RestHighLevelClient client = client();
-			
-			ObjectMapper mapper = new ObjectMapper();
-			mapper.configure(SerializationFeature.FAIL_ON_EMPTY_BEANS, false);			
-			Mapping m = new Mapping("order", event, order, customer);
-			String json = mapper.writeValueAsString(m);
-			
-			String indexName = new StringBuilder().append(INDEX_NAME).append(store.getCode().toLowerCase()).toString();
-
-	        
-	        IndexRequest indexRequest = new IndexRequest(indexName);
-	        indexRequest.id(String.valueOf(order.getId()));
-	        indexRequest.source(json, XContentType.JSON);
-
-		    IndexResponse response = client.index(indexRequest, RequestOptions.DEFAULT);
-		    
-		    if(response.getResult() != DocWriteResponse.Result.CREATED && response.getResult() != DocWriteResponse.Result.UPDATED) {
-		    	LOGGER.error(
-		          "An error occured while indexing an order document " + order.getId() + " " + response.getResult().name());
-		    }
-
-			client.close();
+			if(!index("order", event, order, customer, store)) {
+				LOGGER.warn("Order document " + order.getId() + " dropped, indexing queue is full");
+			}
 		} catch(Exception e) {
 			LOGGER.error("Cannot index order [" + order.getId() + "] ", e);
 		}
@@ -5,8 +5,6 @@ import java.util.Date;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
-import org.kie.api.runtime.KieSession;
-import org.kie.internal.io.ResourceFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -70,17 +68,13 @@ public class PromoCodeCalculatorModule implements OrderTotalPostProcessorModule
 			return null;
 		}
 		
-		KieSession kieSession=droolsBeanFactory.getKieSession(ResourceFactory.newClassPathResource("com/salesmanager/drools/rules/PromoCoupon.drl"));
-		
 		OrderTotalResponse resp = new OrderTotalResponse();
 		
 		OrderTotalInputParameters inputParameters = new OrderTotalInputParameters();
 		inputParameters.setPromoCode(summary.getPromoCode());
 		inputParameters.setDate(new Date());
 		
-        kieSession.insert(inputParameters);
-        kieSession.setGlobal("total",resp);
-        kieSession.fireAllRules();
+		droolsBeanFactory.execute(DroolsBeanFactory.RULES_PATH + "PromoCoupon.drl", "total", resp, inputParameters);
 
 		if(resp.getDiscount() != null) {
 			
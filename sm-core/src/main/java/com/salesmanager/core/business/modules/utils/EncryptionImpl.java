@@ -1,5 +1,7 @@
 package com.salesmanager.core.business.modules.utils;
 
+import java.util.Arrays;
+
 import javax.crypto.Cipher;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
@@ -9,75 +11,84 @@ import org.apache.commons.lang3.StringUtils;
 import com.salesmanager.core.modules.utils.Encryption;
 
 public final class EncryptionImpl implements Encryption {
-	
+
 	private final static String IV_P = "fedcba9876543210";
 	private final static String KEY_SPEC = "AES";
 	private final static String CYPHER_SPEC = "AES/CBC/PKCS5Padding";
-	
 
+	private final static char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+	private final static byte[] HEX_VALUES = new byte[128];
+
+	static {
+		Arrays.fill(HEX_VALUES, (byte) -1);
+		for (int i = 0; i < 16; i++) {
+			HEX_VALUES[HEX_DIGITS[i]] = (byte) i;
+			HEX_VALUES[Character.toUpperCase(HEX_DIGITS[i])] = (byte) i;
+		}
+	}
+
+	/** a Cipher is not thread safe, each thread keeps its own **/
+	private final static ThreadLocal<Cipher> CIPHERS = ThreadLocal.withInitial(() -> {
+		try {
+			return Cipher.getInstance(CYPHER_SPEC);
+		} catch (Exception e) {
+			throw new IllegalStateException("Cannot create cipher " + CYPHER_SPEC, e);
+		}
+	});
+
+	private final IvParameterSpec ivSpec = new IvParameterSpec(IV_P.getBytes());
 
     private String  secretKey;
 
+    private SecretKeySpec keySpec;
+
 
 
 	@Override
 	public String encrypt(String value) throws Exception {
 
-		
+
 		// value = StringUtils.rightPad(value, 16,"*");
 		// Cipher cipher = Cipher.getInstance("AES/CBC/NoPadding");
 		// NEED TO UNDERSTAND WHY PKCS5Padding DOES NOT WORK
-		Cipher cipher = Cipher.getInstance(CYPHER_SPEC);
-		SecretKeySpec keySpec = new SecretKeySpec(secretKey.getBytes(), KEY_SPEC);
-		IvParameterSpec ivSpec = new IvParameterSpec(IV_P
-				.getBytes());
+		Cipher cipher = CIPHERS.get();
 		cipher.init(Cipher.ENCRYPT_MODE, keySpec, ivSpec);
 		byte[] inpbytes = value.getBytes();
 		byte[] encrypted = cipher.doFinal(inpbytes);
 		return bytesToHex(encrypted);
-		
-		
+
+
 	}
 
 	@Override
 	public String decrypt(String value) throws Exception {
 
-		
+
 		if (StringUtils.isBlank(value))
 			throw new Exception("Nothing to encrypt");
 
 		// NEED TO UNDERSTAND WHY PKCS5Padding DOES NOT WORK
 		// Cipher cipher = Cipher.getInstance("AES/CBC/NoPadding");
-		Cipher cipher = Cipher.getInstance(CYPHER_SPEC);
-		SecretKeySpec keySpec = new SecretKeySpec(secretKey.getBytes(), KEY_SPEC);
-		IvParameterSpec ivSpec = new IvParameterSpec(IV_P
-				.getBytes());
+		Cipher cipher = CIPHERS.get();
 		cipher.init(Cipher.DECRYPT_MODE, keySpec, ivSpec);
 		byte[] outText;
 		outText = cipher.doFinal(hexToBytes(value));
 		return new String(outText);
-		
-		
+
+
 	}
-	
-	
-	private String bytesToHex(byte[] data) {
+
+
+	private static String bytesToHex(byte[] data) {
 		if (data == null) {
 			return null;
-		} else {
-			int len = data.length;
-			String str = "";
-			for (byte datum : data) {
-				if ((datum & 0xFF) < 16) {
-					str = str + "0"
-							+ Integer.toHexString(datum & 0xFF);
-				} else {
-					str = str + Integer.toHexString(datum & 0xFF);
-				}
-
-			}
-			return str;
 		}
+		char[] hex = new char[data.length * 2];
+		for (int i = 0; i < data.length; i++) {
+			hex[i * 2] = HEX_DIGITS[(data[i] >> 4) & 0x0F];
+			hex[i * 2 + 1] = HEX_DIGITS[data[i] & 0x0F];
+		}
+		return new String(hex);
 	}
 
 	private static byte[] hexToBytes(String str) {
@@ -89,19 +100,27 @@ public final class EncryptionImpl implements Encryption {
 			int len = str.length() / 2;
 			byte[] buffer = new byte[len];
 			for (int i = 0; i < len; i++) {
-				buffer[i] = (byte) Integer.parseInt(str.substring(i * 2,
-						i * 2 + 2), 16);
+				buffer[i] = (byte) ((hexValue(str.charAt(i * 2)) << 4) | hexValue(str.charAt(i * 2 + 1)));
 			}
 			return buffer;
 		}
 	}
-	
+
+	private static int hexValue(char c) {
+		int value = c < 128 ? HEX_VALUES[c] : -1;
+		if (value < 0) {
+			throw new NumberFormatException("Invalid hex character " + c);
+		}
+		return value;
+	}
+
 	public String getSecretKey() {
 		return secretKey;
 	}
 
 	public void setSecretKey(String secretKey) {
 		this.secretKey = secretKey;
+		this.keySpec = new SecretKeySpec(secretKey.getBytes(), KEY_SPEC);
 	}
 
 }
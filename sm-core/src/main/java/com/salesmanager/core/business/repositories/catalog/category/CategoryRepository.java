@@ -51,10 +51,10 @@ public interface CategoryRepository extends JpaRepository<Category, Long>, Categ
 	@Query("select c from Category c join fetch c.descriptions cd join fetch cd.language cdl join fetch c.merchantStore cm where c.id=?1")
 	Category findOne(Long categoryId);
 	
-	@Query("select distinct c from Category c left join fetch c.descriptions cd join fetch cd.language cdl join fetch c.merchantStore cm where cm.id=?1 and c.lineage like %?2% order by c.lineage, c.sortOrder asc")
+	@Query("select distinct c from Category c left join fetch c.descriptions cd join fetch cd.language cdl join fetch c.merchantStore cm where cm.id=?1 and c.lineage like ?2% order by c.lineage, c.sortOrder asc")
 	List<Category> findByLineage(Integer merchantId, String linenage);
 	
-	@Query("select distinct c from Category c left join fetch c.descriptions cd join fetch cd.language cdl join fetch c.merchantStore cm where cm.code= ?1 and c.lineage like %?2% order by c.lineage, c.sortOrder asc")
+	@Query("select distinct c from Category c left join fetch c.descriptions cd join fetch cd.language cdl join fetch c.merchantStore cm where cm.code= ?1 and c.lineage like ?2% order by c.lineage, c.sortOrder asc")
 	List<Category> findByLineage(String storeCode, String linenage);
 	
 	@Query("select distinct c from Category c left join fetch c.descriptions cd join fetch cd.language cdl join fetch c.merchantStore cm where cm.id=?1 and c.depth >= ?2 order by c.lineage, c.sortOrder asc")
@@ -80,6 +80,9 @@ public interface CategoryRepository extends JpaRepository<Category, Long>, Categ
 	
 	@Query("select count(distinct c) from Category as c where c.merchantStore.id=?1")
 	int count(Integer storeId);
+	
+	@Query("select c.id, cp.id from Category c left join c.parent cp where c.merchantStore.id=?1 order by c.lineage, c.sortOrder asc")
+	List<Object[]> findTreeByStore(Integer storeId);
 
 
 	
@@ -12,4 +12,6 @@ public interface CategoryRepositoryCustom {
 
 	List<Category> listByStoreAndParent(MerchantStore store, Category category);
 
+	List<Object[]> listProductsByCategories(Integer storeId);
+
 }
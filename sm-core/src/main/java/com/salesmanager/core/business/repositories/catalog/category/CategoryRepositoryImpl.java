@@ -42,6 +42,27 @@ public class CategoryRepositoryImpl implements CategoryRepositoryCustom {
     	return counts;
 		
 		
+	}
+	
+	@Override
+	public List<Object[]> listProductsByCategories(Integer storeId) {
+
+		StringBuilder qs = new StringBuilder();
+		// products available later are returned, the date is checked by the caller
+		qs.append("select category.id, product.id, product.dateAvailable from Product product ");
+		qs.append("inner join product.categories category ");
+		qs.append("where category.merchantStore.id=:mid ");
+		qs.append("and product.available=true");
+
+		Query q = this.em.createQuery(qs.toString());
+
+		q.setParameter("mid", storeId);
+
+		@SuppressWarnings("unchecked")
+		List<Object[]> rows = q.getResultList();
+
+		return rows;
+
 	}
 	
 	@SuppressWarnings("unchecked")
@@ -1,10 +1,40 @@
 package com.salesmanager.core.business.repositories.catalog.product;
 
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 import com.salesmanager.core.model.catalog.product.Product;
 
 
 public interface ProductRepository extends JpaRepository<Product, Long>, ProductRepositoryCustom {
 
+	@Query("select count(p) from Product p where p.merchantStore.id = ?1")
+	long countByStore(Integer storeId);
+
+	/**
+	 * Product ids of a store greater than an id, in id order
+	 */
+	@Query("select p.id from Product p where p.merchantStore.id = ?1 and p.id > ?2 order by p.id")
+	List<Long> listIdsByStore(Integer storeId, Long afterId, Pageable pageable);
+
+	@Query("select p.id from Product p where p.merchantStore.id = ?1 and p.auditSection.dateModified >= ?2")
+	List<Long> listIdsModifiedSince(Integer storeId, Date since);
+
+	/**
+	 * Ids among the given ones of the products not deleted
+	 */
+	@Query("select p.id from Product p where p.id in ?1")
+	List<Long> listExistingIds(Collection<Long> ids);
+
+	/**
+	 * Sku and id of the products of a store having one of the skus
+	 */
+	@Query("select p.sku, p.id from Product p where p.merchantStore.id = ?1 and p.sku in ?2")
+	List<Object[]> listIdsBySku(Integer storeId, Collection<String> skus);
+
 }
@@ -28,6 +28,11 @@ public interface ProductRepositoryCustom {
 
 		List<Product> getProductsListByIds(Set<Long> productIds);
 
+		/**
+		 * Fully loaded products for a set of ids regardless of availability
+		 */
+		List<Product> listByIds(Set<Long> productIds);
+
 		List<Product> listByTaxClass(TaxClass taxClass);
 
 		List<Product> listByStore(MerchantStore store);
@@ -2,8 +2,10 @@ package com.salesmanager.core.business.repositories.catalog.product;
 
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 
 import javax.persistence.EntityManager;
@@ -14,15 +16,22 @@ import javax.persistence.Query;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.lang3.StringUtils;
+import org.hibernate.Hibernate;
+import org.hibernate.jpa.QueryHints;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import com.salesmanager.core.business.constants.Constants;
 import com.salesmanager.core.business.utils.RepositoryHelper;
+import com.salesmanager.core.model.catalog.category.Category;
 import com.salesmanager.core.model.catalog.product.Product;
 import com.salesmanager.core.model.catalog.product.ProductCriteria;
 import com.salesmanager.core.model.catalog.product.ProductList;
 import com.salesmanager.core.model.catalog.product.attribute.AttributeCriteria;
+import com.salesmanager.core.model.catalog.product.attribute.ProductAttribute;
+import com.salesmanager.core.model.catalog.product.availability.ProductAvailability;
+import com.salesmanager.core.model.catalog.product.price.ProductPrice;
 import com.salesmanager.core.model.common.GenericEntityList;
 import com.salesmanager.core.model.merchant.MerchantStore;
 import com.salesmanager.core.model.reference.language.Language;
@@ -32,6 +41,9 @@ public class ProductRepositoryImpl implements ProductRepositoryCustom {
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(ProductRepositoryImpl.class);
 
+	/** query results of product by id, see spring/ehcache-hibernate.xml **/
+	private static final String PRODUCT_QUERY_REGION = "query.catalog.product";
+
 	@PersistenceContext
 	private EntityManager em;
 
@@ -122,6 +134,14 @@ public class ProductRepositoryImpl implements ProductRepositoryCustom {
 			String hql = qs.toString();
 			Query q = this.em.createQuery(hql);
 
+			// a product read from the query cache is initialized from the second level
+			// cache regions, which needs the persistence context of a transaction
+			boolean cached = TransactionSynchronizationManager.isActualTransactionActive();
+			if (cached) {
+				q.setHint(QueryHints.HINT_CACHEABLE, true);
+				q.setHint(QueryHints.HINT_CACHE_REGION, PRODUCT_QUERY_REGION);
+			}
+
 			q.setParameter("pid", productId);
 			//if (merchant != null) {
 				//q.setParameter("mid", merchant.getId());
@@ -132,7 +152,11 @@ public class ProductRepositoryImpl implements ProductRepositoryCustom {
 				q.setParameter("mid", ids);
 			}
 
-			return (Product) q.getSingleResult();
+			Product product = (Product) q.getSingleResult();
+			if (cached) {
+				initialize(product);
+			}
+			return product;
 
 		} catch (javax.persistence.NoResultException ers) {
 			return null;
@@ -140,6 +164,35 @@ public class ProductRepositoryImpl implements ProductRepositoryCustom {
 
 	}
 
+	/**
+	 * Loads the associations fetched by productQuery(), a product found in the
+	 * query cache comes with uninitialized collections and proxies
+	 */
+	private void initialize(Product product) {
+		Hibernate.initialize(product.getMerchantStore());
+		Hibernate.initialize(product.getDescriptions());
+		for (ProductAvailability availability : product.getAvailabilities()) {
+			for (ProductPrice price : availability.getPrices()) {
+				Hibernate.initialize(price.getDescriptions());
+			}
+		}
+		for (Category category : product.getCategories()) {
+			Hibernate.initialize(category.getDescriptions());
+		}
+		Hibernate.initialize(product.getImages());
+		for (ProductAttribute attribute : product.getAttributes()) {
+			Hibernate.initialize(attribute.getProductOption().getDescriptions());
+			Hibernate.initialize(attribute.getProductOptionValue().getDescriptions());
+		}
+		Hibernate.initialize(product.getRelationships());
+		if (product.getManufacturer() != null) {
+			Hibernate.initialize(product.getManufacturer().getDescriptions());
+		}
+		Hibernate.initialize(product.getType());
+		Hibernate.initialize(product.getTaxClass());
+		Hibernate.initialize(product.getOwner());
+	}
+
 	@Override
 	public Product getByCode(String productCode, Language language) {
 
@@ -369,46 +422,14 @@ public class ProductRepositoryImpl implements ProductRepositoryCustom {
 	@Override
 	public List<Product> getProductsListByCategories(Set categoryIds) {
 
-		// List regionList = new ArrayList();
-		// regionList.add("*");
-		// regionList.add(locale.getCountry());
-
-		// TODO Test performance
 		/**
-		 * Testing in debug mode takes a long time with this query running in
-		 * normal mode is fine
+		 * Product ids are selected first, the page is then hydrated
+		 * collection by collection (see hydrate)
 		 */
 
 		StringBuilder qs = new StringBuilder();
-		qs.append("select distinct p from Product as p ");
-		qs.append("join fetch p.merchantStore merch ");
-		qs.append("join fetch p.availabilities pa ");
-		qs.append("left join fetch pa.prices pap ");
-
-		qs.append("join fetch p.descriptions pd ");
-		qs.append("join fetch p.categories categs ");
-
-		qs.append("left join fetch pap.descriptions papd ");
-
-		// images
-		qs.append("left join fetch p.images images ");
-
-		// options (do not need attributes for listings)
-		qs.append("left join fetch p.attributes pattr ");
-		qs.append("left join fetch pattr.productOption po ");
-		qs.append("left join fetch po.descriptions pod ");
-		qs.append("left join fetch pattr.productOptionValue pov ");
-		qs.append("left join fetch pov.descriptions povd ");
-
-		// other lefts
-		qs.append("left join fetch p.manufacturer manuf ");
-		qs.append("left join fetch p.type type ");
-		qs.append("left join fetch p.taxClass tx ");
-
-		// RENTAL
-		qs.append("left join fetch p.owner owner ");
-
-		// qs.append("where pa.region in (:lid) ");
+		qs.append("select distinct p.id from Product as p ");
+		qs.append("join p.categories categs ");
 		qs.append("where categs.id in (:cid)");
 
 		String hql = qs.toString();
@@ -417,58 +438,24 @@ public class ProductRepositoryImpl implements ProductRepositoryCustom {
 		q.setParameter("cid", categoryIds);
 
 		@SuppressWarnings("unchecked")
-		List<Product> products = q.getResultList();
+		List<Long> ids = q.getResultList();
 
-		return products;
+		return hydrate(ids);
 
 	}
 
 	@Override
 	public List<Product> getProductsListByCategories(Set<Long> categoryIds, Language language) {
 
-		// List regionList = new ArrayList();
-		// regionList.add("*");
-		// regionList.add(locale.getCountry());
-
-		// TODO Test performance
-		/**
-		 * Testing in debug mode takes a long time with this query running in
-		 * normal mode is fine
-		 */
-
 		StringBuilder qs = new StringBuilder();
-		qs.append("select distinct p from Product as p ");
-		qs.append("join fetch p.merchantStore merch ");
-		qs.append("join fetch p.availabilities pa ");
-		qs.append("left join fetch pa.prices pap ");
-
-		qs.append("join fetch p.descriptions pd ");
-		qs.append("join fetch p.categories categs ");
-		qs.append("left join fetch pap.descriptions papd ");
-
-		// images
-		qs.append("left join fetch p.images images ");
-
-		// options (do not need attributes for listings)
-		qs.append("left join fetch p.attributes pattr ");
-		qs.append("left join fetch pattr.productOption po ");
-		qs.append("left join fetch po.descriptions pod ");
-		qs.append("left join fetch pattr.productOptionValue pov ");
-		qs.append("left join fetch pov.descriptions povd ");
-
-		// other lefts
-		qs.append("left join fetch p.manufacturer manuf ");
-		qs.append("left join fetch manuf.descriptions manufd ");
-		qs.append("left join fetch p.type type ");
-		qs.append("left join fetch p.taxClass tx ");
-
-		// RENTAL
-		qs.append("left join fetch p.owner owner ");
+		qs.append("select distinct p.id from Product as p ");
+		qs.append("join p.availabilities pa ");
+		qs.append("join p.descriptions pd ");
+		qs.append("join p.categories categs ");
+		qs.append("left join pa.prices pap ");
+		qs.append("left join pap.descriptions papd ");
 
-		// qs.append("where pa.region in (:lid) ");
 		qs.append("where categs.id in (:cid) ");
-		// qs.append("and pd.language.id=:lang and papd.language.id=:lang and
-		// manufd.language.id=:lang ");
 		qs.append("and pd.language.id=:lang and papd.language.id=:lang ");
 		qs.append("and p.available=true and p.dateAvailable<=:dt ");
 
@@ -480,9 +467,9 @@ public class ProductRepositoryImpl implements ProductRepositoryCustom {
 		q.setParameter("dt", new Date());
 
 		@SuppressWarnings("unchecked")
-		List<Product> products = q.getResultList();
+		List<Long> ids = q.getResultList();
 
-		return products;
+		return hydrate(ids);
 
 	}
 
@@ -502,6 +489,11 @@ public class ProductRepositoryImpl implements ProductRepositoryCustom {
 		return q.getResultList();
 	}
 
+	@Override
+	public List<Product> listByIds(Set<Long> productIds) {
+		return hydrate(new ArrayList<Long>(productIds));
+	}
+
 	/**
 	 * This query is used for category listings. All collections are not fully
 	 * loaded, only the required objects so the listing page can display
@@ -520,7 +512,7 @@ public class ProductRepositoryImpl implements ProductRepositoryCustom {
 		ProductList productList = new ProductList();
 
 		Query countQ = this.em.createQuery(
-				"select count(p) from Product as p INNER JOIN p.availabilities pa INNER JOIN p.categories categs where p.merchantStore.id=:mId and categs.id in (:cid) and pa.region in (:lid) and p.available=1 and p.dateAvailable<=:dt");
+				"select count(distinct p) from Product as p INNER JOIN p.availabilities pa INNER JOIN p.categories categs where p.merchantStore.id=:mId and categs.id in (:cid) and pa.region in (:lid) and p.available=1 and p.dateAvailable<=:dt");
 
 		countQ.setParameter("cid", categoryIds);
 		countQ.setParameter("lid", regionList);
@@ -535,42 +527,14 @@ public class ProductRepositoryImpl implements ProductRepositoryCustom {
 			return productList;
 
 		StringBuilder qs = new StringBuilder();
-		qs.append("select p from Product as p ");
-		qs.append("join fetch p.merchantStore merch ");
-		qs.append("join fetch p.availabilities pa ");
-		qs.append("left join fetch pa.prices pap ");
-
-		qs.append("join fetch p.descriptions pd ");
-		qs.append("join fetch p.categories categs ");
-
-		// not necessary
-		// qs.append("join fetch pap.descriptions papd ");
-
-		// images
-		qs.append("left join fetch p.images images ");
+		qs.append("select distinct p.id, p.sortOrder from Product as p ");
+		qs.append("join p.availabilities pa ");
+		qs.append("join p.descriptions pd ");
+		qs.append("join p.categories categs ");
 
-		// options (do not need attributes for listings)
-		// qs.append("left join fetch p.attributes pattr ");
-		// qs.append("left join fetch pattr.productOption po ");
-		// qs.append("left join fetch po.descriptions pod ");
-		// qs.append("left join fetch pattr.productOptionValue pov ");
-		// qs.append("left join fetch pov.descriptions povd ");
-
-		// other lefts
-		qs.append("left join fetch p.manufacturer manuf ");
-		qs.append("left join fetch manuf.descriptions manufd ");
-		qs.append("left join fetch p.type type ");
-		qs.append("left join fetch p.taxClass tx ");
-
-		// RENTAL
-		qs.append("left join fetch p.owner owner ");
-
-		// qs.append("where pa.region in (:lid) ");
-		qs.append("where p.merchantStore.id=mId and categs.id in (:cid) and pa.region in (:lid) ");
-		// qs.append("and p.available=true and p.dateAvailable<=:dt and
-		// pd.language.id=:lang and manufd.language.id=:lang");
+		qs.append("where p.merchantStore.id=:mId and categs.id in (:cid) and pa.region in (:lid) ");
 		qs.append("and p.available=true and p.dateAvailable<=:dt and pd.language.id=:lang");
-		qs.append(" order by p.sortOrder asc");
+		qs.append(" order by p.sortOrder asc, p.id asc");
 
 		String hql = qs.toString();
 		Query q = this.em.createQuery(hql);
@@ -583,24 +547,25 @@ public class ProductRepositoryImpl implements ProductRepositoryCustom {
 
 		q.setFirstResult(first);
 		if (max > 0) {
-			int maxCount = first + max;
-
-			q.setMaxResults(Math.min(maxCount, count.intValue()));
+			q.setMaxResults(max);
 		}
 
-		List<Product> products = q.getResultList();
-		productList.setProducts(products);
+		productList.setProducts(hydrate(ids(q.getResultList())));
 
 		return productList;
 
 	}
 
 	/**
-	 * This query is used for filtering products based on criterias
+	 * This query is used for filtering products based on criterias.
+	 *
+	 * The listing runs in two phases: the requested page of product ids is
+	 * selected first so the database applies ordering and limits, then only
+	 * that page is hydrated (see hydrate)
 	 *
 	 * @param store
-	 * @param first
-	 * @param max
+	 * @param language
+	 * @param criteria
 	 * @return
 	 */
 	@Override
@@ -608,142 +573,88 @@ public class ProductRepositoryImpl implements ProductRepositoryCustom {
 
 		ProductList productList = new ProductList();
 
-		StringBuilder countBuilderSelect = new StringBuilder();
-		countBuilderSelect.append("select count(distinct p) from Product as p");
+		StringBuilder fromBuilder = new StringBuilder();
+		fromBuilder.append(" from Product as p");
 
-		StringBuilder countBuilderWhere = new StringBuilder();
-		countBuilderWhere.append(" where p.merchantStore.id=:mId");
+		StringBuilder whereBuilder = new StringBuilder();
+		whereBuilder.append(" where p.merchantStore.id=:mId");
 
 		if (!CollectionUtils.isEmpty(criteria.getProductIds())) {
-			countBuilderWhere.append(" and p.id in (:pId)");
+			whereBuilder.append(" and p.id in (:pId)");
 		}
 
-		countBuilderSelect.append(" inner join p.descriptions pd");
+		fromBuilder.append(" inner join p.descriptions pd");
 		if (criteria.getLanguage() != null && !criteria.getLanguage().equals("_all")) {
-			countBuilderWhere.append(" and pd.language.code=:lang");
+			whereBuilder.append(" and pd.language.code=:lang");
 		}
 
 		if (!StringUtils.isBlank(criteria.getProductName())) {
-			countBuilderWhere.append(" and lower(pd.name) like:nm");
+			whereBuilder.append(" and lower(pd.name) like:nm");
 		}
 
 		if (!CollectionUtils.isEmpty(criteria.getCategoryIds())) {
-			countBuilderSelect.append(" INNER JOIN p.categories categs");
-			countBuilderWhere.append(" and categs.id in (:cid)");
+			fromBuilder.append(" INNER JOIN p.categories categs");
+			whereBuilder.append(" and categs.id in (:cid)");
 		}
 
 		if (criteria.getManufacturerId() != null) {
-			countBuilderSelect.append(" INNER JOIN p.manufacturer manuf");
-			countBuilderWhere.append(" and manuf.id = :manufid");
+			fromBuilder.append(" INNER JOIN p.manufacturer manuf");
+			whereBuilder.append(" and manuf.id = :manufid");
 		}
 
 		if (!StringUtils.isBlank(criteria.getCode())) {
-			countBuilderWhere.append(" and lower(p.sku) like :sku");
+			whereBuilder.append(" and lower(p.sku) like :sku");
 		}
 
 		// RENTAL
 		if (!StringUtils.isBlank(criteria.getStatus())) {
-			countBuilderWhere.append(" and p.rentalStatus = :status");
+			whereBuilder.append(" and p.rentalStatus = :status");
 		}
 
 		if (criteria.getOwnerId() != null) {
-			countBuilderSelect.append(" INNER JOIN p.owner owner");
-			countBuilderWhere.append(" and owner.id = :ownerid");
+			fromBuilder.append(" INNER JOIN p.owner owner");
+			whereBuilder.append(" and owner.id = :ownerid");
 		}
 
 		//attribute or option values
 		if (CollectionUtils.isNotEmpty(criteria.getAttributeCriteria()) || CollectionUtils.isNotEmpty(criteria.getOptionValueIds())) {
 
-			countBuilderSelect.append(" INNER JOIN p.attributes pattr");
-			countBuilderSelect.append(" INNER JOIN pattr.productOption po");
-			countBuilderSelect.append(" INNER JOIN pattr.productOptionValue pov ");
-			countBuilderSelect.append(" INNER JOIN pov.descriptions povd ");
+			fromBuilder.append(" INNER JOIN p.attributes pattr");
+			fromBuilder.append(" INNER JOIN pattr.productOption po");
+			fromBuilder.append(" INNER JOIN pattr.productOptionValue pov ");
+			fromBuilder.append(" INNER JOIN pov.descriptions povd ");
 			
 			if(CollectionUtils.isNotEmpty(criteria.getAttributeCriteria())) {
 				int count = 0;
 				for (AttributeCriteria attributeCriteria : criteria.getAttributeCriteria()) {
 					if (count == 0) {
-						countBuilderWhere.append(" and po.code =:").append(attributeCriteria.getAttributeCode());
-						countBuilderWhere.append(" and povd.description like :").append("val").append(count)
+						whereBuilder.append(" and po.code =:").append(attributeCriteria.getAttributeCode());
+						whereBuilder.append(" and povd.description like :").append("val").append(count)
 								.append(attributeCriteria.getAttributeCode());
 					}
 					count++;
 				}
 				if (criteria.getLanguage() != null && !criteria.getLanguage().equals("_all")) {
-					countBuilderWhere.append(" and povd.language.code=:lang");
+					whereBuilder.append(" and povd.language.code=:lang");
 				}
 			}
 			
 			if(CollectionUtils.isNotEmpty(criteria.getOptionValueIds())) {
-				countBuilderWhere.append(" and pov.id in (:povid)");
+				whereBuilder.append(" and pov.id in (:povid)");
 			}
 
 		}
 
 		if (criteria.getAvailable() != null) {
 			if (criteria.getAvailable()) {
-				countBuilderWhere.append(" and p.available=true and p.dateAvailable<=:dt");
+				whereBuilder.append(" and p.available=true and p.dateAvailable<=:dt");
 			} else {
-				countBuilderWhere.append(" and p.available=false or p.dateAvailable>:dt");
+				whereBuilder.append(" and (p.available=false or p.dateAvailable>:dt)");
 			}
 		}
 
-		Query countQ = this.em.createQuery(countBuilderSelect.toString() + countBuilderWhere.toString());
-
-		countQ.setParameter("mId", store.getId());
-
-		if (!CollectionUtils.isEmpty(criteria.getCategoryIds())) {
-			countQ.setParameter("cid", criteria.getCategoryIds());
-		}
-		
-		if(CollectionUtils.isNotEmpty(criteria.getOptionValueIds())) {
-			countQ.setParameter("povid", criteria.getOptionValueIds());
-		}
-
-		if (criteria.getAvailable() != null) {
-			countQ.setParameter("dt", new Date());
-		}
-
-		if (!StringUtils.isBlank(criteria.getCode())) {
-			countQ.setParameter("sku",
-					new StringBuilder().append("%").append(criteria.getCode().toLowerCase()).append("%").toString());
-		}
-
-		if (criteria.getManufacturerId() != null) {
-			countQ.setParameter("manufid", criteria.getManufacturerId());
-		}
-
-		if (!CollectionUtils.isEmpty(criteria.getAttributeCriteria())) {
-			int count = 0;
-			for (AttributeCriteria attributeCriteria : criteria.getAttributeCriteria()) {
-				countQ.setParameter(attributeCriteria.getAttributeCode(), attributeCriteria.getAttributeCode());
-				countQ.setParameter("val" + count + attributeCriteria.getAttributeCode(),
-						"%" + attributeCriteria.getAttributeValue() + "%");
-				count++;
-			}
-		}
-
-		if (criteria.getLanguage() != null && !criteria.getLanguage().equals("_all")) {
-			countQ.setParameter("lang", language.getCode());
-		}
-
-		if (!StringUtils.isBlank(criteria.getProductName())) {
-			countQ.setParameter("nm", new StringBuilder().append("%").append(criteria.getProductName().toLowerCase())
-					.append("%").toString());
-		}
-
-		if (!CollectionUtils.isEmpty(criteria.getProductIds())) {
-			countQ.setParameter("pId", criteria.getProductIds());
-		}
-
-		// RENTAL
-		if (!StringUtils.isBlank(criteria.getStatus())) {
-			countQ.setParameter("status", criteria.getStatus());
-		}
-
-		if (criteria.getOwnerId() != null) {
-			countQ.setParameter("ownerid", criteria.getOwnerId());
-		}
+		Query countQ = this.em.createQuery("select count(distinct p)" + fromBuilder.toString() + whereBuilder.toString());
+		setCriteriaParameters(countQ, store, language, criteria);
 
 		Number count = (Number) countQ.getSingleResult();
 
@@ -752,152 +663,77 @@ public class ProductRepositoryImpl implements ProductRepositoryCustom {
 		if (count.intValue() == 0)
 			return productList;
 
-		StringBuilder qs = new StringBuilder();
-		qs.append("select distinct p from Product as p ");
-		qs.append("join fetch p.merchantStore merch ");
-		qs.append("join fetch p.availabilities pa ");
-		qs.append("left join fetch pa.prices pap ");
+		// first phase, ids of the requested page only
+		String hql = new StringBuilder()
+				.append("select distinct p.id, p.sortOrder")
+				.append(fromBuilder)
+				.append(whereBuilder)
+				.append(" order by p.sortOrder asc, p.id asc").toString();
 
-		qs.append("join fetch p.descriptions pd ");
-		qs.append("left join fetch p.categories categs ");
-		qs.append("left join fetch categs.descriptions cd ");
+		Query q = this.em.createQuery(hql);
+		setCriteriaParameters(q, store, language, criteria);
 
-		// images
-		qs.append("left join fetch p.images images ");
+	    @SuppressWarnings("rawtypes")
+	    GenericEntityList entityList = new GenericEntityList();
+	    entityList.setTotalCount(count.intValue());
 
-		// other lefts
-		qs.append("left join fetch p.manufacturer manuf ");
-		qs.append("left join fetch manuf.descriptions manufd ");
-		qs.append("left join fetch p.type type ");
-		qs.append("left join fetch p.taxClass tx ");
+		q = RepositoryHelper.paginateQuery(q, count, entityList, criteria);
 
-		// RENTAL
-		qs.append("left join fetch p.owner owner ");
+		// second phase, hydrate the page
+		productList.setProducts(hydrate(ids(q.getResultList())));
 
-		// attributes
-		if (!CollectionUtils.isEmpty(criteria.getAttributeCriteria())) {
-			qs.append(" inner join p.attributes pattr");
-			qs.append(" inner join pattr.productOption po");
-			qs.append(" inner join po.descriptions pod");
-			qs.append(" inner join pattr.productOptionValue pov ");
-			qs.append(" inner join pov.descriptions povd");
-		} else {
-			qs.append(" left join fetch p.attributes pattr");
-			qs.append(" left join fetch pattr.productOption po");
-			qs.append(" left join fetch po.descriptions pod");
-			qs.append(" left join fetch pattr.productOptionValue pov");
-			qs.append(" left join fetch pov.descriptions povd");
-		}
+		return productList;
 
-		qs.append(" left join fetch p.relationships pr");
+	}
 
-		qs.append(" where merch.id=:mId");
-		if (criteria.getLanguage() != null && !criteria.getLanguage().equals("_all")) {
-			qs.append(" and pd.language.code=:lang");
-		}
+	private void setCriteriaParameters(Query q, MerchantStore store, Language language, ProductCriteria criteria) {
 
-		if (!CollectionUtils.isEmpty(criteria.getProductIds())) {
-			qs.append(" and p.id in (:pId)");
-		}
+		q.setParameter("mId", store.getId());
 
 		if (!CollectionUtils.isEmpty(criteria.getCategoryIds())) {
-			qs.append(" and categs.id in (:cid)");
+			q.setParameter("cid", criteria.getCategoryIds());
 		}
-
-
-		if (criteria.getManufacturerId() != null) {
-			qs.append(" and manuf.id = :manufid");
+		
+		if(CollectionUtils.isNotEmpty(criteria.getOptionValueIds())) {
+			q.setParameter("povid", criteria.getOptionValueIds());
 		}
 
 		if (criteria.getAvailable() != null) {
-			if (criteria.getAvailable()) {
-				qs.append(" and p.available=true and p.dateAvailable<=:dt");
-			} else {
-				qs.append(" and p.available=false and p.dateAvailable>:dt");
-			}
-		}
-
-		if (!StringUtils.isBlank(criteria.getProductName())) {
-			qs.append(" and lower(pd.name) like :nm");
+			q.setParameter("dt", new Date());
 		}
 
 		if (!StringUtils.isBlank(criteria.getCode())) {
-			qs.append(" and lower(p.sku) like :sku");
-		}
-
-		// RENTAL
-		if (!StringUtils.isBlank(criteria.getStatus())) {
-			qs.append(" and p.rentalStatus = :status");
+			q.setParameter("sku",
+					new StringBuilder().append("%").append(criteria.getCode().toLowerCase()).append("%").toString());
 		}
 
-		if (criteria.getOwnerId() != null) {
-			qs.append(" and owner.id = :ownerid");
+		if (criteria.getManufacturerId() != null) {
+			q.setParameter("manufid", criteria.getManufacturerId());
 		}
 
 		if (!CollectionUtils.isEmpty(criteria.getAttributeCriteria())) {
-			int cnt = 0;
+			int count = 0;
 			for (AttributeCriteria attributeCriteria : criteria.getAttributeCriteria()) {
-				qs.append(" and po.code =:").append(attributeCriteria.getAttributeCode());
-				qs.append(" and povd.description like :").append("val").append(cnt)
-						.append(attributeCriteria.getAttributeCode());
-				cnt++;
-			}
-			if (criteria.getLanguage() != null && !criteria.getLanguage().equals("_all")) {
-				qs.append(" and povd.language.code=:lang");
+				q.setParameter(attributeCriteria.getAttributeCode(), attributeCriteria.getAttributeCode());
+				q.setParameter("val" + count + attributeCriteria.getAttributeCode(),
+						"%" + attributeCriteria.getAttributeValue() + "%");
+				count++;
 			}
-
 		}
-		
-		
-		if(CollectionUtils.isNotEmpty(criteria.getOptionValueIds())) {
-			qs.append(" and pov.id in (:povid)");
-		}
-		
-		qs.append(" order by p.sortOrder asc");
-
-		String hql = qs.toString();
-		Query q = this.em.createQuery(hql);
 
 		if (criteria.getLanguage() != null && !criteria.getLanguage().equals("_all")) {
 			q.setParameter("lang", language.getCode());
 		}
-		q.setParameter("mId", store.getId());
 
-		if (!CollectionUtils.isEmpty(criteria.getCategoryIds())) {
-			q.setParameter("cid", criteria.getCategoryIds());
-		}
-		
-		if (CollectionUtils.isNotEmpty(criteria.getOptionValueIds())) {
-			q.setParameter("povid", criteria.getOptionValueIds());
+		if (!StringUtils.isBlank(criteria.getProductName())) {
+			q.setParameter("nm", new StringBuilder().append("%").append(criteria.getProductName().toLowerCase())
+					.append("%").toString());
 		}
 
 		if (!CollectionUtils.isEmpty(criteria.getProductIds())) {
 			q.setParameter("pId", criteria.getProductIds());
 		}
 
-		if (criteria.getAvailable() != null) {
-			q.setParameter("dt", new Date());
-		}
-
-		if (criteria.getManufacturerId() != null) {
-			q.setParameter("manufid", criteria.getManufacturerId());
-		}
-
-		if (!StringUtils.isBlank(criteria.getCode())) {
-			q.setParameter("sku",
-					new StringBuilder().append("%").append(criteria.getCode().toLowerCase()).append("%").toString());
-		}
-
-		if (!CollectionUtils.isEmpty(criteria.getAttributeCriteria())) {
-			int cnt = 0;
-			for (AttributeCriteria attributeCriteria : criteria.getAttributeCriteria()) {
-				q.setParameter(attributeCriteria.getAttributeCode(), attributeCriteria.getAttributeCode());
-				q.setParameter("val" + cnt + attributeCriteria.getAttributeCode(),
-						"%" + attributeCriteria.getAttributeValue() + "%");
-				cnt++;
-			}
-		}
-
 		// RENTAL
 		if (!StringUtils.isBlank(criteria.getStatus())) {
 			q.setParameter("status", criteria.getStatus());
@@ -907,24 +743,78 @@ public class ProductRepositoryImpl implements ProductRepositoryCustom {
 			q.setParameter("ownerid", criteria.getOwnerId());
 		}
 
-		if (!StringUtils.isBlank(criteria.getProductName())) {
-			q.setParameter("nm", new StringBuilder().append("%").append(criteria.getProductName().toLowerCase())
-					.append("%").toString());
-		}
+	}
 
-	    @SuppressWarnings("rawtypes")
-	    GenericEntityList entityList = new GenericEntityList();
-	    entityList.setTotalCount(count.intValue());
+	/**
+	 * Extracts product ids from an id-first query returning [id, sortOrder] rows
+	 */
+	private List<Long> ids(List<?> rows) {
+		List<Long> ids = new ArrayList<Long>(rows.size());
+		for (Object row : rows) {
+			ids.add((Long) ((Object[]) row)[0]);
+		}
+		return ids;
+	}
 
-		q = RepositoryHelper.paginateQuery(q, count, entityList, criteria);
+	/**
+	 * Loads fully populated products for a page of ids. Instead of a single
+	 * query joining every collection (cartesian product of availabilities,
+	 * prices, descriptions, categories, images and attributes) each
+	 * collection is fetched by its own query bounded by the page ids. All
+	 * queries share the same persistence context so collections get attached
+	 * to the same product instances. Products are returned in the order of
+	 * the ids.
+	 */
+	@SuppressWarnings("unchecked")
+	private List<Product> hydrate(List<Long> ids) {
 
+		if (CollectionUtils.isEmpty(ids)) {
+			return new ArrayList<Product>();
+		}
 
-		@SuppressWarnings("unchecked")
-		List<Product> products = q.getResultList();
-		productList.setProducts(products);
+		StringBuilder qs = new StringBuilder();
+		qs.append("select distinct p from Product as p ");
+		qs.append("join fetch p.merchantStore merch ");
+		qs.append("left join fetch p.manufacturer manuf ");
+		qs.append("left join fetch manuf.descriptions manufd ");
+		qs.append("left join fetch p.type type ");
+		qs.append("left join fetch p.taxClass tx ");
+		// RENTAL
+		qs.append("left join fetch p.owner owner ");
+		qs.append("where p.id in (:pid)");
+
+		List<Product> products = this.em.createQuery(qs.toString()).setParameter("pid", ids).getResultList();
+
+		fetchCollection("join fetch p.descriptions pd ", ids);
+		fetchCollection("join fetch p.availabilities pa left join fetch pa.prices pap left join fetch pap.descriptions papd ", ids);
+		fetchCollection("left join fetch p.categories categs left join fetch categs.descriptions categsd ", ids);
+		fetchCollection("left join fetch p.images images ", ids);
+		fetchCollection("left join fetch p.attributes pattr "
+				+ "left join fetch pattr.productOption po "
+				+ "left join fetch po.descriptions pod "
+				+ "left join fetch pattr.productOptionValue pov "
+				+ "left join fetch pov.descriptions povd ", ids);
+		fetchCollection("left join fetch p.relationships pr ", ids);
+
+		Map<Long, Product> byId = new HashMap<Long, Product>();
+		for (Product p : products) {
+			byId.put(p.getId(), p);
+		}
+
+		List<Product> ordered = new ArrayList<Product>(ids.size());
+		for (Long id : ids) {
+			Product p = byId.get(id);
+			if (p != null) {
+				ordered.add(p);
+			}
+		}
+		return ordered;
 
-		return productList;
+	}
 
+	private void fetchCollection(String joins, List<Long> ids) {
+		this.em.createQuery("select distinct p from Product as p " + joins + "where p.id in (:pid)")
+				.setParameter("pid", ids).getResultList();
 	}
 
 	@Override
@@ -1,10 +1,13 @@
 package com.salesmanager.core.business.repositories.catalog.product.availability;
 
+import java.util.Collection;
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import com.salesmanager.core.model.catalog.product.availability.ProductAvailability;
 
-public interface ProductAvailabilityRepository extends JpaRepository<ProductAvailability, Long> {
+public interface ProductAvailabilityRepository extends JpaRepository<ProductAvailability, Long>, ProductAvailabilityRepositoryCustom {
   
   @Query("select count(distinct p) from ProductAvailability as p where p.product.id=?1")
   int count(Long productId);
@@ -52,4 +55,15 @@ public interface ProductAvailabilityRepository extends JpaRepository<ProductAvai
       + "and p.id=?2")
   ProductAvailability getByStore(Long productId, Long inventory);
 
+  /**
+   * Inventory rows of products or variants of a store by sku
+   * @return rows of availability id, availability sku, product sku, region
+   */
+  @Query("select p.id, p.sku, ppr.sku, p.region from ProductAvailability p "
+      + "join p.product ppr "
+      + "where ppr.merchantStore.id=?1 "
+      + "and (ppr.sku in ?2 or p.sku in ?2) "
+      + "order by p.id")
+  List<Object[]> findInventoryBySku(Integer storeId, Collection<String> skus);
+
 }
@@ -0,0 +1,13 @@
+package com.salesmanager.core.business.repositories.catalog.product.availability;
+
+public interface ProductAvailabilityRepositoryCustom {
+
+  /**
+   * Removes quantity from an inventory row only when enough quantity is left
+   * @return 0 when the quantity left is lower than the quantity requested
+   */
+  int decrementQuantity(Long availabilityId, int quantity);
+
+  int incrementQuantity(Long availabilityId, int quantity);
+
+}
@@ -0,0 +1,63 @@
+package com.salesmanager.core.business.repositories.catalog.product.availability;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.query.NativeQuery;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.salesmanager.core.model.catalog.product.availability.ProductAvailability;
+
+/**
+ * Quantity updates in sql. A bulk update in HQL would clear the whole
+ * ProductAvailability cache region on every order, these updates declare a
+ * query space of no entity and evict only the row updated, now and once the
+ * transaction completes. {h-schema} is the schema of the mapped tables.
+ */
+public class ProductAvailabilityRepositoryImpl implements ProductAvailabilityRepositoryCustom {
+
+  private static final String QUANTITY_SPACE = "PRODUCT_AVAILABILITY_QUANTITY";
+
+  @PersistenceContext
+  private EntityManager em;
+
+  @Override
+  @Transactional
+  public int decrementQuantity(Long availabilityId, int quantity) {
+    return update("update {h-schema}PRODUCT_AVAILABILITY set QUANTITY = QUANTITY - :quantity "
+        + "where PRODUCT_AVAIL_ID = :id and QUANTITY >= :quantity", availabilityId, quantity);
+  }
+
+  @Override
+  @Transactional
+  public int incrementQuantity(Long availabilityId, int quantity) {
+    return update("update {h-schema}PRODUCT_AVAILABILITY set QUANTITY = QUANTITY + :quantity "
+        + "where PRODUCT_AVAIL_ID = :id", availabilityId, quantity);
+  }
+
+  private int update(String sql, Long availabilityId, int quantity) {
+    int updated = em.createNativeQuery(sql)
+        .setParameter("id", availabilityId)
+        .setParameter("quantity", quantity)
+        .unwrap(NativeQuery.class)
+        .addSynchronizedQuerySpace(QUANTITY_SPACE)
+        .executeUpdate();
+    evict(availabilityId);
+    return updated;
+  }
+
+  private void evict(Long availabilityId) {
+    em.getEntityManagerFactory().getCache().evict(ProductAvailability.class, availabilityId);
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+        @Override
+        public void afterCompletion(int status) {
+          em.getEntityManagerFactory().getCache().evict(ProductAvailability.class, availabilityId);
+        }
+      });
+    }
+  }
+
+}
@@ -1,5 +1,7 @@
 package com.salesmanager.core.business.repositories.order;
 
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 
@@ -18,5 +20,8 @@ public interface OrderRepository extends JpaRepository<Order, Long>, OrderReposi
     		+ "join fetch op.orderAttributes opa "
     		+ "left join fetch op.prices opp where o.id = ?1 and om.id = ?2")
 	Order findOne(Long id, Integer merchantId);
-    
+
+    @Query("select o.id from Order o where o.merchant.id = ?1 and o.shoppingCartCode = ?2")
+    List<Long> findIdsByShoppingCartCode(Integer merchantId, String shoppingCartCode);
+
 }
@@ -1,9 +1,12 @@
 package com.salesmanager.core.business.repositories.shipping;
 
+import java.util.Date;
 import java.util.List;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.salesmanager.core.model.shipping.Quote;
 
@@ -12,5 +15,10 @@ public interface ShippingQuoteRepository extends JpaRepository<Quote, Long> {
 	
 	@Query("select q from Quote as q where q.orderId = ?1")
 	List<Quote> findByOrder(Long order);
+	
+	@Transactional
+	@Modifying
+	@Query("delete from Quote q where q.quoteDate < ?1 and q.orderId is null")
+	int deleteExpired(Date quotedBefore);
 
 }
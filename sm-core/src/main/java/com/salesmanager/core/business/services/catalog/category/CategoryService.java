@@ -121,6 +121,31 @@ public interface CategoryService extends SalesManagerEntityService<Long, Categor
 	Category findById(Long category);
 	
 	int count(MerchantStore store);
+	
+	/**
+	 * Ids of every sub category of a category, from the in memory category tree
+	 * @param store
+	 * @param categoryId
+	 * @return
+	 */
+	List<Long> getDescendantIds(MerchantStore store, Long categoryId);
+	
+	/**
+	 * Ids of the parent categories of a category, root first, from the in
+	 * memory category tree
+	 * @param store
+	 * @param categoryId
+	 * @return
+	 */
+	List<Long> getAncestorIds(MerchantStore store, Long categoryId);
+	
+	/**
+	 * Number of available products in a category and its sub categories
+	 * @param store
+	 * @param categoryId
+	 * @return
+	 */
+	int countProducts(MerchantStore store, Long categoryId);
 
 
 	
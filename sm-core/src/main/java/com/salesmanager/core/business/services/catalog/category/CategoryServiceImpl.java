@@ -22,6 +22,7 @@ import com.salesmanager.core.business.repositories.catalog.category.CategoryRepo
 import com.salesmanager.core.business.repositories.catalog.category.PageableCategoryRepository;
 import com.salesmanager.core.business.services.catalog.product.ProductService;
 import com.salesmanager.core.business.services.common.generic.SalesManagerEntityServiceImpl;
+import com.salesmanager.core.business.utils.StoreContentVersions;
 import com.salesmanager.core.model.catalog.category.Category;
 import com.salesmanager.core.model.catalog.category.CategoryDescription;
 import com.salesmanager.core.model.catalog.product.Product;
@@ -43,6 +44,12 @@ public class CategoryServiceImpl extends SalesManagerEntityServiceImpl<Long, Cat
   @Inject
   private CategoryDescriptionRepository categoryDescriptionRepository;
 
+  @Inject
+  private CategoryTreeCache categoryTreeCache;
+
+  @Inject
+  private StoreContentVersions storeContentVersions;
+
 
 
   @Inject
@@ -72,6 +79,13 @@ public class CategoryServiceImpl extends SalesManagerEntityServiceImpl<Long, Cat
 
   }
 
+  @Override
+  public void save(Category category) throws ServiceException {
+    super.save(category);
+    categoryTreeCache.invalidate(category.getMerchantStore());
+    storeContentVersions.increment(category.getMerchantStore());
+  }
+
   @Override
   public List<Object[]> countProductsByCategories(MerchantStore store, List<Long> categoryIds)
       throws ServiceException {
@@ -237,9 +251,12 @@ public class CategoryServiceImpl extends SalesManagerEntityServiceImpl<Long, Cat
 	public void delete(Category category) throws ServiceException {
 
 		// get category with lineage (subcategories)
-		StringBuilder lineage = new StringBuilder();
-		lineage.append(category.getLineage()).append(category.getId()).append(Constants.SLASH);
-		List<Category> categories = this.getListByLineage(category.getMerchantStore(), lineage.toString());
+		List<Category> categories = new ArrayList<Category>();
+		for (Category c : this.getListByLineage(category.getMerchantStore(), category.getLineage())) {
+			if (!c.getId().equals(category.getId())) {
+				categories.add(c);
+			}
+		}
 
 		Category dbCategory = getById(category.getId(), category.getMerchantStore().getId());
 
@@ -285,6 +302,8 @@ public class CategoryServiceImpl extends SalesManagerEntityServiceImpl<Long, Cat
 
 			Category categ = getById(category.getId(), category.getMerchantStore().getId());
 			categoryRepository.delete(categ);
+			categoryTreeCache.invalidate(category.getMerchantStore());
+			storeContentVersions.increment(category.getMerchantStore());
 
 		}
 
@@ -310,39 +329,41 @@ public class CategoryServiceImpl extends SalesManagerEntityServiceImpl<Long, Cat
 
 		try {
 
+			// sub categories share the lineage prefix of the child
+			String previousLineage = child.getLineage();
+			int previousDepth = child.getDepth() == null ? 0 : child.getDepth();
+			List<Category> subCategories = null;
+			if (previousLineage != null) {
+				subCategories = getListByLineage(child.getMerchantStore(), previousLineage);
+			}
+
 			if (parent == null) {
 
 				// assign to root
 				child.setParent(null);
 				child.setDepth(0);
-				// child.setLineage(new
-				// StringBuilder().append("/").append(child.getId()).append("/").toString());
-				child.setLineage(new StringBuilder().append("/").append(child.getId()).append("/").toString());
+				child.setLineage(new StringBuilder().append(Constants.SLASH).append(child.getId()).append(Constants.SLASH).toString());
 
 			} else {
 
 				Category p = getById(parent.getId(), parent.getMerchantStore().getId());// parent
 
-				String lineage = p.getLineage();
-				int depth = p.getDepth();
-
 				child.setParent(p);
-				child.setDepth(depth + 1);
-				child.setLineage(new StringBuilder().append(lineage).append(Constants.SLASH).append(child.getId())
+				child.setDepth(p.getDepth() + 1);
+				child.setLineage(new StringBuilder().append(p.getLineage()).append(child.getId())
 						.append(Constants.SLASH).toString());
 
 			}
 
 			update(child);
-			StringBuilder childLineage = new StringBuilder();
-			childLineage.append(child.getLineage()).append(child.getId()).append("/");
-			List<Category> subCategories = getListByLineage(child.getMerchantStore(), childLineage.toString());
 
 			// ajust all sub categories lineages
 			if (subCategories != null && subCategories.size() > 0) {
 				for (Category subCategory : subCategories) {
 					if (!child.getId().equals(subCategory.getId())) {
-						addChild(child, subCategory);
+						subCategory.setLineage(child.getLineage() + subCategory.getLineage().substring(previousLineage.length()));
+						subCategory.setDepth(child.getDepth() + subCategory.getDepth() - previousDepth);
+						update(subCategory);
 					}
 				}
 
@@ -429,4 +450,19 @@ public class CategoryServiceImpl extends SalesManagerEntityServiceImpl<Long, Cat
 		return categoryRepository.findById(merchantId, categoryid, language);
 	}
 
+	@Override
+	public List<Long> getDescendantIds(MerchantStore store, Long categoryId) {
+		return categoryTreeCache.getTree(store).getDescendants(categoryId);
+	}
+
+	@Override
+	public List<Long> getAncestorIds(MerchantStore store, Long categoryId) {
+		return categoryTreeCache.getTree(store).getAncestors(categoryId);
+	}
+
+	@Override
+	public int countProducts(MerchantStore store, Long categoryId) {
+		return categoryTreeCache.getTree(store).countProducts(categoryId);
+	}
+
 }
@@ -0,0 +1,217 @@
+package com.salesmanager.core.business.services.catalog.category;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.salesmanager.core.business.repositories.catalog.category.CategoryRepository;
+import com.salesmanager.core.business.utils.ExpiringCache;
+import com.salesmanager.core.model.merchant.MerchantStore;
+
+/**
+ * In memory category hierarchy of each store. A tree is loaded with two
+ * queries (category / parent ids and product / category ids) the first time
+ * a store needs it and answers descendants, ancestors and product counts of
+ * a subtree without going back to the database.
+ *
+ * Trees are dropped when a category or a product of the store is saved or
+ * deleted and rebuilt on next use. A tree is also rebuilt once a product
+ * it does not count reaches its available date, and at the latest after
+ * config.catalog.categoryTreeTtl seconds.
+ */
+@Component
+public class CategoryTreeCache {
+
+	@Inject
+	private CategoryRepository categoryRepository;
+
+	@Value("${config.catalog.categoryTreeTtl:300}")
+	private long ttl;
+
+	private ExpiringCache<Integer, CategoryTree> trees;
+
+	@PostConstruct
+	public void init() {
+		trees = new ExpiringCache<Integer, CategoryTree>(ttl).validUntil(CategoryTree::getNextAvailable);
+	}
+
+	public CategoryTree getTree(MerchantStore store) {
+		return trees.get(store.getId(), () -> load(store.getId()));
+	}
+
+	public void invalidate(MerchantStore store) {
+		if (store != null && store.getId() != null) {
+			trees.invalidate(store.getId());
+		}
+	}
+
+	private CategoryTree load(Integer storeId) {
+		return new CategoryTree(categoryRepository.findTreeByStore(storeId),
+				categoryRepository.listProductsByCategories(storeId));
+	}
+
+	/**
+	 * Immutable category hierarchy, subtree product counts are memoized
+	 */
+	public static class CategoryTree {
+
+		private final Map<Long, Node> nodes;
+
+		/** first available date after the load of a product not counted **/
+		private long nextAvailable = Long.MAX_VALUE;
+
+		public CategoryTree(List<Object[]> categories, List<Object[]> productCategories) {
+			this(categories, productCategories, System.currentTimeMillis());
+		}
+
+		/**
+		 * @param categories rows of category id, parent id ordered by lineage
+		 * @param productCategories rows of category id, product id and
+		 *        optionally the product available date
+		 * @param now products available after this time are not counted
+		 */
+		public CategoryTree(List<Object[]> categories, List<Object[]> productCategories, long now) {
+
+			nodes = new HashMap<Long, Node>(categories.size() * 2);
+			for (Object[] row : categories) {
+				Long id = (Long) row[0];
+				nodes.put(id, new Node(id, (Long) row[1]));
+			}
+			// children keep the lineage, sort order sequence of the rows
+			for (Object[] row : categories) {
+				Node node = nodes.get((Long) row[0]);
+				Node parent = node.parentId == null ? null : nodes.get(node.parentId);
+				if (parent != null) {
+					parent.children.add(node);
+				}
+			}
+
+			for (Object[] row : productCategories) {
+				if (row.length > 2) {
+					Date available = (Date) row[2];
+					if (available == null) {
+						continue;
+					}
+					if (available.getTime() > now) {
+						nextAvailable = Math.min(nextAvailable, available.getTime());
+						continue;
+					}
+				}
+				Node node = nodes.get((Long) row[0]);
+				if (node != null) {
+					node.productIds.add((Long) row[1]);
+				}
+			}
+		}
+
+		/**
+		 * @return time at which a product not counted becomes available,
+		 *         Long.MAX_VALUE if none
+		 */
+		public long getNextAvailable() {
+			return nextAvailable;
+		}
+
+		public boolean contains(Long categoryId) {
+			return nodes.containsKey(categoryId);
+		}
+
+		/**
+		 * Ids of every category below a category, depth first, the category
+		 * itself excluded
+		 */
+		public List<Long> getDescendants(Long categoryId) {
+			Node node = nodes.get(categoryId);
+			if (node == null) {
+				return Collections.emptyList();
+			}
+			List<Long> descendants = new ArrayList<Long>();
+			Deque<Node> stack = new ArrayDeque<Node>();
+			pushChildren(stack, node);
+			while (!stack.isEmpty()) {
+				Node current = stack.pop();
+				descendants.add(current.id);
+				pushChildren(stack, current);
+			}
+			return descendants;
+		}
+
+		/**
+		 * Ids of the parents of a category, root first, the category itself
+		 * excluded
+		 */
+		public List<Long> getAncestors(Long categoryId) {
+			Node node = nodes.get(categoryId);
+			if (node == null) {
+				return Collections.emptyList();
+			}
+			List<Long> ancestors = new ArrayList<Long>();
+			Node parent = node.parentId == null ? null : nodes.get(node.parentId);
+			while (parent != null && ancestors.size() < nodes.size()) {
+				ancestors.add(parent.id);
+				parent = parent.parentId == null ? null : nodes.get(parent.parentId);
+			}
+			Collections.reverse(ancestors);
+			return ancestors;
+		}
+
+		/**
+		 * Number of distinct available products in a category and its
+		 * descendants
+		 */
+		public int countProducts(Long categoryId) {
+			Node node = nodes.get(categoryId);
+			if (node == null) {
+				return 0;
+			}
+			Integer count = node.subtreeCount;
+			if (count == null) {
+				Set<Long> products = new HashSet<Long>(node.productIds);
+				for (Long id : getDescendants(categoryId)) {
+					products.addAll(nodes.get(id).productIds);
+				}
+				count = products.size();
+				node.subtreeCount = count;
+			}
+			return count;
+		}
+
+		public int size() {
+			return nodes.size();
+		}
+
+		private void pushChildren(Deque<Node> stack, Node node) {
+			for (int i = node.children.size() - 1; i >= 0; i--) {
+				stack.push(node.children.get(i));
+			}
+		}
+
+	}
+
+	private static class Node {
+		private final Long id;
+		private final Long parentId;
+		private final List<Node> children = new ArrayList<Node>();
+		private final List<Long> productIds = new ArrayList<Long>(0);
+		private volatile Integer subtreeCount;
+
+		Node(Long id, Long parentId) {
+			this.id = id;
+			this.parentId = parentId;
+		}
+	}
+
+}
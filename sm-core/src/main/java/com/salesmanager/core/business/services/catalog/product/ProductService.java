@@ -3,6 +3,7 @@ package com.salesmanager.core.business.services.catalog.product;
 import java.util.List;
 import java.util.Locale;
 import java.util.Optional;
+import java.util.Set;
 
 import org.springframework.data.domain.Page;
 
@@ -36,6 +37,14 @@ public interface ProductService extends SalesManagerEntityService<Long, Product>
 
 	List<Product> getProductsByIds(List<Long> productIds) throws ServiceException;
 
+	/**
+	 * Loads a batch of products by id in a fixed number of queries, available
+	 * or not. Used to hydrate shopping carts and orders
+	 * @param productIds
+	 * @return
+	 */
+	List<Product> listByIds(Set<Long> productIds);
+
 	/**
 	 * Get a product with only MerchantStore object
 	 * @param productId
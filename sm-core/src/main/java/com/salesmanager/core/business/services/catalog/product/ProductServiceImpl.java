@@ -19,15 +19,18 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.salesmanager.core.business.exception.ServiceException;
 import com.salesmanager.core.business.repositories.catalog.product.ProductRepository;
 import com.salesmanager.core.business.services.catalog.category.CategoryService;
+import com.salesmanager.core.business.services.catalog.category.CategoryTreeCache;
 import com.salesmanager.core.business.services.catalog.product.attribute.ProductAttributeService;
 import com.salesmanager.core.business.services.catalog.product.attribute.ProductOptionService;
 import com.salesmanager.core.business.services.catalog.product.attribute.ProductOptionValueService;
 import com.salesmanager.core.business.services.catalog.product.availability.ProductAvailabilityService;
 import com.salesmanager.core.business.services.catalog.product.image.ProductImageService;
+import com.salesmanager.core.business.services.catalog.product.price.PriceBook;
 import com.salesmanager.core.business.services.catalog.product.price.ProductPriceService;
 import com.salesmanager.core.business.services.catalog.product.relationship.ProductRelationshipService;
 import com.salesmanager.core.business.services.catalog.product.review.ProductReviewService;
@@ -59,6 +62,12 @@ public class ProductServiceImpl extends SalesManagerEntityServiceImpl<Long, Prod
 	@Inject
 	CategoryService categoryService;
 
+	@Inject
+	CategoryTreeCache categoryTreeCache;
+
+	@Inject
+	PriceBook priceBook;
+
 	@Inject
 	ProductAvailabilityService productAvailabilityService;
 
@@ -128,6 +137,11 @@ public class ProductServiceImpl extends SalesManagerEntityServiceImpl<Long, Prod
 		return productRepository.getProductsListByIds(idSet);
 	}
 
+	@Override
+	public List<Product> listByIds(Set<Long> productIds) {
+		return productRepository.listByIds(productIds);
+	}
+
 	@Override
 	public Product getProductWithOnlyMerchantStoreById(Long productId) {
 		return productRepository.getProductWithOnlyMerchantStoreById(productId);
@@ -177,16 +191,9 @@ public class ProductServiceImpl extends SalesManagerEntityServiceImpl<Long, Prod
 			throw new ServiceException("The category is null");
 		}
 
-		// Get the category list
-		StringBuilder lineage = new StringBuilder().append(category.getLineage()).append(category.getId()).append("/");
-		List<Category> categories = categoryService.getListByLineage(category.getMerchantStore(), lineage.toString());
-		Set<Long> categoryIds = new HashSet<Long>();
-		for (Category c : categories) {
-
-			categoryIds.add(c.getId());
-
-		}
-
+		// the category and its sub categories
+		Set<Long> categoryIds = new HashSet<Long>(
+				categoryService.getDescendantIds(category.getMerchantStore(), category.getId()));
 		categoryIds.add(category.getId());
 
 		// Get products
@@ -248,10 +255,28 @@ public class ProductServiceImpl extends SalesManagerEntityServiceImpl<Long, Prod
 		}
 
 		super.delete(product);
+		categoryTreeCache.invalidate(product.getMerchantStore());
+		priceBook.invalidate(product.getId());
 		searchService.deleteIndex(product.getMerchantStore(), product);
 
 	}
 
+	@Override
+	public void save(Product product) throws ServiceException {
+		super.save(product);
+		categoryTreeCache.invalidate(product.getMerchantStore());
+		priceBook.invalidate(product.getId());
+	}
+
+	@Override
+	public void saveAll(Iterable<Product> products) throws ServiceException {
+		super.saveAll(products);
+		for (Product product : products) {
+			categoryTreeCache.invalidate(product.getMerchantStore());
+			priceBook.invalidate(product.getId());
+		}
+	}
+
 	@Override
 	public void create(Product product) throws ServiceException {
 		saveOrUpdate(product);
@@ -280,6 +305,8 @@ public class ProductServiceImpl extends SalesManagerEntityServiceImpl<Long, Prod
 		} else {
 			super.create(product);
 		}
+		categoryTreeCache.invalidate(product.getMerchantStore());
+		priceBook.invalidate(product.getId());
 
 		/**
 		 * Image creation needs extra service to save the file in the CMS
@@ -341,6 +368,7 @@ public class ProductServiceImpl extends SalesManagerEntityServiceImpl<Long, Prod
 	}
 
 	@Override
+	@Transactional(readOnly = true)
 	public Product findOne(Long id, MerchantStore merchant) {
 		Validate.notNull(merchant, "MerchantStore must not be null");
 		Validate.notNull(id, "id must not be null");
@@ -0,0 +1,27 @@
+package com.salesmanager.core.business.services.catalog.product.availability;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Quantities removed from inventory rows (availability id - quantity) for
+ * an order, used to put the quantities back when the order fails
+ */
+public class InventoryReservation {
+
+  private final Map<Long, Integer> quantities;
+
+  InventoryReservation(TreeMap<Long, Integer> quantities) {
+    this.quantities = Collections.unmodifiableMap(quantities);
+  }
+
+  public Map<Long, Integer> getQuantities() {
+    return quantities;
+  }
+
+  public boolean isEmpty() {
+    return quantities.isEmpty();
+  }
+
+}
@@ -0,0 +1,56 @@
+package com.salesmanager.core.business.services.catalog.product.availability;
+
+import java.util.Collection;
+
+import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.model.catalog.product.Product;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.order.orderproduct.OrderProduct;
+import com.salesmanager.core.model.shoppingcart.ShoppingCart;
+
+/**
+ * Inventory reservations. Order quantities are removed from inventory with
+ * conditional updates (quantity = quantity - ? where quantity >= ?) so
+ * concurrent orders can never sell more than the quantity available.
+ *
+ * Shopping carts place soft holds on the quantities they contain, holds
+ * expire after config.inventory.holdTtl seconds and are only used to
+ * compute the quantity left for other carts.
+ */
+public interface InventoryService {
+
+  /**
+   * Removes the quantities of an order from inventory, all or nothing
+   * @param store
+   * @param orderProducts
+   * @return the reservation to release if the order fails
+   * @throws ServiceException EXCEPTION_INVENTORY_MISMATCH when a product does
+   * not exist or has not enough quantity left
+   */
+  InventoryReservation reserve(MerchantStore store, Collection<OrderProduct> orderProducts)
+      throws ServiceException;
+
+  /**
+   * Puts back the quantities of a reservation
+   * @param reservation
+   * @throws ServiceException
+   */
+  void release(InventoryReservation reservation) throws ServiceException;
+
+  /**
+   * Replaces the holds of a shopping cart by the quantities of its items
+   * @param cart
+   */
+  void hold(ShoppingCart cart);
+
+  void releaseHolds(String shoppingCartCode);
+
+  /**
+   * Quantity of a product minus the quantities held by other shopping carts
+   * @param product
+   * @param shoppingCartCode cart asking, its own holds are not counted, can be null
+   * @return
+   */
+  int getAvailableQuantity(Product product, String shoppingCartCode);
+
+}
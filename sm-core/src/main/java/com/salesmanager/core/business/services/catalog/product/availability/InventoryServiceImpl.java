@@ -0,0 +1,245 @@
+package com.salesmanager.core.business.services.catalog.product.availability;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.inject.Inject;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.business.repositories.catalog.product.availability.ProductAvailabilityRepository;
+import com.salesmanager.core.constants.SchemaConstant;
+import com.salesmanager.core.model.catalog.product.Product;
+import com.salesmanager.core.model.catalog.product.availability.ProductAvailability;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.order.orderproduct.OrderProduct;
+import com.salesmanager.core.model.shoppingcart.ShoppingCart;
+import com.salesmanager.core.model.shoppingcart.ShoppingCartItem;
+
+@Service("inventoryService")
+public class InventoryServiceImpl implements InventoryService {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(InventoryServiceImpl.class);
+
+  @Inject
+  private ProductAvailabilityRepository productAvailabilityRepository;
+
+  /** seconds a shopping cart holds its quantities **/
+  @Value("${config.inventory.holdTtl:900}")
+  private long holdTtl;
+
+  /** product id - cart code - hold **/
+  private final Map<Long, Map<String, Hold>> holds = new ConcurrentHashMap<Long, Map<String, Hold>>();
+
+  /** cart code - held product ids **/
+  private final Map<String, CartHold> cartHolds = new ConcurrentHashMap<String, CartHold>();
+
+  @Override
+  @Transactional(rollbackFor = ServiceException.class)
+  public InventoryReservation reserve(MerchantStore store, Collection<OrderProduct> orderProducts)
+      throws ServiceException {
+
+    Validate.notNull(store, "MerchantStore cannot be null");
+
+    Map<String, Integer> skuQuantities = new HashMap<String, Integer>();
+    for (OrderProduct orderProduct : orderProducts) {
+      if (orderProduct.getProductQuantity() > 0) {
+        skuQuantities.merge(orderProduct.getSku(), orderProduct.getProductQuantity(), Integer::sum);
+      }
+    }
+
+    TreeMap<Long, Integer> quantities = new TreeMap<Long, Integer>();
+    if (skuQuantities.isEmpty()) {
+      return new InventoryReservation(quantities);
+    }
+
+    // one query for every line of the order
+    Map<String, Long> availabilities = new HashMap<String, Long>();
+    Map<String, Long> variants = new HashMap<String, Long>();
+    for (Object[] row : productAvailabilityRepository.findInventoryBySku(store.getId(), skuQuantities.keySet())) {
+      Long id = (Long) row[0];
+      String sku = (String) row[1];
+      String productSku = (String) row[2];
+      String region = (String) row[3];
+      if (sku != null && skuQuantities.containsKey(sku)) {
+        variants.putIfAbsent(sku, id);
+      } else if (SchemaConstant.ALL_REGIONS.equals(region) || !availabilities.containsKey(productSku)) {
+        availabilities.put(productSku, id);
+      }
+    }
+
+    for (Map.Entry<String, Integer> line : skuQuantities.entrySet()) {
+      Long id = variants.containsKey(line.getKey()) ? variants.get(line.getKey()) : availabilities.get(line.getKey());
+      if (id == null) {
+        LOGGER.error("No inventory for sku [" + line.getKey() + "]");
+        throw new ServiceException(ServiceException.EXCEPTION_INVENTORY_MISMATCH);
+      }
+      quantities.merge(id, line.getValue(), Integer::sum);
+    }
+
+    // rows are always updated in the same order so concurrent orders do not deadlock,
+    // a failed update rolls back the rows already updated
+    for (Map.Entry<Long, Integer> quantity : quantities.entrySet()) {
+      if (productAvailabilityRepository.decrementQuantity(quantity.getKey(), quantity.getValue()) == 0) {
+        LOGGER.warn("Inventory " + quantity.getKey() + " has less than " + quantity.getValue() + " items left");
+        throw new ServiceException(ServiceException.EXCEPTION_INVENTORY_MISMATCH);
+      }
+    }
+
+    return new InventoryReservation(quantities);
+  }
+
+  @Override
+  @Transactional(rollbackFor = ServiceException.class)
+  public void release(InventoryReservation reservation) throws ServiceException {
+    if (reservation == null) {
+      return;
+    }
+    for (Map.Entry<Long, Integer> quantity : reservation.getQuantities().entrySet()) {
+      productAvailabilityRepository.incrementQuantity(quantity.getKey(), quantity.getValue());
+    }
+  }
+
+  @Override
+  public void hold(ShoppingCart cart) {
+
+    if (cart == null || StringUtils.isBlank(cart.getShoppingCartCode())) {
+      return;
+    }
+
+    Map<Long, Integer> quantities = new HashMap<Long, Integer>();
+    if (cart.getLineItems() != null) {
+      for (ShoppingCartItem item : cart.getLineItems()) {
+        if (item.getProductId() != null && item.getQuantity() != null && item.getQuantity() > 0) {
+          quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+        }
+      }
+    }
+
+    long expires = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(holdTtl);
+    cartHolds.compute(cart.getShoppingCartCode(), (code, previous) -> {
+      if (previous != null) {
+        for (Long productId : previous.productIds) {
+          removeHold(productId, code);
+        }
+      }
+      if (quantities.isEmpty()) {
+        return null;
+      }
+      for (Map.Entry<Long, Integer> quantity : quantities.entrySet()) {
+        holds.computeIfAbsent(quantity.getKey(), id -> new ConcurrentHashMap<String, Hold>())
+            .put(code, new Hold(quantity.getValue(), expires));
+      }
+      return new CartHold(quantities.keySet(), expires);
+    });
+  }
+
+  @Override
+  public void releaseHolds(String shoppingCartCode) {
+    if (StringUtils.isBlank(shoppingCartCode)) {
+      return;
+    }
+    cartHolds.computeIfPresent(shoppingCartCode, (code, previous) -> {
+      for (Long productId : previous.productIds) {
+        removeHold(productId, code);
+      }
+      return null;
+    });
+  }
+
+  /**
+   * Drops the holds of abandoned shopping carts
+   */
+  @Scheduled(fixedDelayString = "${config.inventory.holdSweep:60000}")
+  public void releaseExpiredHolds() {
+    long now = System.currentTimeMillis();
+    for (Map.Entry<String, CartHold> cartHold : cartHolds.entrySet()) {
+      if (cartHold.getValue().expires < now) {
+        cartHolds.computeIfPresent(cartHold.getKey(), (code, hold) -> {
+          if (hold.expires >= now) {
+            return hold;// held again meanwhile
+          }
+          for (Long productId : hold.productIds) {
+            removeHold(productId, code);
+          }
+          return null;
+        });
+      }
+    }
+  }
+
+  @Override
+  public int getAvailableQuantity(Product product, String shoppingCartCode) {
+
+    int quantity = 0;
+    int allRegions = -1;
+    if (product.getAvailabilities() != null) {
+      for (ProductAvailability availability : product.getAvailabilities()) {
+        int q = availability.getProductQuantity() == null ? 0 : availability.getProductQuantity();
+        quantity += q;
+        if (SchemaConstant.ALL_REGIONS.equals(availability.getRegion())) {
+          allRegions = Math.max(allRegions, 0) + q;
+        }
+      }
+    }
+    if (allRegions >= 0) {
+      quantity = allRegions;
+    }
+
+    Map<String, Hold> productHolds = holds.get(product.getId());
+    if (productHolds != null) {
+      long now = System.currentTimeMillis();
+      for (Map.Entry<String, Hold> hold : productHolds.entrySet()) {
+        if (hold.getValue().expires >= now && !hold.getKey().equals(shoppingCartCode)) {
+          quantity -= hold.getValue().quantity;
+        }
+      }
+    }
+
+    return Math.max(quantity, 0);
+  }
+
+  private void removeHold(Long productId, String shoppingCartCode) {
+    holds.computeIfPresent(productId, (id, productHolds) -> {
+      productHolds.remove(shoppingCartCode);
+      return productHolds.isEmpty() ? null : productHolds;
+    });
+  }
+
+  private static class Hold {
+
+    private final int quantity;
+    private final long expires;
+
+    Hold(int quantity, long expires) {
+      this.quantity = quantity;
+      this.expires = expires;
+    }
+  }
+
+  private static class CartHold {
+
+    private final Set<Long> productIds;
+    private final long expires;
+
+    CartHold(Set<Long> productIds, long expires) {
+      this.productIds = new HashSet<Long>(productIds);
+      this.expires = expires;
+    }
+  }
+
+}
@@ -3,6 +3,7 @@ package com.salesmanager.core.business.services.catalog.product.availability;
 import com.salesmanager.core.business.exception.ServiceException;
 import com.salesmanager.core.business.repositories.catalog.product.availability.PageableProductAvailabilityRepository;
 import com.salesmanager.core.business.repositories.catalog.product.availability.ProductAvailabilityRepository;
+import com.salesmanager.core.business.services.catalog.product.price.PriceBook;
 import com.salesmanager.core.business.services.common.generic.SalesManagerEntityServiceImpl;
 import com.salesmanager.core.model.catalog.product.Product;
 import com.salesmanager.core.model.catalog.product.availability.ProductAvailability;
@@ -27,6 +28,9 @@ public class ProductAvailabilityServiceImpl extends
   @Inject
   private PageableProductAvailabilityRepository pageableProductAvailabilityRepository;
 
+  @Inject
+  private PriceBook priceBook;
+
   @Inject
   public ProductAvailabilityServiceImpl(
       ProductAvailabilityRepository productAvailabilityRepository) {
@@ -44,6 +48,24 @@ public class ProductAvailabilityServiceImpl extends
     }
   }
 
+  @Override
+  public void save(ProductAvailability availability) throws ServiceException {
+    super.save(availability);
+    invalidate(availability);
+  }
+
+  @Override
+  public void delete(ProductAvailability availability) throws ServiceException {
+    invalidate(availability);
+    super.delete(availability);
+  }
+
+  private void invalidate(ProductAvailability availability) {
+    if (availability.getProduct() != null) {
+      priceBook.invalidate(availability.getProduct().getId());
+    }
+  }
+
   private boolean isPositive(Long id) {
     return Objects.nonNull(id) && id > 0;
   }
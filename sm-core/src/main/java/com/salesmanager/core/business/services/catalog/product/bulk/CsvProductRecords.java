@@ -0,0 +1,374 @@
+package com.salesmanager.core.business.services.catalog.product.bulk;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.salesmanager.core.business.constants.Constants;
+import com.salesmanager.core.model.catalog.product.price.ProductPrice;
+
+/**
+ * Comma separated values, fields with commas, quotes or line breaks are
+ * quoted and quotes are doubled
+ */
+class CsvProductRecords {
+
+	static final String DATE_FORMAT = "yyyy-MM-dd";
+
+	private static final String LIST_SEPARATOR = "|";
+
+	private static final List<String> COLUMNS = Arrays.asList("sku", "manufacturer", "type", "available",
+			"shipeable", "virtual", "sortOrder", "dateAvailable", "weight", "height", "width", "length", "quantity",
+			"price", "specialPrice", "specialStart", "specialEnd", "categories", "images");
+
+	private static final List<String> DESCRIPTION_COLUMNS = Arrays.asList("name", "description", "friendlyUrl",
+			"title", "metaDescription");
+
+	static class Reader implements ProductRecordReader {
+
+		private final BufferedReader in;
+		private final SimpleDateFormat dates = new SimpleDateFormat(DATE_FORMAT);
+		private final StringBuilder field = new StringBuilder();
+		private Map<String, Integer> header;
+		/** line of the next character read **/
+		private long line = 1;
+		/** line the last record starts at **/
+		private long start;
+
+		Reader(InputStream in) {
+			this.in = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+		}
+
+		@Override
+		public ProductRecord read() throws IOException {
+
+			if (header == null) {
+				List<String> names = next();
+				if (names == null) {
+					return null;
+				}
+				header = new HashMap<String, Integer>();
+				for (int i = 0; i < names.size(); i++) {
+					header.put(names.get(i).trim(), i);
+				}
+				if (!header.containsKey("sku")) {
+					throw new IOException("Missing sku column in the header");
+				}
+			}
+
+			List<String> values;
+			do {
+				values = next();
+				if (values == null) {
+					return null;
+				}
+			} while (values.size() == 1 && values.get(0).isEmpty());
+
+			ProductRecord record = new ProductRecord();
+			record.setLine(start);
+			try {
+				record.setSku(string(values, "sku"));
+				record.setManufacturer(string(values, "manufacturer"));
+				record.setType(string(values, "type"));
+				record.setAvailable(bool(values, "available"));
+				record.setShipeable(bool(values, "shipeable"));
+				record.setVirtual(bool(values, "virtual"));
+				String sortOrder = string(values, "sortOrder");
+				record.setSortOrder(sortOrder == null ? null : Integer.valueOf(sortOrder));
+				record.setDateAvailable(date(values, "dateAvailable"));
+				record.setWeight(decimal(values, "weight"));
+				record.setHeight(decimal(values, "height"));
+				record.setWidth(decimal(values, "width"));
+				record.setLength(decimal(values, "length"));
+
+				String quantity = string(values, "quantity");
+				BigDecimal amount = decimal(values, "price");
+				if (quantity != null || amount != null) {
+					ProductRecord.Availability availability = new ProductRecord.Availability();
+					availability.setQuantity(quantity == null ? null : Integer.valueOf(quantity));
+					if (amount != null) {
+						ProductRecord.Price price = new ProductRecord.Price();
+						price.setCode(ProductPrice.DEFAULT_PRICE_CODE);
+						price.setDefaultPrice(true);
+						price.setAmount(amount);
+						price.setSpecialAmount(decimal(values, "specialPrice"));
+						price.setSpecialStart(date(values, "specialStart"));
+						price.setSpecialEnd(date(values, "specialEnd"));
+						availability.getPrices().add(price);
+					}
+					record.getAvailabilities().add(availability);
+				}
+
+				record.setCategories(list(values, "categories"));
+				record.setImages(list(values, "images"));
+
+				Map<String, ProductRecord.Description> descriptions = new LinkedHashMap<String, ProductRecord.Description>();
+				for (Map.Entry<String, Integer> column : header.entrySet()) {
+					int dot = column.getKey().indexOf('.');
+					if (dot < 0 || !DESCRIPTION_COLUMNS.contains(column.getKey().substring(0, dot))) {
+						continue;
+					}
+					String value = value(values, column.getValue());
+					if (value == null) {
+						continue;
+					}
+					String language = column.getKey().substring(dot + 1);
+					ProductRecord.Description description = descriptions.get(language);
+					if (description == null) {
+						description = new ProductRecord.Description();
+						description.setLanguage(language);
+						descriptions.put(language, description);
+					}
+					switch (column.getKey().substring(0, dot)) {
+					case "name":
+						description.setName(value);
+						break;
+					case "description":
+						description.setDescription(value);
+						break;
+					case "friendlyUrl":
+						description.setFriendlyUrl(value);
+						break;
+					case "title":
+						description.setTitle(value);
+						break;
+					default:
+						description.setMetaDescription(value);
+					}
+				}
+				record.setDescriptions(new ArrayList<ProductRecord.Description>(descriptions.values()));
+
+			} catch (NumberFormatException | ParseException e) {
+				throw new MalformedRecordException(start, "Invalid value " + e.getMessage());
+			}
+			return record;
+		}
+
+		/**
+		 * Fields of the next record, null at the end of the file
+		 */
+		private List<String> next() throws IOException {
+
+			int c = in.read();
+			if (c < 0) {
+				return null;
+			}
+			start = line;
+			List<String> values = new ArrayList<String>();
+			field.setLength(0);
+			boolean quoted = false;
+
+			while (c >= 0) {
+				if (quoted) {
+					if (c == '"') {
+						in.mark(1);
+						int n = in.read();
+						if (n == '"') {
+							field.append('"');
+						} else {
+							quoted = false;
+							if (n >= 0) {
+								in.reset();
+							}
+						}
+					} else {
+						if (c == '\n') {
+							line++;
+						}
+						field.append((char) c);
+					}
+				} else if (c == '"' && field.length() == 0) {
+					quoted = true;
+				} else if (c == ',') {
+					values.add(field.toString());
+					field.setLength(0);
+				} else if (c == '\n') {
+					line++;
+					break;
+				} else if (c != '\r') {
+					field.append((char) c);
+				}
+				c = in.read();
+			}
+			if (quoted) {
+				throw new MalformedRecordException(start, "Quoted field not closed");
+			}
+			values.add(field.toString());
+			return values;
+		}
+
+		private String value(List<String> values, Integer index) {
+			if (index == null || index >= values.size()) {
+				return null;
+			}
+			String value = values.get(index).trim();
+			return value.isEmpty() ? null : value;
+		}
+
+		private String string(List<String> values, String column) {
+			return value(values, header.get(column));
+		}
+
+		private Boolean bool(List<String> values, String column) {
+			String value = string(values, column);
+			return value == null ? null : Boolean.valueOf(value);
+		}
+
+		private BigDecimal decimal(List<String> values, String column) {
+			String value = string(values, column);
+			return value == null ? null : new BigDecimal(value);
+		}
+
+		private Date date(List<String> values, String column) throws ParseException {
+			String value = string(values, column);
+			return value == null ? null : dates.parse(value);
+		}
+
+		private List<String> list(List<String> values, String column) {
+			String value = string(values, column);
+			List<String> list = new ArrayList<String>();
+			if (value != null) {
+				for (String item : StringUtils.split(value, LIST_SEPARATOR)) {
+					if (!StringUtils.isBlank(item)) {
+						list.add(item.trim());
+					}
+				}
+			}
+			return list;
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+
+	static class Writer implements ProductRecordWriter {
+
+		private final BufferedWriter out;
+		private final List<String> languages;
+		private final SimpleDateFormat dates = new SimpleDateFormat(DATE_FORMAT);
+
+		Writer(OutputStream out, List<String> languages) throws IOException {
+			this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+			this.languages = languages;
+
+			List<String> header = new ArrayList<String>(COLUMNS);
+			for (String language : languages) {
+				for (String column : DESCRIPTION_COLUMNS) {
+					header.add(column + "." + language);
+				}
+			}
+			line(header);
+		}
+
+		@Override
+		public void write(ProductRecord record) throws IOException {
+
+			ProductRecord.Availability availability = null;
+			for (ProductRecord.Availability a : record.getAvailabilities()) {
+				if (availability == null || Constants.ALL_REGIONS.equals(a.getRegion())) {
+					availability = a;
+				}
+			}
+			ProductRecord.Price price = null;
+			if (availability != null) {
+				for (ProductRecord.Price p : availability.getPrices()) {
+					if (price == null || p.isDefaultPrice()) {
+						price = p;
+					}
+				}
+			}
+
+			List<String> values = new ArrayList<String>();
+			values.add(record.getSku());
+			values.add(record.getManufacturer());
+			values.add(record.getType());
+			values.add(string(record.getAvailable()));
+			values.add(string(record.getShipeable()));
+			values.add(string(record.getVirtual()));
+			values.add(string(record.getSortOrder()));
+			values.add(date(record.getDateAvailable()));
+			values.add(string(record.getWeight()));
+			values.add(string(record.getHeight()));
+			values.add(string(record.getWidth()));
+			values.add(string(record.getLength()));
+			values.add(availability == null ? null : string(availability.getQuantity()));
+			values.add(price == null ? null : string(price.getAmount()));
+			values.add(price == null ? null : string(price.getSpecialAmount()));
+			values.add(price == null ? null : date(price.getSpecialStart()));
+			values.add(price == null ? null : date(price.getSpecialEnd()));
+			values.add(StringUtils.join(record.getCategories(), LIST_SEPARATOR));
+			values.add(StringUtils.join(record.getImages(), LIST_SEPARATOR));
+
+			for (String language : languages) {
+				ProductRecord.Description description = null;
+				for (ProductRecord.Description d : record.getDescriptions()) {
+					if (language.equals(d.getLanguage())) {
+						description = d;
+					}
+				}
+				values.add(description == null ? null : description.getName());
+				values.add(description == null ? null : description.getDescription());
+				values.add(description == null ? null : description.getFriendlyUrl());
+				values.add(description == null ? null : description.getTitle());
+				values.add(description == null ? null : description.getMetaDescription());
+			}
+			line(values);
+		}
+
+		private void line(List<String> values) throws IOException {
+			for (int i = 0; i < values.size(); i++) {
+				if (i > 0) {
+					out.write(',');
+				}
+				String value = values.get(i);
+				if (value == null) {
+					continue;
+				}
+				if (StringUtils.containsAny(value, ',', '"', '\n', '\r')) {
+					out.write('"');
+					out.write(value.replace("\"", "\"\""));
+					out.write('"');
+				} else {
+					out.write(value);
+				}
+			}
+			out.write('\n');
+		}
+
+		private String string(Object value) {
+			if (value instanceof BigDecimal) {
+				return ((BigDecimal) value).toPlainString();
+			}
+			return value == null ? null : value.toString();
+		}
+
+		private String date(Date value) {
+			return value == null ? null : dates.format(value);
+		}
+
+		@Override
+		public void close() throws IOException {
+			out.flush();
+		}
+	}
+
+}
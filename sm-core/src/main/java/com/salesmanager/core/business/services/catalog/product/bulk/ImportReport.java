@@ -0,0 +1,103 @@
+package com.salesmanager.core.business.services.catalog.product.bulk;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a product import, the first errors are kept with the line and
+ * the sku of the record
+ */
+public class ImportReport {
+
+	private final int maxErrors;
+
+	private long read;
+	private long created;
+	private long updated;
+	private long failed;
+	private long elapsed;
+	private final List<RowError> errors = new ArrayList<RowError>();
+
+	public ImportReport(int maxErrors) {
+		this.maxErrors = maxErrors;
+	}
+
+	synchronized void error(long line, String sku, String message) {
+		failed++;
+		if (errors.size() < maxErrors) {
+			errors.add(new RowError(line, sku, message));
+		}
+	}
+
+	synchronized void read() {
+		read++;
+	}
+
+	synchronized void created(int count) {
+		created += count;
+	}
+
+	synchronized void updated(int count) {
+		updated += count;
+	}
+
+	void setElapsed(long elapsed) {
+		this.elapsed = elapsed;
+	}
+
+	public synchronized long getRead() {
+		return read;
+	}
+
+	public synchronized long getCreated() {
+		return created;
+	}
+
+	public synchronized long getUpdated() {
+		return updated;
+	}
+
+	public synchronized long getFailed() {
+		return failed;
+	}
+
+	/**
+	 * @return milliseconds the import took
+	 */
+	public long getElapsed() {
+		return elapsed;
+	}
+
+	public synchronized List<RowError> getErrors() {
+		List<RowError> sorted = new ArrayList<RowError>(errors);
+		Collections.sort(sorted, (a, b) -> Long.compare(a.getLine(), b.getLine()));
+		return sorted;
+	}
+
+	public static class RowError {
+
+		private final long line;
+		private final String sku;
+		private final String message;
+
+		RowError(long line, String sku, String message) {
+			this.line = line;
+			this.sku = sku;
+			this.message = message;
+		}
+
+		public long getLine() {
+			return line;
+		}
+
+		public String getSku() {
+			return sku;
+		}
+
+		public String getMessage() {
+			return message;
+		}
+	}
+
+}
@@ -0,0 +1,88 @@
+package com.salesmanager.core.business.services.catalog.product.bulk;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+/**
+ * JSON lines, one product by line
+ */
+class JsonProductRecords {
+
+	private static final ObjectMapper MAPPER = new ObjectMapper()
+			.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false)
+			.setDateFormat(new SimpleDateFormat(CsvProductRecords.DATE_FORMAT));
+
+	private static final ObjectReader READER = MAPPER.readerFor(ProductRecord.class);
+	private static final ObjectWriter WRITER = MAPPER.writerFor(ProductRecord.class);
+
+	static class Reader implements ProductRecordReader {
+
+		private final BufferedReader in;
+		private long line;
+
+		Reader(InputStream in) {
+			this.in = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+		}
+
+		@Override
+		public ProductRecord read() throws IOException {
+			String value;
+			do {
+				value = in.readLine();
+				if (value == null) {
+					return null;
+				}
+				line++;
+			} while (StringUtils.isBlank(value));
+
+			try {
+				ProductRecord record = READER.readValue(value);
+				record.setLine(line);
+				return record;
+			} catch (JsonProcessingException e) {
+				throw new MalformedRecordException(line, e.getOriginalMessage());
+			}
+		}
+
+		@Override
+		public void close() throws IOException {
+			in.close();
+		}
+	}
+
+	static class Writer implements ProductRecordWriter {
+
+		private final BufferedWriter out;
+
+		Writer(OutputStream out) {
+			this.out = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		}
+
+		@Override
+		public void write(ProductRecord record) throws IOException {
+			out.write(WRITER.writeValueAsString(record));
+			out.write('\n');
+		}
+
+		@Override
+		public void close() throws IOException {
+			out.flush();
+		}
+	}
+
+}
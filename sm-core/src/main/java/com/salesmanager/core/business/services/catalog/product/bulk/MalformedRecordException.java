@@ -0,0 +1,23 @@
+package com.salesmanager.core.business.services.catalog.product.bulk;
+
+import java.io.IOException;
+
+/**
+ * A line of an import file that is not a record
+ */
+public class MalformedRecordException extends IOException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final long line;
+
+	public MalformedRecordException(long line, String message) {
+		super(message);
+		this.line = line;
+	}
+
+	public long getLine() {
+		return line;
+	}
+
+}
@@ -0,0 +1,38 @@
+package com.salesmanager.core.business.services.catalog.product.bulk;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.model.merchant.MerchantStore;
+
+/**
+ * Imports and exports the products of a store as a stream of records (see
+ * {@link ProductRecordFormat}). Records are validated in parallel and
+ * written by chunks in their own transactions, search indexes are rebuilt
+ * once at the end of an import.
+ */
+public interface ProductImportService {
+
+	/**
+	 * Creates the products whose sku is not in the store and updates the
+	 * others, records that cannot be imported are reported and skipped
+	 * @param store
+	 * @param in stream of records, not closed
+	 * @param format
+	 * @return counts and errors of the import
+	 * @throws ServiceException when the stream cannot be read
+	 */
+	ImportReport importProducts(MerchantStore store, InputStream in, ProductRecordFormat format) throws ServiceException;
+
+	/**
+	 * Writes every product of the store in id order
+	 * @param store
+	 * @param out stream of records, flushed but not closed
+	 * @param format
+	 * @return products written
+	 * @throws ServiceException when the stream cannot be written
+	 */
+	long exportProducts(MerchantStore store, OutputStream out, ProductRecordFormat format) throws ServiceException;
+
+}
@@ -0,0 +1,365 @@
+package com.salesmanager.core.business.services.catalog.product.bulk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.salesmanager.core.business.constants.Constants;
+import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.business.repositories.catalog.product.ProductRepository;
+import com.salesmanager.core.business.services.catalog.category.CategoryService;
+import com.salesmanager.core.business.services.catalog.category.CategoryTreeCache;
+import com.salesmanager.core.business.services.catalog.product.manufacturer.ManufacturerService;
+import com.salesmanager.core.business.services.catalog.product.price.PriceBook;
+import com.salesmanager.core.business.services.catalog.product.type.ProductTypeService;
+import com.salesmanager.core.business.services.reference.language.LanguageService;
+import com.salesmanager.core.business.services.search.ProductReindexService;
+import com.salesmanager.core.business.utils.CoreConfiguration;
+import com.salesmanager.core.model.catalog.category.Category;
+import com.salesmanager.core.model.catalog.product.Product;
+import com.salesmanager.core.model.catalog.product.image.ProductImage;
+import com.salesmanager.core.model.catalog.product.manufacturer.Manufacturer;
+import com.salesmanager.core.model.catalog.product.type.ProductType;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.reference.language.Language;
+
+@Service("productImportService")
+public class ProductImportServiceImpl implements ProductImportService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ProductImportServiceImpl.class);
+
+	private final static String INDEX_PRODUCTS = "INDEX_PRODUCTS";
+
+	@Inject
+	private ProductRepository productRepository;
+
+	@Inject
+	private LanguageService languageService;
+
+	@Inject
+	private ManufacturerService manufacturerService;
+
+	@Inject
+	private ProductTypeService productTypeService;
+
+	@Inject
+	private CategoryService categoryService;
+
+	@Inject
+	private ProductReindexService productReindexService;
+
+	@Inject
+	private PriceBook priceBook;
+
+	@Inject
+	private CategoryTreeCache categoryTreeCache;
+
+	@Inject
+	private CoreConfiguration configuration;
+
+	@Inject
+	private PlatformTransactionManager transactionManager;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	/** records validated and written in one transaction **/
+	@Value("${config.bulk.chunkSize:500}")
+	private int chunkSize;
+
+	/** threads validating the chunks, also the number of chunks read ahead of the writer **/
+	@Value("${config.bulk.workers:4}")
+	private int workers;
+
+	/** errors kept in an import report **/
+	@Value("${config.bulk.maxErrors:1000}")
+	private int maxErrors;
+
+	private ThreadPoolExecutor executor;
+
+	@PostConstruct
+	public void init() {
+		AtomicInteger count = new AtomicInteger();
+		executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+				new LinkedBlockingQueue<Runnable>(), r -> {
+					Thread t = new Thread(r, "product-import-" + count.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				});
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	/**
+	 * The calling thread reads the records and writes the validated chunks in
+	 * file order while the next chunks are validated, a chunk that cannot be
+	 * written is written again record by record so a bad record only fails
+	 * itself
+	 */
+	@Override
+	public ImportReport importProducts(MerchantStore store, InputStream in, ProductRecordFormat format) throws ServiceException {
+
+		long start = System.currentTimeMillis();
+		ImportReport report = new ImportReport(maxErrors);
+		ProductRecordMapper mapper = mapper(store);
+		Deque<Future<List<ProductRecord>>> pending = new ArrayDeque<Future<List<ProductRecord>>>();
+
+		try {
+			ProductRecordReader reader = format.reader(in);
+			List<ProductRecord> chunk = new ArrayList<ProductRecord>(chunkSize);
+			boolean end = false;
+			while (!end) {
+				try {
+					ProductRecord record = reader.read();
+					if (record == null) {
+						end = true;
+					} else {
+						report.read();
+						chunk.add(record);
+					}
+				} catch (MalformedRecordException e) {
+					report.read();
+					report.error(e.getLine(), null, e.getMessage());
+				}
+				if (chunk.size() == chunkSize || (end && !chunk.isEmpty())) {
+					List<ProductRecord> records = chunk;
+					pending.add(executor.submit(() -> validate(records, mapper, report)));
+					chunk = new ArrayList<ProductRecord>(chunkSize);
+				}
+				while (pending.size() > workers || (end && !pending.isEmpty())) {
+					write(store, pending.poll().get(), mapper, report);
+				}
+			}
+		} catch (IOException e) {
+			throw new ServiceException("Cannot read products at record " + report.getRead(), e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ServiceException(e);
+		} catch (ExecutionException e) {
+			throw new ServiceException(e.getCause());
+		} finally {
+			for (Future<List<ProductRecord>> future : pending) {
+				future.cancel(true);
+			}
+			if (report.getCreated() + report.getUpdated() > 0) {
+				priceBook.clear();
+				categoryTreeCache.invalidate(store);
+			}
+		}
+
+		if (report.getCreated() + report.getUpdated() > 0 && indexing()) {
+			productReindexService.reindex(store);
+		}
+
+		report.setElapsed(System.currentTimeMillis() - start);
+		LOGGER.info("Imported " + report.getRead() + " products of store " + store.getCode() + " in "
+				+ report.getElapsed() + "ms, " + report.getCreated() + " created, " + report.getUpdated()
+				+ " updated, " + report.getFailed() + " failed");
+		return report;
+	}
+
+	@Override
+	public long exportProducts(MerchantStore store, OutputStream out, ProductRecordFormat format) throws ServiceException {
+
+		TransactionTemplate template = new TransactionTemplate(transactionManager);
+		template.setReadOnly(true);
+
+		long count = 0;
+		try {
+			List<String> languages = new ArrayList<String>();
+			for (Language language : languageService.getLanguages()) {
+				languages.add(language.getCode());
+			}
+			ProductRecordWriter writer = format.writer(out, languages);
+
+			Long lastId = 0L;
+			List<Long> ids;
+			while (!(ids = productRepository.listIdsByStore(store.getId(), lastId, PageRequest.of(0, chunkSize))).isEmpty()) {
+				List<Long> chunk = ids;
+				List<ProductRecord> records = template.execute(status -> {
+					List<Product> products = productRepository.listByIds(new LinkedHashSet<Long>(chunk));
+					Collections.sort(products, Comparator.comparing(Product::getId));
+					List<ProductRecord> list = new ArrayList<ProductRecord>(products.size());
+					for (Product product : products) {
+						list.add(ProductRecordMapper.toRecord(product));
+					}
+					entityManager.clear();
+					return list;
+				});
+				for (ProductRecord record : records) {
+					writer.write(record);
+				}
+				count += records.size();
+				lastId = ids.get(ids.size() - 1);
+			}
+			writer.close();
+		} catch (IOException e) {
+			throw new ServiceException("Cannot write products after " + count + " products", e);
+		}
+		return count;
+	}
+
+	/**
+	 * @return the records that can be written, in file order
+	 */
+	private List<ProductRecord> validate(List<ProductRecord> records, ProductRecordMapper mapper, ImportReport report) {
+		List<ProductRecord> valid = new ArrayList<ProductRecord>(records.size());
+		Map<String, Long> lines = new HashMap<String, Long>();
+		for (ProductRecord record : records) {
+			String error = mapper.validate(record);
+			if (error == null && lines.containsKey(record.getSku())) {
+				error = "Sku already imported at line " + lines.get(record.getSku());
+			}
+			if (error != null) {
+				report.error(record.getLine(), record.getSku(), error);
+				continue;
+			}
+			lines.put(record.getSku(), record.getLine());
+			valid.add(record);
+		}
+		return valid;
+	}
+
+	private void write(MerchantStore store, List<ProductRecord> records, ProductRecordMapper mapper, ImportReport report) {
+
+		if (records.isEmpty()) {
+			return;
+		}
+		TransactionTemplate template = new TransactionTemplate(transactionManager);
+		try {
+			int[] counts = template.execute(status -> upsert(store, records, mapper));
+			report.created(counts[0]);
+			report.updated(counts[1]);
+		} catch (RuntimeException e) {
+			LOGGER.debug("Chunk starting at line " + records.get(0).getLine() + " written record by record", e);
+			for (ProductRecord record : records) {
+				try {
+					int[] counts = template.execute(status -> upsert(store, Collections.singletonList(record), mapper));
+					report.created(counts[0]);
+					report.updated(counts[1]);
+				} catch (RuntimeException re) {
+					Throwable cause = re;
+					while (cause.getCause() != null) {
+						cause = cause.getCause();
+					}
+					report.error(record.getLine(), record.getSku(), cause.getMessage());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Existing products are loaded with one query by chunk, inserts and updates
+	 * are sent as jdbc batches on flush (hibernate.jdbc.batch_size)
+	 * @return products created and updated
+	 */
+	private int[] upsert(MerchantStore store, List<ProductRecord> records, ProductRecordMapper mapper) {
+
+		List<String> skus = new ArrayList<String>(records.size());
+		for (ProductRecord record : records) {
+			skus.add(record.getSku());
+		}
+		Map<String, Product> existing = new HashMap<String, Product>();
+		Set<Long> ids = new LinkedHashSet<Long>();
+		for (Object[] row : productRepository.listIdsBySku(store.getId(), skus)) {
+			ids.add((Long) row[1]);
+		}
+		if (!ids.isEmpty()) {
+			for (Product product : productRepository.listByIds(ids)) {
+				existing.put(product.getSku(), product);
+			}
+		}
+
+		int[] counts = new int[2];
+		for (ProductRecord record : records) {
+			Product product = existing.get(record.getSku());
+			boolean created = product == null;
+			if (created) {
+				product = new Product();
+			}
+			Set<ProductImage> images = mapper.apply(record, product, entityManager);
+			if (created) {
+				entityManager.persist(product);
+				counts[0]++;
+			} else {
+				counts[1]++;
+			}
+			for (ProductImage image : images) {
+				entityManager.persist(image);
+			}
+		}
+		entityManager.flush();
+		entityManager.clear();
+		return counts;
+	}
+
+	/**
+	 * Codes of the store references, read once by import
+	 */
+	private ProductRecordMapper mapper(MerchantStore store) throws ServiceException {
+
+		Map<String, Integer> languages = new HashMap<String, Integer>();
+		for (Language language : languageService.getLanguages()) {
+			languages.put(language.getCode(), language.getId());
+		}
+		Map<String, Long> manufacturers = new HashMap<String, Long>();
+		for (Manufacturer manufacturer : manufacturerService.listByStore(store)) {
+			manufacturers.put(manufacturer.getCode(), manufacturer.getId());
+		}
+		Map<String, Long> types = new HashMap<String, Long>();
+		for (ProductType type : productTypeService.list()) {
+			// types of the store take precedence over shared types
+			if (type.getMerchantStore() == null) {
+				types.putIfAbsent(type.getCode(), type.getId());
+			} else if (type.getMerchantStore().getId().equals(store.getId())) {
+				types.put(type.getCode(), type.getId());
+			}
+		}
+		Map<String, Long> categories = new HashMap<String, Long>();
+		for (Category category : categoryService.listByStore(store)) {
+			categories.put(category.getCode(), category.getId());
+		}
+		return new ProductRecordMapper(store.getId(), Collections.unmodifiableMap(languages),
+				Collections.unmodifiableMap(manufacturers), Collections.unmodifiableMap(types),
+				Collections.unmodifiableMap(categories));
+	}
+
+	private boolean indexing() {
+		return configuration.getProperty(INDEX_PRODUCTS) != null
+				&& !configuration.getProperty(INDEX_PRODUCTS).equals(Constants.FALSE);
+	}
+
+}
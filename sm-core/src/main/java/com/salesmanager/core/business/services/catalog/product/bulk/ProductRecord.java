@@ -0,0 +1,326 @@
+package com.salesmanager.core.business.services.catalog.product.bulk;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * A product of an import or export file, references such as the
+ * manufacturer, the type and the categories are codes of the store
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class ProductRecord {
+
+	/** line of the record in the imported file **/
+	@JsonIgnore
+	private long line;
+
+	private String sku;
+	private String manufacturer;
+	private String type;
+	private Boolean available;
+	private Boolean shipeable;
+	private Boolean virtual;
+	private Integer sortOrder;
+	private Date dateAvailable;
+	private BigDecimal weight;
+	private BigDecimal height;
+	private BigDecimal width;
+	private BigDecimal length;
+	private List<Description> descriptions = new ArrayList<Description>();
+	private List<Availability> availabilities = new ArrayList<Availability>();
+	private List<String> categories = new ArrayList<String>();
+	/** image names of the content store or external urls **/
+	private List<String> images = new ArrayList<String>();
+
+	public long getLine() {
+		return line;
+	}
+
+	public void setLine(long line) {
+		this.line = line;
+	}
+
+	public String getSku() {
+		return sku;
+	}
+
+	public void setSku(String sku) {
+		this.sku = sku;
+	}
+
+	public String getManufacturer() {
+		return manufacturer;
+	}
+
+	public void setManufacturer(String manufacturer) {
+		this.manufacturer = manufacturer;
+	}
+
+	public String getType() {
+		return type;
+	}
+
+	public void setType(String type) {
+		this.type = type;
+	}
+
+	public Boolean getAvailable() {
+		return available;
+	}
+
+	public void setAvailable(Boolean available) {
+		this.available = available;
+	}
+
+	public Boolean getShipeable() {
+		return shipeable;
+	}
+
+	public void setShipeable(Boolean shipeable) {
+		this.shipeable = shipeable;
+	}
+
+	public Boolean getVirtual() {
+		return virtual;
+	}
+
+	public void setVirtual(Boolean virtual) {
+		this.virtual = virtual;
+	}
+
+	public Integer getSortOrder() {
+		return sortOrder;
+	}
+
+	public void setSortOrder(Integer sortOrder) {
+		this.sortOrder = sortOrder;
+	}
+
+	public Date getDateAvailable() {
+		return dateAvailable;
+	}
+
+	public void setDateAvailable(Date dateAvailable) {
+		this.dateAvailable = dateAvailable;
+	}
+
+	public BigDecimal getWeight() {
+		return weight;
+	}
+
+	public void setWeight(BigDecimal weight) {
+		this.weight = weight;
+	}
+
+	public BigDecimal getHeight() {
+		return height;
+	}
+
+	public void setHeight(BigDecimal height) {
+		this.height = height;
+	}
+
+	public BigDecimal getWidth() {
+		return width;
+	}
+
+	public void setWidth(BigDecimal width) {
+		this.width = width;
+	}
+
+	public BigDecimal getLength() {
+		return length;
+	}
+
+	public void setLength(BigDecimal length) {
+		this.length = length;
+	}
+
+	public List<Description> getDescriptions() {
+		return descriptions;
+	}
+
+	public void setDescriptions(List<Description> descriptions) {
+		this.descriptions = descriptions;
+	}
+
+	public List<Availability> getAvailabilities() {
+		return availabilities;
+	}
+
+	public void setAvailabilities(List<Availability> availabilities) {
+		this.availabilities = availabilities;
+	}
+
+	public List<String> getCategories() {
+		return categories;
+	}
+
+	public void setCategories(List<String> categories) {
+		this.categories = categories;
+	}
+
+	public List<String> getImages() {
+		return images;
+	}
+
+	public void setImages(List<String> images) {
+		this.images = images;
+	}
+
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	public static class Description {
+
+		private String language;
+		private String name;
+		private String description;
+		private String friendlyUrl;
+		private String title;
+		private String metaDescription;
+
+		public String getLanguage() {
+			return language;
+		}
+
+		public void setLanguage(String language) {
+			this.language = language;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public String getDescription() {
+			return description;
+		}
+
+		public void setDescription(String description) {
+			this.description = description;
+		}
+
+		public String getFriendlyUrl() {
+			return friendlyUrl;
+		}
+
+		public void setFriendlyUrl(String friendlyUrl) {
+			this.friendlyUrl = friendlyUrl;
+		}
+
+		public String getTitle() {
+			return title;
+		}
+
+		public void setTitle(String title) {
+			this.title = title;
+		}
+
+		public String getMetaDescription() {
+			return metaDescription;
+		}
+
+		public void setMetaDescription(String metaDescription) {
+			this.metaDescription = metaDescription;
+		}
+	}
+
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	public static class Availability {
+
+		private String region;
+		private Integer quantity;
+		private List<Price> prices = new ArrayList<Price>();
+
+		public String getRegion() {
+			return region;
+		}
+
+		public void setRegion(String region) {
+			this.region = region;
+		}
+
+		public Integer getQuantity() {
+			return quantity;
+		}
+
+		public void setQuantity(Integer quantity) {
+			this.quantity = quantity;
+		}
+
+		public List<Price> getPrices() {
+			return prices;
+		}
+
+		public void setPrices(List<Price> prices) {
+			this.prices = prices;
+		}
+	}
+
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	public static class Price {
+
+		private String code;
+		private boolean defaultPrice;
+		private BigDecimal amount;
+		private BigDecimal specialAmount;
+		private Date specialStart;
+		private Date specialEnd;
+
+		public String getCode() {
+			return code;
+		}
+
+		public void setCode(String code) {
+			this.code = code;
+		}
+
+		public boolean isDefaultPrice() {
+			return defaultPrice;
+		}
+
+		public void setDefaultPrice(boolean defaultPrice) {
+			this.defaultPrice = defaultPrice;
+		}
+
+		public BigDecimal getAmount() {
+			return amount;
+		}
+
+		public void setAmount(BigDecimal amount) {
+			this.amount = amount;
+		}
+
+		public BigDecimal getSpecialAmount() {
+			return specialAmount;
+		}
+
+		public void setSpecialAmount(BigDecimal specialAmount) {
+			this.specialAmount = specialAmount;
+		}
+
+		public Date getSpecialStart() {
+			return specialStart;
+		}
+
+		public void setSpecialStart(Date specialStart) {
+			this.specialStart = specialStart;
+		}
+
+		public Date getSpecialEnd() {
+			return specialEnd;
+		}
+
+		public void setSpecialEnd(Date specialEnd) {
+			this.specialEnd = specialEnd;
+		}
+	}
+
+}
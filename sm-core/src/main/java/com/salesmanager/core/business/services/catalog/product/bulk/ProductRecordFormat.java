@@ -0,0 +1,51 @@
+package com.salesmanager.core.business.services.catalog.product.bulk;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.List;
+
+/**
+ * Formats of the product import and export files
+ *
+ * - CSV, one product by line with a header, one availability for all
+ *   regions with a default price, descriptions in columns suffixed by the
+ *   language code (name.en, description.fr ...), categories and images
+ *   separated by |
+ * - JSON_LINES, one json product by line with every availability and price
+ */
+public enum ProductRecordFormat {
+
+	CSV {
+		@Override
+		public ProductRecordReader reader(InputStream in) throws IOException {
+			return new CsvProductRecords.Reader(in);
+		}
+
+		@Override
+		public ProductRecordWriter writer(OutputStream out, List<String> languages) throws IOException {
+			return new CsvProductRecords.Writer(out, languages);
+		}
+	},
+
+	JSON_LINES {
+		@Override
+		public ProductRecordReader reader(InputStream in) throws IOException {
+			return new JsonProductRecords.Reader(in);
+		}
+
+		@Override
+		public ProductRecordWriter writer(OutputStream out, List<String> languages) throws IOException {
+			return new JsonProductRecords.Writer(out);
+		}
+	};
+
+	public abstract ProductRecordReader reader(InputStream in) throws IOException;
+
+	/**
+	 * @param out
+	 * @param languages codes of the languages of the descriptions written
+	 */
+	public abstract ProductRecordWriter writer(OutputStream out, List<String> languages) throws IOException;
+
+}
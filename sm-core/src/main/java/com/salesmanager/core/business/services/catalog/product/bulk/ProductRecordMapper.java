@@ -0,0 +1,337 @@
+package com.salesmanager.core.business.services.catalog.product.bulk;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import javax.persistence.EntityManager;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.salesmanager.core.business.constants.Constants;
+import com.salesmanager.core.model.catalog.category.Category;
+import com.salesmanager.core.model.catalog.product.Product;
+import com.salesmanager.core.model.catalog.product.availability.ProductAvailability;
+import com.salesmanager.core.model.catalog.product.description.ProductDescription;
+import com.salesmanager.core.model.catalog.product.image.ProductImage;
+import com.salesmanager.core.model.catalog.product.manufacturer.Manufacturer;
+import com.salesmanager.core.model.catalog.product.price.ProductPrice;
+import com.salesmanager.core.model.catalog.product.type.ProductType;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.reference.language.Language;
+
+/**
+ * Checks the records against the codes of the store and copies them to and
+ * from the products. The codes are read once by import, the maps are not
+ * changed afterwards and are shared by the validating threads.
+ */
+class ProductRecordMapper {
+
+	private static final int SKU_LENGTH = 255;
+	private static final Pattern PRICE_CODE = Pattern.compile("^[a-zA-Z0-9_]*$");
+
+	private final Integer storeId;
+	private final Map<String, Integer> languages;
+	private final Map<String, Long> manufacturers;
+	private final Map<String, Long> types;
+	private final Map<String, Long> categories;
+
+	ProductRecordMapper(Integer storeId, Map<String, Integer> languages, Map<String, Long> manufacturers,
+			Map<String, Long> types, Map<String, Long> categories) {
+		this.storeId = storeId;
+		this.languages = languages;
+		this.manufacturers = manufacturers;
+		this.types = types;
+		this.categories = categories;
+	}
+
+	/**
+	 * @return the first problem of the record, null when it can be imported
+	 */
+	String validate(ProductRecord record) {
+
+		if (StringUtils.isBlank(record.getSku())) {
+			return "Missing sku";
+		}
+		if (record.getSku().length() > SKU_LENGTH) {
+			return "Sku longer than " + SKU_LENGTH + " characters";
+		}
+		if (record.getManufacturer() != null && !manufacturers.containsKey(record.getManufacturer())) {
+			return "Unknown manufacturer " + record.getManufacturer();
+		}
+		if (record.getType() != null && !types.containsKey(record.getType())) {
+			return "Unknown product type " + record.getType();
+		}
+		for (String category : record.getCategories()) {
+			if (!categories.containsKey(category)) {
+				return "Unknown category " + category;
+			}
+		}
+		for (ProductRecord.Description description : record.getDescriptions()) {
+			if (!languages.containsKey(description.getLanguage())) {
+				return "Unknown language " + description.getLanguage();
+			}
+			if (StringUtils.isBlank(description.getName())) {
+				return "Missing name in " + description.getLanguage();
+			}
+		}
+		if (negative(record.getWeight()) || negative(record.getHeight()) || negative(record.getWidth())
+				|| negative(record.getLength())) {
+			return "Negative dimension";
+		}
+		Set<String> regions = new HashSet<String>();
+		for (ProductRecord.Availability availability : record.getAvailabilities()) {
+			if (!regions.add(region(availability))) {
+				return "Region " + region(availability) + " listed twice";
+			}
+			if (availability.getQuantity() != null && availability.getQuantity() < 0) {
+				return "Negative quantity";
+			}
+			Set<String> codes = new HashSet<String>();
+			int defaults = 0;
+			for (ProductRecord.Price price : availability.getPrices()) {
+				if (!codes.add(code(price))) {
+					return "Price " + code(price) + " listed twice";
+				}
+				if (!PRICE_CODE.matcher(code(price)).matches()) {
+					return "Invalid price code " + code(price);
+				}
+				if (price.getAmount() == null || negative(price.getAmount()) || negative(price.getSpecialAmount())) {
+					return "Missing or negative price " + code(price);
+				}
+				if (price.getSpecialStart() != null && price.getSpecialEnd() != null
+						&& price.getSpecialEnd().before(price.getSpecialStart())) {
+					return "Special price " + code(price) + " ends before it starts";
+				}
+				if (price.isDefaultPrice()) {
+					defaults++;
+				}
+			}
+			if (defaults > 1) {
+				return "More than one default price in region " + region(availability);
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Copies the record to a new or a loaded product, values missing from the
+	 * record are left unchanged. Descriptions, availabilities and prices are
+	 * matched by language, region and code, categories are replaced and images
+	 * not yet on the product are added.
+	 * @return images to persist
+	 */
+	Set<ProductImage> apply(ProductRecord record, Product product, EntityManager entityManager) {
+
+		if (product.getId() == null) {
+			product.setSku(record.getSku());
+			product.setMerchantStore(entityManager.getReference(MerchantStore.class, storeId));
+		}
+		if (record.getManufacturer() != null) {
+			product.setManufacturer(entityManager.getReference(Manufacturer.class, manufacturers.get(record.getManufacturer())));
+		}
+		if (record.getType() != null) {
+			product.setType(entityManager.getReference(ProductType.class, types.get(record.getType())));
+		}
+		if (record.getAvailable() != null) {
+			product.setAvailable(record.getAvailable());
+		}
+		if (record.getShipeable() != null) {
+			product.setProductShipeable(record.getShipeable());
+		}
+		if (record.getVirtual() != null) {
+			product.setProductVirtual(record.getVirtual());
+		}
+		if (record.getSortOrder() != null) {
+			product.setSortOrder(record.getSortOrder());
+		}
+		if (record.getDateAvailable() != null) {
+			product.setDateAvailable(record.getDateAvailable());
+		}
+		if (record.getWeight() != null) {
+			product.setProductWeight(record.getWeight());
+		}
+		if (record.getHeight() != null) {
+			product.setProductHeight(record.getHeight());
+		}
+		if (record.getWidth() != null) {
+			product.setProductWidth(record.getWidth());
+		}
+		if (record.getLength() != null) {
+			product.setProductLength(record.getLength());
+		}
+
+		for (ProductRecord.Description source : record.getDescriptions()) {
+			ProductDescription description = null;
+			for (ProductDescription d : product.getDescriptions()) {
+				if (source.getLanguage().equals(d.getLanguage().getCode())) {
+					description = d;
+				}
+			}
+			if (description == null) {
+				description = new ProductDescription();
+				description.setProduct(product);
+				description.setLanguage(entityManager.getReference(Language.class, languages.get(source.getLanguage())));
+				product.getDescriptions().add(description);
+			}
+			description.setName(source.getName());
+			if (source.getDescription() != null) {
+				description.setDescription(source.getDescription());
+			}
+			if (source.getFriendlyUrl() != null) {
+				description.setSeUrl(source.getFriendlyUrl());
+			}
+			if (source.getTitle() != null) {
+				description.setMetatagTitle(source.getTitle());
+			}
+			if (source.getMetaDescription() != null) {
+				description.setMetatagDescription(source.getMetaDescription());
+			}
+		}
+
+		for (ProductRecord.Availability source : record.getAvailabilities()) {
+			ProductAvailability availability = null;
+			for (ProductAvailability a : product.getAvailabilities()) {
+				if (region(source).equals(a.getRegion())) {
+					availability = a;
+				}
+			}
+			if (availability == null) {
+				availability = new ProductAvailability();
+				availability.setProduct(product);
+				availability.setRegion(region(source));
+				availability.setProductDateAvailable(record.getDateAvailable() == null ? new Date() : record.getDateAvailable());
+				product.getAvailabilities().add(availability);
+			}
+			if (source.getQuantity() != null) {
+				availability.setProductQuantity(source.getQuantity());
+			}
+			for (ProductRecord.Price sourcePrice : source.getPrices()) {
+				ProductPrice price = null;
+				for (ProductPrice p : availability.getPrices()) {
+					if (code(sourcePrice).equals(p.getCode())) {
+						price = p;
+					}
+				}
+				if (price == null) {
+					price = new ProductPrice();
+					price.setCode(code(sourcePrice));
+					price.setProductAvailability(availability);
+					availability.getPrices().add(price);
+				}
+				price.setDefaultPrice(sourcePrice.isDefaultPrice());
+				price.setProductPriceAmount(sourcePrice.getAmount());
+				price.setProductPriceSpecialAmount(sourcePrice.getSpecialAmount());
+				price.setProductPriceSpecialStartDate(sourcePrice.getSpecialStart());
+				price.setProductPriceSpecialEndDate(sourcePrice.getSpecialEnd());
+			}
+		}
+
+		if (!record.getCategories().isEmpty()) {
+			Set<Category> productCategories = new HashSet<Category>();
+			for (String code : record.getCategories()) {
+				productCategories.add(entityManager.getReference(Category.class, categories.get(code)));
+			}
+			product.setCategories(productCategories);
+		}
+
+		Set<ProductImage> images = new HashSet<ProductImage>();
+		Set<String> names = new HashSet<String>();
+		for (ProductImage image : product.getImages()) {
+			names.add(image(image));
+		}
+		for (String name : record.getImages()) {
+			if (!names.add(name)) {
+				continue;
+			}
+			ProductImage image = new ProductImage();
+			image.setProduct(product);
+			image.setDefaultImage(product.getImages().isEmpty());
+			image.setSortOrder(product.getImages().size());
+			if (name.startsWith("http://") || name.startsWith("https://")) {
+				image.setImageType(1);
+				image.setProductImageUrl(name);
+				image.setProductImage(StringUtils.substringAfterLast(name, "/"));
+			} else {
+				image.setProductImage(name);
+			}
+			product.getImages().add(image);
+			images.add(image);
+		}
+		return images;
+	}
+
+	static ProductRecord toRecord(Product product) {
+
+		ProductRecord record = new ProductRecord();
+		record.setSku(product.getSku());
+		record.setManufacturer(product.getManufacturer() == null ? null : product.getManufacturer().getCode());
+		record.setType(product.getType() == null ? null : product.getType().getCode());
+		record.setAvailable(product.isAvailable());
+		record.setShipeable(product.isProductShipeable());
+		record.setVirtual(product.isProductVirtual());
+		record.setSortOrder(product.getSortOrder());
+		record.setDateAvailable(product.getDateAvailable());
+		record.setWeight(product.getProductWeight());
+		record.setHeight(product.getProductHeight());
+		record.setWidth(product.getProductWidth());
+		record.setLength(product.getProductLength());
+
+		for (ProductDescription source : product.getDescriptions()) {
+			ProductRecord.Description description = new ProductRecord.Description();
+			description.setLanguage(source.getLanguage().getCode());
+			description.setName(source.getName());
+			description.setDescription(source.getDescription());
+			description.setFriendlyUrl(source.getSeUrl());
+			description.setTitle(source.getMetatagTitle());
+			description.setMetaDescription(source.getMetatagDescription());
+			record.getDescriptions().add(description);
+		}
+
+		for (ProductAvailability source : product.getAvailabilities()) {
+			ProductRecord.Availability availability = new ProductRecord.Availability();
+			availability.setRegion(source.getRegion());
+			availability.setQuantity(source.getProductQuantity());
+			for (ProductPrice sourcePrice : source.getPrices()) {
+				ProductRecord.Price price = new ProductRecord.Price();
+				price.setCode(sourcePrice.getCode());
+				price.setDefaultPrice(sourcePrice.isDefaultPrice());
+				price.setAmount(sourcePrice.getProductPriceAmount());
+				price.setSpecialAmount(sourcePrice.getProductPriceSpecialAmount());
+				price.setSpecialStart(sourcePrice.getProductPriceSpecialStartDate());
+				price.setSpecialEnd(sourcePrice.getProductPriceSpecialEndDate());
+				availability.getPrices().add(price);
+			}
+			record.getAvailabilities().add(availability);
+		}
+
+		for (Category category : product.getCategories()) {
+			record.getCategories().add(category.getCode());
+		}
+		for (ProductImage image : product.getImages()) {
+			record.getImages().add(image(image));
+		}
+		return record;
+	}
+
+	private static String image(ProductImage image) {
+		return image.getImageType() == 1 && image.getProductImageUrl() != null ? image.getProductImageUrl()
+				: image.getProductImage();
+	}
+
+	private static String region(ProductRecord.Availability availability) {
+		return StringUtils.isBlank(availability.getRegion()) ? Constants.ALL_REGIONS : availability.getRegion();
+	}
+
+	private static String code(ProductRecord.Price price) {
+		return StringUtils.isBlank(price.getCode()) ? ProductPrice.DEFAULT_PRICE_CODE : price.getCode();
+	}
+
+	private static boolean negative(BigDecimal value) {
+		return value != null && value.signum() < 0;
+	}
+
+}
@@ -0,0 +1,19 @@
+package com.salesmanager.core.business.services.catalog.product.bulk;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Reads the records of an import file one at a time
+ */
+public interface ProductRecordReader extends Closeable {
+
+	/**
+	 * @return the next record, null at the end of the file
+	 * @throws IOException when the file cannot be read
+	 * @throws MalformedRecordException when a line cannot be parsed, the next
+	 *             call reads the following line
+	 */
+	ProductRecord read() throws IOException;
+
+}
@@ -0,0 +1,13 @@
+package com.salesmanager.core.business.services.catalog.product.bulk;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Writes the records of an export file one at a time
+ */
+public interface ProductRecordWriter extends Closeable {
+
+	void write(ProductRecord record) throws IOException;
+
+}
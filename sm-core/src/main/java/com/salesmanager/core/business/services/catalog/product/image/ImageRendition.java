@@ -0,0 +1,95 @@
+package com.salesmanager.core.business.services.catalog.product.image;
+
+import org.apache.commons.lang3.StringUtils;
+
+import com.salesmanager.core.model.catalog.product.file.ProductImageSize;
+
+/**
+ * A generated variant of a product image: maximum width and height (the
+ * aspect ratio is kept, 0 keeps the original dimension) and an optional
+ * output format (jpg, png, gif), the original format is kept otherwise.
+ *
+ * Renditions are declared as NAME:WIDTHxHEIGHT[:format], for example
+ * THUMB:150x150:jpg
+ */
+public class ImageRendition {
+
+	private final String name;
+	private final int width;
+	private final int height;
+	private final String format;
+	private final boolean crop;
+
+	public ImageRendition(String name, int width, int height, String format, boolean crop) {
+		this.name = name;
+		this.width = width;
+		this.height = height;
+		this.format = format;
+		this.crop = crop;
+	}
+
+	public static ImageRendition parse(String definition) {
+		String[] parts = definition.trim().split(":");
+		if (parts.length < 2 || parts.length > 3) {
+			throw new IllegalArgumentException("Invalid image rendition [" + definition + "], expected NAME:WIDTHxHEIGHT[:format]");
+		}
+		String[] size = parts[1].toLowerCase().split("x");
+		if (size.length != 2) {
+			throw new IllegalArgumentException("Invalid image rendition size [" + definition + "]");
+		}
+		String name = parts[0].trim().toUpperCase();
+		if (ProductImageSize.SMALL.name().equals(name) || ProductImageSize.LARGE.name().equals(name)) {
+			throw new IllegalArgumentException("Image rendition name [" + name + "] is reserved");
+		}
+		return new ImageRendition(name, Integer.parseInt(size[0].trim()),
+				Integer.parseInt(size[1].trim()), parts.length == 3 ? parts[2].trim().toLowerCase() : null, false);
+	}
+
+	/**
+	 * Name of the stored rendition of an image. The SMALL rendition keeps
+	 * the image name, other renditions are prefixed by their name
+	 */
+	public String getFileName(String imageName) {
+		if (isSmall()) {
+			return imageName;
+		}
+		String baseName = imageName.contains(".") ? StringUtils.substringBeforeLast(imageName, ".") : imageName;
+		return new StringBuilder().append(name).append('-').append(baseName).append('.').append(getFormat(imageName)).toString();
+	}
+
+	/**
+	 * Format of the rendition of an image
+	 */
+	public String getFormat(String imageName) {
+		if (format != null) {
+			return format;
+		}
+		String extension = StringUtils.substringAfterLast(imageName, ".").toLowerCase();
+		return StringUtils.isEmpty(extension) ? "png" : extension;
+	}
+
+	public boolean isSmall() {
+		return ProductImageSize.SMALL.name().equals(name);
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public int getWidth() {
+		return width;
+	}
+
+	public int getHeight() {
+		return height;
+	}
+
+	public String getFormat() {
+		return format;
+	}
+
+	public boolean isCrop() {
+		return crop;
+	}
+
+}
@@ -0,0 +1,70 @@
+package com.salesmanager.core.business.services.catalog.product.image;
+
+import java.util.List;
+
+import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.business.modules.cms.common.ImageResource;
+import com.salesmanager.core.model.catalog.product.image.ProductImage;
+
+/**
+ * Generates the SMALL image and the configured renditions of product
+ * images on a bounded pool of workers. Renditions are generated after an
+ * upload and, when missing, on first request.
+ */
+public interface ProductImageRenditionService {
+
+	/**
+	 * SMALL rendition followed by the renditions configured for a store
+	 * @param storeCode
+	 * @return
+	 */
+	List<ImageRendition> getRenditions(String storeCode);
+
+	/**
+	 * A rendition by name, null if the store has no such rendition
+	 * @param storeCode
+	 * @param name
+	 * @return
+	 */
+	ImageRendition getRendition(String storeCode, String name);
+
+	/**
+	 * Queues the generation of every rendition of an uploaded image, SMALL
+	 * included, the call does not wait for the renditions. Renditions
+	 * rejected by a full queue are queued again later
+	 * @param storeCode
+	 * @param productCode
+	 * @param imageName
+	 * @param original
+	 */
+	void generateRenditions(String storeCode, String productCode, String imageName, byte[] original);
+
+	/**
+	 * Returns a stored rendition or generates it from the original image.
+	 * Concurrent requests for the same rendition wait for a single
+	 * generation
+	 * @param storeCode
+	 * @param productCode
+	 * @param imageName
+	 * @param rendition
+	 * @return null if the original image does not exist or the rendition
+	 * could not be generated in time
+	 * @throws ServiceException
+	 */
+	ImageResource getRendition(String storeCode, String productCode, String imageName, ImageRendition rendition) throws ServiceException;
+
+	/**
+	 * Removes the stored renditions of an image, SMALL and LARGE images are
+	 * removed with the image
+	 * @param productImage
+	 * @throws ServiceException
+	 */
+	void removeRenditions(ProductImage productImage) throws ServiceException;
+
+	int getQueueDepth();
+
+	long getGeneratedCount();
+
+	long getRejectedCount();
+
+}
@@ -0,0 +1,408 @@
+package com.salesmanager.core.business.services.catalog.product.image;
+
+import java.awt.Graphics2D;
+import java.awt.Transparency;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.net.URLConnection;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.imageio.ImageIO;
+import javax.inject.Inject;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.env.Environment;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.salesmanager.core.business.constants.Constants;
+import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.business.modules.cms.common.ImageResource;
+import com.salesmanager.core.business.modules.cms.product.ProductFileManager;
+import com.salesmanager.core.business.utils.CoreConfiguration;
+import com.salesmanager.core.business.utils.ProductImageCropUtils;
+import com.salesmanager.core.business.utils.ProductImageSizeUtils;
+import com.salesmanager.core.model.catalog.product.Product;
+import com.salesmanager.core.model.catalog.product.file.ProductImageSize;
+import com.salesmanager.core.model.catalog.product.image.ProductImage;
+import com.salesmanager.core.model.content.FileContentType;
+import com.salesmanager.core.model.content.ImageContentFile;
+import com.salesmanager.core.model.merchant.MerchantStore;
+
+@Service("productImageRenditionService")
+public class ProductImageRenditionServiceImpl implements ProductImageRenditionService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ProductImageRenditionServiceImpl.class);
+
+	private final static String PRODUCT_IMAGE_HEIGHT_SIZE = "PRODUCT_IMAGE_HEIGHT_SIZE";
+	private final static String PRODUCT_IMAGE_WIDTH_SIZE = "PRODUCT_IMAGE_WIDTH_SIZE";
+	private final static String CROP_UPLOADED_IMAGES = "CROP_UPLOADED_IMAGES";
+
+	private final static String RENDITIONS = "config.images.renditions";
+
+	@Inject
+	private ProductFileManager productFileManager;
+
+	@Inject
+	private CoreConfiguration configuration;
+
+	@Inject
+	private Environment environment;
+
+	@Value("${config.images.workers:2}")
+	private int workers;
+
+	@Value("${config.images.queueCapacity:500}")
+	private int queueCapacity;
+
+	/** milliseconds a request waits for a missing rendition **/
+	@Value("${config.images.timeout:10000}")
+	private long timeout;
+
+	/** renditions rejected by a full queue kept for a later retry **/
+	@Value("${config.images.retryCapacity:10000}")
+	private int retryCapacity;
+
+	private ThreadPoolExecutor executor;
+
+	private final Queue<Retry> retries = new ConcurrentLinkedQueue<Retry>();
+	private final AtomicInteger retrySize = new AtomicInteger();
+
+	private final Map<String, CompletableFuture<ImageResource>> pending = new ConcurrentHashMap<String, CompletableFuture<ImageResource>>();
+	private final Map<String, List<ImageRendition>> renditions = new ConcurrentHashMap<String, List<ImageRendition>>();
+
+	private final AtomicLong generated = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+
+	@PostConstruct
+	public void init() {
+		AtomicInteger count = new AtomicInteger();
+		executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(queueCapacity), r -> {
+					Thread t = new Thread(r, "image-rendition-" + count.incrementAndGet());
+					t.setDaemon(true);
+					return t;
+				});
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdown();
+	}
+
+	@Override
+	public List<ImageRendition> getRenditions(String storeCode) {
+		return renditions.computeIfAbsent(storeCode, this::loadRenditions);
+	}
+
+	private List<ImageRendition> loadRenditions(String storeCode) {
+
+		List<ImageRendition> list = new ArrayList<ImageRendition>();
+
+		// SMALL image from the product image configuration
+		int width = 0;
+		int height = 0;
+		String sWidth = configuration.getProperty(PRODUCT_IMAGE_WIDTH_SIZE);
+		String sHeight = configuration.getProperty(PRODUCT_IMAGE_HEIGHT_SIZE);
+		if (!StringUtils.isBlank(sWidth) && !StringUtils.isBlank(sHeight)) {
+			width = Integer.parseInt(sWidth);
+			height = Integer.parseInt(sHeight);
+		}
+		boolean crop = Constants.TRUE.equals(configuration.getProperty(CROP_UPLOADED_IMAGES));
+		list.add(new ImageRendition(ProductImageSize.SMALL.name(), width, height, null, crop));
+
+		String definitions = environment.getProperty(RENDITIONS + "." + storeCode, environment.getProperty(RENDITIONS, ""));
+		for (String definition : definitions.split(",")) {
+			if (!StringUtils.isBlank(definition)) {
+				list.add(ImageRendition.parse(definition));
+			}
+		}
+
+		return Collections.unmodifiableList(list);
+	}
+
+	@Override
+	public ImageRendition getRendition(String storeCode, String name) {
+		for (ImageRendition rendition : getRenditions(storeCode)) {
+			if (rendition.getName().equalsIgnoreCase(name)) {
+				return rendition;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public void generateRenditions(String storeCode, String productCode, String imageName, byte[] original) {
+
+		// SMALL included, until it is stored the image is generated on its first
+		// request and the original is served meanwhile
+		schedule(storeCode, productCode, imageName, original, getRenditions(storeCode));
+	}
+
+	@Override
+	public ImageResource getRendition(String storeCode, String productCode, String imageName, ImageRendition rendition) throws ServiceException {
+
+		ImageResource image = productFileManager.getProductImageResource(storeCode, productCode, rendition.getFileName(imageName), ProductImageSize.SMALL);
+		if (image != null) {
+			return image;
+		}
+
+		CompletableFuture<ImageResource> future = schedule(storeCode, productCode, imageName, null, Collections.singletonList(rendition)).get(0);
+		try {
+			return future.get(timeout, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			LOGGER.warn("Rendition " + rendition.getName() + " of image " + imageName + " not generated after " + timeout + " ms");
+			return null;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return null;
+		} catch (ExecutionException e) {
+			throw new ServiceException(e.getCause());
+		}
+	}
+
+	/**
+	 * Registers one future per rendition, renditions already being
+	 * generated are not scheduled again, and queues a single task decoding
+	 * the original image once for the remaining renditions
+	 */
+	private List<CompletableFuture<ImageResource>> schedule(String storeCode, String productCode, String imageName, byte[] original, List<ImageRendition> requested) {
+
+		List<CompletableFuture<ImageResource>> futures = new ArrayList<CompletableFuture<ImageResource>>();
+		List<ImageRendition> toGenerate = new ArrayList<ImageRendition>();
+		List<CompletableFuture<ImageResource>> toComplete = new ArrayList<CompletableFuture<ImageResource>>();
+
+		for (ImageRendition rendition : requested) {
+			String key = key(storeCode, productCode, rendition.getFileName(imageName));
+			CompletableFuture<ImageResource> created = new CompletableFuture<ImageResource>();
+			CompletableFuture<ImageResource> existing = pending.putIfAbsent(key, created);
+			if (existing != null) {
+				futures.add(existing);
+			} else {
+				created.whenComplete((r, e) -> pending.remove(key, created));
+				futures.add(created);
+				toGenerate.add(rendition);
+				toComplete.add(created);
+			}
+		}
+
+		if (!toGenerate.isEmpty()) {
+			try {
+				executor.execute(() -> generate(storeCode, productCode, imageName, original, toGenerate, toComplete));
+			} catch (RejectedExecutionException e) {
+				rejected.addAndGet(toGenerate.size());
+				retry(new Retry(storeCode, productCode, imageName, toGenerate));
+				for (CompletableFuture<ImageResource> future : toComplete) {
+					future.complete(null);
+				}
+			}
+		}
+
+		return futures;
+	}
+
+	private void retry(Retry retry) {
+		if (retrySize.incrementAndGet() > retryCapacity) {
+			retrySize.decrementAndGet();
+			LOGGER.error("Image rendition queue full, renditions of " + retry.imageName + " will be generated on request");
+			return;
+		}
+		retries.add(retry);
+		LOGGER.warn("Image rendition queue full, renditions of " + retry.imageName + " will be generated again later");
+	}
+
+	/**
+	 * Queues again the renditions rejected by a full queue, they are
+	 * generated from the stored original image
+	 */
+	@Scheduled(fixedDelayString = "${config.images.retryInterval:30000}")
+	public void retryRejected() {
+		for (int i = retrySize.get(); i > 0 && executor.getQueue().remainingCapacity() > 0; i--) {
+			Retry retry = retries.poll();
+			if (retry == null) {
+				return;
+			}
+			retrySize.decrementAndGet();
+			schedule(retry.storeCode, retry.productCode, retry.imageName, null, retry.renditions);
+		}
+	}
+
+	private void generate(String storeCode, String productCode, String imageName, byte[] original, List<ImageRendition> toGenerate, List<CompletableFuture<ImageResource>> toComplete) {
+
+		try {
+
+			byte[] bytes = original;
+			if (bytes == null) {
+				ImageResource large = productFileManager.getProductImageResource(storeCode, productCode, imageName, ProductImageSize.LARGE);
+				if (large == null) {
+					for (CompletableFuture<ImageResource> future : toComplete) {
+						future.complete(null);
+					}
+					return;
+				}
+				ByteArrayOutputStream output = new ByteArrayOutputStream((int) large.getContentLength());
+				large.writeTo(Channels.newChannel(output));
+				bytes = output.toByteArray();
+			}
+
+			BufferedImage image = ImageIO.read(new ByteArrayInputStream(bytes));
+			if (image == null) {
+				throw new ServiceException("Cannot read image format " + imageName);
+			}
+
+			for (int i = 0; i < toGenerate.size(); i++) {
+				try {
+					toComplete.get(i).complete(render(storeCode, productCode, imageName, bytes, image, toGenerate.get(i)));
+					generated.incrementAndGet();
+				} catch (Exception e) {
+					LOGGER.error("Cannot generate rendition " + toGenerate.get(i).getName() + " of image " + imageName, e);
+					toComplete.get(i).completeExceptionally(e);
+				}
+			}
+
+		} catch (Exception e) {
+			LOGGER.error("Cannot generate renditions of image " + imageName, e);
+			for (CompletableFuture<ImageResource> future : toComplete) {
+				future.completeExceptionally(e);
+			}
+		}
+	}
+
+	private ImageResource render(String storeCode, String productCode, String imageName, byte[] original, BufferedImage image, ImageRendition rendition) throws Exception {
+
+		String fileName = rendition.getFileName(imageName);
+		String format = rendition.getFormat(imageName);
+		String extension = StringUtils.substringAfterLast(imageName, ".").toLowerCase();
+
+		BufferedImage rendered = image;
+		if (rendition.isCrop() && rendition.getWidth() > 0 && rendition.getHeight() > 0) {
+			ProductImageCropUtils utils = new ProductImageCropUtils(rendered, rendition.getWidth(), rendition.getHeight());
+			if (utils.isCropeable()) {
+				rendered = utils.getCroppedImage();
+			}
+		}
+		int width = rendition.getWidth() > 0 ? rendition.getWidth() : rendered.getWidth();
+		int height = rendition.getHeight() > 0 ? rendition.getHeight() : rendered.getHeight();
+		if (rendered.getWidth() > width || rendered.getHeight() > height) {
+			rendered = ProductImageSizeUtils.resizeWithRatio(rendered, width, height);
+		}
+
+		byte[] bytes;
+		if (rendered == image && format.equals(extension)) {
+			// nothing to change, keep the original bytes
+			bytes = original;
+		} else {
+			if (("jpg".equals(format) || "jpeg".equals(format)) && rendered.getTransparency() != Transparency.OPAQUE) {
+				rendered = opaque(rendered);
+			}
+			ByteArrayOutputStream output = new ByteArrayOutputStream();
+			if (!ImageIO.write(rendered, format, output)) {
+				throw new ServiceException("No image writer for format " + format);
+			}
+			bytes = output.toByteArray();
+		}
+
+		String mimeType = URLConnection.getFileNameMap().getContentTypeFor(fileName);
+
+		// stored with the SMALL images
+		MerchantStore store = new MerchantStore();
+		store.setCode(storeCode);
+		Product product = new Product();
+		product.setSku(productCode);
+		product.setMerchantStore(store);
+		ProductImage productImage = new ProductImage();
+		productImage.setProduct(product);
+		productImage.setProductImage(fileName);
+
+		ImageContentFile content = new ImageContentFile();
+		content.setFileName(fileName);
+		content.setMimeType(mimeType);
+		content.setFileContentType(FileContentType.PRODUCT);
+		content.setFile(new ByteArrayInputStream(bytes));
+
+		productFileManager.addProductImageRendition(productImage, content);
+
+		return ImageResource.of(fileName, mimeType, bytes, System.currentTimeMillis());
+	}
+
+	private BufferedImage opaque(BufferedImage image) {
+		BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = rgb.createGraphics();
+		g.setColor(java.awt.Color.WHITE);
+		g.fillRect(0, 0, image.getWidth(), image.getHeight());
+		g.drawImage(image, 0, 0, null);
+		g.dispose();
+		return rgb;
+	}
+
+	@Override
+	public void removeRenditions(ProductImage productImage) throws ServiceException {
+
+		for (ImageRendition rendition : getRenditions(productImage.getProduct().getMerchantStore().getCode())) {
+			if (rendition.isSmall()) {
+				continue;
+			}
+			ProductImage image = new ProductImage();
+			image.setProduct(productImage.getProduct());
+			image.setProductImage(rendition.getFileName(productImage.getProductImage()));
+			productFileManager.removeProductImage(image);
+		}
+	}
+
+	private String key(String storeCode, String productCode, String fileName) {
+		return new StringBuilder().append(storeCode).append(Constants.SLASH).append(productCode).append(Constants.SLASH).append(fileName).toString();
+	}
+
+	@Override
+	public int getQueueDepth() {
+		return executor.getQueue().size() + retrySize.get();
+	}
+
+	@Override
+	public long getGeneratedCount() {
+		return generated.get();
+	}
+
+	@Override
+	public long getRejectedCount() {
+		return rejected.get();
+	}
+
+	private static class Retry {
+
+		private final String storeCode;
+		private final String productCode;
+		private final String imageName;
+		private final List<ImageRendition> renditions;
+
+		Retry(String storeCode, String productCode, String imageName, List<ImageRendition> renditions) {
+			this.storeCode = storeCode;
+			this.productCode = productCode;
+			this.imageName = imageName;
+			this.renditions = renditions;
+		}
+	}
+
+}
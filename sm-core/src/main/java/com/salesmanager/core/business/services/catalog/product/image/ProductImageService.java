@@ -4,6 +4,7 @@ import java.util.List;
 import java.util.Optional;
 
 import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.business.modules.cms.common.ImageResource;
 import com.salesmanager.core.business.services.common.generic.SalesManagerEntityService;
 import com.salesmanager.core.model.catalog.product.Product;
 import com.salesmanager.core.model.catalog.product.file.ProductImageSize;
@@ -71,6 +72,33 @@ public interface ProductImageService extends SalesManagerEntityService<Long, Pro
 	OutputContentFile getProductImage(String storeCode, String productCode,
 			String fileName, final ProductImageSize size) throws ServiceException;
 
+	/**
+	 * Returns an image to be streamed by the image servlet, null if the
+	 * image does not exist. Images loaded in memory by the CMS are kept in
+	 * a size bounded cache
+	 * @param storeCode
+	 * @param productCode
+	 * @param fileName
+	 * @param size
+	 * @return
+	 * @throws ServiceException
+	 */
+	ImageResource getProductImageResource(String storeCode, String productCode,
+			String fileName, final ProductImageSize size) throws ServiceException;
+
+	/**
+	 * Returns a rendition of an image (SMALL or a rendition configured
+	 * for the store), generated on request when missing
+	 * @param storeCode
+	 * @param productCode
+	 * @param fileName
+	 * @param rendition
+	 * @return null if the store has no such rendition or the image does not exist
+	 * @throws ServiceException
+	 */
+	ImageResource getProductImageRendition(String storeCode, String productCode,
+			String fileName, String rendition) throws ServiceException;
+
 	void addProductImages(Product product, List<ProductImage> productImages)
 			throws ServiceException;
 	
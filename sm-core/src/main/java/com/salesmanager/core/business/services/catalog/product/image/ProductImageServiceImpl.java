@@ -1,5 +1,7 @@
 package com.salesmanager.core.business.services.catalog.product.image;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.util.ArrayList;
 import java.util.List;
@@ -8,12 +10,16 @@ import java.util.stream.Collectors;
 
 import javax.inject.Inject;
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.util.Assert;
 import org.springframework.util.CollectionUtils;
 
+import com.salesmanager.core.business.constants.Constants;
 import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.business.modules.cms.common.ImageResource;
+import com.salesmanager.core.business.modules.cms.common.ImageResourceCache;
 import com.salesmanager.core.business.modules.cms.product.ProductFileManager;
 import com.salesmanager.core.business.repositories.catalog.product.image.ProductImageRepository;
 import com.salesmanager.core.business.services.common.generic.SalesManagerEntityServiceImpl;
@@ -41,6 +47,12 @@ public class ProductImageServiceImpl extends SalesManagerEntityServiceImpl<Long,
 	@Inject
 	private ProductFileManager productFileManager;
 
+	@Inject
+	private ImageResourceCache imageResourceCache;
+
+	@Inject
+	private ProductImageRenditionService productImageRenditionService;
+
 
 
 
@@ -85,7 +97,14 @@ public class ProductImageServiceImpl extends SalesManagerEntityServiceImpl<Long,
 		try {
 			if (productImage.getImageType() == 0 ) {
 				Assert.notNull(inputImage.getFile(), "ImageContentFile.file cannot be null");
+				ByteArrayOutputStream original = new ByteArrayOutputStream();
+				IOUtils.copy(inputImage.getFile(), original);
+				byte[] bytes = original.toByteArray();
+				inputImage.setFile(new ByteArrayInputStream(bytes));
 				productFileManager.addProductImage(productImage, inputImage);
+				imageResourceCache.invalidate(imageKey(product.getMerchantStore().getCode(), product.getSku()));
+				//SMALL image and renditions are generated in background
+				productImageRenditionService.generateRenditions(product.getMerchantStore().getCode(), product.getSku(), productImage.getProductImage(), bytes);
 			}
 
 			//insert ProductImage
@@ -163,6 +182,46 @@ public class ProductImageServiceImpl extends SalesManagerEntityServiceImpl<Long,
 
 	}
 
+	@Override
+	public ImageResource getProductImageResource(final String storeCode, final String productCode, final String fileName, final ProductImageSize size) throws ServiceException {
+
+		String key = new StringBuilder().append(imageKey(storeCode, productCode)).append(size.name()).append(Constants.SLASH).append(fileName).toString();
+		ImageResource image = imageResourceCache.get(key, () -> {
+			ImageResource loaded = productFileManager.getProductImageResource(storeCode, productCode, fileName, size);
+			if(loaded == null && size == ProductImageSize.SMALL) {
+				//not generated yet
+				loaded = productImageRenditionService.getRendition(storeCode, productCode, fileName, productImageRenditionService.getRendition(storeCode, ProductImageSize.SMALL.name()));
+			}
+			return loaded;
+		});
+		if(image == null && size == ProductImageSize.SMALL) {
+			//original image until the SMALL image is stored, not cached
+			image = productFileManager.getProductImageResource(storeCode, productCode, fileName, ProductImageSize.LARGE);
+		}
+		return image;
+
+	}
+
+	@Override
+	public ImageResource getProductImageRendition(final String storeCode, final String productCode, final String fileName, final String renditionName) throws ServiceException {
+
+		ImageRendition rendition = productImageRenditionService.getRendition(storeCode, renditionName);
+		if(rendition == null) {
+			return null;
+		}
+		if(rendition.isSmall()) {
+			return getProductImageResource(storeCode, productCode, fileName, ProductImageSize.SMALL);
+		}
+
+		String key = new StringBuilder().append(imageKey(storeCode, productCode)).append(rendition.getName()).append(Constants.SLASH).append(fileName).toString();
+		return imageResourceCache.get(key, () -> productImageRenditionService.getRendition(storeCode, productCode, fileName, rendition));
+
+	}
+
+	private String imageKey(String storeCode, String productCode) {
+		return new StringBuilder().append(storeCode).append(Constants.SLASH).append(productCode).append(Constants.SLASH).toString();
+	}
+
 	@Override
 	public List<OutputContentFile> getProductImages(Product product) throws ServiceException {
 		return productFileManager.getImages(product);
@@ -173,6 +232,8 @@ public class ProductImageServiceImpl extends SalesManagerEntityServiceImpl<Long,
 
 		if(!StringUtils.isBlank(productImage.getProductImage())) {
 			productFileManager.removeProductImage(productImage);//managed internally
+			productImageRenditionService.removeRenditions(productImage);
+			imageResourceCache.invalidate(imageKey(productImage.getProduct().getMerchantStore().getCode(), productImage.getProduct().getSku()));
 		}
 		ProductImage p = this.getById(productImage.getId());
 		this.delete(p);
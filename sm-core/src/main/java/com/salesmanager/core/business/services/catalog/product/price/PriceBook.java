@@ -0,0 +1,272 @@
+package com.salesmanager.core.business.services.catalog.product.price;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.PostConstruct;
+
+import org.apache.commons.lang3.StringUtils;
+import org.hibernate.LazyInitializationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.salesmanager.core.business.constants.Constants;
+import com.salesmanager.core.business.utils.ExpiringCache;
+import com.salesmanager.core.model.catalog.product.Product;
+import com.salesmanager.core.model.catalog.product.availability.ProductAvailability;
+import com.salesmanager.core.model.catalog.product.price.FinalPrice;
+import com.salesmanager.core.model.catalog.product.price.ProductPrice;
+import com.salesmanager.core.model.catalog.product.price.ProductPriceDescription;
+
+/**
+ * Final prices of the products by region and price code, computed once from
+ * the availabilities and prices of a product and kept until the next start
+ * or end of a special price of the product, at most config.catalog.priceBookTtl
+ * seconds. Entries are removed when prices, availabilities or the product are
+ * saved through their services.
+ * <p>
+ * Each lookup returns a new {@link FinalPrice} callers can change.
+ */
+@Component
+public class PriceBook {
+
+	private static final BigDecimal HUNDRED = new BigDecimal(100);
+
+	@Value("${config.catalog.priceBookTtl:300}")
+	private long ttl;
+
+	private ExpiringCache<Long, Entry> entries;
+
+	public PriceBook() {
+	}
+
+	public PriceBook(long ttl) {
+		this.ttl = ttl;
+		init();
+	}
+
+	@PostConstruct
+	public void init() {
+		entries = new ExpiringCache<Long, Entry>(ttl).validUntil(entry -> entry.validUntil).keepIf(entry -> entry.complete);
+	}
+
+	/**
+	 * Default price of the product for all regions with the other prices as
+	 * additional prices, the first other price when there is no default price
+	 * @param product
+	 * @return null when the product has no price
+	 */
+	public FinalPrice getFinalPrice(Product product) {
+		Prices prices = entry(product).regions.get(Constants.ALL_REGIONS);
+		if (prices == null) {
+			return null;
+		}
+		if (prices.defaultPrice == null) {
+			return prices.others.isEmpty() ? null : prices.others.get(0).toFinalPrice();
+		}
+		FinalPrice finalPrice = prices.defaultPrice.toFinalPrice();
+		if (!prices.others.isEmpty()) {
+			List<FinalPrice> others = new ArrayList<FinalPrice>(prices.others.size());
+			for (Snapshot other : prices.others) {
+				others.add(other.toFinalPrice());
+			}
+			finalPrice.setAdditionalPrices(others);
+		}
+		return finalPrice;
+	}
+
+	/**
+	 * @param product
+	 * @param region
+	 * @param code price code
+	 * @return null when the product has no such price in the region
+	 */
+	public FinalPrice getFinalPrice(Product product, String region, String code) {
+		Prices prices = entry(product).regions.get(region);
+		if (prices == null) {
+			return null;
+		}
+		Snapshot snapshot = prices.byCode.get(code);
+		return snapshot == null ? null : snapshot.toFinalPrice();
+	}
+
+	/**
+	 * Removes the prices of a product now and once the current transaction
+	 * completes
+	 */
+	public void invalidate(Long productId) {
+		if (productId == null) {
+			return;
+		}
+		entries.invalidate(productId);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCompletion(int status) {
+					entries.invalidate(productId);
+				}
+			});
+		}
+	}
+
+	public void clear() {
+		entries.clear();
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	private Entry entry(Product product) {
+		if (product.getId() == null) {
+			return compile(product);
+		}
+		return entries.get(product.getId(), () -> compile(product));
+	}
+
+	private Entry compile(Product product) {
+		long now = System.currentTimeMillis();
+		Entry entry = new Entry();
+		for (ProductAvailability availability : product.getAvailabilities()) {
+			if (StringUtils.isEmpty(availability.getRegion())) {
+				continue;
+			}
+			Prices prices = entry.regions.get(availability.getRegion());
+			if (prices == null) {
+				prices = new Prices();
+				entry.regions.put(availability.getRegion(), prices);
+			}
+			for (ProductPrice price : availability.getPrices()) {
+				Snapshot snapshot = new Snapshot(price, now);
+				if (price.isDefaultPrice()) {
+					prices.defaultPrice = snapshot;
+				} else {
+					prices.others.add(snapshot);
+				}
+				prices.byCode.put(price.getCode(), snapshot);
+				entry.complete &= snapshot.complete;
+				entry.validUntil = Math.min(entry.validUntil, snapshot.validUntil);
+			}
+		}
+		return entry;
+	}
+
+	private static class Entry {
+		private final Map<String, Prices> regions = new HashMap<String, Prices>();
+		/** next special price start or end of the product **/
+		private long validUntil = Long.MAX_VALUE;
+		/** false when a price could not be detached from its session, the entry is not kept **/
+		private boolean complete = true;
+	}
+
+	private static class Prices {
+		private Snapshot defaultPrice;
+		private final List<Snapshot> others = new ArrayList<Snapshot>();
+		private final Map<String, Snapshot> byCode = new HashMap<String, Snapshot>();
+	}
+
+	/**
+	 * A price as of the time it was computed
+	 */
+	private static class Snapshot {
+
+		private final ProductPrice price;
+		private final BigDecimal finalPrice;
+		private final BigDecimal originalPrice;
+		private final boolean discounted;
+		private final int discountPercent;
+		private final Long discountEndDate;
+		private long validUntil = Long.MAX_VALUE;
+		private boolean complete = true;
+
+		Snapshot(ProductPrice source, long now) {
+
+			price = copy(source);
+			originalPrice = source.getProductPriceAmount();
+
+			Date start = source.getProductPriceSpecialStartDate();
+			Date end = source.getProductPriceSpecialEndDate();
+
+			boolean special;
+			if (start == null && end == null) {
+				special = source.getProductPriceSpecialAmount() != null
+						&& source.getProductPriceSpecialAmount().signum() > 0;
+			} else {
+				// started strictly before now, ends strictly after now
+				special = (start == null || start.getTime() < now) && end != null && end.getTime() > now
+						&& source.getProductPriceSpecialAmount() != null;
+				if (start != null && start.getTime() + 1 > now) {
+					validUntil = start.getTime() + 1;
+				}
+				if (end != null && end.getTime() > now) {
+					validUntil = Math.min(validUntil, end.getTime());
+				}
+			}
+
+			discounted = special;
+			finalPrice = special ? source.getProductPriceSpecialAmount() : originalPrice;
+			discountEndDate = special && end != null ? end.getTime() : null;
+			discountPercent = special ? discountPercent(source.getProductPriceSpecialAmount(), originalPrice) : 0;
+		}
+
+		FinalPrice toFinalPrice() {
+			FinalPrice target = new FinalPrice();
+			target.setProductPrice(price);
+			target.setFinalPrice(finalPrice);
+			target.setOriginalPrice(originalPrice);
+			target.setDefaultPrice(price.isDefaultPrice());
+			if (discounted) {
+				target.setDiscounted(true);
+				target.setDiscountPercent(discountPercent);
+				target.setDiscountedPrice(finalPrice);
+				target.setDiscountEndDate(discountEndDate == null ? null : new Date(discountEndDate));
+			}
+			return target;
+		}
+
+		private static int discountPercent(BigDecimal special, BigDecimal amount) {
+			if (amount == null || amount.signum() == 0) {
+				return 0;
+			}
+			return HUNDRED.subtract(special.multiply(HUNDRED).divide(amount, 2, RoundingMode.HALF_UP)).intValue();
+		}
+
+		/**
+		 * Price detached from the session it was read with, descriptions not
+		 * loaded before the session closed are left empty and the snapshot is
+		 * not complete
+		 */
+		private ProductPrice copy(ProductPrice source) {
+			ProductPrice price = new ProductPrice();
+			price.setId(source.getId());
+			price.setCode(source.getCode());
+			price.setDefaultPrice(source.isDefaultPrice());
+			price.setProductPriceType(source.getProductPriceType());
+			price.setProductPriceAmount(source.getProductPriceAmount());
+			price.setProductPriceSpecialAmount(source.getProductPriceSpecialAmount());
+			price.setProductPriceSpecialStartDate(source.getProductPriceSpecialStartDate());
+			price.setProductPriceSpecialEndDate(source.getProductPriceSpecialEndDate());
+			Set<ProductPriceDescription> descriptions = source.getDescriptions();
+			try {
+				descriptions = descriptions == null ? Collections.<ProductPriceDescription>emptySet()
+						: Collections.unmodifiableSet(new HashSet<ProductPriceDescription>(descriptions));
+			} catch (LazyInitializationException e) {
+				descriptions = Collections.<ProductPriceDescription>emptySet();
+				complete = false;
+			}
+			price.setDescriptions(descriptions);
+			return price;
+		}
+	}
+
+}
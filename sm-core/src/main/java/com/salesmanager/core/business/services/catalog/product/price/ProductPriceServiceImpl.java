@@ -17,6 +17,9 @@ import com.salesmanager.core.model.catalog.product.price.ProductPriceDescription
 public class ProductPriceServiceImpl extends SalesManagerEntityServiceImpl<Long, ProductPrice> 
 	implements ProductPriceService {
 
+	@Inject
+	private PriceBook priceBook;
+
 	@Inject
 	public ProductPriceServiceImpl(ProductPriceRepository productPriceRepository) {
 		super(productPriceRepository);
@@ -51,14 +54,27 @@ public class ProductPriceServiceImpl extends SalesManagerEntityServiceImpl<Long,
 		
 	}
 	
+	@Override
+	public void save(ProductPrice price) throws ServiceException {
+		super.save(price);
+		invalidate(price);
+	}
+
 	@Override
 	public void delete(ProductPrice price) throws ServiceException {
 		
 		//override method, this allows the error that we try to remove a detached instance
 		price = this.getById(price.getId());
+		invalidate(price);
 		super.delete(price);
 		
 	}
+
+	private void invalidate(ProductPrice price) {
+		if(price.getProductAvailability() != null && price.getProductAvailability().getProduct() != null) {
+			priceBook.invalidate(price.getProductAvailability().getProduct().getId());
+		}
+	}
 	
 
 
@@ -25,6 +25,7 @@ import com.salesmanager.core.business.modules.cms.content.StaticContentFileManag
 import com.salesmanager.core.business.repositories.content.ContentRepository;
 import com.salesmanager.core.business.repositories.content.PageContentRepository;
 import com.salesmanager.core.business.services.common.generic.SalesManagerEntityServiceImpl;
+import com.salesmanager.core.business.utils.StoreContentVersions;
 import com.salesmanager.core.model.content.Content;
 import com.salesmanager.core.model.content.ContentDescription;
 import com.salesmanager.core.model.content.ContentType;
@@ -48,6 +49,9 @@ public class ContentServiceImpl extends SalesManagerEntityServiceImpl<Long, Cont
 	@Inject
 	StaticContentFileManager contentFileManager;
 
+	@Inject
+	private StoreContentVersions storeContentVersions;
+
 	@Inject
 	public ContentServiceImpl(ContentRepository contentRepository) {
 		super(contentRepository);
@@ -67,9 +71,16 @@ public class ContentServiceImpl extends SalesManagerEntityServiceImpl<Long, Cont
 
 		Content c = this.getById(content.getId());
 		super.delete(c);
+		storeContentVersions.increment(c.getMerchantStore());
 
 	}
 
+	@Override
+	public void save(Content content) throws ServiceException {
+		super.save(content);
+		storeContentVersions.increment(content.getMerchantStore());
+	}
+
 	@Override
 	public Content getByLanguage(Long id, Language language) throws ServiceException {
 		return contentRepository.findByIdAndLanguage(id, language.getId());
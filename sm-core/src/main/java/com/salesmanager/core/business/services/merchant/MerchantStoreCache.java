@@ -0,0 +1,64 @@
+package com.salesmanager.core.business.services.merchant;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.salesmanager.core.business.repositories.merchant.MerchantRepository;
+import com.salesmanager.core.business.utils.ExpiringCache;
+import com.salesmanager.core.model.merchant.MerchantStore;
+
+/**
+ * Detached stores by code for request resolution. A store is loaded with
+ * its parent, country, currency, zone and languages and shared between
+ * requests, callers must not modify it (load the store from
+ * {@link MerchantStoreService} to change it).
+ *
+ * Entries are dropped when a store is saved or deleted and expire after
+ * config.authorization.cacheTtl seconds.
+ */
+@Component
+public class MerchantStoreCache {
+
+	@Inject
+	private MerchantRepository merchantRepository;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Value("${config.authorization.cacheTtl:60}")
+	private long ttl;
+
+	private ExpiringCache<String, MerchantStore> stores;
+
+	@PostConstruct
+	public void init() {
+		stores = new ExpiringCache<String, MerchantStore>(ttl);
+	}
+
+	/**
+	 * @param code
+	 * @return the store, null if there is no store with that code
+	 */
+	public MerchantStore get(String code) {
+		return stores.get(code, () -> load(code));
+	}
+
+	public void clear() {
+		stores.clear();
+	}
+
+	private MerchantStore load(String code) {
+		MerchantStore store = merchantRepository.findByCode(code);
+		// not bound to the persistence context of the request loading it
+		if (store != null && stores.isEnabled() && entityManager.contains(store)) {
+			entityManager.detach(store);
+		}
+		return store;
+	}
+
+}
@@ -19,6 +19,7 @@ import com.salesmanager.core.business.repositories.merchant.MerchantRepository;
 import com.salesmanager.core.business.repositories.merchant.PageableMerchantRepository;
 import com.salesmanager.core.business.services.catalog.product.type.ProductTypeService;
 import com.salesmanager.core.business.services.common.generic.SalesManagerEntityServiceImpl;
+import com.salesmanager.core.business.services.user.PrincipalCache;
 import com.salesmanager.core.model.common.GenericEntityList;
 import com.salesmanager.core.model.merchant.MerchantStore;
 import com.salesmanager.core.model.merchant.MerchantStoreCriteria;
@@ -35,6 +36,12 @@ public class MerchantStoreServiceImpl extends SalesManagerEntityServiceImpl<Inte
 
 	private MerchantRepository merchantRepository;
 
+	@Inject
+	private MerchantStoreCache merchantStoreCache;
+
+	@Inject
+	private PrincipalCache principalCache;
+
 	@Inject
 	public MerchantStoreServiceImpl(MerchantRepository merchantRepository) {
 		super(merchantRepository);
@@ -44,7 +51,27 @@ public class MerchantStoreServiceImpl extends SalesManagerEntityServiceImpl<Inte
 	@Override
 	//@CacheEvict(value="store", key="#store.code")
 	public void saveOrUpdate(MerchantStore store) throws ServiceException {
+		save(store);
+	}
+
+	@Override
+	public void save(MerchantStore store) throws ServiceException {
 		super.save(store);
+		invalidate();
+	}
+
+	@Override
+	public void delete(MerchantStore store) throws ServiceException {
+		super.delete(store);
+		invalidate();
+	}
+
+	/**
+	 * Users hold the code of the parent of their store
+	 */
+	private void invalidate() {
+		merchantStoreCache.clear();
+		principalCache.clear();
 	}
 
 	@Override
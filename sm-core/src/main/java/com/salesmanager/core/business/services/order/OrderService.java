@@ -24,6 +24,9 @@ import com.salesmanager.core.model.shoppingcart.ShoppingCartItem;
 
 public interface OrderService extends SalesManagerEntityService<Long, Order> {
 
+    /** payment meta data key of a checkout attempt, the cart code is used when missing **/
+    String IDEMPOTENCY_KEY = "idempotencyKey";
+
     void addOrderStatusHistory(Order order, OrderStatusHistory history)
                     throws ServiceException;
 
@@ -106,6 +109,12 @@ public interface OrderService extends SalesManagerEntityService<Long, Order> {
 			Payment payment, Transaction transaction, MerchantStore store)
 			throws ServiceException;
 
+	/**
+	 * Runs a task once an order is placed, such as sending the order emails,
+	 * on the post order executor
+	 */
+	void submitPostOrderTask(Runnable task);
+
 
 
 	
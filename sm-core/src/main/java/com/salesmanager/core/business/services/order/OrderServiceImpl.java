@@ -1,8 +1,6 @@
 package com.salesmanager.core.business.services.order;
 
 import java.io.ByteArrayOutputStream;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.Instant;
 import java.time.LocalDate;
 import java.time.ZoneId;
@@ -14,8 +12,24 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
 import javax.inject.Inject;
 
 import org.apache.commons.collections4.CollectionUtils;
@@ -23,24 +37,24 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import com.salesmanager.core.business.constants.Constants;
 import com.salesmanager.core.business.exception.ServiceException;
 import com.salesmanager.core.business.modules.order.InvoiceModule;
+import com.salesmanager.core.business.modules.order.OrderProcessor;
 import com.salesmanager.core.business.repositories.order.OrderRepository;
-import com.salesmanager.core.business.services.catalog.product.ProductService;
+import com.salesmanager.core.business.services.catalog.product.availability.InventoryReservation;
+import com.salesmanager.core.business.services.catalog.product.availability.InventoryService;
 import com.salesmanager.core.business.services.common.generic.SalesManagerEntityServiceImpl;
 import com.salesmanager.core.business.services.customer.CustomerService;
-import com.salesmanager.core.business.services.order.ordertotal.OrderTotalService;
+import com.salesmanager.core.business.services.order.ordertotal.OrderTotalEngine;
 import com.salesmanager.core.business.services.payments.PaymentService;
 import com.salesmanager.core.business.services.payments.TransactionService;
-import com.salesmanager.core.business.services.shipping.ShippingService;
 import com.salesmanager.core.business.services.shoppingcart.ShoppingCartService;
-import com.salesmanager.core.business.services.tax.TaxService;
-import com.salesmanager.core.model.catalog.product.Product;
-import com.salesmanager.core.model.catalog.product.availability.ProductAvailability;
-import com.salesmanager.core.model.catalog.product.price.FinalPrice;
 import com.salesmanager.core.model.common.UserContext;
 import com.salesmanager.core.model.customer.Customer;
 import com.salesmanager.core.model.merchant.MerchantStore;
@@ -49,42 +63,33 @@ import com.salesmanager.core.model.order.OrderCriteria;
 import com.salesmanager.core.model.order.OrderList;
 import com.salesmanager.core.model.order.OrderSummary;
 import com.salesmanager.core.model.order.OrderSummaryType;
-import com.salesmanager.core.model.order.OrderTotal;
 import com.salesmanager.core.model.order.OrderTotalSummary;
-import com.salesmanager.core.model.order.OrderTotalType;
-import com.salesmanager.core.model.order.OrderTotalVariation;
-import com.salesmanager.core.model.order.OrderValueType;
 import com.salesmanager.core.model.order.orderproduct.OrderProduct;
 import com.salesmanager.core.model.order.orderstatus.OrderStatus;
 import com.salesmanager.core.model.order.orderstatus.OrderStatusHistory;
+import com.salesmanager.core.model.payments.CreditCardPayment;
 import com.salesmanager.core.model.payments.Payment;
 import com.salesmanager.core.model.payments.Transaction;
 import com.salesmanager.core.model.payments.TransactionType;
 import com.salesmanager.core.model.reference.language.Language;
-import com.salesmanager.core.model.shipping.ShippingConfiguration;
 import com.salesmanager.core.model.shoppingcart.ShoppingCart;
 import com.salesmanager.core.model.shoppingcart.ShoppingCartItem;
-import com.salesmanager.core.model.tax.TaxItem;
 
 @Service("orderService")
 public class OrderServiceImpl  extends SalesManagerEntityServiceImpl<Long, Order> implements OrderService {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(OrderServiceImpl.class);
 
-    @Inject
-    private InvoiceModule invoiceModule;
+    private static final String ORDER_EVENT = "order";
 
     @Inject
-    private ShippingService shippingService;
+    private InvoiceModule invoiceModule;
 
     @Inject
     private PaymentService paymentService;
 
     @Inject
-    private ProductService productService;
-
-    @Inject
-    private TaxService taxService;
+    private InventoryService inventoryService;
 
     @Inject
     private CustomerService customerService;
@@ -96,7 +101,33 @@ public class OrderServiceImpl  extends SalesManagerEntityServiceImpl<Long, Order
     private TransactionService transactionService;
 
     @Inject
-    private OrderTotalService orderTotalService;
+    private OrderTotalEngine orderTotalEngine;
+
+    @Inject
+    private PlatformTransactionManager transactionManager;
+
+    @Resource(name="orderPostProcessors")
+    private List<OrderProcessor> orderPostProcessors;
+
+    /** milliseconds a checkout waits for the payment module **/
+    @Value("${config.checkout.paymentTimeout:30000}")
+    private long paymentTimeout;
+
+    @Value("${config.checkout.paymentWorkers:32}")
+    private int paymentWorkers;
+
+    @Value("${config.checkout.postOrderWorkers:2}")
+    private int postOrderWorkers;
+
+    @Value("${config.checkout.postOrderQueueCapacity:1000}")
+    private int postOrderQueueCapacity;
+
+    private ThreadPoolExecutor paymentExecutor;
+
+    private ThreadPoolExecutor postOrderExecutor;
+
+    /** checkouts running on this node by idempotency key **/
+    private final Map<String, CompletableFuture<Order>> attempts = new ConcurrentHashMap<String, CompletableFuture<Order>>();
 
     private final OrderRepository orderRepository;
 
@@ -106,6 +137,31 @@ public class OrderServiceImpl  extends SalesManagerEntityServiceImpl<Long, Order
         this.orderRepository = orderRepository;
     }
 
+    @PostConstruct
+    public void init() {
+        //payments beyond the workers are declined, the checkout thread never waits past the payment timeout
+        paymentExecutor = executor("payment-authorization", paymentWorkers, new SynchronousQueue<Runnable>(),
+                new ThreadPoolExecutor.AbortPolicy());
+        //post order tasks beyond the queue capacity run on the checkout thread
+        postOrderExecutor = executor("post-order", postOrderWorkers, new ArrayBlockingQueue<Runnable>(postOrderQueueCapacity),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        paymentExecutor.shutdown();
+        postOrderExecutor.shutdown();
+    }
+
+    private ThreadPoolExecutor executor(String name, int workers, BlockingQueue<Runnable> queue, RejectedExecutionHandler rejected) {
+        AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS, queue, r -> {
+            Thread t = new Thread(r, name + "-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }, rejected);
+    }
+
     @Override
     public void addOrderStatusHistory(Order order, OrderStatusHistory history) throws ServiceException {
         order.getOrderHistory().add(history);
@@ -125,6 +181,18 @@ public class OrderServiceImpl  extends SalesManagerEntityServiceImpl<Long, Order
     	return process(order, customer, items, summary, payment, transaction, store);
     }
 
+	/**
+	 * Checkout in stages, processOrder runs without a transaction
+	 *
+	 * - validate and reserve the items in their own transaction
+	 * - authorize the payment on the payment executor, outside of any transaction
+	 * - save the customer, the order and the transactions in one transaction
+	 * - run the post order processors on the post order executor
+	 *
+	 * A checkout submitted again while the first attempt runs gets the order of
+	 * the first attempt, a checkout of a shopping cart already ordered gets the
+	 * saved order
+	 */
 	private Order process(Order order, Customer customer, List<ShoppingCartItem> items, OrderTotalSummary summary, Payment payment, Transaction transaction, MerchantStore store) throws ServiceException {
 
 
@@ -143,257 +211,291 @@ public class OrderServiceImpl  extends SalesManagerEntityServiceImpl<Long, Order
     		}
     	}
 
+    	String key = idempotencyKey(order, payment);
+    	CompletableFuture<Order> attempt = new CompletableFuture<Order>();
+    	CompletableFuture<Order> running = attempts.putIfAbsent(key, attempt);
+    	if(running != null) {
+    		LOGGER.debug("Checkout " + key + " already running");
+    		return await(running);
+    	}
 
-    	//first process payment
-    	Transaction processTransaction = paymentService.processPayment(customer, store, payment, items, order);
-
-    	if(order.getOrderHistory()==null || order.getOrderHistory().size()==0 || order.getStatus()==null) {
-    		OrderStatus status = order.getStatus();
-    		if(status==null) {
-    			status = OrderStatus.ORDERED;
-    			order.setStatus(status);
+    	try {
+    		Order placed = placedOrder(order, store);
+    		if(placed != null) {
+    			LOGGER.debug("Checkout " + key + " already placed as order " + placed.getId());
+    		} else {
+    			placed = checkout(order, customer, items, payment, transaction, store);
     		}
-    		Set<OrderStatusHistory> statusHistorySet = new HashSet<OrderStatusHistory>();
-    		OrderStatusHistory statusHistory = new OrderStatusHistory();
-    		statusHistory.setStatus(status);
-    		statusHistory.setDateAdded(new Date());
-    		statusHistory.setOrder(order);
-    		statusHistorySet.add(statusHistory);
-    		order.setOrderHistory(statusHistorySet);
-
+    		attempt.complete(placed);
+    		return placed;
+    	} catch(ServiceException | RuntimeException e) {
+    		attempt.completeExceptionally(e);
+    		throw e;
+    	} finally {
+    		attempts.remove(key, attempt);
     	}
+    }
 
-        if(customer.getId()==null || customer.getId()==0) {
-          customerService.create(customer);
-        }
+	private Order checkout(Order order, Customer customer, List<ShoppingCartItem> items, Payment payment, Transaction transaction, MerchantStore store) throws ServiceException {
 
-        order.setCustomerId(customer.getId());
-        this.create(order);
+    	/**
+    	 * take the items out of inventory before charging the customer,
+    	 * every line is decremented only if enough items are left
+    	 */
+    	LOGGER.debug( "Reserve inventory" );
+    	InventoryReservation reservation = inventoryService.reserve(store, order.getOrderProducts());
 
-    	if(transaction!=null) {
-    		transaction.setOrder(order);
-    		if(transaction.getId()==null || transaction.getId()==0) {
-    			transactionService.create(transaction);
-    		} else {
-    			transactionService.update(transaction);
-    		}
-    	}
+    	Transaction processTransaction = null;
+    	try {
 
-    	if(processTransaction!=null) {
-    		processTransaction.setOrder(order);
-    		if(processTransaction.getId()==null || processTransaction.getId()==0) {
-    			transactionService.create(processTransaction);
-    		} else {
-    			transactionService.update(processTransaction);
+    		processTransaction = authorize(customer, store, payment, items, order);
+    		save(order, customer, transaction, processTransaction);
+
+    	} catch(ServiceException | RuntimeException e) {
+    		//payment refused or order not saved, items go back to inventory
+    		//and an accepted payment is given back
+    		inventoryService.release(reservation);
+    		if(processTransaction != null) {
+    			voidUnsavedPayment(processTransaction, payment, order, store, e);
     		}
+    		throw e;
     	}
 
-        /**
-         * decrement inventory
-         */
-    	LOGGER.debug( "Update inventory" );
-        Set<OrderProduct> products = order.getOrderProducts();
-        for(OrderProduct orderProduct : products) {
-            orderProduct.getProductQuantity();
-            Product p = productService.getById(orderProduct.getId());
-            if(p == null)
-                throw new ServiceException(ServiceException.EXCEPTION_INVENTORY_MISMATCH);
-            for(ProductAvailability availability : p.getAvailabilities()) {
-                int qty = availability.getProductQuantity();
-                if(qty < orderProduct.getProductQuantity()) {
-                    //throw new ServiceException(ServiceException.EXCEPTION_INVENTORY_MISMATCH);
-                	LOGGER.error("APP-BACKEND [" + ServiceException.EXCEPTION_INVENTORY_MISMATCH + "]");
-                }
-                qty = qty - orderProduct.getProductQuantity();
-                availability.setProductQuantity(qty);
-            }
-            productService.update(p);
-        }
-
+    	ShoppingCart cart = items.get(0).getShoppingCart();
+    	if(cart != null) {
+    		inventoryService.releaseHolds(cart.getShoppingCartCode());
+    	}
 
+    	for(OrderProcessor processor : orderPostProcessors) {
+    		submitPostOrderTask(() -> processor.process(ORDER_EVENT, order, customer, store));
+    	}
 
     	return order;
     }
 
-    private OrderTotalSummary caculateOrder(OrderSummary summary, Customer customer, final MerchantStore store, final Language language) throws Exception {
+	/**
+	 * Order saved for the shopping cart by an attempt which ran before this
+	 * one, on this node or another one. Read in its own transaction, a read
+	 * outside of any transaction would keep its connection until processOrder
+	 * returns.
+	 */
+	private Order placedOrder(Order order, MerchantStore store) {
+		if(StringUtils.isBlank(order.getShoppingCartCode())) {
+			return null;
+		}
+		TransactionTemplate template = new TransactionTemplate(transactionManager);
+		template.setReadOnly(true);
+		return template.execute(status -> {
+			List<Long> ids = orderRepository.findIdsByShoppingCartCode(store.getId(), order.getShoppingCartCode());
+			return ids.isEmpty() ? null : orderRepository.findOne(ids.get(0), store.getId());
+		});
+	}
 
-        OrderTotalSummary totalSummary = new OrderTotalSummary();
-        List<OrderTotal> orderTotals = new ArrayList<OrderTotal>();
-        Map<String,OrderTotal> otherPricesTotals = new HashMap<String,OrderTotal>();
-
-        ShippingConfiguration shippingConfiguration = null;
-
-        BigDecimal grandTotal = new BigDecimal(0);
-        grandTotal.setScale(2, RoundingMode.HALF_UP);
-
-        //price by item
-        /**
-         * qty * price
-         * subtotal
-         */
-        BigDecimal subTotal = new BigDecimal(0);
-        subTotal.setScale(2, RoundingMode.HALF_UP);
-        for(ShoppingCartItem item : summary.getProducts()) {
-
-            BigDecimal st = item.getItemPrice().multiply(new BigDecimal(item.getQuantity()));
-            item.setSubTotal(st);
-            subTotal = subTotal.add(st);
-            //Other prices
-            FinalPrice finalPrice = item.getFinalPrice();
-            if(finalPrice!=null) {
-                List<FinalPrice> otherPrices = finalPrice.getAdditionalPrices();
-                if(otherPrices!=null) {
-                    for(FinalPrice price : otherPrices) {
-                        if(!price.isDefaultPrice()) {
-                            OrderTotal itemSubTotal = otherPricesTotals.get(price.getProductPrice().getCode());
-
-                            if(itemSubTotal==null) {
-                                itemSubTotal = new OrderTotal();
-                                itemSubTotal.setModule(Constants.OT_ITEM_PRICE_MODULE_CODE);
-                                itemSubTotal.setTitle(Constants.OT_ITEM_PRICE_MODULE_CODE);
-                                itemSubTotal.setOrderTotalCode(price.getProductPrice().getCode());
-                                itemSubTotal.setOrderTotalType(OrderTotalType.PRODUCT);
-                                itemSubTotal.setSortOrder(0);
-                                otherPricesTotals.put(price.getProductPrice().getCode(), itemSubTotal);
-                            }
-
-                            BigDecimal orderTotalValue = itemSubTotal.getValue();
-                            if(orderTotalValue==null) {
-                                orderTotalValue = new BigDecimal(0);
-                                orderTotalValue.setScale(2, RoundingMode.HALF_UP);
-                            }
-
-                            orderTotalValue = orderTotalValue.add(price.getFinalPrice());
-                            itemSubTotal.setValue(orderTotalValue);
-                            if(price.getProductPrice().getProductPriceType().name().equals(OrderValueType.ONE_TIME)) {
-                                subTotal = subTotal.add(price.getFinalPrice());
-                            }
-                        }
-                    }
-                }
-            }
-        }
+	/**
+	 * Payment module call on the payment executor with the payment timeout,
+	 * the transaction is saved with the order. A payment accepted after the
+	 * timeout is voided once the payment module answers.
+	 */
+	private Transaction authorize(Customer customer, MerchantStore store, Payment payment, List<ShoppingCartItem> items, Order order) throws ServiceException {
+
+		if(TransactionSynchronizationManager.isActualTransactionActive()) {
+			LOGGER.warn("Checkout invoked within a transaction, the connection is held while the payment is authorized");
+		}
+
+		CompletableFuture<Transaction> authorization = new CompletableFuture<Transaction>();
+		try {
+			paymentExecutor.execute(() -> {
+				try {
+					authorization.complete(paymentService.authorizePayment(customer, store, payment, items, order));
+				} catch (Throwable e) {
+					authorization.completeExceptionally(e);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			LOGGER.warn("Payment " + payment.getPaymentMetaData().get(IDEMPOTENCY_KEY) + " declined, all the "
+					+ paymentWorkers + " payment workers are busy");
+			throw new ServiceException(ServiceException.EXCEPTION_PAYMENT_DECLINED, "Payment not available");
+		}
 
-        //only in order page, otherwise invokes too many processing
-        if(
-        		OrderSummaryType.ORDERTOTAL.name().equals(summary.getOrderSummaryType().name()) ||
-        		OrderSummaryType.SHOPPINGCART.name().equals(summary.getOrderSummaryType().name())
+		try {
+			return authorization.get(paymentTimeout, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			authorization.thenAccept(late -> voidLatePayment(late, payment, order, store));
+			LOGGER.error("Payment " + payment.getPaymentMetaData().get(IDEMPOTENCY_KEY) + " of " + order.getTotal()
+					+ " not answered by " + payment.getModuleName() + " within " + paymentTimeout + " ms");
+			throw new ServiceException(ServiceException.EXCEPTION_PAYMENT_DECLINED, "Payment timed out");
+		} catch (InterruptedException e) {
+			authorization.thenAccept(late -> voidLatePayment(late, payment, order, store));
+			Thread.currentThread().interrupt();
+			throw new ServiceException(e);
+		} catch (ExecutionException e) {
+			throw cause(e);
+		}
+	}
 
-        		) {
+	/**
+	 * Gives back a payment the checkout stopped waiting for, the order was not
+	 * saved and its items went back to inventory
+	 */
+	private void voidLatePayment(Transaction late, Payment payment, Order order, MerchantStore store) {
+		if(late == null) {
+			return;
+		}
+		String key = payment.getPaymentMetaData().get(IDEMPOTENCY_KEY);
+		try {
+			paymentService.voidPayment(payment, order, store, late);
+			LOGGER.warn("Payment " + key + " of " + order.getTotal() + " accepted by " + payment.getModuleName()
+					+ " after the timeout was voided");
+		} catch (ServiceException | RuntimeException e) {
+			LOGGER.error("Payment " + key + " of " + order.getTotal() + " accepted by " + payment.getModuleName()
+					+ " after the timeout could not be voided, transaction " + late.getTransactionDetails(), e);
+		}
+	}
 
-	        //Post processing order total variation modules for sub total calculation - drools, custom modules
-	        //may affect the sub total
-	        OrderTotalVariation orderTotalVariation = orderTotalService.findOrderTotalVariation(summary, customer, store, language);
+	/**
+	 * Gives back a payment accepted for an order which could not be saved,
+	 * the items already went back to inventory
+	 */
+	private void voidUnsavedPayment(Transaction accepted, Payment payment, Order order, MerchantStore store, Exception cause) {
+		String key = payment.getPaymentMetaData().get(IDEMPOTENCY_KEY);
+		try {
+			paymentService.voidPayment(payment, order, store, accepted);
+			LOGGER.warn("Payment " + key + " of " + order.getTotal() + " accepted by " + payment.getModuleName()
+					+ " was voided, the order could not be saved", cause);
+		} catch (ServiceException | RuntimeException e) {
+			LOGGER.error("Order not saved after payment " + key + " of " + order.getTotal() + " was accepted by "
+					+ payment.getModuleName() + " and the payment could not be voided, transaction "
+					+ accepted.getTransactionDetails() + ", order not saved because of " + cause.getMessage(), e);
+		}
+	}
 
-	        int currentCount = 10;
+	/**
+	 * Customer, order and transactions saved in one transaction
+	 */
+	private void save(Order order, Customer customer, Transaction transaction, Transaction processTransaction) throws ServiceException {
+		ServiceException failed = new TransactionTemplate(transactionManager).execute(status -> {
+			try {
+				persist(order, customer, transaction, processTransaction);
+				return null;
+			} catch (ServiceException e) {
+				status.setRollbackOnly();
+				return e;
+			}
+		});
+		if(failed != null) {
+			throw failed;
+		}
+	}
 
-	        if(CollectionUtils.isNotEmpty(orderTotalVariation.getVariations())) {
-	        	for(OrderTotal variation : orderTotalVariation.getVariations()) {
-	        		variation.setSortOrder(currentCount++);
-	        		orderTotals.add(variation);
-	        		subTotal = subTotal.subtract(variation.getValue());
-	        	}
-	        }
+	private void persist(Order order, Customer customer, Transaction transaction, Transaction processTransaction) throws ServiceException {
 
-        }
+		if(order.getOrderHistory()==null || order.getOrderHistory().size()==0 || order.getStatus()==null) {
+			OrderStatus status = order.getStatus();
+			if(status==null) {
+				status = OrderStatus.ORDERED;
+				order.setStatus(status);
+			}
+			Set<OrderStatusHistory> statusHistorySet = new HashSet<OrderStatusHistory>();
+			OrderStatusHistory statusHistory = new OrderStatusHistory();
+			statusHistory.setStatus(status);
+			statusHistory.setDateAdded(new Date());
+			statusHistory.setOrder(order);
+			statusHistorySet.add(statusHistory);
+			order.setOrderHistory(statusHistorySet);
 
+		}
 
-        totalSummary.setSubTotal(subTotal);
-        grandTotal=grandTotal.add(subTotal);
-
-        OrderTotal orderTotalSubTotal = new OrderTotal();
-        orderTotalSubTotal.setModule(Constants.OT_SUBTOTAL_MODULE_CODE);
-        orderTotalSubTotal.setOrderTotalType(OrderTotalType.SUBTOTAL);
-        orderTotalSubTotal.setOrderTotalCode("order.total.subtotal");
-        orderTotalSubTotal.setTitle(Constants.OT_SUBTOTAL_MODULE_CODE);
-        orderTotalSubTotal.setSortOrder(5);
-        orderTotalSubTotal.setValue(subTotal);
-
-        orderTotals.add(orderTotalSubTotal);
-
-
-        //shipping
-        if(summary.getShippingSummary()!=null) {
-
-
-	            OrderTotal shippingSubTotal = new OrderTotal();
-	            shippingSubTotal.setModule(Constants.OT_SHIPPING_MODULE_CODE);
-	            shippingSubTotal.setOrderTotalType(OrderTotalType.SHIPPING);
-	            shippingSubTotal.setOrderTotalCode("order.total.shipping");
-	            shippingSubTotal.setTitle(Constants.OT_SHIPPING_MODULE_CODE);
-	            shippingSubTotal.setSortOrder(100);
-
-	            orderTotals.add(shippingSubTotal);
-
-            if(!summary.getShippingSummary().isFreeShipping()) {
-                shippingSubTotal.setValue(summary.getShippingSummary().getShipping());
-                grandTotal=grandTotal.add(summary.getShippingSummary().getShipping());
-            } else {
-                shippingSubTotal.setValue(new BigDecimal(0));
-                grandTotal=grandTotal.add(new BigDecimal(0));
-            }
-
-            //check handling fees
-            shippingConfiguration = shippingService.getShippingConfiguration(store);
-            if(summary.getShippingSummary().getHandling()!=null && summary.getShippingSummary().getHandling().doubleValue()>0) {
-                if(shippingConfiguration.getHandlingFees()!=null && shippingConfiguration.getHandlingFees().doubleValue()>0) {
-                    OrderTotal handlingubTotal = new OrderTotal();
-                    handlingubTotal.setModule(Constants.OT_HANDLING_MODULE_CODE);
-                    handlingubTotal.setOrderTotalType(OrderTotalType.HANDLING);
-                    handlingubTotal.setOrderTotalCode("order.total.handling");
-                    handlingubTotal.setTitle(Constants.OT_HANDLING_MODULE_CODE);
-                    //handlingubTotal.setText("order.total.handling");
-                    handlingubTotal.setSortOrder(120);
-                    handlingubTotal.setValue(summary.getShippingSummary().getHandling());
-                    orderTotals.add(handlingubTotal);
-                    grandTotal=grandTotal.add(summary.getShippingSummary().getHandling());
-                }
-            }
-        }
+		if(customer.getId()==null || customer.getId()==0) {
+		  customerService.create(customer);
+		}
 
-        //tax
-        List<TaxItem> taxes = taxService.calculateTax(summary, customer, store, language);
-        if(taxes!=null && taxes.size()>0) {
-        	BigDecimal totalTaxes = new BigDecimal(0);
-        	totalTaxes.setScale(2, RoundingMode.HALF_UP);
-            int taxCount = 200;
-            for(TaxItem tax : taxes) {
-
-                OrderTotal taxLine = new OrderTotal();
-                taxLine.setModule(Constants.OT_TAX_MODULE_CODE);
-                taxLine.setOrderTotalType(OrderTotalType.TAX);
-                taxLine.setOrderTotalCode(tax.getLabel());
-                taxLine.setSortOrder(taxCount);
-                taxLine.setTitle(Constants.OT_TAX_MODULE_CODE);
-                taxLine.setText(tax.getLabel());
-                taxLine.setValue(tax.getItemPrice());
-
-                totalTaxes = totalTaxes.add(tax.getItemPrice());
-                orderTotals.add(taxLine);
-                //grandTotal=grandTotal.add(tax.getItemPrice());
-
-                taxCount ++;
-
-            }
-            grandTotal = grandTotal.add(totalTaxes);
-            totalSummary.setTaxTotal(totalTaxes);
-        }
+		order.setCustomerId(customer.getId());
+		this.create(order);
 
-        // grand total
-        OrderTotal orderTotal = new OrderTotal();
-        orderTotal.setModule(Constants.OT_TOTAL_MODULE_CODE);
-        orderTotal.setOrderTotalType(OrderTotalType.TOTAL);
-        orderTotal.setOrderTotalCode("order.total.total");
-        orderTotal.setTitle(Constants.OT_TOTAL_MODULE_CODE);
-        //orderTotal.setText("order.total.total");
-        orderTotal.setSortOrder(500);
-        orderTotal.setValue(grandTotal);
-        orderTotals.add(orderTotal);
-
-        totalSummary.setTotal(grandTotal);
-        totalSummary.setTotals(orderTotals);
-        return totalSummary;
+		if(transaction!=null) {
+			transaction.setOrder(order);
+			if(transaction.getId()==null || transaction.getId()==0) {
+				transactionService.create(transaction);
+			} else {
+				transactionService.update(transaction);
+			}
+		}
 
+		if(processTransaction!=null) {
+			processTransaction.setOrder(order);
+			if(processTransaction.getId()==null || processTransaction.getId()==0) {
+				transactionService.create(processTransaction);
+			} else {
+				transactionService.update(processTransaction);
+			}
+		}
+	}
+
+	/**
+	 * Key given by the caller in the payment meta data, otherwise the shopping
+	 * cart code. The payment module gets the same key every time a cart is
+	 * paid with the same amount and means of payment, on any node, so the
+	 * payment gateway charges a retried attempt once.
+	 */
+	private String idempotencyKey(Order order, Payment payment) {
+		if(payment.getPaymentMetaData() == null) {
+			payment.setPaymentMetaData(new HashMap<String,String>());
+		}
+		String key = payment.getPaymentMetaData().get(IDEMPOTENCY_KEY);
+		if(StringUtils.isBlank(key)) {
+			key = StringUtils.isBlank(order.getShoppingCartCode()) ? UUID.randomUUID().toString() : order.getShoppingCartCode();
+			payment.getPaymentMetaData().put(IDEMPOTENCY_KEY, key + ":" + attempt(order, payment));
+		}
+		return key;
+	}
+
+	/**
+	 * Amount, payment module and last digits of the card of a payment attempt
+	 */
+	private static String attempt(Order order, Payment payment) {
+		StringBuilder attempt = new StringBuilder()
+				.append(order.getTotal() == null ? "" : order.getTotal().toPlainString())
+				.append(':').append(payment.getModuleName());
+		if(payment instanceof CreditCardPayment) {
+			String number = ((CreditCardPayment)payment).getCreditCardNumber();
+			if(number != null && number.length() > 4) {
+				attempt.append(':').append(number.substring(number.length() - 4));
+			}
+		}
+		return attempt.toString();
+	}
+
+	private Order await(CompletableFuture<Order> running) throws ServiceException {
+		try {
+			return running.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ServiceException(e);
+		} catch (ExecutionException e) {
+			throw cause(e);
+		}
+	}
+
+	private static ServiceException cause(ExecutionException e) {
+		if(e.getCause() instanceof RuntimeException) {
+			throw (RuntimeException)e.getCause();
+		}
+		return e.getCause() instanceof ServiceException ? (ServiceException)e.getCause() : new ServiceException(e.getCause());
+	}
+
+	@Override
+	public void submitPostOrderTask(Runnable task) {
+		postOrderExecutor.execute(() -> {
+			try {
+				task.run();
+			} catch (Exception e) {
+				LOGGER.error("Post order task failed", e);
+			}
+		});
+	}
+
+    private OrderTotalSummary caculateOrder(OrderSummary summary, Customer customer, final MerchantStore store, final Language language) throws Exception {
+        return orderTotalEngine.calculate(summary, customer, store, language);
     }
 
 
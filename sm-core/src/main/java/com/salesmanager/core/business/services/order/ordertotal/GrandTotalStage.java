@@ -0,0 +1,59 @@
+package com.salesmanager.core.business.services.order.ordertotal;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+
+import org.springframework.stereotype.Component;
+
+import com.salesmanager.core.business.constants.Constants;
+import com.salesmanager.core.model.order.OrderTotal;
+import com.salesmanager.core.model.order.OrderTotalType;
+
+/**
+ * Sum of the amounts of all the stages before
+ */
+@Component
+public class GrandTotalStage implements OrderTotalStage {
+
+	@Override
+	public String getCode() {
+		return Constants.OT_TOTAL_MODULE_CODE;
+	}
+
+	@Override
+	public int getSortOrder() {
+		return 500;
+	}
+
+	@Override
+	public void appendInputs(OrderTotalContext context, StringBuilder key) {
+		key.append('|').append(grandTotal(context).toPlainString());
+	}
+
+	@Override
+	public OrderTotalStageResult calculate(OrderTotalContext context) {
+
+		BigDecimal grandTotal = grandTotal(context);
+
+		OrderTotal orderTotal = new OrderTotal();
+		orderTotal.setModule(Constants.OT_TOTAL_MODULE_CODE);
+		orderTotal.setOrderTotalType(OrderTotalType.TOTAL);
+		orderTotal.setOrderTotalCode("order.total.total");
+		orderTotal.setTitle(Constants.OT_TOTAL_MODULE_CODE);
+		orderTotal.setSortOrder(500);
+		orderTotal.setValue(grandTotal);
+
+		return new OrderTotalStageResult(grandTotal, Collections.singletonList(orderTotal));
+	}
+
+	private BigDecimal grandTotal(OrderTotalContext context) {
+		BigDecimal grandTotal = BigDecimal.ZERO;
+		for (OrderTotalStageResult result : context.getResults()) {
+			if (result.getAmount() != null) {
+				grandTotal = grandTotal.add(result.getAmount());
+			}
+		}
+		return context.round(grandTotal);
+	}
+
+}
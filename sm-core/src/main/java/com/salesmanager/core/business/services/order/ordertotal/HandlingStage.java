@@ -0,0 +1,89 @@
+package com.salesmanager.core.business.services.order.ordertotal;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+
+import javax.inject.Inject;
+
+import org.springframework.stereotype.Component;
+
+import com.salesmanager.core.business.constants.Constants;
+import com.salesmanager.core.business.services.shipping.ShippingService;
+import com.salesmanager.core.business.utils.StoreContentVersions;
+import com.salesmanager.core.model.order.OrderTotal;
+import com.salesmanager.core.model.order.OrderTotalType;
+import com.salesmanager.core.model.shipping.ShippingConfiguration;
+import com.salesmanager.core.model.shipping.ShippingSummary;
+
+/**
+ * Handling fees of the shipping summary, when the store charges handling
+ * fees
+ */
+@Component
+public class HandlingStage implements OrderTotalStage {
+
+	@Inject
+	private ShippingService shippingService;
+
+	@Inject
+	private StoreContentVersions storeContentVersions;
+
+	@Override
+	public String getCode() {
+		return Constants.OT_HANDLING_MODULE_CODE;
+	}
+
+	@Override
+	public int getSortOrder() {
+		return 120;
+	}
+
+	@Override
+	public void appendInputs(OrderTotalContext context, StringBuilder key) {
+		BigDecimal handling = handling(context.getSummary().getShippingSummary());
+		if (handling == null) {
+			key.append("|none");
+		} else {
+			// the shipping configuration is a merchant configuration
+			key.append('|').append(storeContentVersions.getVersion(context.getStore())).append('|')
+					.append(handling.toPlainString());
+		}
+	}
+
+	@Override
+	public OrderTotalStageResult calculate(OrderTotalContext context) throws Exception {
+
+		BigDecimal handling = handling(context.getSummary().getShippingSummary());
+		if (handling == null) {
+			return OrderTotalStageResult.NONE;
+		}
+
+		ShippingConfiguration shippingConfiguration = shippingService.getShippingConfiguration(context.getStore());
+		if (shippingConfiguration == null || shippingConfiguration.getHandlingFees() == null
+				|| shippingConfiguration.getHandlingFees().doubleValue() <= 0) {
+			return OrderTotalStageResult.NONE;
+		}
+
+		handling = context.round(handling);
+		OrderTotal handlingSubTotal = new OrderTotal();
+		handlingSubTotal.setModule(Constants.OT_HANDLING_MODULE_CODE);
+		handlingSubTotal.setOrderTotalType(OrderTotalType.HANDLING);
+		handlingSubTotal.setOrderTotalCode("order.total.handling");
+		handlingSubTotal.setTitle(Constants.OT_HANDLING_MODULE_CODE);
+		handlingSubTotal.setSortOrder(120);
+		handlingSubTotal.setValue(handling);
+
+		return new OrderTotalStageResult(handling, Collections.singletonList(handlingSubTotal));
+	}
+
+	/**
+	 * @return handling fees of the order, null when there are none
+	 */
+	private BigDecimal handling(ShippingSummary shipping) {
+		if (shipping == null || shipping.getHandling() == null || shipping.getHandling().doubleValue() <= 0) {
+			return null;
+		}
+		return shipping.getHandling();
+	}
+
+}
@@ -0,0 +1,112 @@
+package com.salesmanager.core.business.services.order.ordertotal;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.salesmanager.core.model.customer.Customer;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.order.OrderSummary;
+import com.salesmanager.core.model.reference.language.Language;
+import com.salesmanager.core.model.shoppingcart.ShoppingCartItem;
+
+/**
+ * An order total calculation: the order, the store and the results of the
+ * stages already run. Amounts are rounded half up to the number of
+ * decimals of the store currency.
+ */
+public class OrderTotalContext {
+
+	private final OrderSummary summary;
+	private final Customer customer;
+	private final MerchantStore store;
+	private final Language language;
+	private final int scale;
+
+	private final Map<String, OrderTotalStageResult> results = new LinkedHashMap<String, OrderTotalStageResult>();
+
+	public OrderTotalContext(OrderSummary summary, Customer customer, MerchantStore store, Language language) {
+		this.summary = summary;
+		this.customer = customer;
+		this.store = store;
+		this.language = language;
+		int digits = -1;
+		if (store.getCurrency() != null && store.getCurrency().getCurrency() != null) {
+			digits = store.getCurrency().getCurrency().getDefaultFractionDigits();
+		}
+		this.scale = digits < 0 ? 2 : digits;
+	}
+
+	public OrderSummary getSummary() {
+		return summary;
+	}
+
+	/**
+	 * @return the customer, null for an anonymous cart
+	 */
+	public Customer getCustomer() {
+		return customer;
+	}
+
+	public MerchantStore getStore() {
+		return store;
+	}
+
+	public Language getLanguage() {
+		return language;
+	}
+
+	public BigDecimal round(BigDecimal amount) {
+		return amount == null ? null : amount.setScale(scale, RoundingMode.HALF_UP);
+	}
+
+	/**
+	 * @return quantity times price of an item, rounded
+	 */
+	public BigDecimal getSubTotal(ShoppingCartItem item) {
+		return round(item.getItemPrice().multiply(new BigDecimal(item.getQuantity())));
+	}
+
+	/**
+	 * @return the result of a stage run before, null when there is no such
+	 *         stage
+	 */
+	public OrderTotalStageResult getResult(String stage) {
+		return results.get(stage);
+	}
+
+	/**
+	 * @return amount of a stage run before, zero when the stage does not
+	 *         apply
+	 */
+	public BigDecimal getAmount(String stage) {
+		OrderTotalStageResult result = results.get(stage);
+		return result == null || result.getAmount() == null ? BigDecimal.ZERO : result.getAmount();
+	}
+
+	/**
+	 * @return results of the stages run before, in their order
+	 */
+	public Collection<OrderTotalStageResult> getResults() {
+		return Collections.unmodifiableCollection(results.values());
+	}
+
+	/**
+	 * Appends product, quantity and price of the items in their order
+	 */
+	public void appendItems(StringBuilder key) {
+		key.append("|items:");
+		for (ShoppingCartItem item : summary.getProducts()) {
+			key.append(item.getProductId()).append('x').append(item.getQuantity()).append('x')
+					.append(item.getItemPrice() == null ? "" : item.getItemPrice().toPlainString()).append(';');
+		}
+	}
+
+	void setResult(String stage, OrderTotalStageResult result) {
+		results.put(stage, result);
+	}
+
+}
@@ -0,0 +1,128 @@
+package com.salesmanager.core.business.services.order.ordertotal;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.salesmanager.core.business.constants.Constants;
+import com.salesmanager.core.business.utils.ExpiringCache;
+import com.salesmanager.core.model.customer.Customer;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.order.OrderSummary;
+import com.salesmanager.core.model.order.OrderTotal;
+import com.salesmanager.core.model.order.OrderTotalSummary;
+import com.salesmanager.core.model.reference.language.Language;
+import com.salesmanager.core.model.shoppingcart.ShoppingCartItem;
+
+/**
+ * Calculates order totals by running the {@link OrderTotalStage} beans in
+ * their sort order. The result of each stage is kept by its inputs for
+ * config.order.totalCacheTtl seconds, the least recently used results are
+ * dropped past config.order.totalCacheSize, so a new calculation of the same
+ * cart only runs the stages whose inputs changed (a new shipping option
+ * runs shipping, tax and total).
+ */
+@Component
+public class OrderTotalEngine {
+
+	@Inject
+	private List<OrderTotalStage> stages;
+
+	@Value("${config.order.totalCacheTtl:300}")
+	private long ttl;
+
+	/** stage results kept at most **/
+	@Value("${config.order.totalCacheSize:10000}")
+	private int maxResults;
+
+	private ExpiringCache<String, OrderTotalStageResult> results;
+
+	private final Map<String, LongAdder> calculations = new ConcurrentHashMap<String, LongAdder>();
+
+	@PostConstruct
+	public void init() {
+		List<OrderTotalStage> sorted = new ArrayList<OrderTotalStage>(stages);
+		sorted.sort(Comparator.comparingInt(OrderTotalStage::getSortOrder));
+		Set<String> codes = new HashSet<String>();
+		for (OrderTotalStage stage : sorted) {
+			if (!codes.add(stage.getCode())) {
+				throw new IllegalStateException("Order total stage " + stage.getCode() + " is defined twice");
+			}
+			calculations.put(stage.getCode(), new LongAdder());
+		}
+		stages = sorted;
+		results = new ExpiringCache<String, OrderTotalStageResult>(ttl).maxWeight(maxResults, result -> 1L);
+	}
+
+	/**
+	 * Also sets the sub total of each item
+	 */
+	public OrderTotalSummary calculate(OrderSummary summary, Customer customer, MerchantStore store, Language language)
+			throws Exception {
+
+		OrderTotalContext context = new OrderTotalContext(summary, customer, store, language);
+		for (ShoppingCartItem item : summary.getProducts()) {
+			item.setSubTotal(context.getSubTotal(item));
+		}
+
+		List<OrderTotal> totals = new ArrayList<OrderTotal>();
+		for (OrderTotalStage stage : stages) {
+			OrderTotalStageResult result = result(stage, context);
+			context.setResult(stage.getCode(), result);
+			totals.addAll(result.getTotals());
+		}
+		totals.sort(Comparator.comparingInt(OrderTotal::getSortOrder));
+
+		OrderTotalSummary totalSummary = new OrderTotalSummary();
+		totalSummary.setSubTotal(context.getAmount(Constants.OT_SUBTOTAL_MODULE_CODE)
+				.add(context.getAmount(VariationStage.CODE)));
+		OrderTotalStageResult taxes = context.getResult(Constants.OT_TAX_MODULE_CODE);
+		if (taxes != null) {
+			totalSummary.setTaxTotal(taxes.getAmount());
+		}
+		totalSummary.setTotal(context.getAmount(Constants.OT_TOTAL_MODULE_CODE));
+		totalSummary.setTotals(totals);
+		return totalSummary;
+	}
+
+	/**
+	 * @return times a stage was calculated rather than reused
+	 */
+	public long getCalculations(String stage) {
+		LongAdder count = calculations.get(stage);
+		return count == null ? 0 : count.sum();
+	}
+
+	public void clear() {
+		results.clear();
+	}
+
+	private OrderTotalStageResult result(OrderTotalStage stage, OrderTotalContext context) throws Exception {
+
+		if (!results.isEnabled()) {
+			return calculate(stage, context);
+		}
+
+		StringBuilder key = new StringBuilder(stage.getCode()).append('|').append(context.getStore().getId());
+		stage.appendInputs(context, key);
+		return results.get(key.toString(), () -> calculate(stage, context));
+	}
+
+	private OrderTotalStageResult calculate(OrderTotalStage stage, OrderTotalContext context) throws Exception {
+		calculations.get(stage.getCode()).increment();
+		OrderTotalStageResult result = stage.calculate(context);
+		return result == null ? OrderTotalStageResult.NONE : result;
+	}
+
+}
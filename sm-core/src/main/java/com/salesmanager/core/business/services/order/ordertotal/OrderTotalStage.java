@@ -0,0 +1,30 @@
+package com.salesmanager.core.business.services.order.ordertotal;
+
+/**
+ * A step of the order total calculation (sub total, shipping, tax ...).
+ * Stages run by ascending sort order and can read the results of the stages
+ * before them. The result of a stage is reused as long as its inputs are
+ * the same, so a stage must append to the key everything its result depends
+ * on.
+ */
+public interface OrderTotalStage {
+
+	/**
+	 * @return code of the stage, unique
+	 */
+	String getCode();
+
+	/**
+	 * @return position of the stage in the calculation
+	 */
+	int getSortOrder();
+
+	/**
+	 * Appends the inputs of the stage, values of the order and results of
+	 * previous stages
+	 */
+	void appendInputs(OrderTotalContext context, StringBuilder key) throws Exception;
+
+	OrderTotalStageResult calculate(OrderTotalContext context) throws Exception;
+
+}
@@ -0,0 +1,60 @@
+package com.salesmanager.core.business.services.order.ordertotal;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.salesmanager.core.model.order.OrderTotal;
+
+/**
+ * Amount a stage adds to the order total and the total lines it displays.
+ * Results are shared between calculations, {@link #getTotals()} returns
+ * copies of the lines.
+ */
+public class OrderTotalStageResult {
+
+	public static final OrderTotalStageResult NONE = new OrderTotalStageResult(null, Collections.<OrderTotal>emptyList());
+
+	private final BigDecimal amount;
+	private final List<OrderTotal> totals;
+
+	/**
+	 * @param amount
+	 *            added to the order total, null when the stage does not
+	 *            apply to the order
+	 */
+	public OrderTotalStageResult(BigDecimal amount, List<OrderTotal> totals) {
+		this.amount = amount;
+		this.totals = new ArrayList<OrderTotal>(totals.size());
+		for (OrderTotal total : totals) {
+			this.totals.add(copy(total));
+		}
+	}
+
+	public BigDecimal getAmount() {
+		return amount;
+	}
+
+	public List<OrderTotal> getTotals() {
+		List<OrderTotal> copies = new ArrayList<OrderTotal>(totals.size());
+		for (OrderTotal total : totals) {
+			copies.add(copy(total));
+		}
+		return copies;
+	}
+
+	private static OrderTotal copy(OrderTotal total) {
+		OrderTotal copy = new OrderTotal();
+		copy.setModule(total.getModule());
+		copy.setOrderTotalCode(total.getOrderTotalCode());
+		copy.setOrderTotalType(total.getOrderTotalType());
+		copy.setOrderValueType(total.getOrderValueType());
+		copy.setTitle(total.getTitle());
+		copy.setText(total.getText());
+		copy.setSortOrder(total.getSortOrder());
+		copy.setValue(total.getValue());
+		return copy;
+	}
+
+}
@@ -0,0 +1,63 @@
+package com.salesmanager.core.business.services.order.ordertotal;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+
+import org.springframework.stereotype.Component;
+
+import com.salesmanager.core.business.constants.Constants;
+import com.salesmanager.core.model.order.OrderTotal;
+import com.salesmanager.core.model.order.OrderTotalType;
+import com.salesmanager.core.model.shipping.ShippingSummary;
+
+/**
+ * Price of the selected shipping option, zero when shipping is free
+ */
+@Component
+public class ShippingStage implements OrderTotalStage {
+
+	@Override
+	public String getCode() {
+		return Constants.OT_SHIPPING_MODULE_CODE;
+	}
+
+	@Override
+	public int getSortOrder() {
+		return 100;
+	}
+
+	@Override
+	public void appendInputs(OrderTotalContext context, StringBuilder key) {
+		ShippingSummary shipping = context.getSummary().getShippingSummary();
+		if (shipping == null) {
+			key.append("|none");
+		} else {
+			key.append('|').append(shipping.isFreeShipping()).append('|')
+					.append(shipping.getShipping() == null ? "" : shipping.getShipping().toPlainString());
+		}
+	}
+
+	@Override
+	public OrderTotalStageResult calculate(OrderTotalContext context) {
+
+		ShippingSummary shipping = context.getSummary().getShippingSummary();
+		if (shipping == null) {
+			return OrderTotalStageResult.NONE;
+		}
+
+		BigDecimal amount = shipping.isFreeShipping() || shipping.getShipping() == null ? BigDecimal.ZERO
+				: shipping.getShipping();
+		amount = context.round(amount);
+
+		OrderTotal shippingSubTotal = new OrderTotal();
+		shippingSubTotal.setModule(Constants.OT_SHIPPING_MODULE_CODE);
+		shippingSubTotal.setOrderTotalType(OrderTotalType.SHIPPING);
+		shippingSubTotal.setOrderTotalCode("order.total.shipping");
+		shippingSubTotal.setTitle(Constants.OT_SHIPPING_MODULE_CODE);
+		shippingSubTotal.setSortOrder(100);
+		shippingSubTotal.setValue(amount);
+
+		return new OrderTotalStageResult(amount, Collections.singletonList(shippingSubTotal));
+	}
+
+}
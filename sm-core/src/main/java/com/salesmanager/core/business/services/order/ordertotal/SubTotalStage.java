@@ -0,0 +1,55 @@
+package com.salesmanager.core.business.services.order.ordertotal;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+
+import org.springframework.stereotype.Component;
+
+import com.salesmanager.core.business.constants.Constants;
+import com.salesmanager.core.model.order.OrderTotal;
+import com.salesmanager.core.model.order.OrderTotalType;
+import com.salesmanager.core.model.shoppingcart.ShoppingCartItem;
+
+/**
+ * Sum of the rounded sub totals of the items. The sub total line displays
+ * it less the price variations.
+ */
+@Component
+public class SubTotalStage implements OrderTotalStage {
+
+	@Override
+	public String getCode() {
+		return Constants.OT_SUBTOTAL_MODULE_CODE;
+	}
+
+	@Override
+	public int getSortOrder() {
+		return 20;
+	}
+
+	@Override
+	public void appendInputs(OrderTotalContext context, StringBuilder key) {
+		context.appendItems(key);
+		key.append("|variation:").append(context.getAmount(VariationStage.CODE).toPlainString());
+	}
+
+	@Override
+	public OrderTotalStageResult calculate(OrderTotalContext context) {
+
+		BigDecimal subTotal = BigDecimal.ZERO;
+		for (ShoppingCartItem item : context.getSummary().getProducts()) {
+			subTotal = subTotal.add(context.getSubTotal(item));
+		}
+
+		OrderTotal orderTotalSubTotal = new OrderTotal();
+		orderTotalSubTotal.setModule(Constants.OT_SUBTOTAL_MODULE_CODE);
+		orderTotalSubTotal.setOrderTotalType(OrderTotalType.SUBTOTAL);
+		orderTotalSubTotal.setOrderTotalCode("order.total.subtotal");
+		orderTotalSubTotal.setTitle(Constants.OT_SUBTOTAL_MODULE_CODE);
+		orderTotalSubTotal.setSortOrder(5);
+		orderTotalSubTotal.setValue(subTotal.add(context.getAmount(VariationStage.CODE)));
+
+		return new OrderTotalStageResult(subTotal, Collections.singletonList(orderTotalSubTotal));
+	}
+
+}
@@ -0,0 +1,125 @@
+package com.salesmanager.core.business.services.order.ordertotal;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.inject.Inject;
+
+import org.springframework.stereotype.Component;
+
+import com.salesmanager.core.business.constants.Constants;
+import com.salesmanager.core.business.services.tax.TaxRateResolver;
+import com.salesmanager.core.business.services.tax.TaxService;
+import com.salesmanager.core.business.utils.StoreContentVersions;
+import com.salesmanager.core.model.customer.Customer;
+import com.salesmanager.core.model.order.OrderTotal;
+import com.salesmanager.core.model.order.OrderTotalType;
+import com.salesmanager.core.model.reference.country.Country;
+import com.salesmanager.core.model.reference.zone.Zone;
+import com.salesmanager.core.model.shipping.ShippingSummary;
+import com.salesmanager.core.model.shoppingcart.ShoppingCartItem;
+import com.salesmanager.core.model.tax.TaxItem;
+
+/**
+ * Taxes of the items, shipping and handling for the customer addresses. The
+ * amount is null when no tax applies.
+ */
+@Component
+public class TaxStage implements OrderTotalStage {
+
+	@Inject
+	private TaxService taxService;
+
+	@Inject
+	private TaxRateResolver taxRateResolver;
+
+	@Inject
+	private StoreContentVersions storeContentVersions;
+
+	@Override
+	public String getCode() {
+		return Constants.OT_TAX_MODULE_CODE;
+	}
+
+	@Override
+	public int getSortOrder() {
+		return 200;
+	}
+
+	@Override
+	public void appendInputs(OrderTotalContext context, StringBuilder key) {
+
+		Customer customer = context.getCustomer();
+		if (customer == null) {
+			key.append("|none");
+			return;
+		}
+
+		// tax configuration is a merchant configuration, rates are in the tax table
+		key.append('|').append(storeContentVersions.getVersion(context.getStore())).append('|')
+				.append(taxRateResolver.getTable(context.getStore()).getVersion()).append('|')
+				.append(context.getLanguage().getCode());
+		if (customer.getBilling() != null) {
+			key.append("|billing:");
+			appendAddress(key, customer.getBilling().getCountry(), customer.getBilling().getZone(),
+					customer.getBilling().getState());
+		}
+		if (customer.getDelivery() != null) {
+			key.append("|delivery:");
+			appendAddress(key, customer.getDelivery().getCountry(), customer.getDelivery().getZone(),
+					customer.getDelivery().getState());
+		}
+
+		context.appendItems(key);
+		key.append("|classes:");
+		for (ShoppingCartItem item : context.getSummary().getProducts()) {
+			if (item.getProduct() != null && item.getProduct().getTaxClass() != null) {
+				key.append(item.getProduct().getTaxClass().getId());
+			}
+			key.append(';');
+		}
+
+		// shipping and handling are taxed even when shipping is free
+		ShippingSummary shipping = context.getSummary().getShippingSummary();
+		if (shipping != null) {
+			key.append("|shipping:").append(shipping.getShipping() == null ? "" : shipping.getShipping().toPlainString())
+					.append(',').append(shipping.getHandling() == null ? "" : shipping.getHandling().toPlainString());
+		}
+	}
+
+	@Override
+	public OrderTotalStageResult calculate(OrderTotalContext context) throws Exception {
+
+		List<TaxItem> taxes = taxService.calculateTax(context.getSummary(), context.getCustomer(), context.getStore(),
+				context.getLanguage());
+		if (taxes == null || taxes.isEmpty()) {
+			return OrderTotalStageResult.NONE;
+		}
+
+		List<OrderTotal> taxLines = new ArrayList<OrderTotal>(taxes.size());
+		BigDecimal totalTaxes = BigDecimal.ZERO;
+		int taxCount = 200;
+		for (TaxItem tax : taxes) {
+
+			OrderTotal taxLine = new OrderTotal();
+			taxLine.setModule(Constants.OT_TAX_MODULE_CODE);
+			taxLine.setOrderTotalType(OrderTotalType.TAX);
+			taxLine.setOrderTotalCode(tax.getLabel());
+			taxLine.setSortOrder(taxCount++);
+			taxLine.setTitle(Constants.OT_TAX_MODULE_CODE);
+			taxLine.setText(tax.getLabel());
+			taxLine.setValue(context.round(tax.getItemPrice()));
+
+			totalTaxes = totalTaxes.add(taxLine.getValue());
+			taxLines.add(taxLine);
+		}
+		return new OrderTotalStageResult(totalTaxes, taxLines);
+	}
+
+	private void appendAddress(StringBuilder key, Country country, Zone zone, String state) {
+		key.append(country == null ? "" : country.getIsoCode()).append(',')
+				.append(zone == null ? "" : zone.getCode()).append(',').append(state == null ? "" : state);
+	}
+
+}
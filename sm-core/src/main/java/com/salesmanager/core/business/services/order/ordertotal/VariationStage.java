@@ -0,0 +1,90 @@
+package com.salesmanager.core.business.services.order.ordertotal;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.inject.Inject;
+
+import org.apache.commons.collections4.CollectionUtils;
+import org.springframework.stereotype.Component;
+
+import com.salesmanager.core.business.utils.StoreContentVersions;
+import com.salesmanager.core.model.order.OrderSummary;
+import com.salesmanager.core.model.order.OrderSummaryType;
+import com.salesmanager.core.model.order.OrderTotal;
+import com.salesmanager.core.model.order.OrderTotalVariation;
+
+/**
+ * Price variations of the order total post processor modules (promo codes
+ * ...), only calculated for the shopping cart and order total pages. The
+ * amount is the negative sum of the variations.
+ */
+@Component
+public class VariationStage implements OrderTotalStage {
+
+	public static final String CODE = "variation";
+
+	@Inject
+	private OrderTotalService orderTotalService;
+
+	@Inject
+	private StoreContentVersions storeContentVersions;
+
+	@Override
+	public String getCode() {
+		return CODE;
+	}
+
+	@Override
+	public int getSortOrder() {
+		return 10;
+	}
+
+	@Override
+	public void appendInputs(OrderTotalContext context, StringBuilder key) {
+		if (!applies(context.getSummary())) {
+			key.append("|none");
+			return;
+		}
+		key.append('|').append(storeContentVersions.getVersion(context.getStore())).append('|')
+				.append(context.getLanguage().getCode()).append('|')
+				.append(context.getCustomer() == null ? "" : context.getCustomer().getId()).append('|')
+				.append(context.getSummary().getPromoCode() == null ? "" : context.getSummary().getPromoCode())
+				.append('|').append(LocalDate.now());
+		context.appendItems(key);
+	}
+
+	@Override
+	public OrderTotalStageResult calculate(OrderTotalContext context) throws Exception {
+
+		//only in order page, otherwise invokes too many processing
+		if (!applies(context.getSummary())) {
+			return OrderTotalStageResult.NONE;
+		}
+
+		OrderTotalVariation orderTotalVariation = orderTotalService.findOrderTotalVariation(context.getSummary(),
+				context.getCustomer(), context.getStore(), context.getLanguage());
+		if (CollectionUtils.isEmpty(orderTotalVariation.getVariations())) {
+			return OrderTotalStageResult.NONE;
+		}
+
+		List<OrderTotal> variations = new ArrayList<OrderTotal>();
+		BigDecimal amount = BigDecimal.ZERO;
+		int sortOrder = 10;
+		for (OrderTotal variation : orderTotalVariation.getVariations()) {
+			variation.setSortOrder(sortOrder++);
+			variation.setValue(context.round(variation.getValue()));
+			variations.add(variation);
+			amount = amount.subtract(variation.getValue());
+		}
+		return new OrderTotalStageResult(context.round(amount), variations);
+	}
+
+	private boolean applies(OrderSummary summary) {
+		return OrderSummaryType.ORDERTOTAL == summary.getOrderSummaryType()
+				|| OrderSummaryType.SHOPPINGCART == summary.getOrderSummaryType();
+	}
+
+}
@@ -26,8 +26,22 @@ public interface PaymentService {
 			MerchantStore store) throws ServiceException;
 	
 	Transaction processPayment(Customer customer, MerchantStore store, Payment payment, List<ShoppingCartItem> items, Order order) throws ServiceException;
+
+	/**
+	 * Same as processPayment without saving the transaction returned by the
+	 * payment module, the caller saves it with the order
+	 * @return the transaction, null when the module does not create one
+	 */
+	Transaction authorizePayment(Customer customer, MerchantStore store, Payment payment, List<ShoppingCartItem> items, Order order) throws ServiceException;
 	Transaction processRefund(Order order, Customer customer, MerchantStore store, BigDecimal amount) throws ServiceException;
 
+	/**
+	 * Refunds the whole amount of a transaction returned by authorizePayment
+	 * for an order which was not saved
+	 * @return the refund transaction, not saved
+	 */
+	Transaction voidPayment(Payment payment, Order order, MerchantStore store, Transaction transaction) throws ServiceException;
+
 	/**
 	 * Get a specific Payment module by payment type CREDITCART, MONEYORDER ...
 	 * @param store
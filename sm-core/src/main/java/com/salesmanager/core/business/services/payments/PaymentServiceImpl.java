@@ -24,6 +24,7 @@ import com.salesmanager.core.business.exception.ServiceException;
 import com.salesmanager.core.business.services.order.OrderService;
 import com.salesmanager.core.business.services.reference.loader.ConfigurationModulesLoader;
 import com.salesmanager.core.business.services.system.MerchantConfigurationService;
+import com.salesmanager.core.business.services.system.IntegrationConfigurationCache;
 import com.salesmanager.core.business.services.system.ModuleConfigurationService;
 import com.salesmanager.core.business.utils.CoreConfiguration;
 import com.salesmanager.core.model.customer.Customer;
@@ -77,6 +78,9 @@ public class PaymentServiceImpl implements PaymentService {
 	
 	@Inject
 	private Encryption encryption;
+
+	@Inject
+	private IntegrationConfigurationCache integrationConfigurationCache;
 	
 	@Override
 	public List<IntegrationModule> getPaymentMethods(MerchantStore store) throws ServiceException {
@@ -183,26 +187,7 @@ public class PaymentServiceImpl implements PaymentService {
 	
 	@Override
 	public Map<String,IntegrationConfiguration> getPaymentModulesConfigured(MerchantStore store) throws ServiceException {
-		
-		try {
-		
-			Map<String,IntegrationConfiguration> modules = new HashMap<String,IntegrationConfiguration>();
-			MerchantConfiguration merchantConfiguration = merchantConfigurationService.getMerchantConfiguration(Constants.PAYMENT_MODULES, store);
-			if(merchantConfiguration!=null) {
-				
-				if(!StringUtils.isBlank(merchantConfiguration.getValue())) {
-					
-					String decrypted = encryption.decrypt(merchantConfiguration.getValue());
-					modules = ConfigurationModulesLoader.loadIntegrationConfigurations(decrypted);
-					
-					
-				}
-			}
-			return modules;
-		
-		} catch (Exception e) {
-			throw new ServiceException(e);
-		}
+		return integrationConfigurationCache.getConfigurations(store, Constants.PAYMENT_MODULES);
 	}
 	
 	@Override
@@ -245,6 +230,7 @@ public class PaymentServiceImpl implements PaymentService {
 			merchantConfiguration.setValue(encrypted);
 			
 			merchantConfigurationService.saveOrUpdate(merchantConfiguration);
+			integrationConfigurationCache.invalidate(store);
 			
 		} catch (Exception e) {
 			throw new ServiceException(e);
@@ -284,6 +270,7 @@ public class PaymentServiceImpl implements PaymentService {
 
 				merchantConfigurationService.delete(configuration);
 			}
+			integrationConfigurationCache.invalidate(store);
 
 			
 		} catch (Exception e) {
@@ -301,6 +288,19 @@ public class PaymentServiceImpl implements PaymentService {
 			MerchantStore store, Payment payment, List<ShoppingCartItem> items, Order order)
 			throws ServiceException {
 
+		Transaction transaction = authorizePayment(customer, store, payment, items, order);
+		if(transaction != null && transaction.getTransactionType() != TransactionType.INIT) {
+			transactionService.create(transaction);
+		}
+		return transaction;
+
+	}
+
+	@Override
+	public Transaction authorizePayment(Customer customer,
+			MerchantStore store, Payment payment, List<ShoppingCartItem> items, Order order)
+			throws ServiceException {
+
 
 		Validate.notNull(customer);
 		Validate.notNull(store);
@@ -379,10 +379,6 @@ public class PaymentServiceImpl implements PaymentService {
 		}
 
 
-		if(transactionType != TransactionType.INIT) {
-			transactionService.create(transaction);
-		}
-		
 		if(transactionType == TransactionType.AUTHORIZECAPTURE)  {
 			order.setStatus(OrderStatus.ORDERED);
 			if(!payment.getPaymentType().name().equals(PaymentType.MONEYORDER.name())) {
@@ -470,6 +466,30 @@ public class PaymentServiceImpl implements PaymentService {
 
 	}
 
+	@Override
+	public Transaction voidPayment(Payment payment, Order order, MerchantStore store, Transaction transaction)
+			throws ServiceException {
+
+		Validate.notNull(payment);
+		Validate.notNull(order);
+		Validate.notNull(store);
+		Validate.notNull(transaction);
+
+		Map<String, IntegrationConfiguration> modules = this.getPaymentModulesConfigured(store);
+		IntegrationConfiguration configuration = modules == null ? null : modules.get(payment.getModuleName());
+		if(configuration==null) {
+			throw new ServiceException("Payment module " + payment.getModuleName() + " is not configured");
+		}
+
+		PaymentModule paymentModule = this.paymentModules.get(payment.getModuleName());
+		if(paymentModule==null) {
+			throw new ServiceException("Payment module " + payment.getModuleName() + " does not exist");
+		}
+
+		IntegrationModule integrationModule = getPaymentMethodByCode(store, payment.getModuleName());
+		return paymentModule.refund(false, store, transaction, order, transaction.getAmount(), configuration, integrationModule);
+	}
+
 	@Override
 	public Transaction processRefund(Order order, Customer customer,
 			MerchantStore store, BigDecimal amount)
@@ -0,0 +1,203 @@
+package com.salesmanager.core.business.services.search;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.inject.Inject;
+
+import org.apache.commons.io.IOUtils;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest;
+import org.elasticsearch.action.admin.indices.alias.IndicesAliasesRequest.AliasActions;
+import org.elasticsearch.action.admin.indices.alias.get.GetAliasesRequest;
+import org.elasticsearch.action.admin.indices.refresh.RefreshRequest;
+import org.elasticsearch.action.admin.indices.settings.put.UpdateSettingsRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.GetAliasesResponse;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.indices.CreateIndexRequest;
+import org.elasticsearch.client.indices.GetIndexRequest;
+import org.elasticsearch.common.settings.Settings;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.stereotype.Component;
+
+import com.salesmanager.core.business.modules.common.BulkIndexer;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.search.IndexProduct;
+
+/**
+ * Writes a reindex to new elasticsearch indexes created with refresh
+ * disabled, then moves the store aliases to them
+ */
+@Component
+@ConditionalOnProperty(name = "search.backend", havingValue = "elasticsearch", matchIfMissing = true)
+public class ElasticsearchReindexTarget implements ReindexTarget {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ElasticsearchReindexTarget.class);
+
+	private final static String MAPPING_FILE = "search/product";
+	private final static String SETTINGS_FILE = "search/settings_product";
+
+	@Inject
+	private BulkIndexer bulkIndexer;
+
+	/** store id and job - language - index **/
+	private final Map<String, Map<String, String>> indexes = new ConcurrentHashMap<String, Map<String, String>>();
+
+	@Override
+	public int write(MerchantStore store, String job, List<IndexProduct> documents) throws Exception {
+
+		BulkRequest bulk = new BulkRequest();
+		for (IndexProduct document : documents) {
+			bulk.add(new IndexRequest(index(store, document.getLang(), job)).id(document.getId())
+					.source(document.toJSONString(), XContentType.JSON));
+		}
+
+		int failures = 0;
+		BulkResponse response = client().bulk(bulk, RequestOptions.DEFAULT);
+		if (response.hasFailures()) {
+			for (BulkItemResponse item : response.getItems()) {
+				if (item.isFailed()) {
+					failures++;
+					LOGGER.error("Cannot index product [" + item.getId() + "] " + item.getFailureMessage());
+				}
+			}
+		}
+		return failures;
+	}
+
+	@Override
+	public void delete(MerchantStore store, String job, Collection<String> languages, Collection<Long> ids) throws IOException {
+
+		BulkRequest bulk = new BulkRequest();
+		for (String language : languages) {
+			String index = getIndexName(store, language, job);
+			if (!client().indices().exists(new GetIndexRequest(index), RequestOptions.DEFAULT)) {
+				continue;
+			}
+			for (Long id : ids) {
+				bulk.add(new DeleteRequest(index, String.valueOf(id)));
+			}
+		}
+		if (bulk.numberOfActions() == 0) {
+			return;
+		}
+
+		BulkResponse response = client().bulk(bulk, RequestOptions.DEFAULT);
+		if (response.hasFailures()) {
+			LOGGER.error("Cannot remove products of job " + job + " " + response.buildFailureMessage());
+		}
+	}
+
+	/**
+	 * Points the store aliases to the new indexes and drops the indexes they
+	 * were pointing to in one aliases request
+	 */
+	@Override
+	public void publish(MerchantStore store, String job) throws IOException {
+
+		Map<String, String> written = indexes.remove(key(store, job));
+		if (written == null || written.isEmpty()) {
+			return;
+		}
+
+		IndicesAliasesRequest aliases = new IndicesAliasesRequest();
+		for (Map.Entry<String, String> index : written.entrySet()) {
+
+			String alias = SearchServiceImpl.indexName(store, index.getKey());
+
+			client().indices().putSettings(new UpdateSettingsRequest(index.getValue())
+					.settings(Settings.builder().putNull("index.refresh_interval")), RequestOptions.DEFAULT);
+			client().indices().refresh(new RefreshRequest(index.getValue()), RequestOptions.DEFAULT);
+
+			GetAliasesResponse current = client().indices().getAlias(new GetAliasesRequest(alias), RequestOptions.DEFAULT);
+			if (current.getAliases().isEmpty()) {
+				// index created by product saves before the first reindex
+				if (client().indices().exists(new GetIndexRequest(alias), RequestOptions.DEFAULT)) {
+					aliases.addAliasAction(AliasActions.removeIndex().index(alias));
+				}
+			} else {
+				for (String previous : current.getAliases().keySet()) {
+					if (!previous.equals(index.getValue())) {
+						aliases.addAliasAction(AliasActions.removeIndex().index(previous));
+					}
+				}
+			}
+			aliases.addAliasAction(AliasActions.add().index(index.getValue()).alias(alias));
+		}
+
+		client().indices().updateAliases(aliases, RequestOptions.DEFAULT);
+	}
+
+	@Override
+	public String getIndexName(MerchantStore store, String language, String job) {
+		return SearchServiceImpl.indexName(store, language) + "_" + job;
+	}
+
+	private String index(MerchantStore store, String language, String job) throws IOException {
+		Map<String, String> written = indexes.computeIfAbsent(key(store, job), k -> new ConcurrentHashMap<String, String>());
+		String index = written.get(language);
+		if (index == null) {
+			index = createIndex(store, language, job);
+			written.put(language, index);
+		}
+		return index;
+	}
+
+	private String createIndex(MerchantStore store, String language, String job) throws IOException {
+
+		String name = getIndexName(store, language, job);
+
+		// a failed job resumes with the index it created
+		if (client().indices().exists(new GetIndexRequest(name), RequestOptions.DEFAULT)) {
+			return name;
+		}
+
+		// refreshed once the job publishes it
+		Settings.Builder settings = Settings.builder()
+				.loadFromSource(resource(SETTINGS_FILE, language), XContentType.JSON)
+				.put("index.refresh_interval", "-1");
+
+		CreateIndexRequest request = new CreateIndexRequest(name);
+		request.settings(settings);
+		request.mapping(resource(MAPPING_FILE, language), XContentType.JSON);
+		client().indices().create(request, RequestOptions.DEFAULT);
+		return name;
+	}
+
+	/**
+	 * search/product_fr.json for french, search/product.json for english and
+	 * languages without their own file
+	 */
+	private String resource(String name, String language) throws IOException {
+		ClassPathResource resource = new ClassPathResource(name + "_" + language + ".json");
+		if (!resource.exists()) {
+			resource = new ClassPathResource(name + ".json");
+		}
+		try (InputStream in = resource.getInputStream()) {
+			return IOUtils.toString(in, StandardCharsets.UTF_8);
+		}
+	}
+
+	private String key(MerchantStore store, String job) {
+		return store.getId() + ":" + job;
+	}
+
+	private RestHighLevelClient client() {
+		return bulkIndexer.getClient();
+	}
+
+}
@@ -0,0 +1,83 @@
+package com.salesmanager.core.business.services.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import javax.inject.Inject;
+
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.stereotype.Component;
+
+import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.business.services.catalog.product.PricingService;
+import com.salesmanager.core.model.catalog.category.Category;
+import com.salesmanager.core.model.catalog.product.Product;
+import com.salesmanager.core.model.catalog.product.description.ProductDescription;
+import com.salesmanager.core.model.catalog.product.price.FinalPrice;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.search.IndexProduct;
+
+/**
+ * Copies the properties of a product to the documents indexed by the
+ * search backends, one document by product description language
+ */
+@Component
+public class IndexProductBuilder {
+
+	@Inject
+	private PricingService pricingService;
+
+	@SuppressWarnings("rawtypes")
+	public List<IndexProduct> build(MerchantStore store, Product product) throws ServiceException {
+
+		//one price for every language
+		FinalPrice price = pricingService.calculateProductPrice(product);
+
+		List<String> categoryList = null;
+		Set<Category> categories = product.getCategories();
+		if(!CollectionUtils.isEmpty(categories)) {
+			categoryList = new ArrayList<String>();
+			for(Category category : categories) {
+				categoryList.add(category.getCode());
+			}
+		}
+
+		List<IndexProduct> indexProducts = new ArrayList<IndexProduct>();
+		Set<ProductDescription> descriptions = product.getDescriptions();
+		for(ProductDescription description : descriptions) {
+			
+			IndexProduct index = new IndexProduct();
+
+			index.setId(String.valueOf(product.getId()));
+			index.setStore(store.getCode().toLowerCase());
+			index.setLang(description.getLanguage().getCode());
+			index.setAvailable(product.isAvailable());
+			index.setDescription(description.getDescription());
+			index.setName(description.getName());
+			if(product.getManufacturer()!=null) {
+				index.setManufacturer(String.valueOf(product.getManufacturer().getId()));
+			}
+			if(price!=null) {
+				index.setPrice(price.getFinalPrice().doubleValue());
+			}
+			index.setHighlight(description.getProductHighlight());
+			if(!StringUtils.isBlank(description.getMetatagKeywords())){
+				String[] tags = description.getMetatagKeywords().split(",");
+				@SuppressWarnings("unchecked")
+				List<String> tagsList = new ArrayList(Arrays.asList(tags));
+				index.setTags(tagsList);
+			}
+
+			if(categoryList!=null) {
+				index.setCategories(new ArrayList<String>(categoryList));
+			}
+
+			indexProducts.add(index);
+		}
+		return indexProducts;
+	}
+
+}
@@ -0,0 +1,41 @@
+package com.salesmanager.core.business.services.search;
+
+import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.model.merchant.MerchantStore;
+
+/**
+ * Rebuilds the product indexes of a store in the background. Products are
+ * read by chunks of ids and written to new indexes of the search backend
+ * (see {@link ReindexTarget}), the new indexes replace the store indexes
+ * once every product is written so searches keep using the previous
+ * indexes meanwhile. The job state is saved with the store configurations,
+ * a job stopped by a failure or a restart resumes from the last chunk
+ * written.
+ */
+public interface ProductReindexService {
+
+	/**
+	 * Starts a reindex of the store, resumes it from the last chunk written
+	 * if the previous reindex failed
+	 * @param store
+	 * @return status of the job started or already running
+	 * @throws ServiceException when product indexing is disabled
+	 */
+	ReindexStatus reindex(MerchantStore store) throws ServiceException;
+
+	/**
+	 * @param store
+	 * @return status of the last reindex of the store, null if none
+	 */
+	ReindexStatus getStatus(MerchantStore store);
+
+	/**
+	 * Removes a deleted product from the indexes of the reindex of the store
+	 * in progress, on any server, so the product does not come back when
+	 * they replace the store indexes
+	 * @param store
+	 * @param productId
+	 */
+	void deleted(MerchantStore store, Long productId);
+
+}
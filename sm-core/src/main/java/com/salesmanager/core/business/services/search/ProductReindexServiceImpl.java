@@ -0,0 +1,384 @@
+package com.salesmanager.core.business.services.search;
+
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.inject.Inject;
+
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.salesmanager.core.business.constants.Constants;
+import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.business.repositories.catalog.product.ProductRepository;
+import com.salesmanager.core.business.repositories.system.MerchantConfigurationRepository;
+import com.salesmanager.core.business.services.search.ReindexStatus.State;
+import com.salesmanager.core.business.utils.CoreConfiguration;
+import com.salesmanager.core.model.catalog.product.Product;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.search.IndexProduct;
+import com.salesmanager.core.model.system.MerchantConfiguration;
+import com.salesmanager.core.model.system.MerchantConfigurationType;
+
+@Service("productReindexService")
+public class ProductReindexServiceImpl implements ProductReindexService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ProductReindexServiceImpl.class);
+
+	private final static String INDEX_PRODUCTS = "INDEX_PRODUCTS";
+
+	/** merchant configuration holding the job of a store **/
+	private final static String JOB_CONFIGURATION = "PRODUCT_REINDEX";
+
+	/** a running job saved more recently runs on another server **/
+	private final static long RUNNING_ELSEWHERE = 5 * 60 * 1000;
+
+	/** products saved by servers whose clock is behind **/
+	private final static long CLOCK_SKEW = 60 * 1000;
+
+	@Inject
+	private ProductRepository productRepository;
+
+	@Inject
+	private MerchantConfigurationRepository merchantConfigurationRepository;
+
+	@Inject
+	private IndexProductBuilder indexProductBuilder;
+
+	@Inject
+	private ReindexTarget target;
+
+	@Inject
+	private PlatformTransactionManager transactionManager;
+
+	@Inject
+	private CoreConfiguration configuration;
+
+	/** products read and written at once **/
+	@Value("${search.reindex.chunkSize:500}")
+	private int chunkSize;
+
+	private final Map<Integer, ReindexJob> jobs = new ConcurrentHashMap<Integer, ReindexJob>();
+
+	private final ObjectMapper mapper = new ObjectMapper();
+
+	private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> {
+		Thread t = new Thread(r, "product-reindex");
+		t.setDaemon(true);
+		return t;
+	});
+
+	@Override
+	public synchronized ReindexStatus reindex(MerchantStore store) throws ServiceException {
+
+		if (configuration.getProperty(INDEX_PRODUCTS) == null
+				|| configuration.getProperty(INDEX_PRODUCTS).equals(Constants.FALSE)) {
+			throw new ServiceException("Product indexing is disabled");
+		}
+
+		ReindexJob job = jobs.get(store.getId());
+		if (job != null && job.state == State.RUNNING) {
+			return job.getStatus();
+		}
+		if (job == null) {
+			job = load(store);
+			if (job != null && job.state == State.RUNNING && System.currentTimeMillis() - job.saved < RUNNING_ELSEWHERE) {
+				return job.getStatus();
+			}
+		}
+		if (job == null || job.state == State.COMPLETED) {
+			job = new ReindexJob(store, new Date());
+		}
+		jobs.put(store.getId(), job);
+		// a failed job, or a job stopped with its server, goes on with the
+		// indexes and the last product it wrote
+		job.start();
+		save(job);
+		ReindexJob started = job;
+		executor.execute(() -> run(started));
+		return job.getStatus();
+	}
+
+	@Override
+	public ReindexStatus getStatus(MerchantStore store) {
+		ReindexJob job = jobs.get(store.getId());
+		if (job == null) {
+			job = load(store);
+		}
+		return job == null ? null : job.getStatus();
+	}
+
+	@Override
+	public void deleted(MerchantStore store, Long productId) {
+		ReindexJob job = jobs.get(store.getId());
+		if (job == null || job.state != State.RUNNING) {
+			// job of another server
+			job = load(store);
+		}
+		if (job == null || job.state != State.RUNNING || job.languages.isEmpty()) {
+			return;
+		}
+		try {
+			target.delete(store, job.suffix, job.languages, Collections.singletonList(productId));
+		} catch (Exception e) {
+			LOGGER.error("Cannot remove product " + productId + " from the indexes of reindex " + job.suffix, e);
+		}
+	}
+
+	private void run(ReindexJob job) {
+		try {
+
+			if (job.total < 0) {
+				job.total = productRepository.countByStore(job.store.getId());
+			}
+
+			List<Long> ids;
+			while (!(ids = productRepository.listIdsByStore(job.store.getId(), job.lastId, PageRequest.of(0, chunkSize))).isEmpty()) {
+				index(job, ids);
+				job.lastId = ids.get(ids.size() - 1);
+				job.processed += ids.size();
+				save(job);
+			}
+
+			// products saved while the job was running may have been read before the change
+			Date published = new Date();
+			indexModified(job, job.created);
+			target.publish(job.store, job.suffix);
+			// saved after the pass above, written to the published indexes
+			indexModified(job, published);
+
+			job.end(State.COMPLETED, null);
+			remove(job);
+			LOGGER.info("Indexed " + job.processed + " products of store " + job.store.getCode() + " in " + job.getStatus().getIndexes().values());
+
+		} catch (Exception e) {
+			LOGGER.error("Product reindex of store " + job.store.getCode() + " stopped after product id " + job.lastId, e);
+			job.end(State.FAILED, e.getMessage());
+			save(job);
+		}
+	}
+
+	private void indexModified(ReindexJob job, Date since) throws Exception {
+		List<Long> modified = productRepository.listIdsModifiedSince(job.store.getId(), new Date(since.getTime() - CLOCK_SKEW));
+		for (int i = 0; i < modified.size(); i += chunkSize) {
+			index(job, modified.subList(i, Math.min(i + chunkSize, modified.size())));
+		}
+	}
+
+	/**
+	 * Products of a chunk are loaded in their own read only transaction, the
+	 * persistence context and the products are released before the next chunk.
+	 * Products deleted while the chunk was written are removed again.
+	 */
+	private void index(ReindexJob job, List<Long> ids) throws Exception {
+
+		TransactionTemplate template = new TransactionTemplate(transactionManager);
+		template.setReadOnly(true);
+
+		List<IndexProduct> documents = template.execute(status -> {
+			List<IndexProduct> products = new ArrayList<IndexProduct>();
+			for (Product product : productRepository.listByIds(new LinkedHashSet<Long>(ids))) {
+				try {
+					products.addAll(indexProductBuilder.build(job.store, product));
+				} catch (ServiceException e) {
+					LOGGER.error("Cannot build index document of product " + product.getId(), e);
+					job.failures++;
+				}
+			}
+			return products;
+		});
+
+		if (!documents.isEmpty()) {
+			for (IndexProduct document : documents) {
+				job.languages.add(document.getLang());
+			}
+			job.failures += target.write(job.store, job.suffix, documents);
+			job.documents += documents.size();
+		}
+
+		// deletions made while the chunk was read are not seen by deleted()
+		Set<Long> existing = new HashSet<Long>(productRepository.listExistingIds(ids));
+		List<Long> removed = new ArrayList<Long>();
+		for (Long id : ids) {
+			if (!existing.contains(id)) {
+				removed.add(id);
+			}
+		}
+		if (!removed.isEmpty() && !job.languages.isEmpty()) {
+			target.delete(job.store, job.suffix, job.languages, removed);
+		}
+	}
+
+	private ReindexJob load(MerchantStore store) {
+		MerchantConfiguration configuration = merchantConfigurationRepository.findByMerchantStoreAndKey(store.getId(), JOB_CONFIGURATION);
+		if (configuration == null || StringUtils.isBlank(configuration.getValue())) {
+			return null;
+		}
+		try {
+			return new ReindexJob(store, mapper.<Map<String, Object>>readValue(configuration.getValue(), new TypeReference<Map<String, Object>>() {}));
+		} catch (Exception e) {
+			LOGGER.error("Cannot read the reindex of store " + store.getCode(), e);
+			return null;
+		}
+	}
+
+	private void save(ReindexJob job) {
+		try {
+			MerchantConfiguration configuration = merchantConfigurationRepository.findByMerchantStoreAndKey(job.store.getId(), JOB_CONFIGURATION);
+			if (configuration == null) {
+				configuration = new MerchantConfiguration();
+				configuration.setMerchantStore(job.store);
+				configuration.setKey(JOB_CONFIGURATION);
+				configuration.setMerchantConfigurationType(MerchantConfigurationType.INTEGRATION);
+			}
+			job.saved = System.currentTimeMillis();
+			configuration.setValue(mapper.writeValueAsString(job.toMap()));
+			merchantConfigurationRepository.save(configuration);
+		} catch (Exception e) {
+			LOGGER.error("Cannot save the reindex of store " + job.store.getCode(), e);
+		}
+	}
+
+	private void remove(ReindexJob job) {
+		try {
+			MerchantConfiguration configuration = merchantConfigurationRepository.findByMerchantStoreAndKey(job.store.getId(), JOB_CONFIGURATION);
+			if (configuration != null) {
+				merchantConfigurationRepository.delete(configuration);
+			}
+		} catch (Exception e) {
+			LOGGER.error("Cannot remove the reindex of store " + job.store.getCode(), e);
+		}
+	}
+
+	private static long number(Map<String, Object> job, String name) {
+		Object value = job.get(name);
+		return value == null ? 0 : ((Number) value).longValue();
+	}
+
+	private class ReindexJob {
+
+		private final MerchantStore store;
+		private final Date created;
+		private final String suffix;
+		private final Set<String> languages = ConcurrentHashMap.newKeySet();
+
+		private volatile State state;
+		private volatile long total = -1;
+		private volatile long lastId = 0;
+		private volatile long processed;
+		private volatile long documents;
+		private volatile long failures;
+		private volatile String message;
+		private volatile long started;
+		private volatile long processedAtStart;
+		private volatile Date ended;
+		private volatile long saved;
+
+		ReindexJob(MerchantStore store, Date created) {
+			this.store = store;
+			this.created = created;
+			this.suffix = new SimpleDateFormat("yyyyMMddHHmmss").format(created);
+		}
+
+		/**
+		 * Job saved by {@link #toMap()}
+		 */
+		@SuppressWarnings("unchecked")
+		ReindexJob(MerchantStore store, Map<String, Object> job) {
+			this(store, new Date(number(job, "created")));
+			state = State.valueOf((String) job.get("state"));
+			total = number(job, "total");
+			lastId = number(job, "lastId");
+			processed = number(job, "processed");
+			documents = number(job, "documents");
+			failures = number(job, "failures");
+			message = (String) job.get("message");
+			started = number(job, "started");
+			processedAtStart = number(job, "processedAtStart");
+			ended = job.get("ended") == null ? null : new Date(number(job, "ended"));
+			saved = number(job, "saved");
+			languages.addAll((Collection<String>) job.get("languages"));
+		}
+
+		Map<String, Object> toMap() {
+			Map<String, Object> job = new LinkedHashMap<String, Object>();
+			job.put("created", created.getTime());
+			job.put("state", state.name());
+			job.put("total", total);
+			job.put("lastId", lastId);
+			job.put("processed", processed);
+			job.put("documents", documents);
+			job.put("failures", failures);
+			job.put("message", message);
+			job.put("started", started);
+			job.put("processedAtStart", processedAtStart);
+			job.put("ended", ended == null ? null : ended.getTime());
+			job.put("saved", saved);
+			job.put("languages", new ArrayList<String>(languages));
+			return job;
+		}
+
+		void start() {
+			state = State.RUNNING;
+			message = null;
+			ended = null;
+			started = System.currentTimeMillis();
+			processedAtStart = processed;
+		}
+
+		void end(State state, String message) {
+			this.message = message;
+			this.ended = new Date();
+			this.state = state;
+		}
+
+		ReindexStatus getStatus() {
+			ReindexStatus status = new ReindexStatus();
+			status.setStore(store.getCode());
+			status.setState(state);
+			status.setTotal(Math.max(total, 0));
+			status.setProcessed(processed);
+			status.setDocuments(documents);
+			status.setFailures(failures);
+			status.setStarted(created);
+			status.setEnded(ended);
+			status.setMessage(message);
+			Map<String, String> indexes = new TreeMap<String, String>();
+			for (String language : languages) {
+				indexes.put(language, target.getIndexName(store, language, suffix));
+			}
+			status.setIndexes(indexes);
+
+			long elapsed = (ended == null ? System.currentTimeMillis() : ended.getTime()) - started;
+			if (elapsed > 0) {
+				status.setRate((processed - processedAtStart) * 1000d / elapsed);
+			}
+			if (state == State.RUNNING && status.getRate() > 0 && total >= 0) {
+				status.setEta((long) (Math.max(total - processed, 0) / status.getRate()));
+			}
+			return status;
+		}
+	}
+
+}
@@ -0,0 +1,127 @@
+package com.salesmanager.core.business.services.search;
+
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * Progress of a full catalog reindex of a store at the time it was read
+ */
+public class ReindexStatus {
+
+	public enum State {
+		RUNNING, COMPLETED, FAILED
+	}
+
+	private String store;
+	private State state;
+	private long total;
+	private long processed;
+	private long documents;
+	private long failures;
+	private Date started;
+	private Date ended;
+	/** products by second **/
+	private double rate;
+	/** seconds, -1 when unknown **/
+	private long eta = -1;
+	private String message;
+	/** language - index written **/
+	private Map<String, String> indexes;
+
+	public String getStore() {
+		return store;
+	}
+
+	public void setStore(String store) {
+		this.store = store;
+	}
+
+	public State getState() {
+		return state;
+	}
+
+	public void setState(State state) {
+		this.state = state;
+	}
+
+	public long getTotal() {
+		return total;
+	}
+
+	public void setTotal(long total) {
+		this.total = total;
+	}
+
+	public long getProcessed() {
+		return processed;
+	}
+
+	public void setProcessed(long processed) {
+		this.processed = processed;
+	}
+
+	public long getDocuments() {
+		return documents;
+	}
+
+	public void setDocuments(long documents) {
+		this.documents = documents;
+	}
+
+	public long getFailures() {
+		return failures;
+	}
+
+	public void setFailures(long failures) {
+		this.failures = failures;
+	}
+
+	public Date getStarted() {
+		return started;
+	}
+
+	public void setStarted(Date started) {
+		this.started = started;
+	}
+
+	public Date getEnded() {
+		return ended;
+	}
+
+	public void setEnded(Date ended) {
+		this.ended = ended;
+	}
+
+	public double getRate() {
+		return rate;
+	}
+
+	public void setRate(double rate) {
+		this.rate = rate;
+	}
+
+	public long getEta() {
+		return eta;
+	}
+
+	public void setEta(long eta) {
+		this.eta = eta;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	public void setMessage(String message) {
+		this.message = message;
+	}
+
+	public Map<String, String> getIndexes() {
+		return indexes;
+	}
+
+	public void setIndexes(Map<String, String> indexes) {
+		this.indexes = indexes;
+	}
+
+}
@@ -0,0 +1,55 @@
+package com.salesmanager.core.business.services.search;
+
+import java.util.Collection;
+import java.util.List;
+
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.search.IndexProduct;
+
+/**
+ * Indexes of the search backend a full reindex writes to. A reindex job
+ * writes to indexes of its own, identified by the job name, which replace
+ * the store indexes once published. Documents written or removed once
+ * the job published go to the published indexes.
+ */
+public interface ReindexTarget {
+
+	/**
+	 * Writes documents to the indexes of a job, creating them on first use.
+	 * Written documents are kept when the job fails and resumes
+	 * @param store
+	 * @param job
+	 * @param documents
+	 * @return number of documents rejected
+	 * @throws Exception
+	 */
+	int write(MerchantStore store, String job, List<IndexProduct> documents) throws Exception;
+
+	/**
+	 * Removes products from the existing indexes of a job
+	 * @param store
+	 * @param job
+	 * @param languages languages of the indexes
+	 * @param ids product ids
+	 * @throws Exception
+	 */
+	void delete(MerchantStore store, String job, Collection<String> languages, Collection<Long> ids) throws Exception;
+
+	/**
+	 * Makes the indexes written by a job the ones searched and drops the
+	 * indexes they replace
+	 * @param store
+	 * @param job
+	 * @throws Exception
+	 */
+	void publish(MerchantStore store, String job) throws Exception;
+
+	/**
+	 * @param store
+	 * @param language
+	 * @param job
+	 * @return name of the index of a language written by a job
+	 */
+	String getIndexName(MerchantStore store, String language, String job);
+
+}
@@ -1,8 +1,11 @@
 package com.salesmanager.core.business.services.search;
 
+import java.util.List;
+
 import com.salesmanager.core.business.exception.ServiceException;
 import com.salesmanager.core.model.catalog.product.Product;
 import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.search.IndexProduct;
 import com.salesmanager.core.model.search.SearchKeywords;
 import com.salesmanager.core.model.search.SearchResponse;
 
@@ -17,6 +20,16 @@ public interface SearchService {
 	 */
 	void index(MerchantStore store, Product product) throws ServiceException;
 
+	/**
+	 * Index documents of a product, one for each language of the product
+	 * descriptions
+	 * @param store
+	 * @param product
+	 * @return
+	 * @throws ServiceException
+	 */
+	List<IndexProduct> getIndexProducts(MerchantStore store, Product product) throws ServiceException;
+
 	/**
 	 * Deletes an index in the appropriate language. Must be invoked when a product is deleted
 	 * @param store
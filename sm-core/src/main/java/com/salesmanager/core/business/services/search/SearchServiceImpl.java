@@ -9,20 +9,17 @@ import java.util.Map;
 import java.util.Set;
 import javax.inject.Inject;
 import org.apache.commons.collections4.CollectionUtils;
-import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import com.google.gson.JsonNull;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import com.salesmanager.core.business.constants.Constants;
 import com.salesmanager.core.business.exception.ServiceException;
-import com.salesmanager.core.business.services.catalog.product.PricingService;
 import com.salesmanager.core.business.utils.CoreConfiguration;
-import com.salesmanager.core.model.catalog.category.Category;
 import com.salesmanager.core.model.catalog.product.Product;
 import com.salesmanager.core.model.catalog.product.description.ProductDescription;
-import com.salesmanager.core.model.catalog.product.price.FinalPrice;
 import com.salesmanager.core.model.merchant.MerchantStore;
 import com.salesmanager.core.model.search.IndexProduct;
 import com.salesmanager.core.model.search.SearchEntry;
@@ -36,6 +33,7 @@ import com.shopizer.search.services.SearchResponse;
 
 
 @Service("productSearchService")
+@ConditionalOnProperty(name = "search.backend", havingValue = "elasticsearch", matchIfMissing = true)
 public class SearchServiceImpl implements com.salesmanager.core.business.services.search.SearchService {
 	
 	private static final Logger LOGGER = LoggerFactory.getLogger(SearchServiceImpl.class);
@@ -49,7 +47,10 @@ public class SearchServiceImpl implements com.salesmanager.core.business.service
 	private com.shopizer.search.services.SearchService searchService;
 	
 	@Inject
-	private PricingService pricingService;
+	private IndexProductBuilder indexProductBuilder;
+
+	@Inject
+	private ProductReindexService productReindexService;
 	
 	@Inject
 	private CoreConfiguration configuration;
@@ -60,7 +61,6 @@ public class SearchServiceImpl implements com.salesmanager.core.business.service
 	}
 
 	@Async
-	@SuppressWarnings("rawtypes")
 	public void index(MerchantStore store, Product product)
 			throws ServiceException {
 		
@@ -101,56 +101,31 @@ public class SearchServiceImpl implements com.salesmanager.core.business.service
 			return;
 		}
 		
-		FinalPrice price = pricingService.calculateProductPrice(product);
-
-		
-		Set<ProductDescription> descriptions = product.getDescriptions();
-		for(ProductDescription description : descriptions) {
-			
-			StringBuilder collectionName = new StringBuilder();
-			collectionName.append(PRODUCT_INDEX_NAME).append(UNDERSCORE).append(description.getLanguage().getCode()).append(UNDERSCORE).append(store.getCode().toLowerCase());
-			
-			IndexProduct index = new IndexProduct();
-
-			index.setId(String.valueOf(product.getId()));
-			index.setStore(store.getCode().toLowerCase());
-			index.setLang(description.getLanguage().getCode());
-			index.setAvailable(product.isAvailable());
-			index.setDescription(description.getDescription());
-			index.setName(description.getName());
-			if(product.getManufacturer()!=null) {
-				index.setManufacturer(String.valueOf(product.getManufacturer().getId()));
-			}
-			if(price!=null) {
-				index.setPrice(price.getFinalPrice().doubleValue());
-			}
-			index.setHighlight(description.getProductHighlight());
-			if(!StringUtils.isBlank(description.getMetatagKeywords())){
-				String[] tags = description.getMetatagKeywords().split(",");
-				@SuppressWarnings("unchecked")
-				List<String> tagsList = new ArrayList(Arrays.asList(tags));
-				index.setTags(tagsList);
-			}
-
-			
-			Set<Category> categories = product.getCategories();
-			if(!CollectionUtils.isEmpty(categories)) {
-				List<String> categoryList = new ArrayList<String>();
-				for(Category category : categories) {
-					categoryList.add(category.getCode());
-				}
-				index.setCategories(categoryList);
-			}
+		for(IndexProduct index : getIndexProducts(store, product)) {
 			
 			String jsonString = index.toJSONString();
 			try {
-				searchService.index(jsonString, collectionName.toString());
+				searchService.index(jsonString, indexName(store, index.getLang()));
 			} catch (Exception e) {
 				throw new ServiceException("Cannot index product id [" + product.getId() + "], " + e.getMessage() ,e);
 			}
 		}
 	}
 
+	@Override
+	public List<IndexProduct> getIndexProducts(MerchantStore store, Product product) throws ServiceException {
+		return indexProductBuilder.build(store, product);
+	}
+
+	/**
+	 * product_<LANGUAGE_CODE>_<MERCHANT_CODE>
+	 */
+	static String indexName(MerchantStore store, String languageCode) {
+		StringBuilder collectionName = new StringBuilder();
+		collectionName.append(PRODUCT_INDEX_NAME).append(UNDERSCORE).append(languageCode).append(UNDERSCORE).append(store.getCode().toLowerCase());
+		return collectionName.toString();
+	}
+
 
 	public void deleteIndex(MerchantStore store, Product product) throws ServiceException {
 		
@@ -170,6 +145,8 @@ public class SearchServiceImpl implements com.salesmanager.core.business.service
 				LOGGER.error("Cannot delete index for product id [" + product.getId() + "], ",e);
 			}
 		}
+
+		productReindexService.deleted(store, product.getId());
 	
 	}
 	
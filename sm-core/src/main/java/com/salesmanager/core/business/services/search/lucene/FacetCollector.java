@@ -0,0 +1,87 @@
+package com.salesmanager.core.business.services.search.lucene;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.lucene.index.DocValues;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.search.ScoreMode;
+import org.apache.lucene.search.SimpleCollector;
+
+/**
+ * Counts the values of doc values fields over the matching documents.
+ * Documents are counted by ordinal within a segment, the ordinals are
+ * resolved to values once per segment.
+ */
+class FacetCollector extends SimpleCollector {
+
+	private final String[] fields;
+	/** field - value - count **/
+	private final Map<String, Map<String, Integer>> counts = new LinkedHashMap<String, Map<String, Integer>>();
+
+	private SortedSetDocValues[] values;
+	private int[][] ordinals;
+
+	FacetCollector(String... fields) {
+		this.fields = fields;
+		for (String field : fields) {
+			counts.put(field, new TreeMap<String, Integer>());
+		}
+	}
+
+	@Override
+	protected void doSetNextReader(LeafReaderContext context) throws IOException {
+		flush();
+		values = new SortedSetDocValues[fields.length];
+		ordinals = new int[fields.length][];
+		for (int i = 0; i < fields.length; i++) {
+			values[i] = DocValues.getSortedSet(context.reader(), fields[i]);
+			ordinals[i] = new int[(int) values[i].getValueCount()];
+		}
+	}
+
+	@Override
+	public void collect(int doc) throws IOException {
+		for (int i = 0; i < fields.length; i++) {
+			if (values[i].advanceExact(doc)) {
+				long ord;
+				while ((ord = values[i].nextOrd()) != SortedSetDocValues.NO_MORE_ORDS) {
+					ordinals[i][(int) ord]++;
+				}
+			}
+		}
+	}
+
+	private void flush() throws IOException {
+		if (values == null) {
+			return;
+		}
+		for (int i = 0; i < fields.length; i++) {
+			Map<String, Integer> fieldCounts = counts.get(fields[i]);
+			for (int ord = 0; ord < ordinals[i].length; ord++) {
+				if (ordinals[i][ord] > 0) {
+					fieldCounts.merge(values[i].lookupOrd(ord).utf8ToString(), ordinals[i][ord], Integer::sum);
+				}
+			}
+		}
+		values = null;
+	}
+
+	@Override
+	public ScoreMode scoreMode() {
+		return ScoreMode.COMPLETE_NO_SCORES;
+	}
+
+	/**
+	 * Counts of the values found in each field, once every segment is
+	 * collected
+	 */
+	Map<String, Map<String, Integer>> getCounts() throws IOException {
+		flush();
+		return counts;
+	}
+
+}
@@ -0,0 +1,301 @@
+package com.salesmanager.core.business.services.search.lucene;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import com.salesmanager.core.business.services.search.ReindexTarget;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.search.IndexProduct;
+
+/**
+ * Product indexes of the embedded search backend, one directory by store
+ * and language under search.lucene.path. Indexes are opened on first use
+ * and committed every search.lucene.commitInterval milliseconds, their
+ * autocomplete suggesters are built again search.lucene.suggestDelay
+ * milliseconds after a write.
+ *
+ * A reindex writes to a new directory, <lang>-<job>, which replaces the
+ * language directory once published. The directory searched is recorded
+ * in <lang>.current. The replaced index is deleted once the searches using
+ * it gave it back.
+ */
+@Component
+@ConditionalOnProperty(name = "search.backend", havingValue = "lucene")
+public class LuceneIndexes implements ReindexTarget, Closeable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(LuceneIndexes.class);
+
+	private final static String CURRENT = ".current";
+
+	@Value("${search.lucene.path:./files/search}")
+	private File path;
+
+	@Value("${search.lucene.commitInterval:10000}")
+	private long commitInterval;
+
+	@Value("${search.lucene.suggestDelay:1000}")
+	private long suggestDelay;
+
+	/** store_lang - index searched **/
+	private final Map<String, ProductIndex> indexes = new ConcurrentHashMap<String, ProductIndex>();
+
+	/** store_lang_job - index written by a reindex **/
+	private final Map<String, ProductIndex> building = new ConcurrentHashMap<String, ProductIndex>();
+
+	/** commits and suggester builds **/
+	private ScheduledExecutorService background;
+
+	public LuceneIndexes() {
+	}
+
+	public LuceneIndexes(File path) {
+		this.path = path;
+	}
+
+	@PostConstruct
+	public void init() {
+		background = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "lucene-index");
+			t.setDaemon(true);
+			return t;
+		});
+		if (commitInterval > 0) {
+			background.scheduleWithFixedDelay(this::commit, commitInterval, commitInterval, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * Index searched for a store and a language, empty until products are
+	 * indexed. The index stays open until given back with
+	 * {@link ProductIndex#decRef()}, also when a reindex replaces it.
+	 * @param store store code, lower case
+	 * @param language
+	 */
+	public ProductIndex getIndex(String store, String language) throws IOException {
+		while (true) {
+			ProductIndex index;
+			try {
+				index = indexes.computeIfAbsent(store + "_" + language, k -> {
+					try {
+						return newIndex(current(store, language), language);
+					} catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+			} catch (UncheckedIOException e) {
+				throw e.getCause();
+			}
+			// otherwise replaced by a reindex meanwhile
+			if (index.incRef()) {
+				return index;
+			}
+		}
+	}
+
+	/**
+	 * Commits the changes of every index
+	 */
+	public void commit() {
+		for (ProductIndex index : indexes.values()) {
+			if (!index.incRef()) {
+				continue;
+			}
+			try {
+				index.commit();
+			} catch (Exception e) {
+				LOGGER.error("Cannot commit index " + index.getPath(), e);
+			} finally {
+				try {
+					index.decRef();
+				} catch (IOException e) {
+					LOGGER.error("Cannot close index " + index.getPath(), e);
+				}
+			}
+		}
+	}
+
+	@Override
+	public int write(MerchantStore store, String job, List<IndexProduct> documents) throws IOException {
+
+		Map<String, List<IndexProduct>> languages = new HashMap<String, List<IndexProduct>>();
+		for (IndexProduct document : documents) {
+			languages.computeIfAbsent(document.getLang(), k -> new ArrayList<IndexProduct>()).add(document);
+		}
+
+		for (Map.Entry<String, List<IndexProduct>> language : languages.entrySet()) {
+			ProductIndex index = jobIndex(store, language.getKey(), job, true);
+			try {
+				index.update(language.getValue());
+				// kept when the job fails and resumes
+				index.commit();
+			} finally {
+				index.decRef();
+			}
+		}
+		return 0;
+	}
+
+	@Override
+	public void delete(MerchantStore store, String job, Collection<String> languages, Collection<Long> ids) throws IOException {
+
+		for (String language : languages) {
+			ProductIndex index = jobIndex(store, language, job, false);
+			if (index == null) {
+				continue;
+			}
+			try {
+				for (Long id : ids) {
+					index.delete(String.valueOf(id));
+				}
+				index.commit();
+			} finally {
+				index.decRef();
+			}
+		}
+	}
+
+	/**
+	 * Index of a language written by a job, the searched index once the job
+	 * published it. To give back with {@link ProductIndex#decRef()}
+	 * @param create creates the index when the job did not write to it yet
+	 * @return null when the index does not exist and is not created
+	 */
+	private ProductIndex jobIndex(MerchantStore store, String language, String job, boolean create) throws IOException {
+
+		String name = getIndexName(store, language, job);
+		String key = key(store) + "_" + language + "_" + job;
+		synchronized (building) {
+			ProductIndex published = indexes.get(key(store) + "_" + language);
+			if (published != null && published.getPath().getName().equals(name) && published.incRef()) {
+				return published;
+			}
+			ProductIndex index = building.get(key);
+			if (index == null) {
+				// a failed job resumes with the directory it created
+				File directory = new File(storeDirectory(key(store)), name);
+				if (!create && !directory.exists()) {
+					return null;
+				}
+				index = newIndex(directory, language);
+				building.put(key, index);
+			}
+			index.incRef();
+			return index;
+		}
+	}
+
+	@Override
+	public void publish(MerchantStore store, String job) throws IOException {
+
+		String prefix = key(store) + "_";
+		String suffix = "_" + job;
+
+		List<String> keys = new ArrayList<String>();
+		for (String key : building.keySet()) {
+			if (key.startsWith(prefix) && key.endsWith(suffix)) {
+				keys.add(key);
+			}
+		}
+
+		for (String key : keys) {
+			String language = key.substring(prefix.length(), key.length() - suffix.length());
+			ProductIndex previous;
+			// writes of the job go on with the published index
+			synchronized (building) {
+				ProductIndex index = building.remove(key);
+				index.commit();
+				index.refresh();
+
+				Path current = new File(storeDirectory(key(store)), language + CURRENT).toPath();
+				Path next = new File(storeDirectory(key(store)), language + CURRENT + ".tmp").toPath();
+				Files.write(next, index.getPath().getName().getBytes(StandardCharsets.UTF_8));
+				Files.move(next, current, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+				previous = indexes.put(key(store) + "_" + language, index);
+			}
+			if (previous != null) {
+				// deleted once the searches in progress gave it back
+				previous.retire();
+			}
+		}
+	}
+
+	@Override
+	public String getIndexName(MerchantStore store, String language, String job) {
+		return language + "-" + job;
+	}
+
+	private ProductIndex newIndex(File directory, String language) throws IOException {
+		return new ProductIndex(directory, language, background, suggestDelay);
+	}
+
+	private File current(String store, String language) throws IOException {
+		File directory = storeDirectory(store);
+		File current = new File(directory, language + CURRENT);
+		if (current.exists()) {
+			return new File(directory, new String(Files.readAllBytes(current.toPath()), StandardCharsets.UTF_8).trim());
+		}
+		return new File(directory, language);
+	}
+
+	private File storeDirectory(String store) throws IOException {
+		File directory = new File(path, store);
+		Files.createDirectories(directory.toPath());
+		return directory;
+	}
+
+	private String key(MerchantStore store) {
+		return store.getCode().toLowerCase();
+	}
+
+	@PreDestroy
+	@Override
+	public void close() {
+		if (background != null) {
+			background.shutdown();
+		}
+		for (ProductIndex index : indexes.values()) {
+			try {
+				index.commit();
+				index.close();
+			} catch (Exception e) {
+				LOGGER.error("Cannot close index " + index.getPath(), e);
+			}
+		}
+		indexes.clear();
+		for (ProductIndex index : building.values()) {
+			try {
+				index.commit();
+				index.close();
+			} catch (Exception e) {
+				LOGGER.error("Cannot close index " + index.getPath(), e);
+			}
+		}
+		building.clear();
+	}
+
+}
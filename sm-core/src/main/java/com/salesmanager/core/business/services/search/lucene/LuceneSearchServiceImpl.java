@@ -0,0 +1,250 @@
+package com.salesmanager.core.business.services.search.lucene;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.inject.Inject;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.lucene.queryparser.simple.SimpleQueryParser;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.MultiCollector;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.TopScoreDocCollector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import com.salesmanager.core.business.constants.Constants;
+import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.business.services.search.IndexProductBuilder;
+import com.salesmanager.core.business.services.search.ProductReindexService;
+import com.salesmanager.core.business.services.search.SearchService;
+import com.salesmanager.core.business.utils.CoreConfiguration;
+import com.salesmanager.core.model.catalog.product.Product;
+import com.salesmanager.core.model.catalog.product.description.ProductDescription;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.search.IndexProduct;
+import com.salesmanager.core.model.search.SearchEntry;
+import com.salesmanager.core.model.search.SearchFacet;
+import com.salesmanager.core.model.search.SearchKeywords;
+import com.salesmanager.core.model.search.SearchResponse;
+
+/**
+ * Product search on Lucene indexes of the local disk, used instead of the
+ * elasticsearch cluster when search.backend=lucene. Saved products are
+ * searchable as soon as they are indexed, without waiting for a commit.
+ */
+@Service("productSearchService")
+@ConditionalOnProperty(name = "search.backend", havingValue = "lucene")
+public class LuceneSearchServiceImpl implements SearchService {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(LuceneSearchServiceImpl.class);
+
+	private final static String INDEX_PRODUCTS = "INDEX_PRODUCTS";
+	/** keyword_<LANGUAGE_CODE>_<MERCHANT_CODE> **/
+	private final static String KEYWORD_COLLECTION = "keyword_";
+
+	private final static Map<String, Float> FIELDS = new LinkedHashMap<String, Float>();
+	static {
+		FIELDS.put(ProductIndex.NAME, 3f);
+		FIELDS.put(ProductIndex.TAGS, 2f);
+		FIELDS.put(ProductIndex.DESCRIPTION, 1f);
+	}
+
+	@Inject
+	private LuceneIndexes indexes;
+
+	@Inject
+	private IndexProductBuilder indexProductBuilder;
+
+	@Inject
+	private ProductReindexService productReindexService;
+
+	@Inject
+	private CoreConfiguration configuration;
+
+	public LuceneSearchServiceImpl() {
+	}
+
+	/**
+	 * Search over indexes managed outside of spring
+	 */
+	public LuceneSearchServiceImpl(LuceneIndexes indexes) {
+		this.indexes = indexes;
+	}
+
+	@Override
+	public void initService() {
+		//indexes are opened on first use
+	}
+
+	@Async
+	@Override
+	public void index(MerchantStore store, Product product) throws ServiceException {
+
+		if(!indexProducts()) {
+			return;
+		}
+
+		Map<String, List<IndexProduct>> languages = new HashMap<String, List<IndexProduct>>();
+		for(IndexProduct document : getIndexProducts(store, product)) {
+			languages.computeIfAbsent(document.getLang(), k -> new ArrayList<IndexProduct>()).add(document);
+		}
+
+		try {
+			for(Map.Entry<String, List<IndexProduct>> language : languages.entrySet()) {
+				ProductIndex index = indexes.getIndex(store.getCode().toLowerCase(), language.getKey());
+				try {
+					index.update(language.getValue());
+					index.refresh();
+				} finally {
+					index.decRef();
+				}
+			}
+		} catch (IOException e) {
+			throw new ServiceException("Cannot index product id [" + product.getId() + "], " + e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public List<IndexProduct> getIndexProducts(MerchantStore store, Product product) throws ServiceException {
+		return indexProductBuilder.build(store, product);
+	}
+
+	@Override
+	public void deleteIndex(MerchantStore store, Product product) throws ServiceException {
+
+		if(!indexProducts()) {
+			return;
+		}
+
+		Set<ProductDescription> descriptions = product.getDescriptions();
+		for(ProductDescription description : descriptions) {
+			try {
+				ProductIndex index = indexes.getIndex(store.getCode().toLowerCase(), description.getLanguage().getCode());
+				try {
+					index.delete(String.valueOf(product.getId()));
+					index.refresh();
+				} finally {
+					index.decRef();
+				}
+			} catch (Exception e) {
+				LOGGER.error("Cannot delete index for product id [" + product.getId() + "], ", e);
+			}
+		}
+
+		productReindexService.deleted(store, product.getId());
+	}
+
+	@Override
+	public SearchKeywords searchForKeywords(String collectionName, String word, int entriesCount) throws ServiceException {
+
+		SearchKeywords keywords = new SearchKeywords();
+		if(StringUtils.isBlank(word) || !collectionName.startsWith(KEYWORD_COLLECTION)) {
+			return keywords;
+		}
+
+		String name = collectionName.substring(KEYWORD_COLLECTION.length());
+		int separator = name.indexOf('_');
+		if(separator < 0) {
+			return keywords;
+		}
+
+		try {
+			ProductIndex index = indexes.getIndex(name.substring(separator + 1), name.substring(0, separator));
+			try {
+				keywords.setKeywords(index.suggest(word, entriesCount));
+			} finally {
+				index.decRef();
+			}
+			return keywords;
+		} catch (Exception e) {
+			LOGGER.error("Error while searching keywords " + word, e);
+			throw new ServiceException(e);
+		}
+	}
+
+	@Override
+	public SearchResponse search(MerchantStore store, String languageCode, String term, int entriesCount, int startIndex) throws ServiceException {
+
+		try {
+
+			ProductIndex index = indexes.getIndex(store.getCode().toLowerCase(), languageCode);
+			try {
+				return search(index, term, entriesCount, startIndex);
+			} finally {
+				index.decRef();
+			}
+
+		} catch (Exception e) {
+			LOGGER.error("Error while searching keywords " + term, e);
+			throw new ServiceException(e);
+		}
+	}
+
+	private SearchResponse search(ProductIndex index, String term, int entriesCount, int startIndex) throws Exception {
+
+		Query query = StringUtils.isBlank(term) ? new MatchAllDocsQuery()
+				: new SimpleQueryParser(index.getAnalyzer(), FIELDS).parse(term);
+
+		IndexSearcher searcher = index.acquire();
+		try {
+
+			TopScoreDocCollector top = TopScoreDocCollector.create(Math.max(startIndex + entriesCount, 1), Integer.MAX_VALUE);
+			FacetCollector facets = new FacetCollector(ProductIndex.CATEGORIES, ProductIndex.MANUFACTURER);
+			searcher.search(query, MultiCollector.wrap(top, facets));
+
+			SearchResponse resp = new SearchResponse();
+			resp.setTotalCount(top.getTotalHits());
+
+			TopDocs docs = top.topDocs(startIndex, entriesCount);
+			List<SearchEntry> entries = new ArrayList<SearchEntry>();
+			for(ScoreDoc doc : docs.scoreDocs) {
+				SearchEntry entry = new SearchEntry();
+				entry.setIndexProduct(ProductIndex.toIndexProduct(searcher.doc(doc.doc)));
+				entries.add(entry);
+			}
+			resp.setEntries(entries);
+			resp.setEntryCount(entries.size());
+
+			Map<String, List<SearchFacet>> searchFacets = new HashMap<String, List<SearchFacet>>();
+			for(Map.Entry<String, Map<String, Integer>> facet : facets.getCounts().entrySet()) {
+				if(facet.getValue().isEmpty()) {
+					continue;
+				}
+				List<SearchFacet> fs = new ArrayList<SearchFacet>();
+				for(Map.Entry<String, Integer> count : facet.getValue().entrySet()) {
+					SearchFacet searchFacet = new SearchFacet();
+					searchFacet.setKey(count.getKey());
+					searchFacet.setName(count.getKey());
+					searchFacet.setCount(count.getValue());
+					fs.add(searchFacet);
+				}
+				searchFacets.put(facet.getKey(), fs);
+			}
+			resp.setFacets(searchFacets);
+
+			return resp;
+
+		} finally {
+			index.release(searcher);
+		}
+	}
+
+	private boolean indexProducts() {
+		return configuration.getProperty(INDEX_PRODUCTS) != null
+				&& !configuration.getProperty(INDEX_PRODUCTS).equals(Constants.FALSE);
+	}
+
+}
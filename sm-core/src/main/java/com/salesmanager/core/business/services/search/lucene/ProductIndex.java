@@ -0,0 +1,436 @@
+package com.salesmanager.core.business.services.search.lucene;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.en.EnglishAnalyzer;
+import org.apache.lucene.analysis.es.SpanishAnalyzer;
+import org.apache.lucene.analysis.fr.FrenchAnalyzer;
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.IndexWriterConfig.OpenMode;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.suggest.InputIterator;
+import org.apache.lucene.search.suggest.Lookup.LookupResult;
+import org.apache.lucene.search.suggest.fst.FSTCompletionLookup;
+import org.apache.lucene.store.ByteBuffersDirectory;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.MMapDirectory;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.salesmanager.core.model.search.IndexProduct;
+
+/**
+ * Product index of a store in one language, in a directory of the local
+ * disk. Writes are visible to searches once the index is refreshed and
+ * durable once committed.
+ * <p>
+ * The index is closed once its owner closed it and every user given it
+ * with {@link #incRef()} gave it back with {@link #decRef()}. The
+ * autocomplete suggester is built again in the background a while after
+ * writes, searches use the previous one meanwhile.
+ */
+public class ProductIndex implements Closeable {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ProductIndex.class);
+
+	static final String ID = "id";
+	static final String NAME = "name";
+	static final String DESCRIPTION = "description";
+	static final String HIGHLIGHT = "highlight";
+	static final String TAGS = "tags";
+	static final String CATEGORIES = "categories";
+	static final String MANUFACTURER = "manufacturer";
+	static final String PRICE = "price";
+	static final String AVAILABLE = "available";
+	static final String STORE = "store";
+	static final String LANG = "lang";
+	/** product name and tags offered by autocomplete **/
+	static final String SUGGEST = "suggest";
+
+	private final File path;
+	private final Analyzer analyzer;
+	private final Directory directory;
+	private final IndexWriter writer;
+	private final SearcherManager searcherManager;
+
+	/** null to build the suggester on the searching thread **/
+	private final ScheduledExecutorService suggesterBuilder;
+	private final long suggesterDelay;
+
+	private volatile FSTCompletionLookup suggester;
+	private volatile boolean suggesterBuilt;
+	private volatile boolean suggesterStale = true;
+	private final AtomicBoolean suggesterScheduled = new AtomicBoolean();
+
+	/** owner and users of the index **/
+	private final AtomicInteger references = new AtomicInteger(1);
+	private volatile boolean deleteOnClose;
+
+	public ProductIndex(File path, String language) throws IOException {
+		this(path, language, null, 0);
+	}
+
+	/**
+	 * @param suggesterBuilder
+	 *            builds the suggester again suggesterDelay milliseconds
+	 *            after a write
+	 */
+	public ProductIndex(File path, String language, ScheduledExecutorService suggesterBuilder, long suggesterDelay)
+			throws IOException {
+		this.path = path;
+		this.suggesterBuilder = suggesterBuilder;
+		this.suggesterDelay = suggesterDelay;
+		this.analyzer = analyzer(language);
+		this.directory = new MMapDirectory(path.toPath());
+		this.writer = new IndexWriter(directory, new IndexWriterConfig(analyzer).setOpenMode(OpenMode.CREATE_OR_APPEND));
+		this.searcherManager = new SearcherManager(writer, null);
+	}
+
+	private static Analyzer analyzer(String language) {
+		if ("en".equals(language)) {
+			return new EnglishAnalyzer();
+		}
+		if ("fr".equals(language)) {
+			return new FrenchAnalyzer();
+		}
+		if ("es".equals(language)) {
+			return new SpanishAnalyzer();
+		}
+		return new StandardAnalyzer();
+	}
+
+	public File getPath() {
+		return path;
+	}
+
+	public Analyzer getAnalyzer() {
+		return analyzer;
+	}
+
+	/**
+	 * Adds or replaces the documents of products
+	 */
+	public void update(Collection<IndexProduct> products) throws IOException {
+		for (IndexProduct product : products) {
+			writer.updateDocument(new Term(ID, product.getId()), toDocument(product));
+		}
+		suggesterChanged();
+	}
+
+	public void delete(String id) throws IOException {
+		writer.deleteDocuments(new Term(ID, id));
+		suggesterChanged();
+	}
+
+	/**
+	 * Opens a new searcher when documents changed since the last refresh,
+	 * without committing them
+	 */
+	public void refresh() throws IOException {
+		searcherManager.maybeRefresh();
+	}
+
+	public void commit() throws IOException {
+		if (writer.hasUncommittedChanges()) {
+			writer.commit();
+		}
+	}
+
+	/**
+	 * Searcher to give back with {@link #release(IndexSearcher)}
+	 */
+	public IndexSearcher acquire() throws IOException {
+		return searcherManager.acquire();
+	}
+
+	public void release(IndexSearcher searcher) throws IOException {
+		searcherManager.release(searcher);
+	}
+
+	/**
+	 * Product names and tags starting with a prefix. The suggester is built
+	 * from the searched documents on the first call, afterwards it is built
+	 * again in the background once the index changed.
+	 */
+	public List<String> suggest(String prefix, int count) throws IOException {
+		FSTCompletionLookup lookup;
+		if (suggesterBuilder != null && suggesterBuilt) {
+			if (suggesterStale) {
+				scheduleSuggester();
+			}
+			lookup = suggester;
+		} else {
+			lookup = suggester();
+		}
+		List<String> keywords = new ArrayList<String>();
+		if (lookup == null) {
+			return keywords;
+		}
+		for (LookupResult result : lookup.lookup(prefix.toLowerCase(Locale.ROOT), false, count)) {
+			keywords.add(result.key.toString());
+		}
+		return keywords;
+	}
+
+	private void suggesterChanged() {
+		suggesterStale = true;
+		scheduleSuggester();
+	}
+
+	/**
+	 * Writes within the delay are taken by the same build
+	 */
+	private void scheduleSuggester() {
+		if (suggesterBuilder == null || !suggesterBuilt || !suggesterScheduled.compareAndSet(false, true)) {
+			return;
+		}
+		try {
+			suggesterBuilder.schedule(this::rebuildSuggester, suggesterDelay, TimeUnit.MILLISECONDS);
+		} catch (RejectedExecutionException e) {
+			suggesterScheduled.set(false);
+		}
+	}
+
+	private void rebuildSuggester() {
+		suggesterScheduled.set(false);
+		if (!incRef()) {
+			return;
+		}
+		try {
+			suggester();
+		} catch (Exception e) {
+			LOGGER.error("Cannot build the suggester of index " + path, e);
+		} finally {
+			try {
+				decRef();
+			} catch (IOException e) {
+				LOGGER.error("Cannot close index " + path, e);
+			}
+		}
+	}
+
+	/**
+	 * null while the index has no keyword
+	 */
+	private synchronized FSTCompletionLookup suggester() throws IOException {
+		if (!suggesterStale) {
+			return suggester;
+		}
+		suggesterStale = false;
+		refresh();
+
+		Set<String> keywords = new TreeSet<String>();
+		IndexSearcher searcher = acquire();
+		try {
+			for (LeafReaderContext leaf : searcher.getIndexReader().leaves()) {
+				LeafReader reader = leaf.reader();
+				Bits live = reader.getLiveDocs();
+				for (int doc = 0; doc < reader.maxDoc(); doc++) {
+					if (live != null && !live.get(doc)) {
+						continue;
+					}
+					for (String keyword : reader.document(doc, Collections.singleton(SUGGEST)).getValues(SUGGEST)) {
+						keywords.add(keyword);
+					}
+				}
+			}
+		} finally {
+			release(searcher);
+		}
+
+		FSTCompletionLookup lookup = null;
+		if (!keywords.isEmpty()) {
+			lookup = new FSTCompletionLookup(new ByteBuffersDirectory(), SUGGEST);
+			lookup.build(new KeywordIterator(keywords.iterator()));
+		}
+		suggester = lookup;
+		suggesterBuilt = true;
+		return lookup;
+	}
+
+	static Document toDocument(IndexProduct product) {
+		Document document = new Document();
+		document.add(new StringField(ID, product.getId(), Field.Store.YES));
+		document.add(new StringField(STORE, product.getStore(), Field.Store.YES));
+		document.add(new StringField(LANG, product.getLang(), Field.Store.YES));
+		document.add(new StringField(AVAILABLE, String.valueOf(product.isAvailable()), Field.Store.YES));
+		if (product.getName() != null) {
+			document.add(new TextField(NAME, product.getName(), Field.Store.YES));
+			document.add(new StoredField(SUGGEST, product.getName().trim().toLowerCase(Locale.ROOT)));
+		}
+		if (product.getDescription() != null) {
+			document.add(new TextField(DESCRIPTION, product.getDescription(), Field.Store.YES));
+		}
+		if (product.getHighlight() != null) {
+			document.add(new StoredField(HIGHLIGHT, product.getHighlight()));
+		}
+		if (product.getPrice() != null) {
+			document.add(new StoredField(PRICE, product.getPrice()));
+		}
+		if (product.getManufacturer() != null) {
+			document.add(new StringField(MANUFACTURER, product.getManufacturer(), Field.Store.YES));
+			document.add(new SortedSetDocValuesField(MANUFACTURER, new BytesRef(product.getManufacturer())));
+		}
+		if (product.getCategories() != null) {
+			for (String category : product.getCategories()) {
+				document.add(new StringField(CATEGORIES, category, Field.Store.YES));
+				document.add(new SortedSetDocValuesField(CATEGORIES, new BytesRef(category)));
+			}
+		}
+		if (product.getTags() != null) {
+			for (String tag : product.getTags()) {
+				if (StringUtils.isBlank(tag)) {
+					continue;
+				}
+				document.add(new TextField(TAGS, tag.trim(), Field.Store.YES));
+				document.add(new StoredField(SUGGEST, tag.trim().toLowerCase(Locale.ROOT)));
+			}
+		}
+		return document;
+	}
+
+	static IndexProduct toIndexProduct(Document document) {
+		IndexProduct product = new IndexProduct();
+		product.setId(document.get(ID));
+		product.setStore(document.get(STORE));
+		product.setLang(document.get(LANG));
+		product.setAvailable(Boolean.parseBoolean(document.get(AVAILABLE)));
+		product.setName(document.get(NAME));
+		product.setDescription(document.get(DESCRIPTION));
+		product.setHighlight(document.get(HIGHLIGHT));
+		product.setManufacturer(document.get(MANUFACTURER));
+		IndexableField price = document.getField(PRICE);
+		if (price != null) {
+			product.setPrice(price.numericValue().doubleValue());
+		}
+		String[] categories = document.getValues(CATEGORIES);
+		if (categories.length > 0) {
+			product.setCategories(Arrays.asList(categories));
+		}
+		String[] tags = document.getValues(TAGS);
+		if (tags.length > 0) {
+			product.setTags(Arrays.asList(tags));
+		}
+		return product;
+	}
+
+	/**
+	 * @return false when the index is already closed
+	 */
+	public boolean incRef() {
+		while (true) {
+			int count = references.get();
+			if (count <= 0) {
+				return false;
+			}
+			if (references.compareAndSet(count, count + 1)) {
+				return true;
+			}
+		}
+	}
+
+	public void decRef() throws IOException {
+		if (references.decrementAndGet() != 0) {
+			return;
+		}
+		searcherManager.close();
+		writer.close();
+		directory.close();
+		if (deleteOnClose) {
+			FileUtils.deleteQuietly(path);
+		}
+	}
+
+	/**
+	 * Closes and deletes the index once its users gave it back
+	 */
+	public void retire() throws IOException {
+		deleteOnClose = true;
+		decRef();
+	}
+
+	/**
+	 * Closes the index once its users gave it back
+	 */
+	@Override
+	public void close() throws IOException {
+		decRef();
+	}
+
+	/**
+	 * Keywords in order, all with the same weight
+	 */
+	private static class KeywordIterator implements InputIterator {
+
+		private final Iterator<String> keywords;
+
+		KeywordIterator(Iterator<String> keywords) {
+			this.keywords = keywords;
+		}
+
+		@Override
+		public BytesRef next() {
+			return keywords.hasNext() ? new BytesRef(keywords.next()) : null;
+		}
+
+		@Override
+		public long weight() {
+			return 1;
+		}
+
+		@Override
+		public BytesRef payload() {
+			return null;
+		}
+
+		@Override
+		public boolean hasPayloads() {
+			return false;
+		}
+
+		@Override
+		public Set<BytesRef> contexts() {
+			return null;
+		}
+
+		@Override
+		public boolean hasContexts() {
+			return false;
+		}
+	}
+
+}
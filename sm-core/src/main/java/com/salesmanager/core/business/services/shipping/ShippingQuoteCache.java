@@ -0,0 +1,216 @@
+package com.salesmanager.core.business.services.shipping;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.business.utils.ExpiringCache;
+import com.salesmanager.core.business.utils.StoreContentVersions;
+import com.salesmanager.core.model.common.Delivery;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.reference.language.Language;
+import com.salesmanager.core.model.shipping.PackageDetails;
+import com.salesmanager.core.model.shipping.ShippingOption;
+import com.salesmanager.core.model.shipping.ShippingOrigin;
+import com.salesmanager.core.model.shipping.ShippingQuote;
+
+/**
+ * Calculated shipping quotes by fingerprint of what a shipping module
+ * prices: store, origin, destination, packages, order total, language and
+ * the store content version (shipping configuration and module
+ * configurations are merchant configurations). Concurrent requests for the
+ * same fingerprint wait for a single calculation.
+ *
+ * Quotes are kept config.shipping.quoteCacheTtl seconds, callers receive
+ * copies they are free to modify. A quote is not kept when the shipping
+ * module failed ({@link #MODULE_FAILURE} in its quote informations).
+ */
+@Component
+public class ShippingQuoteCache {
+
+	/** quote information set when the shipping module could not be invoked **/
+	public static final String MODULE_FAILURE = "moduleFailure";
+
+	@Inject
+	private StoreContentVersions storeContentVersions;
+
+	@Value("${config.shipping.quoteCacheTtl:300}")
+	private long ttl;
+
+	private ExpiringCache<String, Calculated> quotes;
+
+	@PostConstruct
+	public void init() {
+		quotes = new ExpiringCache<String, Calculated>(ttl).keepIf(calculated -> !calculated.failed);
+	}
+
+	/**
+	 * @param withAddress
+	 *            street and city are part of the fingerprint, when a
+	 *            module prices by distance
+	 */
+	public String fingerprint(MerchantStore store, ShippingOrigin origin, Delivery delivery, boolean withAddress,
+			List<PackageDetails> packages, BigDecimal orderTotal, Language language) {
+
+		StringBuilder fingerprint = new StringBuilder();
+		fingerprint.append(store.getId()).append('|').append(storeContentVersions.getVersion(store)).append('|')
+				.append(language.getCode());
+		fingerprint.append("|from:").append(origin.getCountry() == null ? "" : origin.getCountry().getIsoCode())
+				.append(',').append(normalize(origin.getPostalCode())).append(',')
+				.append(origin.getZone() == null ? normalize(origin.getState()) : origin.getZone().getCode());
+		fingerprint.append("|to:").append(delivery.getCountry() == null ? "" : delivery.getCountry().getIsoCode())
+				.append(',').append(normalize(delivery.getPostalCode())).append(',')
+				.append(delivery.getZone() == null ? normalize(delivery.getState()) : delivery.getZone().getCode());
+		if (withAddress) {
+			fingerprint.append(',').append(normalize(delivery.getAddress())).append(',')
+					.append(normalize(delivery.getCity()));
+		}
+		fingerprint.append("|total:").append(orderTotal.setScale(2, RoundingMode.HALF_UP).toPlainString());
+
+		// same packages in any order
+		List<String> boxes = new ArrayList<String>(packages.size());
+		for (PackageDetails box : packages) {
+			boxes.add(box.getShippingWeight() + "x" + box.getShippingLength() + "x" + box.getShippingWidth() + "x"
+					+ box.getShippingHeight() + "x" + box.getShippingQuantity());
+		}
+		Collections.sort(boxes);
+		fingerprint.append("|packages:").append(StringUtils.join(boxes, ';'));
+		return fingerprint.toString();
+	}
+
+	/**
+	 * @param fingerprint
+	 * @param loader
+	 *            calculates the quote when none is kept for the fingerprint
+	 * @return a copy of the quote, the delivery address of a quote calculated
+	 *         for another request only holds its coordinates
+	 */
+	public ShippingQuote get(String fingerprint, Callable<ShippingQuote> loader) throws ServiceException {
+
+		ShippingQuote[] calculated = new ShippingQuote[1];
+		Calculated kept = quotes.get(fingerprint, () -> {
+			ShippingQuote quote = call(loader);
+			calculated[0] = quote;
+			boolean failed = failed(quote);
+			return new Calculated(keptCopy(quote), failed);
+		});
+		// the caller calculating the quote receives it unchanged
+		return calculated[0] != null ? calculated[0] : copy(kept.quote);
+	}
+
+	public void clear() {
+		quotes.clear();
+	}
+
+	private ShippingQuote call(Callable<ShippingQuote> loader) throws ServiceException {
+		try {
+			return loader.call();
+		} catch (ServiceException | RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new ServiceException(e);
+		}
+	}
+
+	/**
+	 * Removes the failure marker
+	 */
+	private boolean failed(ShippingQuote quote) {
+		return quote.getQuoteInformations() != null && quote.getQuoteInformations().remove(MODULE_FAILURE) != null;
+	}
+
+	/**
+	 * Copy shared with the other requests, only what the modules resolved is
+	 * kept from the delivery
+	 */
+	private ShippingQuote keptCopy(ShippingQuote quote) {
+		ShippingQuote kept = copy(quote);
+		if (quote.getDeliveryAddress() != null) {
+			Delivery coordinates = new Delivery();
+			coordinates.setLatitude(quote.getDeliveryAddress().getLatitude());
+			coordinates.setLongitude(quote.getDeliveryAddress().getLongitude());
+			kept.setDeliveryAddress(coordinates);
+		}
+		return kept;
+	}
+
+	private String normalize(String value) {
+		return value == null ? "" : StringUtils.deleteWhitespace(value).toUpperCase();
+	}
+
+	private ShippingQuote copy(ShippingQuote quote) {
+
+		ShippingQuote copy = new ShippingQuote();
+		copy.setShippingModuleCode(quote.getShippingModuleCode());
+		copy.setShippingReturnCode(quote.getShippingReturnCode());
+		copy.setFreeShipping(quote.isFreeShipping());
+		copy.setFreeShippingAmount(quote.getFreeShippingAmount());
+		copy.setHandlingFees(quote.getHandlingFees());
+		copy.setApplyTaxOnShipping(quote.isApplyTaxOnShipping());
+		copy.setDeliveryAddress(quote.getDeliveryAddress());
+		copy.setWarnings(new ArrayList<String>(quote.getWarnings()));
+		copy.setCurrentShippingModule(quote.getCurrentShippingModule());
+		copy.setQuoteError(quote.getQuoteError());
+		if (quote.getQuoteInformations() != null) {
+			copy.setQuoteInformations(new HashMap<String, Object>(quote.getQuoteInformations()));
+		}
+
+		if (quote.getShippingOptions() != null) {
+			List<ShippingOption> options = new ArrayList<ShippingOption>(quote.getShippingOptions().size());
+			for (ShippingOption option : quote.getShippingOptions()) {
+				ShippingOption optionCopy = copy(option);
+				options.add(optionCopy);
+				if (option == quote.getSelectedShippingOption()) {
+					copy.setSelectedShippingOption(optionCopy);
+				}
+			}
+			copy.setShippingOptions(options);
+		}
+		if (quote.getSelectedShippingOption() != null && copy.getSelectedShippingOption() == null) {
+			copy.setSelectedShippingOption(copy(quote.getSelectedShippingOption()));
+		}
+		return copy;
+	}
+
+	private ShippingOption copy(ShippingOption option) {
+		ShippingOption copy = new ShippingOption();
+		copy.setOptionPrice(option.getOptionPrice());
+		copy.setShippingQuoteOptionId(option.getShippingQuoteOptionId());
+		copy.setOptionName(option.getOptionName());
+		copy.setOptionCode(option.getOptionCode());
+		copy.setOptionDeliveryDate(option.getOptionDeliveryDate());
+		copy.setOptionShippingDate(option.getOptionShippingDate());
+		copy.setOptionPriceText(option.getOptionPriceText());
+		copy.setOptionId(option.getOptionId());
+		copy.setDescription(option.getDescription());
+		copy.setShippingModuleCode(option.getShippingModuleCode());
+		copy.setNote(option.getNote());
+		copy.setEstimatedNumberOfDays(option.getEstimatedNumberOfDays());
+		return copy;
+	}
+
+	private static class Calculated {
+
+		private final ShippingQuote quote;
+		/** the shipping module failed, the quote is not kept **/
+		private final boolean failed;
+
+		Calculated(ShippingQuote quote, boolean failed) {
+			this.quote = quote;
+			this.failed = failed;
+		}
+	}
+
+}
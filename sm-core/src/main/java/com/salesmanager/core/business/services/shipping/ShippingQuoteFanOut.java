@@ -0,0 +1,103 @@
+package com.salesmanager.core.business.services.shipping;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.salesmanager.core.model.shipping.ShippingOption;
+
+/**
+ * Asks several shipping modules for options at the same time and keeps the
+ * answers received before a deadline. A module failing or answering late
+ * is left out of the result.
+ */
+@Component
+public class ShippingQuoteFanOut {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ShippingQuoteFanOut.class);
+
+	/** modules called at the same time by all requests **/
+	@Value("${config.shipping.fanOutThreads:32}")
+	private int threads;
+
+	private ThreadPoolExecutor executor;
+
+	@PostConstruct
+	public void init() {
+		AtomicInteger count = new AtomicInteger();
+		executor = new ThreadPoolExecutor(0, threads, 60L, TimeUnit.SECONDS, new SynchronousQueue<Runnable>(), r -> {
+			Thread t = new Thread(r, "shipping-quote-" + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	@PreDestroy
+	public void shutdown() {
+		executor.shutdownNow();
+	}
+
+	/**
+	 * @param modules
+	 *            module code - call returning the options of the module
+	 * @param timeout
+	 *            milliseconds to wait for all the modules
+	 * @return options by module code of the modules which answered in time,
+	 *         in the order of the modules, an empty list for a module
+	 *         without options
+	 */
+	public Map<String, List<ShippingOption>> getShippingOptions(Map<String, Callable<List<ShippingOption>>> modules,
+			long timeout) {
+
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+
+		Map<String, Future<List<ShippingOption>>> calls = new LinkedHashMap<String, Future<List<ShippingOption>>>();
+		for (Map.Entry<String, Callable<List<ShippingOption>>> module : modules.entrySet()) {
+			try {
+				calls.put(module.getKey(), executor.submit(module.getValue()));
+			} catch (RejectedExecutionException e) {
+				LOGGER.warn("Shipping module " + module.getKey() + " not called, all quote threads are busy");
+			}
+		}
+
+		Map<String, List<ShippingOption>> options = new LinkedHashMap<String, List<ShippingOption>>();
+		for (Map.Entry<String, Future<List<ShippingOption>>> call : calls.entrySet()) {
+			try {
+				List<ShippingOption> moduleOptions = call.getValue().get(Math.max(0, deadline - System.nanoTime()),
+						TimeUnit.NANOSECONDS);
+				options.put(call.getKey(),
+						moduleOptions == null ? Collections.<ShippingOption>emptyList() : moduleOptions);
+			} catch (TimeoutException e) {
+				call.getValue().cancel(true);
+				LOGGER.warn("Shipping module " + call.getKey() + " did not answer within " + timeout + " ms");
+			} catch (ExecutionException e) {
+				LOGGER.error("Error while calculating shipping with " + call.getKey() + " : " + e.getCause().getMessage(),
+						e.getCause());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				calls.values().forEach(f -> f.cancel(true));
+				break;
+			}
+		}
+		return options;
+	}
+
+}
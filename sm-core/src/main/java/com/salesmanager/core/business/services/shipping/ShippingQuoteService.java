@@ -34,5 +34,12 @@ public interface ShippingQuoteService extends SalesManagerEntityService<Long, Qu
 	 * @throws ServiceException
 	 */
 	ShippingSummary getShippingSummary(Long quoteId, MerchantStore store) throws ServiceException;
+	
+	/**
+	 * Deletes the quotes older than config.shipping.quoteRetention days that
+	 * are not attached to an order
+	 * @return number of quotes deleted
+	 */
+	int purgeExpiredQuotes();
 
 }
@@ -1,12 +1,16 @@
 package com.salesmanager.core.business.services.shipping;
 
+import java.util.Date;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
 
 import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import com.salesmanager.core.business.exception.ServiceException;
@@ -28,6 +32,10 @@ public class ShippingQuoteServiceImpl extends SalesManagerEntityServiceImpl<Long
 	@Inject
 	private ShippingService shippingService;
 	
+	/** days a quote not attached to an order is kept **/
+	@Value("${config.shipping.quoteRetention:7}")
+	private int retention;
+	
 	@Inject
 	public ShippingQuoteServiceImpl(ShippingQuoteRepository repository) {
 		super(repository);
@@ -75,4 +83,16 @@ public class ShippingQuoteServiceImpl extends SalesManagerEntityServiceImpl<Long
 	}
 
 
+	@Override
+	@Scheduled(fixedDelayString = "${config.shipping.quotePurge:3600000}")
+	public int purgeExpiredQuotes() {
+		Date quotedBefore = new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(retention));
+		int deleted = shippingQuoteRepository.deleteExpired(quotedBefore);
+		if(deleted > 0) {
+			LOGGER.debug("Deleted " + deleted + " shipping quotes");
+		}
+		return deleted;
+	}
+
+
 }
@@ -5,10 +5,12 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Callable;
 
 import javax.annotation.Resource;
 import javax.inject.Inject;
@@ -20,6 +22,7 @@ import org.json.simple.JSONArray;
 import org.json.simple.JSONValue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -29,6 +32,7 @@ import com.salesmanager.core.business.services.catalog.product.PricingService;
 import com.salesmanager.core.business.services.reference.country.CountryService;
 import com.salesmanager.core.business.services.reference.language.LanguageService;
 import com.salesmanager.core.business.services.reference.loader.ConfigurationModulesLoader;
+import com.salesmanager.core.business.services.system.IntegrationConfigurationCache;
 import com.salesmanager.core.business.services.system.MerchantConfigurationService;
 import com.salesmanager.core.business.services.system.ModuleConfigurationService;
 import com.salesmanager.core.model.catalog.product.Product;
@@ -95,11 +99,28 @@ public class ShippingServiceImpl implements ShippingService {
 	@Inject
 	private Encryption encryption;
 
+	@Inject
+	private IntegrationConfigurationCache integrationConfigurationCache;
+
 	@Inject
 	private ShippingOriginService shippingOriginService;
 	
 	@Inject
 	private ShippingQuoteService shippingQuoteService;
+
+	@Inject
+	private ShippingQuoteCache shippingQuoteCache;
+
+	@Inject
+	private ShippingQuoteFanOut shippingQuoteFanOut;
+
+	/** all active modules are asked for options instead of the first one **/
+	@Value("${config.shipping.fanOut:false}")
+	private boolean fanOut;
+
+	/** milliseconds to wait for the modules when asking all of them **/
+	@Value("${config.shipping.fanOutTimeout:4000}")
+	private long fanOutTimeout;
 	
 	@Inject
 	@Resource(name="shippingModules")
@@ -271,6 +292,7 @@ public class ShippingServiceImpl implements ShippingService {
 				String encrypted = encryption.encrypt(configs);
 				merchantConfiguration.setValue(encrypted);
 				merchantConfigurationService.saveOrUpdate(merchantConfiguration);
+				integrationConfigurationCache.invalidate(store);
 				
 			} catch (Exception e) {
 				throw new ServiceException(e);
@@ -307,6 +329,7 @@ public class ShippingServiceImpl implements ShippingService {
 
 				merchantConfigurationService.delete(configuration);
 			}
+			integrationConfigurationCache.invalidate(store);
 
 			
 		} catch (Exception e) {
@@ -337,25 +360,7 @@ public class ShippingServiceImpl implements ShippingService {
 	
 	@Override
 	public Map<String,IntegrationConfiguration> getShippingModulesConfigured(MerchantStore store) throws ServiceException {
-		try {
-			
-
-			Map<String,IntegrationConfiguration> modules = new HashMap<String,IntegrationConfiguration>();
-			MerchantConfiguration merchantConfiguration = merchantConfigurationService.getMerchantConfiguration(SHIPPING_MODULES, store);
-			if(merchantConfiguration!=null) {
-				if(!StringUtils.isBlank(merchantConfiguration.getValue())) {
-					String decrypted = encryption.decrypt(merchantConfiguration.getValue());
-					modules = ConfigurationModulesLoader.loadIntegrationConfigurations(decrypted);
-					
-				}
-			}
-			return modules;
-		
-		
-		} catch (Exception e) {
-			throw new ServiceException(e);
-		}
-		
+		return integrationConfigurationCache.getConfigurations(store, SHIPPING_MODULES);
 	}
 	
 	@Override
@@ -387,20 +392,13 @@ public class ShippingServiceImpl implements ShippingService {
 		
 		
 		
-		ShippingQuote shippingQuote = new ShippingQuote();
-		ShippingQuoteModule shippingQuoteModule = null;
+		ShippingQuote shippingQuote = null;
 		
 		try {
-			
-			
-			if(StringUtils.isBlank(delivery.getPostalCode())) {
-				shippingQuote.getWarnings().add("No postal code in delivery address");
-				shippingQuote.setShippingReturnCode(ShippingQuote.NO_POSTAL_CODE);
-			}
 		
 			//get configuration
-			ShippingConfiguration shippingConfiguration = getShippingConfiguration(store);
-			ShippingType shippingType = ShippingType.INTERNATIONAL;
+			ShippingConfiguration shippingConfiguration = Optional.ofNullable(getShippingConfiguration(store))
+					.orElseGet(ShippingConfiguration::new);
 			
 			/** get shipping origin **/
 			ShippingOrigin shippingOrigin = shippingOriginService.getByStore(store);
@@ -413,285 +411,38 @@ public class ShippingServiceImpl implements ShippingService {
 				shippingOrigin.setState(store.getStorestateprovince());
 				shippingOrigin.setZone(store.getZone());
 			}
+			ShippingOrigin origin = shippingOrigin;
 			
-			
-			if(shippingConfiguration==null) {
-				shippingConfiguration = new ShippingConfiguration();
-			}
-			
-			if(shippingConfiguration.getShippingType()!=null) {
-					shippingType = shippingConfiguration.getShippingType();
-			}
-
-			//look if customer country code excluded
-			Country shipCountry = delivery.getCountry();
-			
-			//a ship to country is required
-			Validate.notNull(shipCountry,"Ship to Country cannot be null");
-			Validate.notNull(store.getCountry(), "Store Country canot be null");
-			
-			if(shippingType.name().equals(ShippingType.NATIONAL.name())){
-				//customer country must match store country
-				if(!shipCountry.getIsoCode().equals(store.getCountry().getIsoCode())) {
-					shippingQuote.setShippingReturnCode(ShippingQuote.NO_SHIPPING_TO_SELECTED_COUNTRY + " " + shipCountry.getIsoCode());
-					return shippingQuote;
-				}
-			} else if(shippingType.name().equals(ShippingType.INTERNATIONAL.name())){
-				
-				//customer shipping country code must be in accepted list
-				List<String> supportedCountries = this.getSupportedCountries(store);
-				if(!supportedCountries.contains(shipCountry.getIsoCode())) {
-					shippingQuote.setShippingReturnCode(ShippingQuote.NO_SHIPPING_TO_SELECTED_COUNTRY + " " + shipCountry.getIsoCode());
-					return shippingQuote;
-				}
-			}
-			
-			//must have a shipping module configured
 			Map<String, IntegrationConfiguration> modules = this.getShippingModulesConfigured(store);
-			if(modules == null){
-				shippingQuote.setShippingReturnCode(ShippingQuote.NO_SHIPPING_MODULE_CONFIGURED);
-				return shippingQuote;
-			}
-
-			
-			/** uses this module name **/
-			String moduleName = null;
-			IntegrationConfiguration configuration = null;
-			for(String module : modules.keySet()) {
-				moduleName = module;
-				configuration = modules.get(module);
-				//use the first active module
-				if(configuration.isActive()) {
-					shippingQuoteModule = shippingModules.get(module);
-					if(shippingQuoteModule instanceof ShippingQuotePrePostProcessModule) {
-						shippingQuoteModule = null;
-						continue;
-					} else {
-						break;
-					}
-				}
-			}
-			
-			if(shippingQuoteModule==null){
-				shippingQuote.setShippingReturnCode(ShippingQuote.NO_SHIPPING_MODULE_CONFIGURED);
-				return shippingQuote;
-			}
-			
-			/** merchant module configs **/
-			List<IntegrationModule> shippingMethods = this.getShippingMethods(store);
-			IntegrationModule shippingModule = null;
-			for(IntegrationModule mod : shippingMethods) {
-				if(mod.getCode().equals(moduleName)){
-					shippingModule = mod;
-					break;
-				}
-			}
-			
-			/** general module configs **/
-			if(shippingModule==null) {
-				shippingQuote.setShippingReturnCode(ShippingQuote.NO_SHIPPING_MODULE_CONFIGURED);
-				return shippingQuote;
-			}
 			
 			//calculate order total
 			BigDecimal orderTotal = calculateOrderTotal(products,store);
 			List<PackageDetails> packages = getPackagesDetails(products, store);
 			
-			//free shipping ?
-			boolean freeShipping = false;
-			if(shippingConfiguration.isFreeShippingEnabled()) {
-				BigDecimal freeShippingAmount = shippingConfiguration.getOrderTotalFreeShipping();
-				if(freeShippingAmount!=null) {
-					if(orderTotal.doubleValue()>freeShippingAmount.doubleValue()) {
-						if(shippingConfiguration.getFreeShippingType() == ShippingType.NATIONAL) {
-							if(store.getCountry().getIsoCode().equals(shipCountry.getIsoCode())) {
-								freeShipping = true;
-								shippingQuote.setFreeShipping(true);
-								shippingQuote.setFreeShippingAmount(freeShippingAmount);
-								return shippingQuote;
-							}
-						} else {//international all
-							freeShipping = true;
-							shippingQuote.setFreeShipping(true);
-							shippingQuote.setFreeShippingAmount(freeShippingAmount);
-							return shippingQuote;
-						}
-	
-					}
-				}
-			}
-			
-
-			//handling fees
-			BigDecimal handlingFees = shippingConfiguration.getHandlingFees();
-			if(handlingFees!=null) {
-				shippingQuote.setHandlingFees(handlingFees);
-			}
-			
-			//tax basis
-			shippingQuote.setApplyTaxOnShipping(shippingConfiguration.isTaxOnShipping());
-			
-
-			Locale locale = languageService.toLocale(language, store);
-			
-			//invoke pre processors
-			//the main pre-processor determines at runtime the shipping module
-			//also available distance calculation
-			if(!CollectionUtils.isEmpty(shippingModulePreProcessors)) {
-				for(ShippingQuotePrePostProcessModule preProcessor : shippingModulePreProcessors) {
-					//System.out.println("Using pre-processor " + preProcessor.getModuleCode());
-					preProcessor.prePostProcessShippingQuotes(shippingQuote, packages, orderTotal, delivery, shippingOrigin, store, configuration, shippingModule, shippingConfiguration, shippingMethods, locale);
-					//TODO switch module if required
-					if(shippingQuote.getCurrentShippingModule()!=null && !shippingQuote.getCurrentShippingModule().getCode().equals(shippingModule.getCode())) {
-						shippingModule = shippingQuote.getCurrentShippingModule();//determines the shipping module
-						configuration = modules.get(shippingModule.getCode());
-						if(configuration!=null) {
-							if(configuration.isActive()) {
-								moduleName = shippingModule.getCode();
-								shippingQuoteModule = this.shippingModules.get(shippingModule.getCode());
-								configuration = modules.get(shippingModule.getCode());
-							} //TODO use default
-						}
-						
-					}
-				}
-			}
-
-			//invoke module
-			List<ShippingOption> shippingOptions = null;
-					
-			try {
-				shippingOptions = shippingQuoteModule.getShippingQuotes(shippingQuote, packages, orderTotal, delivery, shippingOrigin, store, configuration, shippingModule, shippingConfiguration, locale);
-			} catch(Exception e) {
-				LOGGER.error("Error while calculating shipping : " + e.getMessage(), e);
-/*				merchantLogService.save(
-						new MerchantLog(store,
-								"Can't process " + shippingModule.getModule()
-								+ " -> "
-								+ e.getMessage()));
-				shippingQuote.setQuoteError(e.getMessage());
-				shippingQuote.setShippingReturnCode(ShippingQuote.ERROR);
-				return shippingQuote;*/
-			}
-			
-			if(shippingOptions==null && !StringUtils.isBlank(delivery.getPostalCode())) {
-				
-				//absolutely need to use in this case store pickup or other default shipping quote
-				shippingQuote.setShippingReturnCode(ShippingQuote.NO_SHIPPING_TO_SELECTED_COUNTRY);
-			}
+			//same quote for same store, origin, destination and packages while it is kept
+			String fingerprint = shippingQuoteCache.fingerprint(store, origin, delivery, usesDistance(), packages, orderTotal, language);
+			shippingQuote = shippingQuoteCache.get(fingerprint,
+					() -> calculateShippingQuote(store, delivery, language, shippingConfiguration, origin, modules, orderTotal, packages));
 			
-			
-			shippingQuote.setShippingModuleCode(moduleName);	
-			
-			//filter shipping options
-			ShippingOptionPriceType shippingOptionPriceType = shippingConfiguration.getShippingOptionPriceType();
-			ShippingOption selectedOption = null;
-			
-			if(shippingOptions!=null) {
-				
-				for(ShippingOption option : shippingOptions) {
-					if(selectedOption==null) {
-						selectedOption = option;
-					}
-					//set price text
-					String priceText = pricingService.getDisplayAmount(option.getOptionPrice(), store);
-					option.setOptionPriceText(priceText);
-					option.setShippingModuleCode(moduleName);
-				
-					if(StringUtils.isBlank(option.getOptionName())) {
-						
-						String countryName = delivery.getCountry().getName();
-						if(countryName == null) {
-							Map<String,Country> deliveryCountries = countryService.getCountriesMap(language);
-							Country dCountry = deliveryCountries.get(delivery.getCountry().getIsoCode());
-							if(dCountry!=null) {
-								countryName = dCountry.getName();
-							} else {
-								countryName = delivery.getCountry().getIsoCode();
-							}
-						}
-							option.setOptionName(countryName);		
-					}
-				
-					if(shippingOptionPriceType.name().equals(ShippingOptionPriceType.HIGHEST.name())) {
-
-						if (option.getOptionPrice()
-								.longValue() > selectedOption
-								.getOptionPrice()
-								.longValue()) {
-							selectedOption = option;
-						}
-					}
-
-				
-					if(shippingOptionPriceType.name().equals(ShippingOptionPriceType.LEAST.name())) {
-
-						if (option.getOptionPrice()
-								.longValue() < selectedOption
-								.getOptionPrice()
-								.longValue()) {
-							selectedOption = option;
-						}
-					}
-					
-				
-					if(shippingOptionPriceType.name().equals(ShippingOptionPriceType.ALL.name())) {
-	
-						if (option.getOptionPrice()
-								.longValue() < selectedOption
-								.getOptionPrice()
-								.longValue()) {
-							selectedOption = option;
-						}
-					}
-
-				}
-				
-				shippingQuote.setSelectedShippingOption(selectedOption);
-				
-				if(selectedOption!=null && !shippingOptionPriceType.name().equals(ShippingOptionPriceType.ALL.name())) {
-					shippingOptions = new ArrayList<ShippingOption>();
-					shippingOptions.add(selectedOption);
+			if(shippingQuote.getDeliveryAddress() != null) {
+				/** set final delivery address **/
+				if(shippingQuote.getDeliveryAddress() != delivery && StringUtils.isBlank(delivery.getLatitude())) {
+					delivery.setLatitude(shippingQuote.getDeliveryAddress().getLatitude());
+					delivery.setLongitude(shippingQuote.getDeliveryAddress().getLongitude());
 				}
-
+				shippingQuote.setDeliveryAddress(delivery);
 			}
 			
-			/** set final delivery address **/
-			shippingQuote.setDeliveryAddress(delivery);
-			
-			shippingQuote.setShippingOptions(shippingOptions);
-			
-			/** post processors **/
-			//invoke pre processors
-			if(!CollectionUtils.isEmpty(shippingModulePostProcessors)) {
-				for(ShippingQuotePrePostProcessModule postProcessor : shippingModulePostProcessors) {
-					//get module info
-					
-					//get module configuration
-					IntegrationConfiguration integrationConfiguration = modules.get(postProcessor.getModuleCode());
-					
-					IntegrationModule postProcessModule = null;
-					for(IntegrationModule mod : shippingMethods) {
-						if(mod.getCode().equals(postProcessor.getModuleCode())){
-							postProcessModule = mod;
-							break;
-						}
-					}
-					
-					IntegrationModule module = postProcessModule;
-					if(integrationConfiguration != null) {
-						postProcessor.prePostProcessShippingQuotes(shippingQuote, packages, orderTotal, delivery, shippingOrigin, store, integrationConfiguration, module, shippingConfiguration, shippingMethods, locale);
-					}
-				}
-			}
 			String ipAddress = null;
 	    	UserContext context = UserContext.getCurrentInstance();
 	    	if(context != null) {
 	    		ipAddress = context.getIpAddress();
 	    	}
+	    	Date now = new Date();
 			
-			if(shippingQuote!=null && CollectionUtils.isNotEmpty(shippingQuote.getShippingOptions())) {
-				//save SHIPPING OPTIONS
+			if(CollectionUtils.isNotEmpty(shippingQuote.getShippingOptions())) {
+				//save SHIPPING OPTIONS in one batch
+				List<Quote> quotes = new ArrayList<Quote>();
 				List<ShippingOption> finalShippingOptions = shippingQuote.getShippingOptions();
 				for(ShippingOption option : finalShippingOptions) {
 					
@@ -710,7 +461,7 @@ public class ShippingServiceImpl implements ShippingService {
 						}
 					}
 					
-					if(freeShipping) {
+					if(shippingQuote.isFreeShipping()) {
 						q.setFreeShipping(true);
 						q.setPrice(new BigDecimal(0));
 						q.setModule("FREE");
@@ -727,20 +478,23 @@ public class ShippingServiceImpl implements ShippingService {
 							}
 						}
 						q.setOptionName(option.getOptionName());
-						q.setOptionShippingDate(new Date());
+						q.setOptionShippingDate(now);
 						q.setPrice(option.getOptionPrice());
 						
 					}
 					
-					if(handlingFees != null) {
-						q.setHandling(handlingFees);
+					if(shippingQuote.getHandlingFees() != null) {
+						q.setHandling(shippingQuote.getHandlingFees());
 					}
 					
-					q.setQuoteDate(new Date());
-					shippingQuoteService.save(q);
-					option.setShippingQuoteOptionId(q.getId());
+					q.setQuoteDate(now);
+					quotes.add(q);
 					
 				}
+				shippingQuoteService.saveAll(quotes);
+				for(int i = 0; i < quotes.size(); i++) {
+					finalShippingOptions.get(i).setShippingQuoteOptionId(quotes.get(i).getId());
+				}
 			}
 			
 			
@@ -753,6 +507,342 @@ public class ShippingServiceImpl implements ShippingService {
 		return shippingQuote;
 		
 	}
+	
+	/**
+	 * Quote and options of the shipping module for a destination, without
+	 * anything specific to the shopping cart asking
+	 */
+	private ShippingQuote calculateShippingQuote(MerchantStore store, Delivery delivery, Language language,
+			ShippingConfiguration shippingConfiguration, ShippingOrigin shippingOrigin,
+			Map<String, IntegrationConfiguration> modules, BigDecimal orderTotal, List<PackageDetails> packages) throws Exception {
+		
+		ShippingQuote shippingQuote = new ShippingQuote();
+		ShippingQuoteModule shippingQuoteModule = null;
+		
+		if(StringUtils.isBlank(delivery.getPostalCode())) {
+			shippingQuote.getWarnings().add("No postal code in delivery address");
+			shippingQuote.setShippingReturnCode(ShippingQuote.NO_POSTAL_CODE);
+		}
+		
+		ShippingType shippingType = ShippingType.INTERNATIONAL;
+		if(shippingConfiguration.getShippingType()!=null) {
+				shippingType = shippingConfiguration.getShippingType();
+		}
+
+		//look if customer country code excluded
+		Country shipCountry = delivery.getCountry();
+		
+		//a ship to country is required
+		Validate.notNull(shipCountry,"Ship to Country cannot be null");
+		Validate.notNull(store.getCountry(), "Store Country canot be null");
+		
+		if(shippingType.name().equals(ShippingType.NATIONAL.name())){
+			//customer country must match store country
+			if(!shipCountry.getIsoCode().equals(store.getCountry().getIsoCode())) {
+				shippingQuote.setShippingReturnCode(ShippingQuote.NO_SHIPPING_TO_SELECTED_COUNTRY + " " + shipCountry.getIsoCode());
+				return shippingQuote;
+			}
+		} else if(shippingType.name().equals(ShippingType.INTERNATIONAL.name())){
+			
+			//customer shipping country code must be in accepted list
+			List<String> supportedCountries = this.getSupportedCountries(store);
+			if(!supportedCountries.contains(shipCountry.getIsoCode())) {
+				shippingQuote.setShippingReturnCode(ShippingQuote.NO_SHIPPING_TO_SELECTED_COUNTRY + " " + shipCountry.getIsoCode());
+				return shippingQuote;
+			}
+		}
+		
+		//must have a shipping module configured
+		if(modules == null){
+			shippingQuote.setShippingReturnCode(ShippingQuote.NO_SHIPPING_MODULE_CONFIGURED);
+			return shippingQuote;
+		}
+
+		
+		/** uses this module name **/
+		String moduleName = null;
+		IntegrationConfiguration configuration = null;
+		for(String module : modules.keySet()) {
+			moduleName = module;
+			configuration = modules.get(module);
+			//use the first active module
+			if(configuration.isActive()) {
+				shippingQuoteModule = shippingModules.get(module);
+				if(shippingQuoteModule instanceof ShippingQuotePrePostProcessModule) {
+					shippingQuoteModule = null;
+					continue;
+				} else {
+					break;
+				}
+			}
+		}
+		
+		if(shippingQuoteModule==null){
+			shippingQuote.setShippingReturnCode(ShippingQuote.NO_SHIPPING_MODULE_CONFIGURED);
+			return shippingQuote;
+		}
+		
+		/** merchant module configs **/
+		List<IntegrationModule> shippingMethods = this.getShippingMethods(store);
+		IntegrationModule shippingModule = null;
+		for(IntegrationModule mod : shippingMethods) {
+			if(mod.getCode().equals(moduleName)){
+				shippingModule = mod;
+				break;
+			}
+		}
+		
+		/** general module configs **/
+		if(shippingModule==null) {
+			shippingQuote.setShippingReturnCode(ShippingQuote.NO_SHIPPING_MODULE_CONFIGURED);
+			return shippingQuote;
+		}
+		
+		//free shipping ?
+		if(shippingConfiguration.isFreeShippingEnabled()) {
+			BigDecimal freeShippingAmount = shippingConfiguration.getOrderTotalFreeShipping();
+			if(freeShippingAmount!=null) {
+				if(orderTotal.doubleValue()>freeShippingAmount.doubleValue()) {
+					if(shippingConfiguration.getFreeShippingType() == ShippingType.NATIONAL) {
+						if(store.getCountry().getIsoCode().equals(shipCountry.getIsoCode())) {
+							shippingQuote.setFreeShipping(true);
+							shippingQuote.setFreeShippingAmount(freeShippingAmount);
+							return shippingQuote;
+						}
+					} else {//international all
+						shippingQuote.setFreeShipping(true);
+						shippingQuote.setFreeShippingAmount(freeShippingAmount);
+						return shippingQuote;
+					}
+	
+				}
+			}
+		}
+		
+
+		//handling fees
+		BigDecimal handlingFees = shippingConfiguration.getHandlingFees();
+		if(handlingFees!=null) {
+			shippingQuote.setHandlingFees(handlingFees);
+		}
+		
+		//tax basis
+		shippingQuote.setApplyTaxOnShipping(shippingConfiguration.isTaxOnShipping());
+		
+
+		Locale locale = languageService.toLocale(language, store);
+		
+		//invoke pre processors
+		//the main pre-processor determines at runtime the shipping module
+		//also available distance calculation
+		if(!CollectionUtils.isEmpty(shippingModulePreProcessors)) {
+			for(ShippingQuotePrePostProcessModule preProcessor : shippingModulePreProcessors) {
+				preProcessor.prePostProcessShippingQuotes(shippingQuote, packages, orderTotal, delivery, shippingOrigin, store, configuration, shippingModule, shippingConfiguration, shippingMethods, locale);
+				//the pre-processor may switch the module
+				if(shippingQuote.getCurrentShippingModule()!=null && !shippingQuote.getCurrentShippingModule().getCode().equals(shippingModule.getCode())) {
+					shippingModule = shippingQuote.getCurrentShippingModule();//determines the shipping module
+					configuration = modules.get(shippingModule.getCode());
+					if(configuration!=null) {
+						if(configuration.isActive()) {
+							moduleName = shippingModule.getCode();
+							shippingQuoteModule = this.shippingModules.get(shippingModule.getCode());
+							configuration = modules.get(shippingModule.getCode());
+						}
+					}
+					
+				}
+			}
+		}
+
+		//invoke module
+		List<ShippingOption> shippingOptions = null;
+				
+		if(fanOut) {
+			//every active module at the same time
+			shippingOptions = fanOutShippingQuotes(shippingQuote, modules, shippingMethods, packages, orderTotal, delivery, shippingOrigin, store, shippingConfiguration, locale);
+		} else {
+			try {
+				shippingOptions = shippingQuoteModule.getShippingQuotes(shippingQuote, packages, orderTotal, delivery, shippingOrigin, store, configuration, shippingModule, shippingConfiguration, locale);
+			} catch(Exception e) {
+				LOGGER.error("Error while calculating shipping : " + e.getMessage(), e);
+				//not kept by the quote cache
+				shippingQuote.getQuoteInformations().put(ShippingQuoteCache.MODULE_FAILURE, Boolean.TRUE);
+			}
+		}
+		
+		if(shippingOptions==null && !StringUtils.isBlank(delivery.getPostalCode())) {
+			
+			//absolutely need to use in this case store pickup or other default shipping quote
+			shippingQuote.setShippingReturnCode(ShippingQuote.NO_SHIPPING_TO_SELECTED_COUNTRY);
+		}
+		
+		
+		shippingQuote.setShippingModuleCode(moduleName);	
+		
+		//filter shipping options
+		ShippingOptionPriceType shippingOptionPriceType = shippingConfiguration.getShippingOptionPriceType();
+		ShippingOption selectedOption = null;
+		
+		if(shippingOptions!=null) {
+			
+			for(ShippingOption option : shippingOptions) {
+				if(selectedOption==null) {
+					selectedOption = option;
+				}
+				//set price text
+				String priceText = pricingService.getDisplayAmount(option.getOptionPrice(), store);
+				option.setOptionPriceText(priceText);
+				if(!fanOut) {
+					option.setShippingModuleCode(moduleName);
+				}
+			
+				if(StringUtils.isBlank(option.getOptionName())) {
+					
+					String countryName = delivery.getCountry().getName();
+					if(countryName == null) {
+						Map<String,Country> deliveryCountries = countryService.getCountriesMap(language);
+						Country dCountry = deliveryCountries.get(delivery.getCountry().getIsoCode());
+						if(dCountry!=null) {
+							countryName = dCountry.getName();
+						} else {
+							countryName = delivery.getCountry().getIsoCode();
+						}
+					}
+						option.setOptionName(countryName);		
+				}
+			
+				if(shippingOptionPriceType.name().equals(ShippingOptionPriceType.HIGHEST.name())) {
+
+					if (option.getOptionPrice()
+							.longValue() > selectedOption
+							.getOptionPrice()
+							.longValue()) {
+						selectedOption = option;
+					}
+				}
+
+			
+				if(shippingOptionPriceType.name().equals(ShippingOptionPriceType.LEAST.name())) {
+
+					if (option.getOptionPrice()
+							.longValue() < selectedOption
+							.getOptionPrice()
+							.longValue()) {
+						selectedOption = option;
+					}
+				}
+				
+			
+				if(shippingOptionPriceType.name().equals(ShippingOptionPriceType.ALL.name())) {
+	
+					if (option.getOptionPrice()
+							.longValue() < selectedOption
+							.getOptionPrice()
+							.longValue()) {
+						selectedOption = option;
+					}
+				}
+
+			}
+			
+			shippingQuote.setSelectedShippingOption(selectedOption);
+			
+			if(selectedOption!=null && !shippingOptionPriceType.name().equals(ShippingOptionPriceType.ALL.name())) {
+				shippingOptions = new ArrayList<ShippingOption>();
+				shippingOptions.add(selectedOption);
+			}
+
+		}
+		
+		/** set final delivery address **/
+		shippingQuote.setDeliveryAddress(delivery);
+		
+		shippingQuote.setShippingOptions(shippingOptions);
+		
+		/** post processors **/
+		if(!CollectionUtils.isEmpty(shippingModulePostProcessors)) {
+			for(ShippingQuotePrePostProcessModule postProcessor : shippingModulePostProcessors) {
+				//get module configuration
+				IntegrationConfiguration integrationConfiguration = modules.get(postProcessor.getModuleCode());
+				
+				IntegrationModule postProcessModule = null;
+				for(IntegrationModule mod : shippingMethods) {
+					if(mod.getCode().equals(postProcessor.getModuleCode())){
+						postProcessModule = mod;
+						break;
+					}
+				}
+				
+				IntegrationModule module = postProcessModule;
+				if(integrationConfiguration != null) {
+					postProcessor.prePostProcessShippingQuotes(shippingQuote, packages, orderTotal, delivery, shippingOrigin, store, integrationConfiguration, module, shippingConfiguration, shippingMethods, locale);
+				}
+			}
+		}
+		
+		return shippingQuote;
+	}
+	
+	/**
+	 * Options of every active shipping module answering within
+	 * config.shipping.fanOutTimeout, each module gets its own quote to work with
+	 */
+	private List<ShippingOption> fanOutShippingQuotes(ShippingQuote shippingQuote, Map<String, IntegrationConfiguration> modules,
+			List<IntegrationModule> shippingMethods, List<PackageDetails> packages, BigDecimal orderTotal, Delivery delivery,
+			ShippingOrigin shippingOrigin, MerchantStore store, ShippingConfiguration shippingConfiguration, Locale locale) {
+		
+		Map<String, ShippingQuote> moduleQuotes = new HashMap<String, ShippingQuote>();
+		Map<String, Callable<List<ShippingOption>>> calls = new LinkedHashMap<String, Callable<List<ShippingOption>>>();
+		for(IntegrationModule shippingModule : shippingMethods) {
+			IntegrationConfiguration configuration = modules.get(shippingModule.getCode());
+			ShippingQuoteModule shippingQuoteModule = shippingModules.get(shippingModule.getCode());
+			if(configuration == null || !configuration.isActive() || shippingQuoteModule == null
+					|| shippingQuoteModule instanceof ShippingQuotePrePostProcessModule) {
+				continue;
+			}
+			ShippingQuote moduleQuote = new ShippingQuote();
+			moduleQuote.setQuoteInformations(new HashMap<String, Object>(shippingQuote.getQuoteInformations()));
+			moduleQuote.setCurrentShippingModule(shippingModule);
+			moduleQuotes.put(shippingModule.getCode(), moduleQuote);
+			calls.put(shippingModule.getCode(), () -> shippingQuoteModule.getShippingQuotes(moduleQuote, packages, orderTotal, delivery, shippingOrigin, store, configuration, shippingModule, shippingConfiguration, locale));
+		}
+		
+		Map<String, List<ShippingOption>> moduleOptions = shippingQuoteFanOut.getShippingOptions(calls, fanOutTimeout);
+		if(moduleOptions.size() < calls.size()) {
+			//a module failed or did not answer in time, partial quote not kept by the quote cache
+			shippingQuote.getQuoteInformations().put(ShippingQuoteCache.MODULE_FAILURE, Boolean.TRUE);
+		}
+		
+		List<ShippingOption> shippingOptions = null;
+		for(Map.Entry<String, List<ShippingOption>> options : moduleOptions.entrySet()) {
+			shippingQuote.getWarnings().addAll(moduleQuotes.get(options.getKey()).getWarnings());
+			if(options.getValue().isEmpty()) {
+				continue;
+			}
+			for(ShippingOption option : options.getValue()) {
+				option.setShippingModuleCode(options.getKey());
+			}
+			if(shippingOptions == null) {
+				shippingOptions = new ArrayList<ShippingOption>();
+			}
+			shippingOptions.addAll(options.getValue());
+		}
+		return shippingOptions;
+	}
+	
+	/**
+	 * The distance pre-processor geocodes the full delivery address
+	 */
+	private boolean usesDistance() {
+		if(shippingModulePreProcessors != null) {
+			for(ShippingQuotePrePostProcessModule processor : shippingModulePreProcessors) {
+				if(SHIPPING_DISTANCE.equals(processor.getModuleCode())) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
 
 	@Override
 	public List<String> getSupportedCountries(MerchantStore store) throws ServiceException {
@@ -83,4 +83,18 @@ public interface ShoppingCartService extends SalesManagerEntityService<Long, Sho
 	 */
 	void deleteShoppingCartItem(Long id);
 
+
+	/**
+	 * Number of carts refreshed (prices and items) since startup
+	 * @return
+	 */
+	long getPopulatedCartCount();
+
+	/**
+	 * Number of refreshed carts that had to be written back to the database
+	 * because items or attributes became obsolete
+	 * @return
+	 */
+	long getCartWriteBackCount();
+
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ import com.salesmanager.core.business.repositories.shoppingcart.ShoppingCartItem
 import com.salesmanager.core.business.repositories.shoppingcart.ShoppingCartRepository;
 import com.salesmanager.core.business.services.catalog.product.PricingService;
 import com.salesmanager.core.business.services.catalog.product.ProductService;
+import com.salesmanager.core.business.services.catalog.product.availability.InventoryService;
 import com.salesmanager.core.business.services.catalog.product.attribute.ProductAttributeService;
 import com.salesmanager.core.business.services.common.generic.SalesManagerEntityServiceImpl;
 import com.salesmanager.core.model.catalog.product.Product;
@@ -30,7 +31,10 @@ import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service("shoppingCartService")
@@ -54,9 +58,15 @@ public class ShoppingCartServiceImpl extends SalesManagerEntityServiceImpl<Long,
 	@Inject
 	private ProductAttributeService productAttributeService;
 
+	@Inject
+	private InventoryService inventoryService;
+
 
 	private static final Logger LOGGER = LoggerFactory.getLogger(ShoppingCartServiceImpl.class);
 
+	private final AtomicLong populatedCarts = new AtomicLong();
+	private final AtomicLong cartWriteBacks = new AtomicLong();
+
 	@Inject
 	public ShoppingCartServiceImpl(ShoppingCartRepository shoppingCartRepository) {
 		super(shoppingCartRepository);
@@ -125,7 +135,7 @@ public class ShoppingCartServiceImpl extends SalesManagerEntityServiceImpl<Long,
 			super.update(shoppingCart);
 		}
 
-
+		inventoryService.hold(shoppingCart);
 
 	}
 
@@ -225,6 +235,7 @@ public class ShoppingCartServiceImpl extends SalesManagerEntityServiceImpl<Long,
 		ShoppingCart cart = this.getById(shoppingCart.getId());
 		if (cart != null) {
 			super.delete(cart);
+			inventoryService.releaseHolds(cart.getShoppingCartCode());
 		}
 	}
 
@@ -244,6 +255,12 @@ public class ShoppingCartServiceImpl extends SalesManagerEntityServiceImpl<Long,
 		}
 	}*/
 
+	/**
+	 * Refreshes items and prices of a cart. All products of the cart are
+	 * loaded in one batch and prices are computed in memory, the cart is only
+	 * written back when a persistent change was made (removed attributes or
+	 * obsolete items). Item prices are transient and never require a write.
+	 */
 	@Transactional(noRollbackFor = { org.springframework.dao.EmptyResultDataAccessException.class })
 	private ShoppingCart getPopulatedShoppingCart(final ShoppingCart shoppingCart) throws Exception {
 
@@ -252,6 +269,8 @@ public class ShoppingCartServiceImpl extends SalesManagerEntityServiceImpl<Long,
 			boolean cartIsObsolete = false;
 			if (shoppingCart != null) {
 
+				populatedCarts.incrementAndGet();
+
 				Set<ShoppingCartItem> items = shoppingCart.getLineItems();
 				if (items == null || items.size() == 0) {
 					shoppingCart.setObsolete(true);
@@ -259,24 +278,29 @@ public class ShoppingCartServiceImpl extends SalesManagerEntityServiceImpl<Long,
 
 				}
 
-				// Set<ShoppingCartItem> shoppingCartItems = new
-				// HashSet<ShoppingCartItem>();
+				Set<Long> productIds = items.stream()
+						.map(ShoppingCartItem::getProductId)
+						.collect(Collectors.toSet());
+				Map<Long, Product> products = productService.listByIds(productIds).stream()
+						.collect(Collectors.toMap(Product::getId, Function.identity()));
+
+				boolean changed = false;
 				for (ShoppingCartItem item : items) {
 					LOGGER.debug("Populate item " + item.getId());
-					getPopulatedItem(item);
+					if (getPopulatedItem(item, products.get(item.getProductId()))) {
+						changed = true;
+					}
 					LOGGER.debug("Obsolete item ? " + item.isObsolete());
 					if (item.isObsolete()) {
 						cartIsObsolete = true;
 					}
 				}
 
-				// shoppingCart.setLineItems(shoppingCartItems);
-				Set<ShoppingCartItem> refreshedItems = new HashSet<>(items);
-
-				//if (refreshCart) {
-					shoppingCart.setLineItems(refreshedItems);
+				if (changed) {
+					shoppingCart.setLineItems(new HashSet<>(items));
 				    update(shoppingCart);
-				//}
+				    cartWriteBacks.incrementAndGet();
+				}
 
 				if (cartIsObsolete) {
 					shoppingCart.setObsolete(true);
@@ -307,17 +331,15 @@ public class ShoppingCartServiceImpl extends SalesManagerEntityServiceImpl<Long,
 
 	}
 
-	@Transactional
-	private void getPopulatedItem(final ShoppingCartItem item) throws Exception {
-
-		Product product = null;
-
-		Long productId = item.getProductId();
-		product = productService.getById(productId);
+	/**
+	 * Populates a cart item from its already loaded product
+	 * @return true if the item was changed in a way that must be persisted
+	 */
+	private boolean getPopulatedItem(final ShoppingCartItem item, final Product product) throws Exception {
 
 		if (product == null) {
 			item.setObsolete(true);
-			return;
+			return true;
 		}
 
 		item.setProduct(product);
@@ -354,15 +376,18 @@ public class ShoppingCartServiceImpl extends SalesManagerEntityServiceImpl<Long,
 		    }
 		}
 
+		boolean changed = false;
+
 		//cleanup orphean item
 		if(CollectionUtils.isNotEmpty(removeAttributesList)) {
 			for(ShoppingCartAttributeItem attr : removeAttributesList) {
 				shoppingCartAttributeItemRepository.delete(attr);
 			}
+			changed = true;
 		}
 
 		//cleanup detached attributes
-		if(CollectionUtils.isEmpty(attributesList)) {
+		if(CollectionUtils.isEmpty(attributesList) && CollectionUtils.isNotEmpty(cartAttributes)) {
 			item.setAttributes(null);
 		}
 
@@ -376,6 +401,8 @@ public class ShoppingCartServiceImpl extends SalesManagerEntityServiceImpl<Long,
 		BigDecimal subTotal = item.getItemPrice().multiply(new BigDecimal(item.getQuantity()));
 		item.setSubTotal(subTotal);
 
+		return changed;
+
 	}
 
 	@Override
@@ -407,6 +434,7 @@ public class ShoppingCartServiceImpl extends SalesManagerEntityServiceImpl<Long,
 	@Override
 	public void removeShoppingCart(final ShoppingCart cart) throws ServiceException {
 		shoppingCartRepository.delete(cart);
+		inventoryService.releaseHolds(cart.getShoppingCartCode());
 	}
 
 	@Override
@@ -508,6 +536,16 @@ public class ShoppingCartServiceImpl extends SalesManagerEntityServiceImpl<Long,
 		return shoppingCartItemsSet;
 	}
 
+	@Override
+	public long getPopulatedCartCount() {
+		return populatedCarts.get();
+	}
+
+	@Override
+	public long getCartWriteBackCount() {
+		return cartWriteBacks.get();
+	}
+
 	@Override
 	@Transactional
 	public void deleteShoppingCartItem(Long id) {
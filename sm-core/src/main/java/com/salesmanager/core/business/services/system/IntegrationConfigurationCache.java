@@ -0,0 +1,114 @@
+package com.salesmanager.core.business.services.system;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.business.repositories.system.MerchantConfigurationRepository;
+import com.salesmanager.core.business.services.reference.loader.ConfigurationModulesLoader;
+import com.salesmanager.core.business.utils.ExpiringCache;
+import com.salesmanager.core.business.utils.StoreContentVersions;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.system.IntegrationConfiguration;
+import com.salesmanager.core.model.system.MerchantConfiguration;
+import com.salesmanager.core.modules.utils.Encryption;
+
+/**
+ * Decrypted and parsed integration configurations (payment modules,
+ * shipping modules) of each store. A store configuration key is loaded,
+ * decrypted and parsed once and kept until a merchant configuration of the
+ * store is saved or deleted, which changes the store content version, at
+ * most config.integration.cacheTtl seconds.
+ *
+ * Callers receive copies they are free to modify.
+ */
+@Component
+public class IntegrationConfigurationCache {
+
+	@Inject
+	private MerchantConfigurationRepository merchantConfigurationRepository;
+
+	@Inject
+	private Encryption encryption;
+
+	@Inject
+	private StoreContentVersions storeContentVersions;
+
+	@Value("${config.integration.cacheTtl:60}")
+	private long ttl;
+
+	/** storeId_configurationKey - module code - configuration **/
+	private ExpiringCache<String, Map<String, IntegrationConfiguration>> configurations;
+
+	@PostConstruct
+	public void init() {
+		configurations = new ExpiringCache<String, Map<String, IntegrationConfiguration>>(ttl);
+	}
+
+	/**
+	 * @param store
+	 * @param key merchant configuration key holding the encrypted modules
+	 * @return module code - configuration, never null
+	 * @throws ServiceException
+	 */
+	public Map<String, IntegrationConfiguration> getConfigurations(MerchantStore store, String key) throws ServiceException {
+
+		Map<String, IntegrationConfiguration> modules = configurations.get(store.getId() + "_" + key,
+				storeContentVersions.getVersion(store), () -> load(store, key));
+
+		Map<String, IntegrationConfiguration> copy = new HashMap<String, IntegrationConfiguration>(modules.size() * 2);
+		for (Map.Entry<String, IntegrationConfiguration> module : modules.entrySet()) {
+			copy.put(module.getKey(), copy(module.getValue()));
+		}
+		return copy;
+	}
+
+	public void invalidate(MerchantStore store) {
+		if (store != null && store.getId() != null) {
+			configurations.invalidateIf(k -> k.startsWith(store.getId() + "_"));
+		}
+	}
+
+	private Map<String, IntegrationConfiguration> load(MerchantStore store, String key) throws ServiceException {
+		MerchantConfiguration merchantConfiguration = merchantConfigurationRepository.findByMerchantStoreAndKey(store.getId(), key);
+		if (merchantConfiguration == null || StringUtils.isBlank(merchantConfiguration.getValue())) {
+			return Collections.emptyMap();
+		}
+		try {
+			String decrypted = encryption.decrypt(merchantConfiguration.getValue());
+			return ConfigurationModulesLoader.loadIntegrationConfigurations(decrypted);
+		} catch (Exception e) {
+			throw new ServiceException(e);
+		}
+	}
+
+	private IntegrationConfiguration copy(IntegrationConfiguration configuration) {
+		IntegrationConfiguration copy = new IntegrationConfiguration();
+		copy.setModuleCode(configuration.getModuleCode());
+		copy.setActive(configuration.isActive());
+		copy.setDefaultSelected(configuration.isDefaultSelected());
+		copy.setEnvironment(configuration.getEnvironment());
+		if (configuration.getIntegrationKeys() != null) {
+			copy.setIntegrationKeys(new HashMap<String, String>(configuration.getIntegrationKeys()));
+		}
+		if (configuration.getIntegrationOptions() != null) {
+			Map<String, List<String>> options = new HashMap<String, List<String>>();
+			for (Map.Entry<String, List<String>> option : configuration.getIntegrationOptions().entrySet()) {
+				options.put(option.getKey(), option.getValue() == null ? null : new ArrayList<String>(option.getValue()));
+			}
+			copy.setIntegrationOptions(options);
+		}
+		return copy;
+	}
+
+}
@@ -7,6 +7,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.salesmanager.core.business.exception.ServiceException;
 import com.salesmanager.core.business.repositories.system.MerchantConfigurationRepository;
 import com.salesmanager.core.business.services.common.generic.SalesManagerEntityServiceImpl;
+import com.salesmanager.core.business.utils.StoreContentVersions;
 import com.salesmanager.core.model.merchant.MerchantStore;
 import com.salesmanager.core.model.system.MerchantConfig;
 import com.salesmanager.core.model.system.MerchantConfiguration;
@@ -18,6 +19,9 @@ public class MerchantConfigurationServiceImpl extends
 		MerchantConfigurationService {
 
 	private MerchantConfigurationRepository merchantConfigurationRepository;
+
+	@Inject
+	private StoreContentVersions storeContentVersions;
 	
 	@Inject
 	public MerchantConfigurationServiceImpl(
@@ -61,8 +65,15 @@ public class MerchantConfigurationServiceImpl extends
 		MerchantConfiguration config = merchantConfigurationRepository.getOne(merchantConfiguration.getId());
 		if(config!=null) {
 			super.delete(config);
+			storeContentVersions.increment(merchantConfiguration.getMerchantStore());
 		}
 	}
+
+	@Override
+	public void save(MerchantConfiguration entity) throws ServiceException {
+		super.save(entity);
+		storeContentVersions.increment(entity.getMerchantStore());
+	}
 	
 	@Override
 	public MerchantConfig getMerchantConfig(MerchantStore store) throws ServiceException {
@@ -19,6 +19,9 @@ public class TaxClassServiceImpl extends SalesManagerEntityServiceImpl<Long, Tax
 
 	private TaxClassRepository taxClassRepository;
 	
+	@Inject
+	private TaxRateResolver taxRateResolver;
+	
 	@Inject
 	public TaxClassServiceImpl(TaxClassRepository taxClassRepository) {
 		super(taxClassRepository);
@@ -46,9 +49,16 @@ public class TaxClassServiceImpl extends SalesManagerEntityServiceImpl<Long, Tax
 		
 		TaxClass t = getById(taxClass.getId());
 		super.delete(t);
+		taxRateResolver.invalidateAll();
 		
 	}
 	
+	@Override
+	public void save(TaxClass taxClass) throws ServiceException {
+		super.save(taxClass);
+		taxRateResolver.invalidateAll();
+	}
+	
 	@Override
 	public TaxClass getById(Long id) {
 		return taxClassRepository.getOne(id);
@@ -69,6 +79,7 @@ public class TaxClassServiceImpl extends SalesManagerEntityServiceImpl<Long, Tax
 			this.update(taxClass);
 		} else {
 			taxClass = super.saveAndFlush(taxClass);
+			taxRateResolver.invalidateAll();
 		}
 		return taxClass;
 	}
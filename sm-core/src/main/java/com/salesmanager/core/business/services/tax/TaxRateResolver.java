@@ -0,0 +1,192 @@
+package com.salesmanager.core.business.services.tax;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.salesmanager.core.business.repositories.tax.TaxClassRepository;
+import com.salesmanager.core.business.repositories.tax.TaxRateRepository;
+import com.salesmanager.core.business.utils.ExpiringCache;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.reference.country.Country;
+import com.salesmanager.core.model.reference.language.Language;
+import com.salesmanager.core.model.reference.zone.Zone;
+import com.salesmanager.core.model.tax.TaxConfiguration;
+import com.salesmanager.core.model.tax.taxclass.TaxClass;
+import com.salesmanager.core.model.tax.taxrate.TaxRate;
+import com.salesmanager.core.model.tax.taxrate.TaxRateDescription;
+
+/**
+ * In memory tax rate tables, one per store. A table is loaded with a single
+ * query the first time a store calculates taxes and holds every rate of the
+ * store indexed by (country, zone or state province, tax class) in priority
+ * order, so compound (piggyback) rates are applied in the right sequence
+ * without going back to the database.
+ *
+ * Tables are dropped by {@link TaxRateService} and {@link TaxClassService}
+ * writes and rebuilt on next use, at the latest after config.tax.rateTableTtl
+ * seconds.
+ */
+@Component
+public class TaxRateResolver {
+
+	@Inject
+	private TaxRateRepository taxRateRepository;
+
+	@Inject
+	private TaxClassRepository taxClassRepository;
+
+	@Value("${config.tax.rateTableTtl:300}")
+	private long ttl;
+
+	private ExpiringCache<Integer, TaxRateTable> tables;
+
+	/** a table loaded after a change has a greater version **/
+	private final AtomicLong versions = new AtomicLong();
+
+	@PostConstruct
+	public void init() {
+		tables = new ExpiringCache<Integer, TaxRateTable>(ttl);
+	}
+
+	public TaxRateTable getTable(MerchantStore store) {
+		return tables.get(store.getId(), () -> load(store.getId()));
+	}
+
+	public void invalidate(MerchantStore store) {
+		if (store != null && store.getId() != null) {
+			tables.invalidate(store.getId());
+		}
+	}
+
+	public void invalidateAll() {
+		tables.clear();
+	}
+
+	private TaxRateTable load(Integer storeId) {
+		return new TaxRateTable(versions.incrementAndGet(), taxRateRepository.findByStore(storeId),
+				taxClassRepository.findByCode(TaxClass.DEFAULT_TAX_CLASS));
+	}
+
+	/**
+	 * Immutable set of rates of a store, resolved lists are memoized per key
+	 */
+	public static class TaxRateTable {
+
+		private static final Comparator<TaxRate> PRIORITY = Comparator.comparing(TaxRate::getTaxPriority,
+				Comparator.nullsFirst(Comparator.naturalOrder()));
+
+		private final long version;
+		private final TaxClass defaultTaxClass;
+		private final List<TaxRate> rates;
+		private final Map<String, List<TaxRate>> resolved = new ConcurrentHashMap<String, List<TaxRate>>();
+
+		private volatile TaxConfiguration taxConfiguration;
+		private volatile boolean taxConfigurationLoaded;
+
+		TaxRateTable(long version, List<TaxRate> storeRates, TaxClass defaultTaxClass) {
+			this.version = version;
+			// descriptions are fetch joined, one row per description
+			Map<Long, TaxRate> distinct = new LinkedHashMap<Long, TaxRate>();
+			for (TaxRate rate : storeRates) {
+				distinct.put(rate.getId(), rate);
+			}
+			List<TaxRate> sorted = new ArrayList<TaxRate>(distinct.values());
+			sorted.sort(PRIORITY);
+			this.rates = Collections.unmodifiableList(sorted);
+			this.defaultTaxClass = defaultTaxClass;
+		}
+
+		/**
+		 * @return a number changing each time the rates of the store are
+		 *         loaded again
+		 */
+		public long getVersion() {
+			return version;
+		}
+
+		public TaxClass getDefaultTaxClass() {
+			return defaultTaxClass;
+		}
+
+		/**
+		 * Rates of a tax class for a country and zone, rates without zone
+		 * apply to every zone of the country
+		 */
+		public List<TaxRate> getRates(Country country, Zone zone, TaxClass taxClass) {
+			String key = new StringBuilder().append(country.getId()).append("|Z").append(zone.getId())
+					.append("|").append(taxClass.getId()).toString();
+			return resolved.computeIfAbsent(key, k -> filter(country, taxClass,
+					r -> r.getZone() == null || r.getZone().getId().equals(zone.getId())));
+		}
+
+		/**
+		 * Rates of a tax class for a country and a state province when the
+		 * country has no zones
+		 */
+		public List<TaxRate> getRates(Country country, String stateProvince, TaxClass taxClass) {
+			String key = new StringBuilder().append(country.getId()).append("|S").append(stateProvince)
+					.append("|").append(taxClass.getId()).toString();
+			return resolved.computeIfAbsent(key, k -> filter(country, taxClass,
+					r -> stateProvince.equals(r.getStateProvince())));
+		}
+
+		private List<TaxRate> filter(Country country, TaxClass taxClass, Predicate<TaxRate> location) {
+			List<TaxRate> matching = new ArrayList<TaxRate>();
+			for (TaxRate rate : rates) {
+				if (rate.getCountry().getId().equals(country.getId())
+						&& rate.getTaxClass().getId().equals(taxClass.getId())
+						&& location.test(rate)) {
+					matching.add(rate);
+				}
+			}
+			return Collections.unmodifiableList(matching);
+		}
+
+		/**
+		 * Label of a rate in a given language, first description otherwise
+		 */
+		public String getLabel(TaxRate rate, Language language) {
+			List<TaxRateDescription> descriptions = rate.getDescriptions();
+			if (descriptions == null || descriptions.isEmpty()) {
+				return rate.getCode();
+			}
+			if (language != null) {
+				for (TaxRateDescription description : descriptions) {
+					if (description.getLanguage() != null && Objects.equals(description.getLanguage().getId(), language.getId())) {
+						return description.getName();
+					}
+				}
+			}
+			return descriptions.get(0).getName();
+		}
+
+		public boolean isTaxConfigurationLoaded() {
+			return taxConfigurationLoaded;
+		}
+
+		public TaxConfiguration getTaxConfiguration() {
+			return taxConfiguration;
+		}
+
+		public void setTaxConfiguration(TaxConfiguration taxConfiguration) {
+			this.taxConfiguration = taxConfiguration;
+			this.taxConfigurationLoaded = true;
+		}
+
+	}
+
+}
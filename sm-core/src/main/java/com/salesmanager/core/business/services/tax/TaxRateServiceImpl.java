@@ -22,6 +22,9 @@ public class TaxRateServiceImpl extends SalesManagerEntityServiceImpl<Long, TaxR
 
 	private TaxRateRepository taxRateRepository;
 	
+	@Inject
+	private TaxRateResolver taxRateResolver;
+	
 	@Inject
 	public TaxRateServiceImpl(TaxRateRepository taxRateRepository) {
 		super(taxRateRepository);
@@ -60,16 +63,25 @@ public class TaxRateServiceImpl extends SalesManagerEntityServiceImpl<Long, TaxR
 	@Override
 	public void delete(TaxRate taxRate) throws ServiceException {
 		
-		taxRateRepository.delete(taxRate);
+		TaxRate t = getById(taxRate.getId());
+		taxRateRepository.delete(t);
+		taxRateResolver.invalidate(t.getMerchantStore());
 		
 	}
 	
+	@Override
+	public void save(TaxRate taxRate) throws ServiceException {
+		super.save(taxRate);
+		taxRateResolver.invalidate(taxRate.getMerchantStore());
+	}
+	
 	@Override
 	public TaxRate saveOrUpdate(TaxRate taxRate) throws ServiceException {
 		if(taxRate.getId()!=null && taxRate.getId() > 0) {
 			this.update(taxRate);
 		} else {
 			taxRate = super.saveAndFlush(taxRate);
+			taxRateResolver.invalidate(taxRate.getMerchantStore());
 		}
 		return taxRate;
 	}
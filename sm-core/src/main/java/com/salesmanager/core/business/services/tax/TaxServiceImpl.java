@@ -39,16 +39,12 @@ public class TaxServiceImpl
 		implements TaxService {
 	
 	private final static String TAX_CONFIGURATION = "TAX_CONFIG";
-	private final static String DEFAULT_TAX_CLASS = "DEFAULT";
 	
 	@Inject
 	private MerchantConfigurationService merchantConfigurationService;
 	
 	@Inject
-	private TaxRateService taxRateService;
-	
-	@Inject
-	private TaxClassService taxClassService;
+	private TaxRateResolver taxRateResolver;
 	
 	@Override
 	public TaxConfiguration getTaxConfiguration(MerchantStore store) throws ServiceException {
@@ -85,6 +81,7 @@ public class TaxServiceImpl
 		String value = shippingConfiguration.toJSONString();
 		configuration.setValue(value);
 		merchantConfigurationService.saveOrUpdate(configuration);
+		taxRateResolver.invalidate(store);
 		
 	}
 	
@@ -104,8 +101,13 @@ public class TaxServiceImpl
 			return taxLines;
 		}
 		
+		TaxRateResolver.TaxRateTable taxRateTable = taxRateResolver.getTable(store);
+		
 		//determine tax calculation basis
-		TaxConfiguration taxConfiguration = this.getTaxConfiguration(store);
+		if(!taxRateTable.isTaxConfigurationLoaded()) {
+			taxRateTable.setTaxConfiguration(this.getTaxConfiguration(store));
+		}
+		TaxConfiguration taxConfiguration = taxRateTable.getTaxConfiguration();
 		if(taxConfiguration==null) {
 			taxConfiguration = new TaxConfiguration();
 			taxConfiguration.setTaxBasisCalculation(TaxBasisCalculation.SHIPPINGADDRESS);
@@ -180,7 +182,7 @@ public class TaxServiceImpl
 				int quantity = item.getQuantity();
 				itemPrice = itemPrice.multiply(new BigDecimal(quantity));
 				if(taxClass==null) {
-					taxClass = taxClassService.getByCode(DEFAULT_TAX_CLASS);
+					taxClass = taxRateTable.getDefaultTaxClass();
 				}
 				BigDecimal subTotal = taxClassAmountMap.get(taxClass.getId());
 				if(subTotal==null) {
@@ -201,7 +203,7 @@ public class TaxServiceImpl
 		//if(shippingConfiguration!=null) {
 			//if(shippingConfiguration.isTaxOnShipping()){
 				//use default tax class for shipping
-				TaxClass defaultTaxClass = taxClassService.getByCode(TaxClass.DEFAULT_TAX_CLASS);
+				TaxClass defaultTaxClass = taxRateTable.getDefaultTaxClass();
 				//taxClasses.put(defaultTaxClass.getId(), defaultTaxClass);
 				BigDecimal amnt = taxClassAmountMap.get(defaultTaxClass.getId());
 				if(amnt==null) {
@@ -222,15 +224,18 @@ public class TaxServiceImpl
 		
 		List<TaxItem> taxItems = new ArrayList<TaxItem>();
 		
+		//shipping is taxed with the default tax class
+		taxClasses.put(defaultTaxClass.getId(), defaultTaxClass);
+		
 		//iterate through the tax class and get appropriate rates
 		for(Long taxClassId : taxClassAmountMap.keySet()) {
 			
 			//get taxRate by tax class
 			List<TaxRate> taxRates = null; 
 			if(!StringUtils.isBlank(stateProvince)&& zone==null) {
-				taxRates = taxRateService.listByCountryStateProvinceAndTaxClass(country, stateProvince, taxClasses.get(taxClassId), store, language);
+				taxRates = taxRateTable.getRates(country, stateProvince, taxClasses.get(taxClassId));
 			} else {
-				taxRates = taxRateService.listByCountryZoneAndTaxClass(country, zone, taxClasses.get(taxClassId), store, language);
+				taxRates = taxRateTable.getRates(country, zone, taxClasses.get(taxClassId));
 			}
 			
 			if(taxRates==null || taxRates.size()==0){
@@ -258,7 +263,7 @@ public class TaxServiceImpl
 				
 				TaxItem taxItem = new TaxItem();
 				taxItem.setItemPrice(taxedItemValue);
-				taxItem.setLabel(taxRate.getDescriptions().get(0).getName());
+				taxItem.setLabel(taxRateTable.getLabel(taxRate, language));
 				taxItem.setTaxRate(taxRate);
 				taxItems.add(taxItem);
 				
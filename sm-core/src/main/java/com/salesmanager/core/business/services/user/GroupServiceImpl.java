@@ -18,6 +18,9 @@ public class GroupServiceImpl extends SalesManagerEntityServiceImpl<Integer, Gro
 
   GroupRepository groupRepository;
 
+  @Inject
+  private PrincipalCache principalCache;
+
 
   @Inject
   public GroupServiceImpl(GroupRepository groupRepository) {
@@ -27,6 +30,18 @@ public class GroupServiceImpl extends SalesManagerEntityServiceImpl<Integer, Gro
   }
 
 
+  @Override
+  public void save(Group group) throws ServiceException {
+    super.save(group);
+    principalCache.clear();
+  }
+
+  @Override
+  public void delete(Group group) throws ServiceException {
+    super.delete(group);
+    principalCache.clear();
+  }
+
   @Override
   public List<Group> listGroup(GroupType groupType) throws ServiceException {
     try {
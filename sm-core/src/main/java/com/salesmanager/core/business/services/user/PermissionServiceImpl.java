@@ -25,6 +25,9 @@ public class PermissionServiceImpl extends
 
 	private PermissionRepository permissionRepository;
 
+	@Inject
+	private PrincipalCache principalCache;
+
 
 	@Inject
 	public PermissionServiceImpl(PermissionRepository permissionRepository) {
@@ -47,6 +50,18 @@ public class PermissionServiceImpl extends
 	}
 
 
+	@Override
+	public void save(Permission permission) throws ServiceException {
+		super.save(permission);
+		principalCache.clear();
+	}
+
+	@Override
+	public void delete(Permission permission) throws ServiceException {
+		super.delete(permission);
+		principalCache.clear();
+	}
+
 	@Override
 	public void deletePermission(Permission permission) throws ServiceException {
 		permission = this.getById(permission.getId());//Prevents detached entity error
@@ -76,7 +91,7 @@ public class PermissionServiceImpl extends
 		permission = this.getById(permission.getId());//Prevents detached entity error
 	
 		permission.getGroups().remove(group);
-		
+		principalCache.clear();
 
 	}
 
@@ -0,0 +1,94 @@
+package com.salesmanager.core.business.services.user;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.salesmanager.core.business.repositories.merchant.MerchantRepository;
+import com.salesmanager.core.business.repositories.user.PermissionRepository;
+import com.salesmanager.core.business.repositories.user.UserRepository;
+import com.salesmanager.core.business.utils.ExpiringCache;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.user.Group;
+import com.salesmanager.core.model.user.Permission;
+import com.salesmanager.core.model.user.User;
+
+/**
+ * Administration users by user name as {@link PrincipalSnapshot}, so
+ * authenticating and authorizing a request does not query the user, its
+ * groups, permissions and store each time.
+ *
+ * Every entry is dropped when a user, a group, a permission or a store is
+ * saved or deleted (a rename or a group change can affect any user), and
+ * entries expire after config.authorization.cacheTtl seconds.
+ */
+@Component
+public class PrincipalCache {
+
+	@Inject
+	private UserRepository userRepository;
+
+	@Inject
+	private PermissionRepository permissionRepository;
+
+	@Inject
+	private MerchantRepository merchantRepository;
+
+	@Value("${config.authorization.cacheTtl:60}")
+	private long ttl;
+
+	private ExpiringCache<String, PrincipalSnapshot> principals;
+
+	@PostConstruct
+	public void init() {
+		principals = new ExpiringCache<String, PrincipalSnapshot>(ttl);
+	}
+
+	/**
+	 * @param userName
+	 * @return the user, null if there is no user with that name
+	 */
+	public PrincipalSnapshot get(String userName) {
+		return principals.get(userName, () -> load(userName));
+	}
+
+	public void clear() {
+		principals.clear();
+	}
+
+	private PrincipalSnapshot load(String userName) {
+
+		User user = userRepository.findByUserName(userName);
+		if (user == null) {
+			return null;
+		}
+
+		Set<String> groups = new LinkedHashSet<String>();
+		Set<Integer> groupIds = new LinkedHashSet<Integer>();
+		for (Group group : user.getGroups()) {
+			groups.add(group.getGroupName());
+			groupIds.add(group.getId());
+		}
+		Set<String> permissions = new LinkedHashSet<String>();
+		if (!groupIds.isEmpty()) {
+			for (Permission permission : permissionRepository.findByGroups(groupIds)) {
+				permissions.add(permission.getPermissionName());
+			}
+		}
+
+		// parent is fetched with the store
+		String merchant = user.getMerchantStore().getCode();
+		MerchantStore store = merchantRepository.findByCode(merchant);
+		String parentMerchant = store == null || store.getParent() == null ? merchant : store.getParent().getCode();
+
+		return new PrincipalSnapshot(user.getId(), user.getAdminName(), user.getFirstName(), user.getLastName(),
+				user.getAdminEmail(), user.getAdminPassword(), user.isActive(), merchant, parentMerchant, groups,
+				permissions);
+	}
+
+}
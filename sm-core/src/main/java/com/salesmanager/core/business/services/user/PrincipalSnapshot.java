@@ -0,0 +1,102 @@
+package com.salesmanager.core.business.services.user;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * What request authorization needs to know about an administration user,
+ * read once and shared between requests. Immutable.
+ */
+public class PrincipalSnapshot {
+
+	private final Long id;
+	private final String userName;
+	private final String firstName;
+	private final String lastName;
+	private final String email;
+	private final String password;
+	private final boolean active;
+	private final String merchant;
+	private final String parentMerchant;
+	private final Set<String> groups;
+	private final Set<String> permissions;
+
+	public PrincipalSnapshot(Long id, String userName, String firstName, String lastName, String email,
+			String password, boolean active, String merchant, String parentMerchant, Set<String> groups,
+			Set<String> permissions) {
+		this.id = id;
+		this.userName = userName;
+		this.firstName = firstName;
+		this.lastName = lastName;
+		this.email = email;
+		this.password = password;
+		this.active = active;
+		this.merchant = merchant;
+		this.parentMerchant = parentMerchant;
+		this.groups = Collections.unmodifiableSet(new LinkedHashSet<String>(groups));
+		this.permissions = Collections.unmodifiableSet(new LinkedHashSet<String>(permissions));
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getUserName() {
+		return userName;
+	}
+
+	public String getFirstName() {
+		return firstName;
+	}
+
+	public String getLastName() {
+		return lastName;
+	}
+
+	public String getEmail() {
+		return email;
+	}
+
+	public String getPassword() {
+		return password;
+	}
+
+	public boolean isActive() {
+		return active;
+	}
+
+	/**
+	 * @return code of the store of the user
+	 */
+	public String getMerchant() {
+		return merchant;
+	}
+
+	/**
+	 * @return code of the parent of the store of the user, the store itself
+	 *         when it has no parent
+	 */
+	public String getParentMerchant() {
+		return parentMerchant;
+	}
+
+	/**
+	 * @return group names
+	 */
+	public Set<String> getGroups() {
+		return groups;
+	}
+
+	/**
+	 * @return permission names of the groups
+	 */
+	public Set<String> getPermissions() {
+		return permissions;
+	}
+
+	public boolean isInGroup(String group) {
+		return groups.contains(group);
+	}
+
+}
@@ -31,6 +31,9 @@ public class UserServiceImpl extends SalesManagerEntityServiceImpl<Long, User> i
 	@Autowired
 	private PageableUserRepository pageableUserRepository;
 
+	@Inject
+	private PrincipalCache principalCache;
+
 	@Inject
 	public UserServiceImpl(UserRepository userRepository) {
 		super(userRepository);
@@ -43,10 +46,17 @@ public class UserServiceImpl extends SalesManagerEntityServiceImpl<Long, User> i
 		return userRepository.findByUserName(userName);
 	}
 
+	@Override
+	public void save(User user) throws ServiceException {
+		super.save(user);
+		principalCache.clear();
+	}
+
 	@Override
 	public void delete(User user) throws ServiceException {
 		User u = this.getById(user.getId());
 		super.delete(u);
+		principalCache.clear();
 
 	}
 
@@ -71,6 +81,7 @@ public class UserServiceImpl extends SalesManagerEntityServiceImpl<Long, User> i
 	@Override
 	public void saveOrUpdate(User user) throws ServiceException {
 		userRepository.save(user);
+		principalCache.clear();
 	}
 
 	@Override
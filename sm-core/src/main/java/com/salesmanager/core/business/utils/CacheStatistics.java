@@ -0,0 +1,48 @@
+package com.salesmanager.core.business.utils;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Hits, misses, puts and evictions of a cache region of a store (or of
+ * the global namespace)
+ */
+public class CacheStatistics {
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder puts = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	void hit() {
+		hits.increment();
+	}
+
+	void miss() {
+		misses.increment();
+	}
+
+	void put() {
+		puts.increment();
+	}
+
+	void evict() {
+		evictions.increment();
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	public long getPuts() {
+		return puts.sum();
+	}
+
+	public long getEvictions() {
+		return evictions.sum();
+	}
+
+}
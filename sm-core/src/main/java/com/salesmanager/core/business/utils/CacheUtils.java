@@ -1,8 +1,14 @@
 package com.salesmanager.core.business.utils;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 
+import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 
 import org.slf4j.Logger;
@@ -14,99 +20,226 @@ import org.springframework.stereotype.Component;
 
 import com.salesmanager.core.model.merchant.MerchantStore;
 
+import net.sf.ehcache.Ehcache;
+import net.sf.ehcache.Element;
+import net.sf.ehcache.event.CacheEventListenerAdapter;
+
+/**
+ * Object cache shared by the services and the storefront.
+ *
+ * Keys starting with <storeId>_ belong to the namespace of a store, other
+ * keys to the global namespace. The keys of each store are indexed so
+ * listing or flushing the keys of a store only visits that store's keys,
+ * entries evicted or expired by the cache provider are removed from the
+ * index by a cache listener.
+ *
+ * Hits, misses, puts and evictions are counted by namespace and region,
+ * the region being the key without store prefix and entity ids, up to
+ * the first language or key delimiter.
+ */
 @Component("cache")
 public class CacheUtils {
-	
-	
+
+
     @Inject
     @Qualifier("serviceCache")
     private Cache cache;
-	
-	
+
+    @Inject
+    private StoreContentVersions storeContentVersions;
+
+
 	public final static String REFERENCE_CACHE = "REF";
-	
+
+	public final static String GLOBAL_NAMESPACE = "global";
+
 	private static final Logger LOGGER = LoggerFactory.getLogger(CacheUtils.class);
 
 	private final static String KEY_DELIMITER = "_";
-	
+
+	/** storeId - keys of the store **/
+	private final Map<Integer, Set<String>> storeKeys = new ConcurrentHashMap<Integer, Set<String>>();
+
+	/** namespace - region - statistics **/
+	private final Map<String, Map<String, CacheStatistics>> statistics = new ConcurrentHashMap<String, Map<String, CacheStatistics>>();
+
+	@PostConstruct
+	public void init() {
+		Object nativeCache = cache.getNativeCache();
+		if (nativeCache instanceof Ehcache) {
+			((Ehcache) nativeCache).getCacheEventNotificationService().registerListener(new CacheEventListenerAdapter() {
+
+				@Override
+				public void notifyElementEvicted(Ehcache ehcache, Element element) {
+					evicted(element);
+				}
+
+				@Override
+				public void notifyElementExpired(Ehcache ehcache, Element element) {
+					evicted(element);
+				}
+
+				@Override
+				public void notifyElementRemoved(Ehcache ehcache, Element element) {
+					unindex(element.getObjectKey());
+				}
+
+				@Override
+				public void notifyRemoveAll(Ehcache ehcache) {
+					storeKeys.clear();
+				}
+			});
+		}
+	}
 
 
 	public void putInCache(Object object, String keyName) throws Exception {
 
+		Integer storeId = getStoreId(keyName);
+		if (storeId != null) {
+			storeKeys.computeIfAbsent(storeId, id -> ConcurrentHashMap.newKeySet()).add(keyName);
+		}
 		cache.put(keyName, object);
-		
+		getStatistics(keyName).put();
+
 	}
-	
+
 
 	public Object getFromCache(String keyName) throws Exception {
 
 		ValueWrapper vw = cache.get(keyName);
 		if(vw!=null) {
+			getStatistics(keyName).hit();
 			return vw.get();
 		}
-		
+
+		getStatistics(keyName).miss();
 		return null;
-		
+
 	}
-	
+
+	/**
+	 * Keys of a store without the store prefix
+	 */
 	public List<String> getCacheKeys(MerchantStore store) throws Exception {
-		
-		  net.sf.ehcache.Cache cacheImpl = (net.sf.ehcache.Cache) cache.getNativeCache();
+
 		  List<String> returnKeys = new ArrayList<String>();
-		  for (Object key: cacheImpl.getKeys()) {
-		    
-			  
-				try {
-					String sKey = (String)key;
-					
-					// a key should be <storeId>_<rest of the key>
-					int delimiterPosition = sKey.indexOf(KEY_DELIMITER);
-					
-					if(delimiterPosition>0 && Character.isDigit(sKey.charAt(0))) {
-					
-						String keyRemaining = sKey.substring(delimiterPosition+1);
-						returnKeys.add(keyRemaining);
-					
-					}
-
-				} catch (Exception e) {
-					LOGGER.equals("key " + key + " cannot be converted to a String or parsed");
-				}  
+		  Set<String> keys = storeKeys.get(store.getId());
+		  if (keys != null) {
+			  for (String key : keys) {
+				  returnKeys.add(key.substring(key.indexOf(KEY_DELIMITER) + 1));
+			  }
 		  }
 
 		return returnKeys;
 	}
-	
+
 	public void shutDownCache() throws Exception {
-		
+
 	}
-	
+
 	public void removeFromCache(String keyName) throws Exception {
 		cache.evict(keyName);
+		unindex(keyName);
+		//storefront snapshots are not kept in this cache
+		Integer storeId = getStoreId(keyName);
+		if (storeId != null) {
+			storeContentVersions.increment(storeId);
+		} else {
+			storeContentVersions.incrementAll();
+		}
 	}
-	
+
+	/**
+	 * Removes the keys of a store, keys of other stores and global keys are
+	 * kept
+	 */
 	public void removeAllFromCache(MerchantStore store) throws Exception {
-		  net.sf.ehcache.Cache cacheImpl = (net.sf.ehcache.Cache) cache.getNativeCache();
-		  for (Object key: cacheImpl.getKeys()) {
-				try {
-					String sKey = (String)key;
-					
-					// a key should be <storeId>_<rest of the key>
-					int delimiterPosition = sKey.indexOf(KEY_DELIMITER);
-					
-					if(delimiterPosition>0 && Character.isDigit(sKey.charAt(0))) {
-					
-
-						cache.evict(key);
-					
-					}
-
-				} catch (Exception e) {
-					LOGGER.equals("key " + key + " cannot be converted to a String or parsed");
-				}  
+		  Set<String> keys = storeKeys.remove(store.getId());
+		  if (keys != null) {
+			  for (String key : keys) {
+				  cache.evict(key);
+			  }
 		  }
+		  storeContentVersions.increment(store);
+	}
+
+	/**
+	 * Statistics by namespace (store id or global) and region
+	 */
+	public Map<String, Map<String, CacheStatistics>> getStatistics() {
+		Map<String, Map<String, CacheStatistics>> copy = new TreeMap<String, Map<String, CacheStatistics>>();
+		for (Map.Entry<String, Map<String, CacheStatistics>> namespace : statistics.entrySet()) {
+			copy.put(namespace.getKey(), Collections.unmodifiableMap(new TreeMap<String, CacheStatistics>(namespace.getValue())));
+		}
+		return copy;
+	}
+
+	public Map<String, CacheStatistics> getStatistics(MerchantStore store) {
+		Map<String, CacheStatistics> regions = statistics.get(String.valueOf(store.getId()));
+		return regions == null ? Collections.<String, CacheStatistics>emptyMap()
+				: Collections.unmodifiableMap(new TreeMap<String, CacheStatistics>(regions));
+	}
+
+	private void evicted(Element element) {
+		Object key = element.getObjectKey();
+		unindex(key);
+		if (key instanceof String) {
+			getStatistics((String) key).evict();
+		}
+	}
+
+	private void unindex(Object key) {
+		if (!(key instanceof String)) {
+			return;
+		}
+		Integer storeId = getStoreId((String) key);
+		if (storeId != null) {
+			Set<String> keys = storeKeys.get(storeId);
+			if (keys != null) {
+				keys.remove(key);
+			}
+		}
+	}
+
+	private CacheStatistics getStatistics(String key) {
+		Integer storeId = getStoreId(key);
+		String namespace = storeId == null ? GLOBAL_NAMESPACE : String.valueOf(storeId);
+		return statistics.computeIfAbsent(namespace, n -> new ConcurrentHashMap<String, CacheStatistics>())
+				.computeIfAbsent(getRegion(key, storeId != null), r -> new CacheStatistics());
 	}
-	
 
+	/**
+	 * a key of a store is <storeId>_<rest of the key>
+	 * @return null for global keys
+	 */
+	private Integer getStoreId(String key) {
+		int delimiterPosition = key.indexOf(KEY_DELIMITER);
+		if (delimiterPosition <= 0 || delimiterPosition > 9) {
+			return null;
+		}
+		for (int i = 0; i < delimiterPosition; i++) {
+			if (!Character.isDigit(key.charAt(i))) {
+				return null;
+			}
+		}
+		return Integer.valueOf(key.substring(0, delimiterPosition));
+	}
+
+	private String getRegion(String key, boolean storeKey) {
+		String region = storeKey ? key.substring(key.indexOf(KEY_DELIMITER) + 1) : key;
+		// entity ids (<storeId>_<categoryId>_SUBCATEGORIES) are not part of the region
+		while (getStoreId(region) != null) {
+			region = region.substring(region.indexOf(KEY_DELIMITER) + 1);
+		}
+		int end = region.indexOf('-');
+		if (!storeKey) {
+			int delimiter = region.indexOf(KEY_DELIMITER);
+			if (delimiter > 0 && (end < 0 || delimiter < end)) {
+				end = delimiter;
+			}
+		}
+		return end > 0 ? region.substring(0, end) : region;
+	}
 
 }
@@ -0,0 +1,97 @@
+package com.salesmanager.core.business.utils;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hibernate second level cache statistics by region (entity, collection
+ * and query regions declared in spring/ehcache-hibernate.xml). Counts are
+ * kept when hibernate.generate_statistics is enabled.
+ */
+@Component
+public class EntityCacheStatistics {
+
+	@Inject
+	private EntityManagerFactory entityManagerFactory;
+
+	public boolean isEnabled() {
+		return statistics().isStatisticsEnabled();
+	}
+
+	public Map<String, Region> getRegions() {
+		Statistics statistics = statistics();
+		Map<String, Region> regions = new TreeMap<String, Region>();
+		for (String name : statistics.getSecondLevelCacheRegionNames()) {
+			CacheRegionStatistics region = statistics.getCacheRegionStatistics(name);
+			if (region != null) {
+				regions.put(name, new Region(region));
+			}
+		}
+		return regions;
+	}
+
+	/**
+	 * @return statistics of a region, null when the region does not exist
+	 */
+	public Region getRegion(String name) {
+		CacheRegionStatistics region = statistics().getCacheRegionStatistics(name);
+		return region == null ? null : new Region(region);
+	}
+
+	/**
+	 * Statements prepared since the statistics were enabled
+	 */
+	public long getPreparedStatementCount() {
+		return statistics().getPrepareStatementCount();
+	}
+
+	private Statistics statistics() {
+		return entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+	}
+
+	public static class Region {
+
+		private final long hits;
+		private final long misses;
+		private final long puts;
+		private final long elements;
+
+		Region(CacheRegionStatistics statistics) {
+			this.hits = statistics.getHitCount();
+			this.misses = statistics.getMissCount();
+			this.puts = statistics.getPutCount();
+			this.elements = Math.max(statistics.getElementCountInMemory(), -1);
+		}
+
+		public long getHits() {
+			return hits;
+		}
+
+		public long getMisses() {
+			return misses;
+		}
+
+		public long getPuts() {
+			return puts;
+		}
+
+		/** entries held in memory, -1 when the provider does not tell **/
+		public long getElements() {
+			return elements;
+		}
+
+		public double getHitRatio() {
+			long reads = hits + misses;
+			return reads == 0 ? 0 : (double) hits / reads;
+		}
+	}
+
+}
@@ -0,0 +1,344 @@
+package com.salesmanager.core.business.utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * In memory cache of objects built from the database, kept a number of
+ * seconds. Used by the services keeping objects which are expensive to
+ * build (tax rate tables, category trees, decrypted configurations...).
+ *
+ * Changes are seen right away on the server making them, which invalidates
+ * the entries, and after the ttl on the other servers of a cluster. An
+ * entry can also be tied to a version (the store content version), an
+ * entry built for another version is built again.
+ *
+ * Concurrent misses of the same key wait for a single load. A load started
+ * before the key was invalidated is returned to its callers but not kept.
+ * Expired entries are dropped as new entries are added, when a maximum
+ * weight is set the least recently used entries are dropped first.
+ *
+ * A ttl of 0 disables the cache, every call loads.
+ */
+public class ExpiringCache<K, V> {
+
+	/** version of entries not tied to a version **/
+	public static final long NO_VERSION = 0L;
+
+	private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<K, Entry<V>>();
+
+	/** milliseconds **/
+	private volatile long ttl;
+
+	private long maxWeight = Long.MAX_VALUE;
+	private ToLongFunction<? super V> weigher = value -> 1L;
+	private Predicate<? super V> keep = value -> true;
+	private ToLongFunction<? super V> validUntil = value -> Long.MAX_VALUE;
+
+	private final AtomicLong weight = new AtomicLong();
+	/** access order of the entries **/
+	private final AtomicLong accesses = new AtomicLong();
+	private volatile long nextSweep;
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder loads = new LongAdder();
+
+	/**
+	 * @param ttl seconds an entry is kept, 0 disables the cache
+	 */
+	public ExpiringCache(long ttl) {
+		setTtl(ttl);
+	}
+
+	/**
+	 * Drops the least recently used entries once the total weight of the
+	 * entries goes over maxWeight
+	 */
+	public ExpiringCache<K, V> maxWeight(long maxWeight, ToLongFunction<? super V> weigher) {
+		this.maxWeight = maxWeight;
+		this.weigher = weigher;
+		return this;
+	}
+
+	/**
+	 * Loaded values not matching are returned but not kept
+	 */
+	public ExpiringCache<K, V> keepIf(Predicate<? super V> keep) {
+		this.keep = keep;
+		return this;
+	}
+
+	/**
+	 * Time in milliseconds after which a value is stale whatever the ttl
+	 */
+	public ExpiringCache<K, V> validUntil(ToLongFunction<? super V> validUntil) {
+		this.validUntil = validUntil;
+		return this;
+	}
+
+	public void setTtl(long ttl) {
+		this.ttl = TimeUnit.SECONDS.toMillis(Math.max(ttl, 0));
+	}
+
+	public boolean isEnabled() {
+		return ttl > 0;
+	}
+
+	/**
+	 * @return the value kept for key, null if none
+	 */
+	public V get(K key) {
+		Entry<V> entry = entries.get(key);
+		long now = System.currentTimeMillis();
+		if (entry != null && entry.isDone()) {
+			if (entry.isValid(entry.version, now)) {
+				hits.increment();
+				entry.accessed = accesses.incrementAndGet();
+				return entry.value.getNow(null);
+			}
+			remove(key, entry);
+		}
+		misses.increment();
+		return null;
+	}
+
+	public <E extends Exception> V get(K key, Loader<? extends V, E> loader) throws E {
+		return get(key, NO_VERSION, loader);
+	}
+
+	/**
+	 * Value kept for key and version or the value returned by the loader
+	 * @param key
+	 * @param version read before loading, a change made while loading
+	 *        leaves a stale version and the value is loaded again next time
+	 * @param loader
+	 * @return null when the loader returns null, null values are not kept
+	 * @throws E thrown by the loader
+	 */
+	public <E extends Exception> V get(K key, long version, Loader<? extends V, E> loader) throws E {
+
+		if (ttl <= 0) {
+			loads.increment();
+			return loader.load();
+		}
+
+		long now = System.currentTimeMillis();
+		Entry<V> entry = entries.get(key);
+		if (entry == null || !entry.isValid(version, now)) {
+			Entry<V> loading = new Entry<V>(version);
+			entry = entries.compute(key, (k, current) -> current != null && current.isValid(version, now) ? current : loading);
+			if (entry == loading) {
+				misses.increment();
+				return load(key, loading, now, loader);
+			}
+		}
+
+		if (!entry.isDone()) {
+			try {
+				V value = entry.value.get();
+				hits.increment();
+				return value;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				// failed for the caller loading it, loaded again by each caller
+			}
+			loads.increment();
+			return loader.load();
+		}
+
+		hits.increment();
+		entry.accessed = accesses.incrementAndGet();
+		return entry.value.getNow(null);
+	}
+
+	/**
+	 * Keeps a value for key, values not kept by {@link #keepIf} are ignored
+	 */
+	public void put(K key, V value) {
+		if (ttl <= 0 || value == null || !keep.test(value)) {
+			return;
+		}
+		long now = System.currentTimeMillis();
+		Entry<V> entry = new Entry<V>(NO_VERSION);
+		remove(key, entries.put(key, entry));
+		complete(key, entry, value, now);
+	}
+
+	public void invalidate(K key) {
+		Entry<V> entry = entries.get(key);
+		if (entry != null) {
+			remove(key, entry);
+		}
+	}
+
+	public void invalidateIf(Predicate<? super K> matching) {
+		for (Map.Entry<K, Entry<V>> entry : entries.entrySet()) {
+			if (matching.test(entry.getKey())) {
+				remove(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	public void clear() {
+		invalidateIf(key -> true);
+	}
+
+	/**
+	 * Drops the expired entries
+	 */
+	public void evictExpired() {
+		long now = System.currentTimeMillis();
+		for (Map.Entry<K, Entry<V>> entry : entries.entrySet()) {
+			if (entry.getValue().isDone() && entry.getValue().expires <= now) {
+				remove(entry.getKey(), entry.getValue());
+			}
+		}
+	}
+
+	public int size() {
+		return entries.size();
+	}
+
+	/**
+	 * @return total weight of the entries kept
+	 */
+	public long getWeight() {
+		return weight.get();
+	}
+
+	public long getHitCount() {
+		return hits.sum();
+	}
+
+	public long getMissCount() {
+		return misses.sum();
+	}
+
+	/**
+	 * @return times a loader ran
+	 */
+	public long getLoadCount() {
+		return loads.sum();
+	}
+
+	private <E extends Exception> V load(K key, Entry<V> loading, long now, Loader<? extends V, E> loader) throws E {
+		V value;
+		try {
+			loads.increment();
+			value = loader.load();
+		} catch (Exception | Error e) {
+			entries.remove(key, loading);
+			loading.value.completeExceptionally(e);
+			throw e;
+		}
+		if (value == null || !keep.test(value)) {
+			entries.remove(key, loading);
+			loading.value.complete(value);
+			return value;
+		}
+		complete(key, loading, value, now);
+		return value;
+	}
+
+	private void complete(K key, Entry<V> entry, V value, long now) {
+		entry.expires = Math.min(now + ttl, validUntil.applyAsLong(value));
+		entry.accessed = accesses.incrementAndGet();
+		entry.weight = weigher.applyAsLong(value);
+		synchronized (entry) {
+			// not counted when invalidated while loading
+			if (entries.get(key) == entry) {
+				entry.counted = true;
+				weight.addAndGet(entry.weight);
+			}
+		}
+		entry.value.complete(value);
+		if (!entry.counted) {
+			entries.remove(key, entry);
+		}
+
+		if (now >= nextSweep) {
+			nextSweep = now + Math.max(ttl, 1000L);
+			evictExpired();
+		}
+		if (weight.get() > maxWeight) {
+			evictLeastRecentlyUsed();
+		}
+	}
+
+	private synchronized void evictLeastRecentlyUsed() {
+		evictExpired();
+		if (weight.get() <= maxWeight) {
+			return;
+		}
+		List<Map.Entry<K, Entry<V>>> used = new ArrayList<Map.Entry<K, Entry<V>>>();
+		for (Map.Entry<K, Entry<V>> entry : entries.entrySet()) {
+			if (entry.getValue().isDone()) {
+				used.add(entry);
+			}
+		}
+		used.sort(Comparator.comparingLong(entry -> entry.getValue().accessed));
+		for (Map.Entry<K, Entry<V>> entry : used) {
+			if (weight.get() <= maxWeight) {
+				break;
+			}
+			remove(entry.getKey(), entry.getValue());
+		}
+	}
+
+	private void remove(K key, Entry<V> entry) {
+		if (entry == null || !entries.remove(key, entry)) {
+			return;
+		}
+		synchronized (entry) {
+			if (entry.counted) {
+				entry.counted = false;
+				weight.addAndGet(-entry.weight);
+			}
+		}
+	}
+
+	/**
+	 * Builds a value missing from the cache
+	 */
+	public interface Loader<V, E extends Exception> {
+		V load() throws E;
+	}
+
+	private static class Entry<V> {
+
+		private final long version;
+		private final CompletableFuture<V> value = new CompletableFuture<V>();
+		/** set once loaded **/
+		private volatile long expires = Long.MAX_VALUE;
+		/** last access order **/
+		private volatile long accessed;
+		private long weight;
+		/** weight added to the cache weight **/
+		private boolean counted;
+
+		Entry(long version) {
+			this.version = version;
+		}
+
+		boolean isDone() {
+			return value.isDone();
+		}
+
+		boolean isValid(long version, long now) {
+			return this.version == version && (!value.isDone() || expires > now);
+		}
+	}
+
+}
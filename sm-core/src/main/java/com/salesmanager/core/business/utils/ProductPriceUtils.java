@@ -2,7 +2,6 @@ package com.salesmanager.core.business.utils;
 
 import java.math.BigDecimal;
 import java.text.NumberFormat;
-import java.util.ArrayList;
 import java.util.Currency;
 import java.util.Date;
 import java.util.List;
@@ -11,6 +10,8 @@ import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
+import javax.inject.Inject;
+
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 import org.apache.commons.validator.routines.BigDecimalValidator;
@@ -20,6 +21,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import com.salesmanager.core.business.constants.Constants;
+import com.salesmanager.core.business.services.catalog.product.price.PriceBook;
 import com.salesmanager.core.model.catalog.product.Product;
 import com.salesmanager.core.model.catalog.product.attribute.ProductAttribute;
 import com.salesmanager.core.model.catalog.product.availability.ProductAvailability;
@@ -45,6 +47,8 @@ public class ProductPriceUtils {
 	
 	private static final Logger LOGGER = LoggerFactory.getLogger(ProductPriceUtils.class);
 
+	@Inject
+	private PriceBook priceBook;
 	
 	
 	/**
@@ -499,117 +503,7 @@ public class ProductPriceUtils {
 	}
 	
 	private FinalPrice calculateFinalPrice(Product product) {
-
-		FinalPrice finalPrice = null;
-		List<FinalPrice> otherPrices = null;
-		
-
-		Set<ProductAvailability> availabilities = product.getAvailabilities();
-		for(ProductAvailability availability : availabilities) {
-			if(!StringUtils.isEmpty(availability.getRegion()) && availability.getRegion().equals(Constants.ALL_REGIONS)) {//TODO REL 2.1 accept a region
-				Set<ProductPrice> prices = availability.getPrices();
-				for(ProductPrice price : prices) {
-					
-					FinalPrice p = finalPrice(price);
-					if(price.isDefaultPrice()) {
-						finalPrice = p;
-					} else {
-						if(otherPrices==null) {
-							otherPrices = new ArrayList<FinalPrice>();
-						}
-						otherPrices.add(p);
-					}
-				}
-			}
-		}
-
-		
-		if(finalPrice!=null) {
-			finalPrice.setAdditionalPrices(otherPrices);
-		} else {
-			if(otherPrices!=null) {
-				finalPrice = otherPrices.get(0);
-			}
-		}
-		
-		return finalPrice;
-		
-		
-	}
-	
-	private FinalPrice finalPrice(ProductPrice price) {
-		
-		FinalPrice finalPrice = new FinalPrice();
-		BigDecimal fPrice = price.getProductPriceAmount();
-		BigDecimal oPrice = price.getProductPriceAmount();
-
-		Date today = new Date();
-		//calculate discount price
-		boolean hasDiscount = false;
-		if(price.getProductPriceSpecialStartDate()!=null
-				|| price.getProductPriceSpecialEndDate()!=null) {
-			
-			
-			if(price.getProductPriceSpecialStartDate()!=null) {
-				if(price.getProductPriceSpecialStartDate().before(today)) {
-					if(price.getProductPriceSpecialEndDate()!=null) {
-							if(price.getProductPriceSpecialEndDate().after(today)) {
-								hasDiscount = true;
-								fPrice = price.getProductPriceSpecialAmount();
-								finalPrice.setDiscountEndDate(price.getProductPriceSpecialEndDate());
-							}
-					} 
-						
-				}
-			}
-			
-			
-			if(!hasDiscount && price.getProductPriceSpecialStartDate()==null && price.getProductPriceSpecialEndDate()!=null) {
-				if(price.getProductPriceSpecialEndDate().after(today)) {
-					hasDiscount = true;
-					fPrice = price.getProductPriceSpecialAmount();
-					finalPrice.setDiscountEndDate(price.getProductPriceSpecialEndDate());
-				}
-			}
-		} else {
-			if(price.getProductPriceSpecialAmount()!=null && price.getProductPriceSpecialAmount().doubleValue()>0) {
-				hasDiscount = true;
-				fPrice = price.getProductPriceSpecialAmount();
-				finalPrice.setDiscountEndDate(price.getProductPriceSpecialEndDate());
-			}
-		}
-		
-		finalPrice.setProductPrice(price);
-		finalPrice.setFinalPrice(fPrice);
-		finalPrice.setOriginalPrice(oPrice);
-		
-		
-		if(price.isDefaultPrice()) {
-			finalPrice.setDefaultPrice(true);
-		}
-		if(hasDiscount) {
-			discountPrice(finalPrice);
-		}
-
-		
-		return finalPrice;
+		return priceBook.getFinalPrice(product);
 	}
-	
-	private void discountPrice(FinalPrice finalPrice) {
-		
-		finalPrice.setDiscounted(true);
-		
-		double arith = finalPrice.getProductPrice().getProductPriceSpecialAmount().doubleValue() / finalPrice.getProductPrice().getProductPriceAmount().doubleValue();
-		double fsdiscount = 100 - (arith * 100);
-		Float percentagediscount = new Float(fsdiscount);
-		int percent = percentagediscount.intValue();
-		finalPrice.setDiscountPercent(percent);
-		
-		//calculate percent
-		BigDecimal price = finalPrice.getOriginalPrice();
-		finalPrice.setDiscountedPrice(finalPrice.getProductPrice().getProductPriceSpecialAmount());
-	}
-
-
 
 }
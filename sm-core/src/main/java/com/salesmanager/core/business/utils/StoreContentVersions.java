@@ -0,0 +1,54 @@
+package com.salesmanager.core.business.utils;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.stereotype.Component;
+
+import com.salesmanager.core.model.merchant.MerchantStore;
+
+/**
+ * Version of the content displayed on every page of a store (merchant
+ * configurations, content pages and boxes, categories). The version of a
+ * store changes each time one of those is saved or deleted so objects
+ * built from them can tell they are stale by comparing versions.
+ *
+ * Versions are kept by each server and only change on the server saving
+ * the content, objects built from them expire as well so the other
+ * servers of a cluster build them again.
+ */
+@Component
+public class StoreContentVersions {
+
+	private final Map<Integer, AtomicLong> versions = new ConcurrentHashMap<Integer, AtomicLong>();
+
+	/** changed for every store **/
+	private final AtomicLong global = new AtomicLong();
+
+	public long getVersion(MerchantStore store) {
+		AtomicLong version = versions.get(store.getId());
+		return global.get() + (version == null ? 0 : version.get());
+	}
+
+	/**
+	 * Changes the version of a store, of every store when the store is
+	 * not known
+	 */
+	public void increment(MerchantStore store) {
+		increment(store == null ? null : store.getId());
+	}
+
+	public void increment(Integer storeId) {
+		if (storeId != null) {
+			versions.computeIfAbsent(storeId, id -> new AtomicLong()).incrementAndGet();
+		} else {
+			incrementAll();
+		}
+	}
+
+	public void incrementAll() {
+		global.incrementAndGet();
+	}
+
+}
@@ -2,7 +2,11 @@ package com.salesmanager.test.catalog;
 
 import static org.junit.Assert.assertNotNull;
 
+import java.math.BigDecimal;
+import java.util.Date;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
 import java.util.Set;
 
 import org.junit.Assert;
@@ -11,6 +15,11 @@ import org.junit.Test;
 import com.salesmanager.core.business.exception.ServiceException;
 import com.salesmanager.core.model.catalog.category.Category;
 import com.salesmanager.core.model.catalog.category.CategoryDescription;
+import com.salesmanager.core.model.catalog.product.Product;
+import com.salesmanager.core.model.catalog.product.availability.ProductAvailability;
+import com.salesmanager.core.model.catalog.product.description.ProductDescription;
+import com.salesmanager.core.model.catalog.product.price.ProductPrice;
+import com.salesmanager.core.model.catalog.product.type.ProductType;
 import com.salesmanager.core.model.merchant.MerchantStore;
 import com.salesmanager.core.model.reference.language.Language;
 
@@ -62,6 +71,67 @@ public class CategoryTest extends com.salesmanager.test.common.AbstractSalesMana
 
 	}
 
+	/**
+	 * Products of a category include the products of its sub categories
+	 */
+	@Test
+	public void testSubCategoryProducts() throws Exception {
 
+	    Language en = languageService.getByCode("en");
+	    MerchantStore store = merchantService.getByCode(MerchantStore.DEFAULT_STORE);
+
+	    Category parent = category(store, en, "lineageparent", null);
+	    Category child = category(store, en, "lineagechild", parent);
+	    Category grandChild = category(store, en, "lineagegrandchild", child);
+
+	    Assert.assertTrue(categoryService.getDescendantIds(store, parent.getId()).contains(grandChild.getId()));
+
+	    Product product = new Product();
+	    product.setSku("LINEAGE1");
+	    product.setType(productTypeService.getProductType(ProductType.GENERAL_TYPE));
+	    product.setMerchantStore(store);
+	    product.getCategories().add(grandChild);
+
+	    ProductDescription description = new ProductDescription();
+	    description.setName("Lineage product");
+	    description.setLanguage(en);
+	    description.setProduct(product);
+	    product.getDescriptions().add(description);
+
+	    ProductAvailability availability = new ProductAvailability();
+	    availability.setProductDateAvailable(new Date());
+	    availability.setProductQuantity(10);
+	    availability.setRegion("*");
+	    availability.setProduct(product);
+	    ProductPrice price = new ProductPrice();
+	    price.setDefaultPrice(true);
+	    price.setProductPriceAmount(new BigDecimal(10));
+	    price.setProductAvailability(availability);
+	    availability.getPrices().add(price);
+	    product.getAvailabilities().add(availability);
+
+	    productService.create(product);
+
+	    List<Product> products = productService.getProductsForLocale(parent, en, Locale.CANADA);
+	    Assert.assertEquals(1, products.size());
+	    Assert.assertEquals(product.getId(), products.get(0).getId());
+
+	    productService.delete(product);
+	    categoryService.delete(categoryService.getById(parent.getId(), store.getId()));
+	}
+
+	private Category category(MerchantStore store, Language en, String code, Category parent) throws Exception {
+	    Category category = new Category();
+	    category.setMerchantStore(store);
+	    category.setCode(code);
+	    category.setParent(parent);
+	    CategoryDescription description = new CategoryDescription();
+	    description.setName(code);
+	    description.setCategory(category);
+	    description.setLanguage(en);
+	    category.getDescriptions().add(description);
+	    categoryService.create(category);
+	    return category;
+	}
 
 }
\ No newline at end of file
@@ -0,0 +1,91 @@
+package com.salesmanager.test.catalog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.salesmanager.core.business.services.catalog.category.CategoryTreeCache.CategoryTree;
+import com.salesmanager.test.common.Benchmark;
+
+/**
+ * Builds an in memory category tree of 50 000 categories (10 children per
+ * category) and checks subtree lookups, products available later are not
+ * counted until their date
+ */
+public class CategoryTreeTest {
+
+	private static final int CATEGORIES = 50000;
+	private static final int FANOUT = 10;
+
+	@Test
+	public void testLargeTree() {
+
+		CategoryTree tree = largeTree();
+
+		Assert.assertEquals(CATEGORIES, tree.size());
+		Assert.assertEquals(CATEGORIES - 1, tree.getDescendants(1L).size());
+		Assert.assertEquals(CATEGORIES, tree.countProducts(1L) - 1);
+
+		// children of k are 10 * (k - 1) + 2 .. 10 * (k - 1) + 11
+		Assert.assertEquals(Arrays.asList(12L, 112L, 1112L, 11112L), tree.getDescendants(2L).subList(0, 4));
+		Assert.assertEquals(Arrays.asList(1L, 2L, 12L, 112L), tree.getAncestors(1112L));
+		Assert.assertTrue(tree.getDescendants(CATEGORIES * 1L).isEmpty());
+		Assert.assertEquals(2, tree.countProducts(CATEGORIES * 1L));
+	}
+
+	@Test
+	public void largeTreeTiming() throws Exception {
+		Benchmark.run("category tree of " + CATEGORIES + " built", 10, () -> largeTree());
+		CategoryTree tree = largeTree();
+		Benchmark.run("descendants of the root of " + CATEGORIES + " categories", 100, () -> tree.getDescendants(1L));
+	}
+
+	@Test
+	public void testUnknownCategory() {
+		CategoryTree tree = new CategoryTree(new ArrayList<Object[]>(), new ArrayList<Object[]>());
+		Assert.assertTrue(tree.getDescendants(1L).isEmpty());
+		Assert.assertTrue(tree.getAncestors(1L).isEmpty());
+		Assert.assertEquals(0, tree.countProducts(1L));
+	}
+
+	@Test
+	public void testAvailableLater() {
+
+		long now = System.currentTimeMillis();
+		List<Object[]> categories = Arrays.asList(new Object[] { 1L, null }, new Object[] { 2L, 1L });
+		List<Object[]> products = Arrays.asList(
+				new Object[] { 1L, 10L, new Date(now - 1000) },
+				new Object[] { 2L, 11L, new Date(now + 60000) },
+				new Object[] { 2L, 12L, new Date(now + 1000) },
+				new Object[] { 2L, 13L, null });
+
+		CategoryTree tree = new CategoryTree(categories, products, now);
+		Assert.assertEquals(1, tree.countProducts(1L));
+		Assert.assertEquals(0, tree.countProducts(2L));
+		// first product to become available
+		Assert.assertEquals(now + 1000, tree.getNextAvailable());
+
+		CategoryTree later = new CategoryTree(categories, products, now + 1000);
+		Assert.assertEquals(2, later.countProducts(1L));
+		Assert.assertEquals(now + 60000, later.getNextAvailable());
+	}
+
+	private CategoryTree largeTree() {
+		// category i (1 based) has parent (i - 2) / FANOUT + 1, category 1 is the root
+		List<Object[]> categories = new ArrayList<Object[]>(CATEGORIES);
+		List<Object[]> products = new ArrayList<Object[]>();
+		for (long i = 1; i <= CATEGORIES; i++) {
+			Long parent = i == 1 ? null : (i - 2) / FANOUT + 1;
+			categories.add(new Object[] { i, parent });
+			// one product per category, product 0 is in every category
+			products.add(new Object[] { i, i });
+			products.add(new Object[] { i, 0L });
+		}
+		return new CategoryTree(categories, products);
+	}
+
+}
@@ -0,0 +1,175 @@
+package com.salesmanager.test.catalog;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Iterator;
+
+import org.hibernate.LazyInitializationException;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.salesmanager.core.business.services.catalog.product.price.PriceBook;
+import com.salesmanager.core.model.catalog.product.Product;
+import com.salesmanager.core.model.catalog.product.availability.ProductAvailability;
+import com.salesmanager.core.model.catalog.product.price.FinalPrice;
+import com.salesmanager.core.model.catalog.product.price.ProductPrice;
+import com.salesmanager.core.model.catalog.product.price.ProductPriceDescription;
+import com.salesmanager.test.common.Benchmark;
+
+/**
+ * Prices read from the price book, special prices starting and ending while
+ * the prices are kept, prices changed through the services, prices
+ * expiring after the ttl and prices read without their descriptions
+ */
+public class PriceBookTest {
+
+	private static final int LOOKUPS = 1000000;
+
+	private final PriceBook priceBook = new PriceBook(300);
+
+	@Test
+	public void specialPrices() throws Exception {
+
+		Product product = product(1L);
+		ProductPrice base = price(1L, ProductPrice.DEFAULT_PRICE_CODE, true, "100.00");
+		ProductPrice rental = price(2L, "rental", false, "20.00");
+		rental.setProductPriceSpecialAmount(new BigDecimal("15.00"));
+		availability(product).getPrices().add(base);
+		availability(product).getPrices().add(rental);
+
+		long now = System.currentTimeMillis();
+		base.setProductPriceSpecialAmount(new BigDecimal("75.00"));
+		base.setProductPriceSpecialStartDate(new Date(now + 300));
+		base.setProductPriceSpecialEndDate(new Date(now + 600));
+
+		FinalPrice price = priceBook.getFinalPrice(product);
+		Assert.assertFalse(price.isDiscounted());
+		Assert.assertEquals(new BigDecimal("100.00"), price.getFinalPrice());
+		Assert.assertEquals(1, price.getAdditionalPrices().size());
+		Assert.assertTrue(price.getAdditionalPrices().get(0).isDiscounted());
+		Assert.assertEquals(25, price.getAdditionalPrices().get(0).getDiscountPercent());
+
+		// callers get their own copy
+		price.setFinalPrice(BigDecimal.ONE);
+		Assert.assertEquals(new BigDecimal("100.00"), priceBook.getFinalPrice(product).getFinalPrice());
+
+		waitUntil(now + 300);
+		price = priceBook.getFinalPrice(product);
+		Assert.assertTrue(price.isDiscounted());
+		Assert.assertEquals(new BigDecimal("75.00"), price.getFinalPrice());
+		Assert.assertEquals(25, price.getDiscountPercent());
+		Assert.assertEquals(new Date(now + 600), price.getDiscountEndDate());
+
+		waitUntil(now + 600);
+		Assert.assertFalse(priceBook.getFinalPrice(product).isDiscounted());
+
+		Assert.assertEquals(new BigDecimal("15.00"),
+				priceBook.getFinalPrice(product, "*", "rental").getFinalPrice());
+		Assert.assertNull(priceBook.getFinalPrice(product, "CA", "rental"));
+	}
+
+	@Test
+	public void invalidate() throws Exception {
+
+		Product product = product(2L);
+		ProductPrice base = price(3L, ProductPrice.DEFAULT_PRICE_CODE, true, "10.00");
+		availability(product).getPrices().add(base);
+
+		Assert.assertEquals(new BigDecimal("10.00"), priceBook.getFinalPrice(product).getFinalPrice());
+
+		base.setProductPriceAmount(new BigDecimal("12.00"));
+		Assert.assertEquals(new BigDecimal("10.00"), priceBook.getFinalPrice(product).getFinalPrice());
+
+		priceBook.invalidate(product.getId());
+		Assert.assertEquals(new BigDecimal("12.00"), priceBook.getFinalPrice(product).getFinalPrice());
+	}
+
+	@Test
+	public void lookupTiming() throws Exception {
+
+		Product product = product(6L);
+		availability(product).getPrices().add(price(7L, ProductPrice.DEFAULT_PRICE_CODE, true, "10.00"));
+		Benchmark.run("price book lookup", LOOKUPS, () -> priceBook.getFinalPrice(product));
+	}
+
+	@Test
+	public void ttl() throws Exception {
+
+		PriceBook expiring = new PriceBook(1);
+
+		Product product = product(3L);
+		ProductPrice base = price(4L, ProductPrice.DEFAULT_PRICE_CODE, true, "10.00");
+		availability(product).getPrices().add(base);
+
+		long now = System.currentTimeMillis();
+		Assert.assertEquals(new BigDecimal("10.00"), expiring.getFinalPrice(product).getFinalPrice());
+
+		// changed on another node, served until the ttl ends
+		base.setProductPriceAmount(new BigDecimal("12.00"));
+		Assert.assertEquals(new BigDecimal("10.00"), expiring.getFinalPrice(product).getFinalPrice());
+
+		waitUntil(now + 1100);
+		Assert.assertEquals(new BigDecimal("12.00"), expiring.getFinalPrice(product).getFinalPrice());
+		Assert.assertEquals(1, expiring.size());
+	}
+
+	@Test
+	public void descriptionsNotLoaded() throws Exception {
+
+		Product product = product(5L);
+		ProductPrice base = price(6L, ProductPrice.DEFAULT_PRICE_CODE, true, "10.00");
+		// descriptions of a price read by a closed session
+		base.setDescriptions(new HashSet<ProductPriceDescription>() {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public Iterator<ProductPriceDescription> iterator() {
+				throw new LazyInitializationException("no session");
+			}
+
+			@Override
+			public int size() {
+				throw new LazyInitializationException("no session");
+			}
+		});
+		availability(product).getPrices().add(base);
+
+		FinalPrice price = priceBook.getFinalPrice(product);
+		Assert.assertEquals(new BigDecimal("10.00"), price.getFinalPrice());
+		Assert.assertEquals(0, price.getProductPrice().getDescriptions().size());
+		// not kept, read again with the descriptions next time
+		Assert.assertEquals(0, priceBook.size());
+	}
+
+	private void waitUntil(long time) throws InterruptedException {
+		while (System.currentTimeMillis() <= time) {
+			Thread.sleep(10);
+		}
+	}
+
+	private Product product(Long id) {
+		Product product = new Product();
+		product.setId(id);
+		ProductAvailability availability = new ProductAvailability();
+		availability.setId(id);
+		availability.setProduct(product);
+		product.setAvailabilities(new HashSet<ProductAvailability>());
+		product.getAvailabilities().add(availability);
+		return product;
+	}
+
+	private ProductAvailability availability(Product product) {
+		return product.getAvailabilities().iterator().next();
+	}
+
+	private ProductPrice price(Long id, String code, boolean defaultPrice, String amount) {
+		ProductPrice price = new ProductPrice();
+		price.setId(id);
+		price.setCode(code);
+		price.setDefaultPrice(defaultPrice);
+		price.setProductPriceAmount(new BigDecimal(amount));
+		return price;
+	}
+
+}
@@ -0,0 +1,139 @@
+package com.salesmanager.test.catalog;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManagerFactory;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.salesmanager.core.business.utils.EntityCacheStatistics;
+import com.salesmanager.core.model.catalog.category.Category;
+import com.salesmanager.core.model.catalog.category.CategoryDescription;
+import com.salesmanager.core.model.catalog.product.Product;
+import com.salesmanager.core.model.catalog.product.availability.ProductAvailability;
+import com.salesmanager.core.model.catalog.product.description.ProductDescription;
+import com.salesmanager.core.model.catalog.product.manufacturer.Manufacturer;
+import com.salesmanager.core.model.catalog.product.manufacturer.ManufacturerDescription;
+import com.salesmanager.core.model.catalog.product.price.FinalPrice;
+import com.salesmanager.core.model.catalog.product.price.ProductPrice;
+import com.salesmanager.core.model.catalog.product.type.ProductType;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.reference.language.Language;
+
+/**
+ * SQL statements needed to load a product the way the product page does,
+ * first from the database then from the second level cache, and changes
+ * made through the services seen by the next load
+ */
+public class ProductCacheTest extends com.salesmanager.test.common.AbstractSalesManagerCoreTestCase {
+
+	private static final int RENDERS = 200;
+
+	@Inject
+	private EntityCacheStatistics statistics;
+
+	@Inject
+	private EntityManagerFactory entityManagerFactory;
+
+	@Test
+	public void renderProductPage() throws Exception {
+
+		Assert.assertTrue(statistics.isEnabled());
+
+		MerchantStore store = merchantService.getByCode(MerchantStore.DEFAULT_STORE);
+		Language en = languageService.getByCode("en");
+		ProductType generalType = productTypeService.getProductType(ProductType.GENERAL_TYPE);
+
+		Category category = new Category();
+		category.setMerchantStore(store);
+		category.setCode("cachedcategory");
+		CategoryDescription categoryDescription = new CategoryDescription();
+		categoryDescription.setName("Cached category");
+		categoryDescription.setCategory(category);
+		categoryDescription.setLanguage(en);
+		category.getDescriptions().add(categoryDescription);
+		categoryService.create(category);
+
+		Manufacturer manufacturer = new Manufacturer();
+		manufacturer.setMerchantStore(store);
+		manufacturer.setCode("cachedmanufacturer");
+		ManufacturerDescription manufacturerDescription = new ManufacturerDescription();
+		manufacturerDescription.setLanguage(en);
+		manufacturerDescription.setName("Cached manufacturer");
+		manufacturerDescription.setManufacturer(manufacturer);
+		manufacturer.getDescriptions().add(manufacturerDescription);
+		manufacturerService.create(manufacturer);
+
+		Product product = new Product();
+		product.setSku("CACHED1");
+		product.setType(generalType);
+		product.setMerchantStore(store);
+		product.setManufacturer(manufacturer);
+		product.getCategories().add(category);
+
+		ProductDescription description = new ProductDescription();
+		description.setName("Cached product");
+		description.setLanguage(en);
+		description.setProduct(product);
+		product.getDescriptions().add(description);
+
+		ProductAvailability availability = new ProductAvailability();
+		availability.setProductDateAvailable(new Date());
+		availability.setProductQuantity(100);
+		availability.setRegion("*");
+		availability.setProduct(product);
+		ProductPrice price = new ProductPrice();
+		price.setDefaultPrice(true);
+		price.setProductPriceAmount(new BigDecimal(10));
+		price.setProductAvailability(availability);
+		availability.getPrices().add(price);
+		product.getAvailabilities().add(availability);
+
+		productService.create(product);
+		// first render from the database, saving the product filled the regions
+		entityManagerFactory.getCache().evictAll();
+
+		long before = statistics.getPreparedStatementCount();
+		render(product.getId(), store);
+		long cold = statistics.getPreparedStatementCount() - before;
+
+		before = statistics.getPreparedStatementCount();
+		for (int i = 0; i < RENDERS; i++) {
+			render(product.getId(), store);
+		}
+		double warm = (statistics.getPreparedStatementCount() - before) / (double) RENDERS;
+
+		Assert.assertTrue(warm < cold);
+		Assert.assertTrue(statistics.getRegion(Product.class.getName()).getHits() > 0);
+
+		// admin changes go through hibernate and replace the cached state
+		Product modified = productService.findOne(product.getId(), store);
+		modified.getDescriptions().iterator().next().setName("Renamed product");
+		modified.getAvailabilities().iterator().next().getPrices().iterator().next().setProductPriceAmount(new BigDecimal(12));
+		productService.update(modified);
+
+		Product rendered = productService.findOne(product.getId(), store);
+		Assert.assertEquals("Renamed product", rendered.getDescriptions().iterator().next().getName());
+		FinalPrice finalPrice = pricingService.calculateProductPrice(rendered);
+		Assert.assertEquals(0, new BigDecimal(12).compareTo(finalPrice.getFinalPrice()));
+
+		productService.delete(rendered);
+		Assert.assertNull(productService.findOne(product.getId(), store));
+
+	}
+
+	/**
+	 * Reads what the product page shows
+	 */
+	private void render(Long id, MerchantStore store) throws Exception {
+		Product product = productService.findOne(id, store);
+		Assert.assertEquals("Cached product", product.getDescriptions().iterator().next().getName());
+		Assert.assertEquals("Cached category", product.getCategories().iterator().next().getDescriptions().iterator().next().getName());
+		Assert.assertEquals("Cached manufacturer", product.getManufacturer().getDescriptions().iterator().next().getName());
+		pricingService.calculateProductPrice(product);
+	}
+
+}
@@ -0,0 +1,167 @@
+package com.salesmanager.test.catalog;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+
+import javax.inject.Inject;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.salesmanager.core.business.modules.cms.common.ImageResource;
+import com.salesmanager.core.business.modules.cms.product.ProductFileManager;
+import com.salesmanager.core.business.services.catalog.product.image.ImageRendition;
+import com.salesmanager.core.business.services.catalog.product.image.ProductImageRenditionServiceImpl;
+import com.salesmanager.core.model.catalog.product.Product;
+import com.salesmanager.core.model.catalog.product.availability.ProductAvailability;
+import com.salesmanager.core.model.catalog.product.description.ProductDescription;
+import com.salesmanager.core.model.catalog.product.file.ProductImageSize;
+import com.salesmanager.core.model.catalog.product.image.ProductImage;
+import com.salesmanager.core.model.catalog.product.type.ProductType;
+import com.salesmanager.core.model.content.FileContentType;
+import com.salesmanager.core.model.content.ImageContentFile;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.reference.language.Language;
+
+/**
+ * Product image uploaded while every rendition worker is busy
+ *
+ * - the upload returns without rendering, the SMALL image is queued with
+ *   the other renditions
+ * - the original image is served until the SMALL image exists
+ * - renditions rejected by the full queue are generated by the retry
+ */
+public class ProductImageRenditionTest extends com.salesmanager.test.common.AbstractSalesManagerCoreTestCase {
+
+	private static final String IMAGE_NAME = "icon.png";
+	private static final long WAIT = 10000;
+
+	@Inject
+	private ProductImageRenditionServiceImpl productImageRenditionService;
+
+	@Inject
+	private ProductFileManager productFileManager;
+
+	private MerchantStore store;
+	private Product product;
+	private ImageRendition thumb;
+	private CountDownLatch busy;
+	private ThreadPoolExecutor executor;
+
+	@SuppressWarnings("unchecked")
+	@Before
+	public void setUp() throws Exception {
+
+		store = merchantService.getByCode(MerchantStore.DEFAULT_STORE);
+		Language en = languageService.getByCode("en");
+
+		product = new Product();
+		product.setSku("RENDITION1");
+		product.setType(productTypeService.getProductType(ProductType.GENERAL_TYPE));
+		product.setMerchantStore(store);
+		ProductDescription description = new ProductDescription();
+		description.setName("Rendition product");
+		description.setLanguage(en);
+		description.setProduct(product);
+		product.getDescriptions().add(description);
+		ProductAvailability availability = new ProductAvailability();
+		availability.setProductDateAvailable(new Date());
+		availability.setProductQuantity(10);
+		availability.setRegion("*");
+		availability.setProduct(product);
+		product.getAvailabilities().add(availability);
+		productService.create(product);
+		// images left by a previous run in the file store
+		productFileManager.removeProductImages(product);
+
+		// a THUMB rendition next to SMALL
+		thumb = ImageRendition.parse("THUMB:8x8:jpg");
+		List<ImageRendition> renditions = new ArrayList<ImageRendition>(productImageRenditionService.getRenditions(store.getCode()));
+		renditions.add(thumb);
+		((Map<String, List<ImageRendition>>) ReflectionTestUtils.getField(productImageRenditionService, "renditions"))
+				.put(store.getCode(), renditions);
+
+		// every worker busy and the queue full
+		busy = new CountDownLatch(1);
+		executor = (ThreadPoolExecutor) ReflectionTestUtils.getField(productImageRenditionService, "executor");
+		try {
+			while (true) {
+				executor.execute(() -> {
+					try {
+						busy.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				});
+			}
+		} catch (RejectedExecutionException full) {
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (busy != null) {
+			busy.countDown();
+		}
+		((Map<?, ?>) ReflectionTestUtils.getField(productImageRenditionService, "renditions")).remove(store.getCode());
+		if (product.getId() != null) {
+			productService.delete(product);
+		}
+	}
+
+	@Test
+	public void uploadThenFetch() throws Exception {
+
+		long rejected = productImageRenditionService.getRejectedCount();
+
+		ProductImage productImage = new ProductImage();
+		productImage.setProductImage(IMAGE_NAME);
+		InputStream inputStream = Thread.currentThread().getContextClassLoader().getResourceAsStream("img/" + IMAGE_NAME);
+		ImageContentFile content = new ImageContentFile();
+		content.setFileName(IMAGE_NAME);
+		content.setFile(inputStream);
+		content.setFileContentType(FileContentType.PRODUCT);
+		productImageService.addProductImage(product, productImage, content);
+
+		// the upload does not render, SMALL and THUMB are rejected by the full queue
+		Assert.assertEquals(rejected + 2, productImageRenditionService.getRejectedCount());
+		String thumbName = thumb.getFileName(IMAGE_NAME);
+		Assert.assertNull(productFileManager.getProductImageResource(store.getCode(), product.getSku(), IMAGE_NAME, ProductImageSize.SMALL));
+		Assert.assertNull(productFileManager.getProductImageResource(store.getCode(), product.getSku(), thumbName, ProductImageSize.SMALL));
+
+		// the original image is served until the SMALL image exists
+		ImageResource large = productFileManager.getProductImageResource(store.getCode(), product.getSku(), IMAGE_NAME, ProductImageSize.LARGE);
+		ImageResource served = productImageService.getProductImageResource(store.getCode(), product.getSku(), IMAGE_NAME, ProductImageSize.SMALL);
+		Assert.assertNotNull(served);
+		Assert.assertEquals(large.getContentLength(), served.getContentLength());
+
+		// workers free, the rejected renditions are queued again
+		busy.countDown();
+		long start = System.currentTimeMillis();
+		while (!executor.getQueue().isEmpty() && System.currentTimeMillis() - start < WAIT) {
+			Thread.sleep(20);
+		}
+		productImageRenditionService.retryRejected();
+
+		ImageResource small = null;
+		ImageResource generated = null;
+		while ((small == null || generated == null) && System.currentTimeMillis() - start < WAIT) {
+			Thread.sleep(20);
+			small = productFileManager.getProductImageResource(store.getCode(), product.getSku(), IMAGE_NAME, ProductImageSize.SMALL);
+			generated = productFileManager.getProductImageResource(store.getCode(), product.getSku(), thumbName, ProductImageSize.SMALL);
+		}
+		Assert.assertNotNull(small);
+		Assert.assertTrue(small.getContentLength() > 0);
+		Assert.assertNotNull(generated);
+	}
+
+}
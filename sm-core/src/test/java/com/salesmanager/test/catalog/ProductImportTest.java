@@ -0,0 +1,162 @@
+package com.salesmanager.test.catalog;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.salesmanager.core.business.repositories.catalog.product.ProductRepository;
+import com.salesmanager.core.business.services.catalog.product.bulk.ImportReport;
+import com.salesmanager.core.business.services.catalog.product.bulk.ProductImportService;
+import com.salesmanager.core.business.services.catalog.product.bulk.ProductRecord;
+import com.salesmanager.core.business.services.catalog.product.bulk.ProductRecordFormat;
+import com.salesmanager.core.business.services.catalog.product.bulk.ProductRecordReader;
+import com.salesmanager.core.model.catalog.category.Category;
+import com.salesmanager.core.model.catalog.category.CategoryDescription;
+import com.salesmanager.core.model.catalog.product.Product;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.test.common.AbstractSalesManagerCoreTestCase;
+import com.salesmanager.test.common.Benchmark;
+
+/**
+ * Imports a CSV file with invalid rows and a repeated sku, imports it again
+ * with changes and exports the products as JSON lines. The import is timed
+ * when benchmarks are enabled.
+ */
+public class ProductImportTest extends AbstractSalesManagerCoreTestCase {
+
+	private static final int PRODUCTS = 2000;
+
+	@Inject
+	private ProductImportService productImportService;
+
+	@Inject
+	private ProductRepository productRepository;
+
+	@Test
+	public void importAndExport() throws Exception {
+
+		MerchantStore store = merchantService.getByCode(MerchantStore.DEFAULT_STORE);
+		Category category = category(store);
+
+		StringBuilder csv = products("IMP");
+		csv.append("IMPX1,UNKNOWN,true,10,1.00,,,Unknown type,,\n");
+		csv.append("IMPX2,GENERAL,true,ten,1.00,,,Bad quantity,,\n");
+		csv.append("IMPX3,GENERAL,true,10,-1.00,,,Negative price,,\n");
+		// in a later chunk, updates the product created by the first chunk
+		csv.append("IMP0,GENERAL,true,10,1.00,,,Same sku,,\n");
+
+		ImportReport report = productImportService.importProducts(store, csv(csv), ProductRecordFormat.CSV);
+
+		Assert.assertEquals(PRODUCTS + 4, report.getRead());
+		Assert.assertEquals(PRODUCTS, report.getCreated());
+		Assert.assertEquals(1, report.getUpdated());
+		Assert.assertEquals(3, report.getFailed());
+		Assert.assertEquals("IMPX1", report.getErrors().get(0).getSku());
+		Assert.assertNull(report.getErrors().get(1).getSku());
+		Assert.assertEquals(2 * PRODUCTS + 3, report.getErrors().get(1).getLine());
+		Assert.assertEquals("IMPX3", report.getErrors().get(2).getSku());
+
+		// loaded with its availabilities, prices and images
+		List<Object[]> ids = productRepository.listIdsBySku(store.getId(), Collections.singleton("IMP1"));
+		Assert.assertEquals(1, ids.size());
+		Product product = productService.findOne((Long) ids.get(0)[1], store);
+		Assert.assertNotNull(product);
+		Assert.assertEquals(2, product.getDescriptions().size());
+		Assert.assertEquals(1, product.getCategories().size());
+		Assert.assertEquals(1, product.getImages().size());
+		Assert.assertEquals(0, new BigDecimal("1.50").compareTo(
+				product.getAvailabilities().iterator().next().getPrices().iterator().next().getProductPriceAmount()));
+
+		csv = new StringBuilder("sku,price,name.en\n");
+		csv.append("IMP1,2.75,Imported again\n");
+		csv.append("IMPNEW,5.00,New product\n");
+		report = productImportService.importProducts(store, csv(csv), ProductRecordFormat.CSV);
+		Assert.assertEquals(1, report.getCreated());
+		Assert.assertEquals(1, report.getUpdated());
+		Assert.assertEquals(0, report.getFailed());
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		long exported = productImportService.exportProducts(store, out, ProductRecordFormat.JSON_LINES);
+		Assert.assertTrue(exported >= PRODUCTS + 1);
+
+		Map<String, ProductRecord> records = new HashMap<String, ProductRecord>();
+		try (ProductRecordReader reader = ProductRecordFormat.JSON_LINES.reader(new ByteArrayInputStream(out.toByteArray()))) {
+			ProductRecord record;
+			while ((record = reader.read()) != null) {
+				records.put(record.getSku(), record);
+			}
+		}
+		Assert.assertEquals(exported, records.size());
+		ProductRecord updated = records.get("IMP1");
+		Assert.assertEquals(0, new BigDecimal("2.75").compareTo(updated.getAvailabilities().get(0).getPrices().get(0).getAmount()));
+		Assert.assertEquals(2, updated.getDescriptions().size());
+		Assert.assertEquals("imported", updated.getCategories().get(0));
+		Assert.assertEquals("imp1.jpg", updated.getImages().get(0));
+
+		for (String sku : records.keySet()) {
+			if (sku.startsWith("IMP")) {
+				productService.delete(productService.getByCode(sku, store));
+			}
+		}
+		categoryService.delete(category);
+	}
+
+	@Test
+	public void importTiming() throws Exception {
+
+		Benchmark.assumeEnabled();
+		MerchantStore store = merchantService.getByCode(MerchantStore.DEFAULT_STORE);
+		Category category = category(store);
+		int[] round = { 0 };
+		Benchmark.run("import of " + PRODUCTS + " products", 1, () -> productImportService
+				.importProducts(store, csv(products("BEN" + round[0]++ + "_")), ProductRecordFormat.CSV));
+
+		for (int i = 0; i < PRODUCTS; i++) {
+			for (int r = 0; r < round[0]; r++) {
+				productService.delete(productService.getByCode("BEN" + r + "_" + i, store));
+			}
+		}
+		categoryService.delete(category);
+	}
+
+	private Category category(MerchantStore store) throws Exception {
+		Category category = new Category();
+		category.setMerchantStore(store);
+		category.setCode("imported");
+		CategoryDescription categoryDescription = new CategoryDescription();
+		categoryDescription.setName("Imported");
+		categoryDescription.setCategory(category);
+		categoryDescription.setLanguage(languageService.getByCode("en"));
+		category.getDescriptions().add(categoryDescription);
+		categoryService.create(category);
+		return category;
+	}
+
+	/**
+	 * Valid rows of new products which sku starts with prefix
+	 */
+	private StringBuilder products(String prefix) {
+		StringBuilder csv = new StringBuilder("sku,type,available,quantity,price,categories,images,name.en,description.en,name.fr\n");
+		for (int i = 0; i < PRODUCTS; i++) {
+			csv.append(prefix).append(i).append(",GENERAL,true,10,").append(i).append(".50,imported,imp")
+					.append(i).append(".jpg,Imported ").append(i).append(",\"Line one, with a comma\nline \"\"two\"\"\",Importé ")
+					.append(i).append('\n');
+		}
+		return csv;
+	}
+
+	private ByteArrayInputStream csv(StringBuilder csv) {
+		return new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8));
+	}
+
+}
@@ -0,0 +1,227 @@
+package com.salesmanager.test.catalog;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.persistence.CacheStoreMode;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.salesmanager.core.model.catalog.category.Category;
+import com.salesmanager.core.model.catalog.category.CategoryDescription;
+import com.salesmanager.core.model.catalog.product.Product;
+import com.salesmanager.core.model.catalog.product.ProductCriteria;
+import com.salesmanager.core.model.catalog.product.ProductList;
+import com.salesmanager.core.model.catalog.product.availability.ProductAvailability;
+import com.salesmanager.core.model.catalog.product.description.ProductDescription;
+import com.salesmanager.core.model.catalog.product.price.ProductPrice;
+import com.salesmanager.core.model.catalog.product.price.ProductPriceDescription;
+import com.salesmanager.core.model.catalog.product.type.ProductType;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.reference.language.Language;
+import com.salesmanager.test.common.AbstractSalesManagerCoreTestCase;
+import com.salesmanager.test.common.Benchmark;
+
+/**
+ * Checks that paged product listings return exactly one page of distinct,
+ * fully hydrated products in sort order, whatever the number of
+ * availabilities, prices and descriptions attached to each product.
+ *
+ * The listing reads fewer rows than the previous single fetch join query,
+ * paged in memory
+ */
+public class ProductListingTest extends AbstractSalesManagerCoreTestCase {
+
+	private static final Date date = new Date(System.currentTimeMillis());
+
+	private static final int PRODUCTS = 60;
+	private static final int PAGE_SIZE = 10;
+	private static final int ITERATIONS = 50;
+
+	/** joins of the listing before the product ids were selected first **/
+	private static final String FETCH_JOIN_LISTING = "join fetch p.merchantStore merch "
+			+ "join fetch p.availabilities pa left join fetch pa.prices pap "
+			+ "join fetch p.descriptions pd "
+			+ "left join fetch p.categories categs left join fetch categs.descriptions cd "
+			+ "left join fetch p.images images "
+			+ "left join fetch p.manufacturer manuf left join fetch manuf.descriptions manufd "
+			+ "left join fetch p.type type left join fetch p.taxClass tx left join fetch p.owner owner "
+			+ "left join fetch p.attributes pattr left join fetch pattr.productOption po "
+			+ "left join fetch po.descriptions pod left join fetch pattr.productOptionValue pov "
+			+ "left join fetch pov.descriptions povd "
+			+ "left join fetch p.relationships pr ";
+
+	private static final String FETCH_JOIN_WHERE = "where merch.id=:mId and pd.language.code=:lang and categs.id in (:cid) ";
+
+	/** joins of the queries hydrating a page of products **/
+	private static final String[] HYDRATE_JOINS = {
+			"join p.merchantStore merch left join p.manufacturer manuf left join manuf.descriptions manufd "
+					+ "left join p.type type left join p.taxClass tx left join p.owner owner ",
+			"join p.descriptions pd ",
+			"join p.availabilities pa left join pa.prices pap left join pap.descriptions papd ",
+			"left join p.categories categs left join categs.descriptions categsd ",
+			"left join p.images images ",
+			"left join p.attributes pattr left join pattr.productOption po left join po.descriptions pod "
+					+ "left join pattr.productOptionValue pov left join pov.descriptions povd ",
+			"left join p.relationships pr " };
+
+	@PersistenceContext
+	private EntityManager em;
+
+	@Test
+	public void testListByStorePaging() throws Exception {
+
+		Language en = languageService.getByCode("en");
+		Language fr = languageService.getByCode("fr");
+
+		MerchantStore store = merchantService.getByCode(MerchantStore.DEFAULT_STORE);
+		ProductType generalType = productTypeService.getProductType(ProductType.GENERAL_TYPE);
+
+		Category listing = new Category();
+		listing.setMerchantStore(store);
+		listing.setCode("listing");
+
+		CategoryDescription listingDescription = new CategoryDescription();
+		listingDescription.setName("Listing");
+		listingDescription.setCategory(listing);
+		listingDescription.setLanguage(en);
+		listing.getDescriptions().add(listingDescription);
+
+		categoryService.create(listing);
+
+		List<Product> created = new ArrayList<Product>();
+		for (int i = 0; i < PRODUCTS; i++) {
+
+			Product product = new Product();
+			product.setSku("LST" + i);
+			product.setType(generalType);
+			product.setMerchantStore(store);
+			product.setSortOrder(PRODUCTS - i);
+			product.getCategories().add(listing);
+
+			product.getDescriptions().add(description(product, en, "Listing product " + i));
+			product.getDescriptions().add(description(product, fr, "Produit liste " + i));
+
+			product.getAvailabilities().add(availability(product, "*", en));
+			product.getAvailabilities().add(availability(product, "CA", en));
+
+			productService.create(product);
+			created.add(product);
+		}
+
+		ProductCriteria criteria = new ProductCriteria();
+		criteria.setLanguage("en");
+		criteria.setCategoryIds(Collections.singletonList(listing.getId()));
+		criteria.setLegacyPagination(false);
+		criteria.setPageSize(PAGE_SIZE);
+		criteria.setStartPage(1);
+
+		ProductList list = productService.listByStore(store, en, criteria);
+
+		Assert.assertEquals(PRODUCTS, list.getTotalCount());
+		Assert.assertEquals(PAGE_SIZE, list.getProducts().size());
+
+		Integer previous = null;
+		for (Product p : list.getProducts()) {
+			if (previous != null) {
+				Assert.assertTrue(p.getSortOrder() >= previous);
+			}
+			previous = p.getSortOrder();
+			Assert.assertEquals(2, p.getAvailabilities().size());
+			Assert.assertEquals(2, p.getDescriptions().size());
+		}
+
+		compareWithFetchJoin(store, en, criteria, listing, list);
+
+		for (Product p : created) {
+			productService.delete(p);
+		}
+		categoryService.delete(listing);
+
+	}
+
+	/**
+	 * Rows read by the listing against the single fetch join query it
+	 * replaced, which read every row of every product of the category and
+	 * kept one page in memory. Both are timed when benchmarks are enabled.
+	 */
+	private void compareWithFetchJoin(MerchantStore store, Language en, ProductCriteria criteria, Category listing,
+			ProductList list) throws Exception {
+
+		List<Long> page = new ArrayList<Long>();
+		for (Product p : list.getProducts()) {
+			page.add(p.getId());
+		}
+
+		long fetchJoinRows = ((Number) em
+				.createQuery("select count(p) from Product as p " + FETCH_JOIN_LISTING.replace(" fetch", "") + FETCH_JOIN_WHERE)
+				.setParameter("mId", store.getId()).setParameter("lang", en.getCode())
+				.setParameter("cid", Collections.singletonList(listing.getId())).getSingleResult()).longValue();
+
+		// the page of ids, then one query per collection of the page
+		long idFirstRows = page.size();
+		for (String joins : HYDRATE_JOINS) {
+			idFirstRows += ((Number) em.createQuery("select count(p) from Product as p " + joins + "where p.id in (:pid)")
+					.setParameter("pid", page).getSingleResult()).longValue();
+		}
+
+		Assert.assertEquals(PAGE_SIZE, fetchJoinPage(store, en, listing).size());
+
+		if (Benchmark.isEnabled()) {
+			Benchmark.run("fetch join listing of " + PAGE_SIZE + " out of " + PRODUCTS + " products, " + fetchJoinRows
+					+ " rows", ITERATIONS, () -> fetchJoinPage(store, en, listing));
+			Benchmark.run("id first listing of " + PAGE_SIZE + " out of " + PRODUCTS + " products, " + idFirstRows
+					+ " rows", ITERATIONS, () -> productService.listByStore(store, en, criteria));
+		}
+
+		Assert.assertTrue(idFirstRows < fetchJoinRows);
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<Product> fetchJoinPage(MerchantStore store, Language en, Category listing) {
+		return em.createQuery("select distinct p from Product as p " + FETCH_JOIN_LISTING + FETCH_JOIN_WHERE
+				+ "order by p.sortOrder asc")
+				.setParameter("mId", store.getId()).setParameter("lang", en.getCode())
+				.setParameter("cid", Collections.singletonList(listing.getId()))
+				// descriptions filtered by language must not replace the cached collections
+				.setHint("javax.persistence.cache.storeMode", CacheStoreMode.BYPASS)
+				.setFirstResult(0).setMaxResults(PAGE_SIZE).getResultList();
+	}
+
+	private ProductDescription description(Product product, Language language, String name) {
+		ProductDescription description = new ProductDescription();
+		description.setName(name);
+		description.setLanguage(language);
+		description.setProduct(product);
+		return description;
+	}
+
+	private ProductAvailability availability(Product product, String region, Language language) {
+		ProductAvailability availability = new ProductAvailability();
+		availability.setProductDateAvailable(date);
+		availability.setProductQuantity(100);
+		availability.setRegion(region);
+		availability.setProduct(product);
+
+		ProductPrice price = new ProductPrice();
+		price.setDefaultPrice(true);
+		price.setProductPriceAmount(new BigDecimal(9.99));
+		price.setProductAvailability(availability);
+
+		ProductPriceDescription priceDescription = new ProductPriceDescription();
+		priceDescription.setName("Base price");
+		priceDescription.setProductPrice(price);
+		priceDescription.setLanguage(language);
+
+		price.getDescriptions().add(priceDescription);
+		availability.getPrices().add(price);
+		return availability;
+	}
+
+}
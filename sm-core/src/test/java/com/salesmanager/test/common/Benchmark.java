@@ -0,0 +1,64 @@
+package com.salesmanager.test.common;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assume;
+
+/**
+ * Timings of the test suite. Timing runs are skipped unless benchmarks are
+ * enabled with -Dbenchmark=true (mvn -Pbenchmark test), the tests assert
+ * behaviour only and never compare timings.
+ *
+ * Each task runs a warm up round before being measured, the result is
+ * printed as Benchmark name: n ns/op so runs can be compared.
+ */
+public final class Benchmark {
+
+	public static final String PROPERTY = "benchmark";
+
+	private static final int WARMUP_ROUNDS = 1;
+
+	private Benchmark() {
+	}
+
+	public static boolean isEnabled() {
+		return Boolean.getBoolean(PROPERTY);
+	}
+
+	/**
+	 * Skips the calling test unless benchmarks are enabled
+	 */
+	public static void assumeEnabled() {
+		Assume.assumeTrue("benchmark disabled, run with -D" + PROPERTY + "=true", isEnabled());
+	}
+
+	/**
+	 * Runs task iterations times after a warm up and prints the time of an
+	 * iteration
+	 * @return nanoseconds per iteration
+	 */
+	public static long run(String name, int iterations, Task task) throws Exception {
+		assumeEnabled();
+		for (int round = 0; round < WARMUP_ROUNDS; round++) {
+			for (int i = 0; i < iterations; i++) {
+				task.run();
+			}
+		}
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			task.run();
+		}
+		long perOperation = (System.nanoTime() - start) / iterations;
+		System.out.println("Benchmark " + name + ": " + perOperation + " ns/op ("
+				+ TimeUnit.NANOSECONDS.toMicros(perOperation) + " us/op)");
+		return perOperation;
+	}
+
+	/**
+	 * Measured unit of work
+	 */
+	public interface Task {
+		void run() throws Exception;
+	}
+
+}
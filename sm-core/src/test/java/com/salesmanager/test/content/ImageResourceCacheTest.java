@@ -0,0 +1,86 @@
+package com.salesmanager.test.content;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.salesmanager.core.business.modules.cms.common.ImageResource;
+import com.salesmanager.core.business.modules.cms.common.ImageResourceCache;
+
+/**
+ * Images kept by the image cache
+ *
+ * - an image is loaded again once its time to live passed
+ * - concurrent misses of the same image run a single load
+ */
+public class ImageResourceCacheTest {
+
+	private static final int THREADS = 8;
+
+	@Test
+	public void expiredImage() throws Exception {
+
+		ImageResourceCache cache = new ImageResourceCache(1024, 1024, 1);
+		cache.put("DEFAULT/SKU/SMALL/image.jpg", image());
+		Assert.assertNotNull(cache.get("DEFAULT/SKU/SMALL/image.jpg"));
+		Assert.assertEquals(1, cache.getSize());
+
+		Thread.sleep(1100);
+		Assert.assertNull(cache.get("DEFAULT/SKU/SMALL/image.jpg"));
+		Assert.assertEquals(0, cache.getSize());
+		Assert.assertEquals(0, cache.getBytes());
+	}
+
+	@Test
+	public void singleLoad() throws Exception {
+
+		ImageResourceCache cache = new ImageResourceCache(1024, 1024, 60);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		AtomicInteger loads = new AtomicInteger();
+		ImageResource image = image();
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<ImageResource>> results = new ArrayList<Future<ImageResource>>();
+			for (int i = 0; i < THREADS; i++) {
+				results.add(executor.submit(() -> cache.get("DEFAULT/SKU/LARGE/image.jpg", () -> {
+					loads.incrementAndGet();
+					started.countDown();
+					try {
+						release.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					return image;
+				})));
+			}
+			Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+			// every caller asked for the image before it was loaded
+			Thread.sleep(200);
+			release.countDown();
+			for (Future<ImageResource> result : results) {
+				Assert.assertSame(image, result.get(10, TimeUnit.SECONDS));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		Assert.assertEquals(1, loads.get());
+		Assert.assertEquals(1, cache.getLoadCount());
+		Assert.assertSame(image, cache.get("DEFAULT/SKU/LARGE/image.jpg"));
+	}
+
+	private ImageResource image() {
+		return ImageResource.of("image.jpg", "image/jpeg", new byte[100], System.currentTimeMillis());
+	}
+
+}
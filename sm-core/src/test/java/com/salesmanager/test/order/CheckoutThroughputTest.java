@@ -0,0 +1,455 @@
+package com.salesmanager.test.order;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Resource;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.salesmanager.core.business.constants.Constants;
+import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.business.modules.order.OrderProcessor;
+import com.salesmanager.core.business.services.payments.TransactionService;
+import com.salesmanager.core.model.catalog.product.Product;
+import com.salesmanager.core.model.catalog.product.availability.ProductAvailability;
+import com.salesmanager.core.model.catalog.product.description.ProductDescription;
+import com.salesmanager.core.model.catalog.product.price.ProductPrice;
+import com.salesmanager.core.model.catalog.product.type.ProductType;
+import com.salesmanager.core.model.common.Billing;
+import com.salesmanager.core.model.common.Delivery;
+import com.salesmanager.core.model.customer.Customer;
+import com.salesmanager.core.model.customer.CustomerGender;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.order.Order;
+import com.salesmanager.core.model.order.OrderTotal;
+import com.salesmanager.core.model.order.OrderTotalSummary;
+import com.salesmanager.core.model.order.orderproduct.OrderProduct;
+import com.salesmanager.core.model.order.orderstatus.OrderStatus;
+import com.salesmanager.core.model.payments.Payment;
+import com.salesmanager.core.model.payments.PaymentType;
+import com.salesmanager.core.model.reference.currency.Currency;
+import com.salesmanager.core.model.reference.language.Language;
+import com.salesmanager.core.model.shoppingcart.ShoppingCartItem;
+import com.salesmanager.core.model.system.IntegrationConfiguration;
+import com.salesmanager.core.modules.integration.payment.model.PaymentModule;
+import com.salesmanager.test.common.Benchmark;
+import com.zaxxer.hikari.HikariDataSource;
+
+/**
+ * Checkouts paid with a slow payment gateway
+ *
+ * - payments are authorized outside of the order transaction, no connection
+ *   is held while the gateway answers and the checkouts are not limited by
+ *   the connection pool, timed when benchmarks are enabled
+ * - a payment not answered in time is declined, the items are released and
+ *   the payment is voided once the gateway answers
+ * - payments beyond the payment workers are declined
+ * - a payment accepted for an order which cannot be saved is voided
+ * - a checkout submitted twice, or again once ordered, is paid once
+ * - post order processors run after the order is saved
+ */
+public class CheckoutThroughputTest extends com.salesmanager.test.common.AbstractSalesManagerCoreTestCase {
+
+	private static final int ORDERS = 64;
+	private static final int THREADS = 16;
+	private static final long LATENCY = 100;
+
+	@Resource(name = "paymentModules")
+	private Map<String, PaymentModule> paymentModules;
+
+	@Resource(name = "orderPostProcessors")
+	private List<OrderProcessor> orderPostProcessors;
+
+	@Resource
+	private HikariDataSource dataSource;
+
+	private final FakePaymentGateway gateway = new FakePaymentGateway();
+
+	private MerchantStore store;
+	private Currency currency;
+	private Customer customer;
+	private Product product;
+
+	@Before
+	public void setUp() throws Exception {
+
+		store = merchantService.getByCode(MerchantStore.DEFAULT_STORE);
+		currency = currencyService.getByCode(USD_CURRENCY_CODE);
+		Language en = languageService.getByCode("en");
+
+		paymentModules.put(FakePaymentGateway.CODE, gateway);
+		IntegrationConfiguration configuration = new IntegrationConfiguration();
+		configuration.setModuleCode(FakePaymentGateway.CODE);
+		configuration.setActive(true);
+		paymentService.savePaymentModuleConfiguration(configuration, store);
+
+		Billing billing = new Billing();
+		billing.setAddress("Billing address");
+		billing.setCity("Billing city");
+		billing.setCountry(countryService.getByCode("US"));
+		billing.setZone(zoneService.getByCode("VT"));
+		billing.setFirstName("Carl");
+		billing.setLastName("Samson");
+		billing.setPostalCode("05401");
+
+		Delivery delivery = new Delivery();
+		delivery.setAddress("Shipping address");
+		delivery.setCountry(billing.getCountry());
+		delivery.setZone(billing.getZone());
+
+		customer = new Customer();
+		customer.setMerchantStore(store);
+		customer.setDefaultLanguage(en);
+		customer.setEmailAddress("checkout@email.com");
+		customer.setPassword("-1999");
+		customer.setNick("checkout");
+		customer.setGender(CustomerGender.M);
+		customer.setDateOfBirth(new Date());
+		customer.setBilling(billing);
+		customer.setDelivery(delivery);
+		customerService.create(customer);
+
+		product = new Product();
+		product.setSku("CHECKOUT1");
+		product.setType(productTypeService.getProductType(ProductType.GENERAL_TYPE));
+		product.setMerchantStore(store);
+
+		ProductDescription description = new ProductDescription();
+		description.setName("Checkout product");
+		description.setLanguage(en);
+		description.setProduct(product);
+		product.getDescriptions().add(description);
+
+		ProductAvailability availability = new ProductAvailability();
+		availability.setProductDateAvailable(new Date());
+		availability.setProductQuantity(ORDERS * 2);
+		availability.setRegion("*");
+		availability.setProduct(product);
+
+		ProductPrice price = new ProductPrice();
+		price.setDefaultPrice(true);
+		price.setProductPriceAmount(new BigDecimal(10));
+		price.setProductAvailability(availability);
+		availability.getPrices().add(price);
+		product.getAvailabilities().add(availability);
+
+		productService.create(product);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		paymentService.removePaymentModuleConfiguration(FakePaymentGateway.CODE, store);
+		paymentModules.remove(FakePaymentGateway.CODE);
+		gateway.setOnPayment(() -> {});
+		productService.delete(product);
+		customerService.delete(customer);
+	}
+
+	@Test
+	public void checkout() throws Exception {
+
+		gateway.setLatency(LATENCY);
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		List<Callable<Order>> checkouts = new ArrayList<Callable<Order>>();
+		for (int i = 0; i < ORDERS; i++) {
+			String cart = "checkout-" + i;
+			checkouts.add(() -> orderService.processOrder(order(cart), customer, items(), new OrderTotalSummary(),
+					payment(), store));
+		}
+
+		List<Order> orders = new ArrayList<Order>();
+		try {
+			for (Future<Order> checkout : executor.invokeAll(checkouts)) {
+				orders.add(checkout.get());
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		Assert.assertEquals(ORDERS, gateway.getCalls());
+		for (Order order : orders) {
+			Assert.assertNotNull(order.getId());
+			Assert.assertEquals(OrderStatus.PROCESSED, order.getStatus());
+		}
+		Assert.assertEquals(ORDERS, getQuantity());
+		// payments are not serialized on the connections of the pool
+		Assert.assertTrue(gateway.getMaxConcurrentCalls() > dataSource.getMaximumPoolSize());
+	}
+
+	@Test
+	public void checkoutTiming() throws Exception {
+
+		Benchmark.assumeEnabled();
+		gateway.setLatency(LATENCY);
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		AtomicInteger carts = new AtomicInteger();
+		List<Callable<Order>> checkouts = new ArrayList<Callable<Order>>();
+		for (int i = 0; i < ORDERS; i++) {
+			checkouts.add(() -> orderService.processOrder(order("timed-" + carts.incrementAndGet()), customer, items(),
+					new OrderTotalSummary(), payment(), store));
+		}
+		try {
+			Benchmark.run(ORDERS + " checkouts on " + THREADS + " threads with a " + LATENCY + " ms gateway", 1, () -> {
+				for (Future<Order> checkout : executor.invokeAll(checkouts)) {
+					checkout.get();
+				}
+			});
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void noTransaction() throws Exception {
+
+		// connections kept outside of checkouts, such as the one of the id reservations
+		int kept = dataSource.getHikariPoolMXBean().getActiveConnections();
+		AtomicInteger active = new AtomicInteger(-1);
+		gateway.setOnPayment(() -> {
+			Assert.assertFalse(TransactionSynchronizationManager.isActualTransactionActive());
+			active.set(dataSource.getHikariPoolMXBean().getActiveConnections());
+		});
+
+		Order order = orderService.processOrder(order("notransaction"), customer, items(), new OrderTotalSummary(),
+				payment(), store);
+
+		Assert.assertNotNull(order.getId());
+		// the checkout thread holds no connection while the gateway answers
+		Assert.assertEquals(kept, active.get());
+		Assert.assertEquals(ORDERS * 2 - 1, getQuantity());
+	}
+
+	@Test
+	public void paymentTimeout() throws Exception {
+
+		Object target = AopTestUtils.getUltimateTargetObject(orderService);
+		Object timeout = ReflectionTestUtils.getField(target, "paymentTimeout");
+		ReflectionTestUtils.setField(target, "paymentTimeout", LATENCY);
+		gateway.setLatency(LATENCY * 10);
+		try {
+			orderService.processOrder(order("timeout"), customer, items(), new OrderTotalSummary(), payment(), store);
+			Assert.fail("Payment answered after the timeout");
+		} catch (ServiceException e) {
+			Assert.assertEquals(ServiceException.EXCEPTION_PAYMENT_DECLINED, e.getExceptionType());
+		} finally {
+			ReflectionTestUtils.setField(target, "paymentTimeout", timeout);
+		}
+		Assert.assertEquals(ORDERS * 2, getQuantity());
+
+		// accepted after the checkout gave up, voided with the key of the attempt
+		long end = System.currentTimeMillis() + LATENCY * 50;
+		while (gateway.getVoided().isEmpty() && System.currentTimeMillis() < end) {
+			Thread.sleep(10);
+		}
+		Assert.assertEquals(Collections.singleton("timeout:10:" + FakePaymentGateway.CODE), gateway.getVoided());
+	}
+
+	@Test
+	public void workersBusy() throws Exception {
+
+		Object target = AopTestUtils.getUltimateTargetObject(orderService);
+		ThreadPoolExecutor workers = (ThreadPoolExecutor) ReflectionTestUtils.getField(target, "paymentExecutor");
+		int core = workers.getCorePoolSize();
+		int max = workers.getMaximumPoolSize();
+		workers.setCorePoolSize(1);
+		workers.setMaximumPoolSize(1);
+		Thread.sleep(LATENCY);
+
+		gateway.setLatency(LATENCY * 5);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			List<Callable<Order>> checkouts = new ArrayList<Callable<Order>>();
+			for (int i = 0; i < 2; i++) {
+				String cart = "busy-" + i;
+				checkouts.add(() -> orderService.processOrder(order(cart), customer, items(),
+						new OrderTotalSummary(), payment(), store));
+			}
+			int declined = 0;
+			for (Future<Order> checkout : executor.invokeAll(checkouts)) {
+				try {
+					Assert.assertNotNull(checkout.get().getId());
+				} catch (ExecutionException e) {
+					Assert.assertEquals(ServiceException.EXCEPTION_PAYMENT_DECLINED,
+							((ServiceException) e.getCause()).getExceptionType());
+					declined++;
+				}
+			}
+			// not authorized on the checkout thread
+			Assert.assertEquals(1, declined);
+			Assert.assertEquals(1, gateway.getCalls());
+		} finally {
+			executor.shutdown();
+			workers.setMaximumPoolSize(max);
+			workers.setCorePoolSize(core);
+		}
+	}
+
+	@Test
+	public void orderNotSaved() throws Exception {
+
+		Object target = AopTestUtils.getUltimateTargetObject(orderService);
+		TransactionService transactionService = (TransactionService) ReflectionTestUtils.getField(target, "transactionService");
+		// transactions of the order cannot be saved
+		TransactionService failing = (TransactionService) Proxy.newProxyInstance(getClass().getClassLoader(),
+				new Class<?>[] { TransactionService.class }, (proxy, method, args) -> {
+					if (method.getName().equals("create")) {
+						throw new ServiceException("Transaction not saved");
+					}
+					try {
+						return method.invoke(transactionService, args);
+					} catch (InvocationTargetException e) {
+						throw e.getCause();
+					}
+				});
+		ReflectionTestUtils.setField(target, "transactionService", failing);
+		try {
+			orderService.processOrder(order("notsaved"), customer, items(), new OrderTotalSummary(), payment(), store);
+			Assert.fail("Order saved");
+		} catch (ServiceException e) {
+			// expected
+		} finally {
+			ReflectionTestUtils.setField(target, "transactionService", transactionService);
+		}
+
+		Assert.assertEquals(1, gateway.getCalls());
+		Assert.assertEquals(ORDERS * 2, getQuantity());
+		Assert.assertEquals(Collections.singleton("notsaved:10:" + FakePaymentGateway.CODE), gateway.getVoided());
+	}
+
+	@Test
+	public void submittedAgain() throws Exception {
+
+		Order first = orderService.processOrder(order("again"), customer, items(), new OrderTotalSummary(),
+				payment(), store);
+		// same cart submitted again once ordered, to this node or another one
+		Order second = orderService.processOrder(order("again"), customer, items(), new OrderTotalSummary(),
+				payment(), store);
+
+		Assert.assertEquals(first.getId(), second.getId());
+		Assert.assertEquals(1, gateway.getCalls());
+		Assert.assertEquals(ORDERS * 2 - 1, getQuantity());
+	}
+
+	@Test
+	public void submittedTwice() throws Exception {
+
+		gateway.setLatency(LATENCY);
+
+		// same cart submitted from two requests
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		Callable<Order> checkout = () -> orderService.processOrder(order("twice"), customer, items(),
+				new OrderTotalSummary(), payment(), store);
+		try {
+			List<Future<Order>> results = executor.invokeAll(Arrays.asList(checkout, checkout));
+			Assert.assertSame(results.get(0).get(), results.get(1).get());
+		} finally {
+			executor.shutdown();
+		}
+
+		Assert.assertEquals(1, gateway.getCalls());
+		Assert.assertEquals(ORDERS * 2 - 1, getQuantity());
+	}
+
+	@Test
+	public void postProcessors() throws Exception {
+
+		CountDownLatch processed = new CountDownLatch(1);
+		OrderProcessor processor = new OrderProcessor() {
+			@Override
+			public void process(String event, Object entity, MerchantStore store) {
+			}
+
+			@Override
+			public void process(String event, Object entity, Customer customer, MerchantStore store) {
+				Assert.assertNotNull(((Order) entity).getId());
+				processed.countDown();
+			}
+		};
+
+		orderPostProcessors.add(processor);
+		try {
+			orderService.processOrder(order("processors"), customer, items(), new OrderTotalSummary(), payment(), store);
+			Assert.assertTrue(processed.await(10, TimeUnit.SECONDS));
+		} finally {
+			orderPostProcessors.remove(processor);
+		}
+	}
+
+	private Order order(String cart) {
+
+		Order order = new Order();
+		order.setShoppingCartCode(cart);
+		order.setDatePurchased(new Date());
+		order.setCurrency(currency);
+		order.setMerchant(store);
+		order.setLastModified(new Date());
+		order.setBilling(customer.getBilling());
+		order.setDelivery(customer.getDelivery());
+		order.setCustomerEmailAddress(customer.getEmailAddress());
+		order.setPaymentType(PaymentType.CREDITCARD);
+		order.setPaymentModuleCode(FakePaymentGateway.CODE);
+		order.setTotal(new BigDecimal(10));
+
+		OrderProduct orderProduct = new OrderProduct();
+		orderProduct.setOrder(order);
+		orderProduct.setSku(product.getSku());
+		orderProduct.setProductName("Checkout product");
+		orderProduct.setProductQuantity(1);
+		orderProduct.setOneTimeCharge(order.getTotal());
+		order.getOrderProducts().add(orderProduct);
+
+		OrderTotal total = new OrderTotal();
+		total.setOrder(order);
+		total.setOrderTotalCode(Constants.OT_TOTAL_MODULE_CODE);
+		total.setSortOrder(0);
+		total.setTitle("Total");
+		total.setValue(order.getTotal());
+		order.getOrderTotal().add(total);
+
+		return order;
+	}
+
+	private List<ShoppingCartItem> items() {
+		return Collections.singletonList(new ShoppingCartItem(product));
+	}
+
+	private Payment payment() {
+		Payment payment = new Payment();
+		payment.setModuleName(FakePaymentGateway.CODE);
+		payment.setPaymentType(PaymentType.CREDITCARD);
+		payment.setPaymentMetaData(new HashMap<String, String>());
+		return payment;
+	}
+
+	private int getQuantity() throws Exception {
+		return productAvailabilityService.getById(product.getAvailabilities().iterator().next().getId(), store).get()
+				.getProductQuantity();
+	}
+
+}
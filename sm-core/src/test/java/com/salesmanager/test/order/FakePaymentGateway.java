@@ -0,0 +1,147 @@
+package com.salesmanager.test.order;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.salesmanager.core.business.services.order.OrderService;
+import com.salesmanager.core.model.customer.Customer;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.order.Order;
+import com.salesmanager.core.model.payments.Payment;
+import com.salesmanager.core.model.payments.PaymentType;
+import com.salesmanager.core.model.payments.Transaction;
+import com.salesmanager.core.model.payments.TransactionType;
+import com.salesmanager.core.model.shoppingcart.ShoppingCartItem;
+import com.salesmanager.core.model.system.IntegrationConfiguration;
+import com.salesmanager.core.model.system.IntegrationModule;
+import com.salesmanager.core.modules.integration.IntegrationException;
+import com.salesmanager.core.modules.integration.payment.model.PaymentModule;
+
+/**
+ * Payment gateway answering after a configurable latency, a payment sent
+ * again with the same idempotency key gets the transaction of the first one
+ */
+public class FakePaymentGateway implements PaymentModule {
+
+	public static final String CODE = "fake";
+
+	private volatile long latency;
+
+	private volatile Runnable onPayment = () -> {};
+
+	private final AtomicInteger calls = new AtomicInteger();
+	private final AtomicInteger answering = new AtomicInteger();
+	private final AtomicInteger maxAnswering = new AtomicInteger();
+	private final Map<String, Transaction> payments = new ConcurrentHashMap<String, Transaction>();
+	private final Set<String> voided = ConcurrentHashMap.newKeySet();
+
+	public void setLatency(long latency) {
+		this.latency = latency;
+	}
+
+	/**
+	 * @param onPayment run on the payment thread before answering
+	 */
+	public void setOnPayment(Runnable onPayment) {
+		this.onPayment = onPayment;
+	}
+
+	public int getCalls() {
+		return calls.get();
+	}
+
+	/**
+	 * @return most payments waiting for the gateway at the same time
+	 */
+	public int getMaxConcurrentCalls() {
+		return maxAnswering.get();
+	}
+
+	/**
+	 * @return idempotency keys of the payments refunded
+	 */
+	public Set<String> getVoided() {
+		return voided;
+	}
+
+	@Override
+	public void validateModuleConfiguration(IntegrationConfiguration integrationConfiguration, MerchantStore store)
+			throws IntegrationException {
+	}
+
+	@Override
+	public Transaction initTransaction(MerchantStore store, Customer customer, BigDecimal amount, Payment payment,
+			IntegrationConfiguration configuration, IntegrationModule module) throws IntegrationException {
+		return null;
+	}
+
+	@Override
+	public Transaction authorize(MerchantStore store, Customer customer, List<ShoppingCartItem> items,
+			BigDecimal amount, Payment payment, IntegrationConfiguration configuration, IntegrationModule module)
+			throws IntegrationException {
+		return pay(amount, payment, TransactionType.AUTHORIZE);
+	}
+
+	@Override
+	public Transaction capture(MerchantStore store, Customer customer, Order order,
+			Transaction capturableTransaction, IntegrationConfiguration configuration, IntegrationModule module)
+			throws IntegrationException {
+		return null;
+	}
+
+	@Override
+	public Transaction authorizeAndCapture(MerchantStore store, Customer customer, List<ShoppingCartItem> items,
+			BigDecimal amount, Payment payment, IntegrationConfiguration configuration, IntegrationModule module)
+			throws IntegrationException {
+		return pay(amount, payment, TransactionType.AUTHORIZECAPTURE);
+	}
+
+	@Override
+	public Transaction refund(boolean partial, MerchantStore store, Transaction transaction, Order order,
+			BigDecimal amount, IntegrationConfiguration configuration, IntegrationModule module)
+			throws IntegrationException {
+		String key = transaction.getTransactionDetails().get("TRANSACTIONID");
+		if (!payments.containsKey(key) || !voided.add(key)) {
+			throw new IntegrationException("Payment " + key + " cannot be refunded");
+		}
+		Transaction refund = new Transaction();
+		refund.setAmount(amount);
+		refund.setTransactionDate(new Date());
+		refund.setTransactionType(TransactionType.REFUND);
+		refund.setPaymentType(PaymentType.CREDITCARD);
+		refund.getTransactionDetails().put("TRANSACTIONID", key);
+		return refund;
+	}
+
+	private Transaction pay(BigDecimal amount, Payment payment, TransactionType type) throws IntegrationException {
+
+		calls.incrementAndGet();
+		onPayment.run();
+		maxAnswering.accumulateAndGet(answering.incrementAndGet(), Math::max);
+		try {
+			Thread.sleep(latency);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IntegrationException("Payment interrupted");
+		} finally {
+			answering.decrementAndGet();
+		}
+
+		String key = payment.getPaymentMetaData().get(OrderService.IDEMPOTENCY_KEY);
+		return payments.computeIfAbsent(key, k -> {
+			Transaction transaction = new Transaction();
+			transaction.setAmount(amount);
+			transaction.setTransactionDate(new Date());
+			transaction.setTransactionType(type);
+			transaction.setPaymentType(PaymentType.CREDITCARD);
+			transaction.getTransactionDetails().put("TRANSACTIONID", k);
+			return transaction;
+		});
+	}
+
+}
@@ -0,0 +1,162 @@
+package com.salesmanager.test.order;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.inject.Inject;
+import javax.persistence.Cache;
+import javax.persistence.EntityManagerFactory;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.business.services.catalog.product.availability.InventoryReservation;
+import com.salesmanager.core.business.services.catalog.product.availability.InventoryService;
+import com.salesmanager.core.model.catalog.product.Product;
+import com.salesmanager.core.model.catalog.product.availability.ProductAvailability;
+import com.salesmanager.core.model.catalog.product.description.ProductDescription;
+import com.salesmanager.core.model.catalog.product.price.ProductPrice;
+import com.salesmanager.core.model.catalog.product.type.ProductType;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.order.orderproduct.OrderProduct;
+import com.salesmanager.core.model.reference.language.Language;
+
+/**
+ * Many customers ordering the last items of a product at the same time
+ *
+ * - every item is sold once
+ * - orders that cannot be served fail with an inventory mismatch
+ * - released items can be ordered again
+ * - an order evicts the availability it updated from the second level
+ *   cache, other availabilities stay cached
+ */
+public class InventoryReservationTest extends com.salesmanager.test.common.AbstractSalesManagerCoreTestCase {
+
+	private static final int QUANTITY = 50;
+	private static final int ORDERS = 400;
+	private static final int THREADS = 16;
+
+	@Inject
+	private InventoryService inventoryService;
+
+	@Inject
+	private EntityManagerFactory entityManagerFactory;
+
+	@Test
+	public void reserveHotProduct() throws Exception {
+
+		MerchantStore store = merchantService.getByCode(MerchantStore.DEFAULT_STORE);
+		Product product = product(store, "HOTSKU1");
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		List<Callable<InventoryReservation>> orders = new ArrayList<Callable<InventoryReservation>>();
+		for (int i = 0; i < ORDERS; i++) {
+			orders.add(() -> {
+				OrderProduct orderProduct = new OrderProduct();
+				orderProduct.setSku(product.getSku());
+				orderProduct.setProductQuantity(1);
+				try {
+					return inventoryService.reserve(store, Collections.singletonList(orderProduct));
+				} catch (ServiceException e) {
+					Assert.assertEquals(ServiceException.EXCEPTION_INVENTORY_MISMATCH, e.getExceptionType());
+					return null;
+				}
+			});
+		}
+
+		List<InventoryReservation> reservations = new ArrayList<InventoryReservation>();
+		try {
+			for (Future<InventoryReservation> order : executor.invokeAll(orders)) {
+				InventoryReservation reservation = order.get();
+				if (reservation != null) {
+					reservations.add(reservation);
+				}
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		Assert.assertEquals(QUANTITY, reservations.size());
+		Assert.assertEquals(0, getQuantity(product));
+
+		// payment refused
+		inventoryService.release(reservations.get(0));
+		Assert.assertEquals(1, getQuantity(product));
+
+		productService.delete(product);
+
+	}
+
+	@Test
+	public void cacheRegionKept() throws Exception {
+
+		MerchantStore store = merchantService.getByCode(MerchantStore.DEFAULT_STORE);
+		Product ordered = product(store, "CACHEDSKU1");
+		Product other = product(store, "CACHEDSKU2");
+		Long orderedId = ordered.getAvailabilities().iterator().next().getId();
+		Long otherId = other.getAvailabilities().iterator().next().getId();
+
+		Cache cache = entityManagerFactory.getCache();
+		Assert.assertEquals(QUANTITY, getQuantity(ordered));
+		Assert.assertEquals(QUANTITY, getQuantity(other));
+		Assert.assertTrue(cache.contains(ProductAvailability.class, otherId));
+
+		OrderProduct orderProduct = new OrderProduct();
+		orderProduct.setSku(ordered.getSku());
+		orderProduct.setProductQuantity(1);
+		inventoryService.reserve(store, Collections.singletonList(orderProduct));
+
+		Assert.assertTrue(cache.contains(ProductAvailability.class, otherId));
+		Assert.assertFalse(cache.contains(ProductAvailability.class, orderedId));
+		Assert.assertEquals(QUANTITY - 1, getQuantity(ordered));
+
+		productService.delete(ordered);
+		productService.delete(other);
+	}
+
+	private Product product(MerchantStore store, String sku) throws Exception {
+
+		Language en = languageService.getByCode("en");
+
+		Product product = new Product();
+		product.setSku(sku);
+		product.setType(productTypeService.getProductType(ProductType.GENERAL_TYPE));
+		product.setMerchantStore(store);
+
+		ProductDescription description = new ProductDescription();
+		description.setName("Limited edition");
+		description.setLanguage(en);
+		description.setProduct(product);
+		product.getDescriptions().add(description);
+
+		ProductAvailability availability = new ProductAvailability();
+		availability.setProductDateAvailable(new Date());
+		availability.setProductQuantity(QUANTITY);
+		availability.setRegion("*");
+		availability.setProduct(product);
+
+		ProductPrice price = new ProductPrice();
+		price.setDefaultPrice(true);
+		price.setProductPriceAmount(new BigDecimal(10));
+		price.setProductAvailability(availability);
+		availability.getPrices().add(price);
+		product.getAvailabilities().add(availability);
+
+		productService.create(product);
+		return product;
+	}
+
+	private int getQuantity(Product product) throws Exception {
+		return productAvailabilityService.getById(product.getAvailabilities().iterator().next().getId(),
+				product.getMerchantStore()).get().getProductQuantity();
+	}
+
+}
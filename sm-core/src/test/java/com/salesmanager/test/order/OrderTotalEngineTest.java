@@ -0,0 +1,236 @@
+package com.salesmanager.test.order;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.inject.Inject;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.salesmanager.core.business.constants.Constants;
+import com.salesmanager.core.business.services.order.ordertotal.OrderTotalEngine;
+import com.salesmanager.core.business.services.order.ordertotal.VariationStage;
+import com.salesmanager.core.model.catalog.product.Product;
+import com.salesmanager.core.model.catalog.product.availability.ProductAvailability;
+import com.salesmanager.core.model.catalog.product.description.ProductDescription;
+import com.salesmanager.core.model.catalog.product.price.ProductPrice;
+import com.salesmanager.core.model.catalog.product.type.ProductType;
+import com.salesmanager.core.model.common.Billing;
+import com.salesmanager.core.model.common.Delivery;
+import com.salesmanager.core.model.customer.Customer;
+import com.salesmanager.core.model.customer.CustomerGender;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.order.OrderSummary;
+import com.salesmanager.core.model.order.OrderSummaryType;
+import com.salesmanager.core.model.order.OrderTotal;
+import com.salesmanager.core.model.order.OrderTotalSummary;
+import com.salesmanager.core.model.reference.language.Language;
+import com.salesmanager.core.model.shipping.ShippingSummary;
+import com.salesmanager.core.model.shoppingcart.ShoppingCart;
+import com.salesmanager.core.model.shoppingcart.ShoppingCartItem;
+import com.salesmanager.test.common.Benchmark;
+
+/**
+ * Order totals calculated by stages
+ *
+ * - a new shipping option only runs the shipping, tax and total stages
+ * - amounts are rounded to the currency of the store
+ * - shopping cart totals calculated again reuse the stage results, timed
+ *   with and without them when benchmarks are enabled
+ */
+public class OrderTotalEngineTest extends com.salesmanager.test.common.AbstractSalesManagerCoreTestCase {
+
+	private static final int ITEMS = 10;
+	private static final int CALCULATIONS = 2000;
+
+	@Inject
+	private OrderTotalEngine orderTotalEngine;
+
+	private MerchantStore store;
+	private Language en;
+	private Customer customer;
+	private Product product;
+
+	@Before
+	public void setUp() throws Exception {
+
+		store = merchantService.getByCode(MerchantStore.DEFAULT_STORE);
+		en = languageService.getByCode("en");
+
+		Billing billing = new Billing();
+		billing.setAddress("Billing address");
+		billing.setCity("Billing city");
+		billing.setCountry(countryService.getByCode("US"));
+		billing.setZone(zoneService.getByCode("VT"));
+		billing.setFirstName("Carl");
+		billing.setLastName("Samson");
+		billing.setPostalCode("05401");
+
+		Delivery delivery = new Delivery();
+		delivery.setAddress("Shipping address");
+		delivery.setCountry(billing.getCountry());
+		delivery.setZone(billing.getZone());
+
+		customer = new Customer();
+		customer.setMerchantStore(store);
+		customer.setDefaultLanguage(en);
+		customer.setEmailAddress("ordertotal@email.com");
+		customer.setPassword("-1999");
+		customer.setNick("ordertotal");
+		customer.setGender(CustomerGender.M);
+		customer.setDateOfBirth(new Date());
+		customer.setBilling(billing);
+		customer.setDelivery(delivery);
+		customerService.create(customer);
+
+		product = new Product();
+		product.setSku("ORDERTOTAL1");
+		product.setType(productTypeService.getProductType(ProductType.GENERAL_TYPE));
+		product.setMerchantStore(store);
+
+		ProductDescription description = new ProductDescription();
+		description.setName("Order total product");
+		description.setLanguage(en);
+		description.setProduct(product);
+		product.getDescriptions().add(description);
+
+		ProductAvailability availability = new ProductAvailability();
+		availability.setProductDateAvailable(new Date());
+		availability.setProductQuantity(100);
+		availability.setRegion("*");
+		availability.setProduct(product);
+
+		ProductPrice price = new ProductPrice();
+		price.setDefaultPrice(true);
+		price.setProductPriceAmount(new BigDecimal("3.333"));
+		price.setProductAvailability(availability);
+		availability.getPrices().add(price);
+		product.getAvailabilities().add(availability);
+
+		productService.create(product);
+		orderTotalEngine.clear();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		orderTotalEngine.clear();
+		productService.delete(product);
+		customerService.delete(customer);
+	}
+
+	@Test
+	public void shippingChange() throws Exception {
+
+		OrderTotalSummary first = orderService.caculateOrderTotal(summary("5.00"), customer, store, en);
+
+		long[] before = calculations();
+		OrderTotalSummary second = orderService.caculateOrderTotal(summary("7.50"), customer, store, en);
+		long[] after = calculations();
+
+		// variation, sub total and handling reused
+		Assert.assertEquals(before[0], after[0]);
+		Assert.assertEquals(before[1], after[1]);
+		Assert.assertEquals(before[3], after[3]);
+		// shipping, tax and total calculated
+		Assert.assertEquals(before[2] + 1, after[2]);
+		Assert.assertEquals(before[4] + 1, after[4]);
+		Assert.assertEquals(before[5] + 1, after[5]);
+
+		Assert.assertEquals(0, first.getSubTotal().compareTo(second.getSubTotal()));
+		BigDecimal taxes = second.getTaxTotal() == null ? BigDecimal.ZERO : second.getTaxTotal();
+		Assert.assertEquals(0, second.getTotal().compareTo(second.getSubTotal().add(new BigDecimal("7.50")).add(taxes)));
+	}
+
+	@Test
+	public void rounding() throws Exception {
+
+		OrderTotalSummary summary = orderService.caculateOrderTotal(summary("5.00"), customer, store, en);
+
+		// 3 x 3.333 rounded for each item
+		Assert.assertEquals(new BigDecimal("100.00"), summary.getSubTotal());
+		BigDecimal lines = BigDecimal.ZERO;
+		for (OrderTotal total : summary.getTotals()) {
+			Assert.assertEquals(2, total.getValue().scale());
+			if (!Constants.OT_SUBTOTAL_MODULE_CODE.equals(total.getModule())
+					&& !Constants.OT_TOTAL_MODULE_CODE.equals(total.getModule())) {
+				lines = lines.add(total.getValue());
+			}
+		}
+		Assert.assertEquals(summary.getTotal(), lines.add(summary.getSubTotal()));
+	}
+
+	@Test
+	public void shoppingCartTotal() throws Exception {
+
+		ShoppingCart cart = cart();
+		OrderTotalSummary expected = orderService.calculateShoppingCartTotal(cart, customer, store, en);
+
+		long[] before = calculations();
+		OrderTotalSummary reused = orderService.calculateShoppingCartTotal(cart, customer, store, en);
+		Assert.assertArrayEquals(before, calculations());
+
+		Assert.assertEquals(expected.getTotal(), reused.getTotal());
+		Assert.assertEquals(expected.getTotals().size(), reused.getTotals().size());
+	}
+
+	@Test
+	public void shoppingCartTotalTiming() throws Exception {
+
+		Benchmark.assumeEnabled();
+		ShoppingCart cart = cart();
+		Benchmark.run("shopping cart total of " + ITEMS + " items, every stage calculated", CALCULATIONS, () -> {
+			orderTotalEngine.clear();
+			orderService.calculateShoppingCartTotal(cart, customer, store, en);
+		});
+		Benchmark.run("shopping cart total of " + ITEMS + " items, stages reused", CALCULATIONS,
+				() -> orderService.calculateShoppingCartTotal(cart, customer, store, en));
+	}
+
+	private long[] calculations() {
+		return new long[] { orderTotalEngine.getCalculations(VariationStage.CODE),
+				orderTotalEngine.getCalculations(Constants.OT_SUBTOTAL_MODULE_CODE),
+				orderTotalEngine.getCalculations(Constants.OT_SHIPPING_MODULE_CODE),
+				orderTotalEngine.getCalculations(Constants.OT_HANDLING_MODULE_CODE),
+				orderTotalEngine.getCalculations(Constants.OT_TAX_MODULE_CODE),
+				orderTotalEngine.getCalculations(Constants.OT_TOTAL_MODULE_CODE) };
+	}
+
+	private OrderSummary summary(String shipping) {
+
+		ShippingSummary shippingSummary = new ShippingSummary();
+		shippingSummary.setShipping(new BigDecimal(shipping));
+
+		OrderSummary summary = new OrderSummary();
+		summary.setOrderSummaryType(OrderSummaryType.ORDERTOTAL);
+		summary.setShippingSummary(shippingSummary);
+		summary.setProducts(items());
+		return summary;
+	}
+
+	private ShoppingCart cart() {
+		ShoppingCart cart = new ShoppingCart();
+		cart.setMerchantStore(store);
+		Set<ShoppingCartItem> lineItems = new LinkedHashSet<ShoppingCartItem>(items());
+		cart.setLineItems(lineItems);
+		return cart;
+	}
+
+	private List<ShoppingCartItem> items() {
+		List<ShoppingCartItem> items = new ArrayList<ShoppingCartItem>();
+		for (int i = 0; i < ITEMS; i++) {
+			ShoppingCartItem item = new ShoppingCartItem(product);
+			item.setQuantity(3);
+			item.setItemPrice(new BigDecimal("3.333"));
+			items.add(item);
+		}
+		return items;
+	}
+
+}
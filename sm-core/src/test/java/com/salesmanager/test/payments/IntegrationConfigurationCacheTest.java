@@ -0,0 +1,110 @@
+package com.salesmanager.test.payments;
+
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.salesmanager.core.business.constants.Constants;
+import com.salesmanager.core.business.repositories.system.MerchantConfigurationRepository;
+import com.salesmanager.core.business.services.system.IntegrationConfigurationCache;
+import com.salesmanager.core.business.utils.ExpiringCache;
+import com.salesmanager.core.business.services.system.MerchantConfigurationService;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.system.IntegrationConfiguration;
+import com.salesmanager.core.model.system.MerchantConfiguration;
+import com.salesmanager.core.modules.utils.Encryption;
+
+/**
+ * Payment module configurations read through the integration
+ * configuration cache
+ *
+ * - a module saved or removed on this server is read next
+ * - a module saved by another server, which does not change the version
+ *   kept here, is read once the cached configurations expired
+ */
+public class IntegrationConfigurationCacheTest extends com.salesmanager.test.common.AbstractSalesManagerCoreTestCase {
+
+	private static final String MODULE = "moneyorder";
+
+	@Inject
+	private IntegrationConfigurationCache integrationConfigurationCache;
+
+	@Inject
+	private MerchantConfigurationService merchantConfigurationService;
+
+	@Inject
+	private MerchantConfigurationRepository merchantConfigurationRepository;
+
+	@Inject
+	private Encryption encryption;
+
+	private MerchantStore store;
+	private long ttl;
+
+	@Before
+	public void setUp() throws Exception {
+		store = merchantService.getByCode(MerchantStore.DEFAULT_STORE);
+		ttl = (Long) ReflectionTestUtils.getField(integrationConfigurationCache, "ttl");
+		save("1 Main street");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		configurations().setTtl(ttl);
+		paymentService.removePaymentModuleConfiguration(MODULE, store);
+	}
+
+	@Test
+	public void savedOnThisServer() throws Exception {
+
+		Assert.assertEquals("1 Main street", address());
+
+		save("2 Main street");
+		Assert.assertEquals("2 Main street", address());
+
+		paymentService.removePaymentModuleConfiguration(MODULE, store);
+		Assert.assertFalse(paymentService.getPaymentModulesConfigured(store).containsKey(MODULE));
+	}
+
+	@Test
+	public void savedOnAnotherServer() throws Exception {
+
+		configurations().setTtl(1L);
+		integrationConfigurationCache.invalidate(store);
+		Assert.assertEquals("1 Main street", address());
+
+		// saved without changing the version of this server
+		MerchantConfiguration configuration = merchantConfigurationService.getMerchantConfiguration(Constants.PAYMENT_MODULES, store);
+		String modules = encryption.decrypt(configuration.getValue());
+		configuration.setValue(encryption.encrypt(modules.replace("1 Main street", "3 Main street")));
+		merchantConfigurationRepository.saveAndFlush(configuration);
+		Assert.assertEquals("1 Main street", address());
+
+		Thread.sleep(1100);
+		Assert.assertEquals("3 Main street", address());
+	}
+
+	private ExpiringCache<?, ?> configurations() {
+		return (ExpiringCache<?, ?>) ReflectionTestUtils.getField(integrationConfigurationCache, "configurations");
+	}
+
+	private void save(String address) throws Exception {
+		IntegrationConfiguration moneyOrder = new IntegrationConfiguration();
+		moneyOrder.setModuleCode(MODULE);
+		moneyOrder.setActive(true);
+		moneyOrder.getIntegrationKeys().put("address", address);
+		paymentService.savePaymentModuleConfiguration(moneyOrder, store);
+	}
+
+	private String address() throws Exception {
+		Map<String, IntegrationConfiguration> modules = paymentService.getPaymentModulesConfigured(store);
+		return modules.get(MODULE).getIntegrationKeys().get("address");
+	}
+
+}
@@ -0,0 +1,73 @@
+package com.salesmanager.test.payments;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.salesmanager.core.business.constants.Constants;
+import com.salesmanager.core.business.services.reference.loader.ConfigurationModulesLoader;
+import com.salesmanager.core.business.services.system.MerchantConfigurationService;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.payments.PaymentMethod;
+import com.salesmanager.core.model.system.IntegrationConfiguration;
+import com.salesmanager.core.modules.utils.Encryption;
+import com.salesmanager.test.common.Benchmark;
+
+/**
+ * Lists the accepted payment methods of a store the way checkout does,
+ * timed against decrypting and parsing the module configurations on each
+ * call when benchmarks are enabled
+ */
+public class PaymentModulesBenchmarkTest extends com.salesmanager.test.common.AbstractSalesManagerCoreTestCase {
+
+	private static final int ITERATIONS = 5000;
+
+	@Inject
+	private Encryption encryption;
+
+	@Inject
+	private MerchantConfigurationService merchantConfigurationService;
+
+	@Test
+	public void listPaymentMethods() throws Exception {
+
+		MerchantStore store = merchantService.getByCode(MerchantStore.DEFAULT_STORE);
+
+		IntegrationConfiguration moneyOrder = new IntegrationConfiguration();
+		moneyOrder.setModuleCode("moneyorder");
+		moneyOrder.setActive(true);
+		moneyOrder.getIntegrationKeys().put("address", "1 Main street");
+		paymentService.savePaymentModuleConfiguration(moneyOrder, store);
+
+		List<PaymentMethod> methods = paymentService.getAcceptedPaymentMethods(store);
+		Assert.assertEquals(1, methods.size());
+		Assert.assertEquals("moneyorder", methods.get(0).getPaymentMethodCode());
+
+		// callers get their own copy
+		methods.get(0).getInformations().getIntegrationKeys().put("address", "changed");
+		Assert.assertEquals("1 Main street",
+				paymentService.getPaymentConfiguration("moneyorder", store).getIntegrationKeys().get("address"));
+
+		String encrypted = merchantConfigurationService.getMerchantConfiguration(Constants.PAYMENT_MODULES, store).getValue();
+		Assert.assertEquals(encrypted, encryption.encrypt(encryption.decrypt(encrypted)));
+
+		if (Benchmark.isEnabled()) {
+			Benchmark.run("decrypt and parse payment modules", ITERATIONS, () -> decryptAndParse(encrypted));
+			Benchmark.run("accepted payment methods", ITERATIONS, () -> paymentService.getAcceptedPaymentMethods(store));
+		}
+
+		// configuration removed, next listing sees it
+		paymentService.removePaymentModuleConfiguration("moneyorder", store);
+		Assert.assertTrue(paymentService.getAcceptedPaymentMethods(store).isEmpty());
+
+	}
+
+	private Map<String, IntegrationConfiguration> decryptAndParse(String encrypted) throws Exception {
+		return ConfigurationModulesLoader.loadIntegrationConfigurations(encryption.decrypt(encrypted));
+	}
+
+}
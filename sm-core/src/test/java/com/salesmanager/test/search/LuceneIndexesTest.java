@@ -0,0 +1,130 @@
+package com.salesmanager.test.search;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.salesmanager.core.business.services.search.lucene.LuceneIndexes;
+import com.salesmanager.core.business.services.search.lucene.ProductIndex;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.search.IndexProduct;
+
+/**
+ * Lucene indexes replaced by a reindex while searched and autocomplete
+ * built again in the background
+ *
+ * - a replaced index stays readable until its searches gave it back, then
+ *   its directory is deleted
+ * - autocomplete answers with the previous keywords until the suggester
+ *   was built again
+ */
+public class LuceneIndexesTest {
+
+	private static final String STORE = "default";
+	private static final long SUGGEST_DELAY = 500;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private LuceneIndexes indexes;
+	private MerchantStore store;
+
+	@Before
+	public void open() throws Exception {
+		indexes = new LuceneIndexes(folder.newFolder("search"));
+		ReflectionTestUtils.setField(indexes, "commitInterval", 0L);
+		ReflectionTestUtils.setField(indexes, "suggestDelay", SUGGEST_DELAY);
+		indexes.init();
+
+		store = new MerchantStore();
+		store.setCode(STORE);
+	}
+
+	@After
+	public void close() {
+		indexes.close();
+	}
+
+	@Test
+	public void publishWhileSearched() throws Exception {
+
+		ProductIndex previous = indexes.getIndex(STORE, "en");
+		previous.update(Arrays.asList(product(1, "red wool hat"), product(2, "blue wool hat")));
+		previous.refresh();
+		IndexSearcher searcher = previous.acquire();
+
+		indexes.write(store, "job1", Collections.singletonList(product(1, "red wool hat")));
+		indexes.publish(store, "job1");
+
+		// search in progress on the replaced index
+		Assert.assertTrue(previous.getPath().exists());
+		Assert.assertEquals(2, searcher.count(new MatchAllDocsQuery()));
+		previous.release(searcher);
+
+		ProductIndex current = indexes.getIndex(STORE, "en");
+		try {
+			Assert.assertNotSame(previous, current);
+			searcher = current.acquire();
+			try {
+				Assert.assertEquals(1, searcher.count(new MatchAllDocsQuery()));
+			} finally {
+				current.release(searcher);
+			}
+		} finally {
+			current.decRef();
+		}
+
+		// given back, closed and deleted
+		previous.decRef();
+		Assert.assertFalse(previous.getPath().exists());
+		Assert.assertFalse(previous.incRef());
+	}
+
+	@Test
+	public void suggesterBuiltInBackground() throws Exception {
+
+		ProductIndex index = indexes.getIndex(STORE, "en");
+		try {
+			index.update(Collections.singletonList(product(1, "purple velvet sofa")));
+			index.refresh();
+			Assert.assertEquals(Collections.singletonList("purple velvet sofa"), index.suggest("purp", 5));
+
+			// the previous keywords until built again
+			index.update(Collections.singletonList(product(2, "purple silk scarf")));
+			index.refresh();
+			Assert.assertEquals(1, index.suggest("purp", 5).size());
+
+			long start = System.nanoTime();
+			List<String> keywords = index.suggest("purp", 5);
+			while (keywords.size() < 2 && System.nanoTime() - start < SUGGEST_DELAY * 20 * 1000000) {
+				Thread.sleep(10);
+				keywords = index.suggest("purp", 5);
+			}
+			Assert.assertTrue(keywords.contains("purple silk scarf"));
+		} finally {
+			index.decRef();
+		}
+	}
+
+	private IndexProduct product(int id, String name) {
+		IndexProduct product = new IndexProduct();
+		product.setId(String.valueOf(id));
+		product.setStore(STORE);
+		product.setLang("en");
+		product.setAvailable(true);
+		product.setName(name);
+		return product;
+	}
+
+}
@@ -0,0 +1,345 @@
+package com.salesmanager.test.search;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Inject;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.search.TopDocs;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.salesmanager.core.business.repositories.system.MerchantConfigurationRepository;
+import com.salesmanager.core.business.services.search.ProductReindexServiceImpl;
+import com.salesmanager.core.business.services.search.ReindexStatus;
+import com.salesmanager.core.business.services.search.ReindexStatus.State;
+import com.salesmanager.core.business.services.search.ReindexTarget;
+import com.salesmanager.core.business.services.search.lucene.LuceneIndexes;
+import com.salesmanager.core.business.services.search.lucene.ProductIndex;
+import com.salesmanager.core.business.utils.CoreConfiguration;
+import com.salesmanager.core.model.catalog.product.Product;
+import com.salesmanager.core.model.catalog.product.availability.ProductAvailability;
+import com.salesmanager.core.model.catalog.product.description.ProductDescription;
+import com.salesmanager.core.model.catalog.product.price.ProductPrice;
+import com.salesmanager.core.model.catalog.product.type.ProductType;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.reference.language.Language;
+import com.salesmanager.core.model.search.IndexProduct;
+import com.salesmanager.core.model.system.MerchantConfiguration;
+
+/**
+ * Catalogue reindex written to lucene indexes
+ *
+ * - products are read and written by chunks, the new indexes replace the
+ *   searched ones once every product is written
+ * - a product deleted while the job runs does not come back and a product
+ *   saved just before the swap is indexed with its change
+ * - a job stopped by a failure resumes from the saved state after a
+ *   restart of the server
+ */
+public class ProductReindexTest extends com.salesmanager.test.common.AbstractSalesManagerCoreTestCase {
+
+	private static final int CHUNK_SIZE = 2;
+	private static final int PRODUCTS = 5;
+	private static final long WAIT = 30000;
+	private static final String JOB_CONFIGURATION = "PRODUCT_REINDEX";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Inject
+	private ProductReindexServiceImpl productReindexService;
+
+	@Inject
+	private MerchantConfigurationRepository merchantConfigurationRepository;
+
+	private MerchantStore store;
+	private Language en;
+	private LuceneIndexes indexes;
+	private Target target;
+	private List<Product> products = new ArrayList<Product>();
+
+	private Object targetBefore;
+	private Object chunkSizeBefore;
+	private Object configurationBefore;
+
+	@Before
+	public void setUp() throws Exception {
+
+		store = merchantService.getByCode(MerchantStore.DEFAULT_STORE);
+		en = languageService.getByCode("en");
+
+		indexes = new LuceneIndexes(folder.newFolder("search"));
+		ReflectionTestUtils.setField(indexes, "commitInterval", 0L);
+		ReflectionTestUtils.setField(indexes, "suggestDelay", 0L);
+		indexes.init();
+		target = new Target(indexes);
+
+		CoreConfiguration enabled = new CoreConfiguration();
+		Properties properties = new Properties();
+		properties.setProperty("INDEX_PRODUCTS", "true");
+		enabled.setProperties(properties);
+
+		targetBefore = ReflectionTestUtils.getField(productReindexService, "target");
+		chunkSizeBefore = ReflectionTestUtils.getField(productReindexService, "chunkSize");
+		configurationBefore = ReflectionTestUtils.getField(productReindexService, "configuration");
+		ReflectionTestUtils.setField(productReindexService, "target", target);
+		ReflectionTestUtils.setField(productReindexService, "chunkSize", CHUNK_SIZE);
+		ReflectionTestUtils.setField(productReindexService, "configuration", enabled);
+
+		for (int i = 1; i <= PRODUCTS; i++) {
+			products.add(product("REINDEX" + i, "Reindexed product " + i));
+		}
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		ReflectionTestUtils.setField(productReindexService, "target", targetBefore);
+		ReflectionTestUtils.setField(productReindexService, "chunkSize", chunkSizeBefore);
+		ReflectionTestUtils.setField(productReindexService, "configuration", configurationBefore);
+		jobs().clear();
+		MerchantConfiguration job = merchantConfigurationRepository.findByMerchantStoreAndKey(store.getId(), JOB_CONFIGURATION);
+		if (job != null) {
+			merchantConfigurationRepository.delete(job);
+		}
+		for (Product product : products) {
+			Product saved = productService.findOne(product.getId(), store);
+			if (saved != null) {
+				productService.delete(saved);
+			}
+		}
+		indexes.close();
+	}
+
+	@Test
+	public void chunksThenSwap() throws Exception {
+
+		ReindexStatus status = await(productReindexService.reindex(store));
+
+		Assert.assertEquals(State.COMPLETED, status.getState());
+		Assert.assertEquals(status.getTotal(), status.getProcessed());
+		Assert.assertTrue(status.getDocuments() >= status.getProcessed());
+		Assert.assertEquals(0, status.getFailures());
+
+		// at most one chunk of products by write
+		Assert.assertFalse(target.chunks.isEmpty());
+		for (Integer chunk : target.chunks) {
+			Assert.assertTrue(chunk <= CHUNK_SIZE);
+		}
+
+		// searched index replaced by the one of the job
+		ProductIndex index = indexes.getIndex(store.getCode().toLowerCase(), "en");
+		try {
+			Assert.assertEquals(status.getIndexes().get("en"), index.getPath().getName());
+			for (Product product : products) {
+				Assert.assertNotNull(document(index, product));
+			}
+		} finally {
+			index.decRef();
+		}
+
+		// job done, no saved state left
+		Assert.assertNull(merchantConfigurationRepository.findByMerchantStoreAndKey(store.getId(), JOB_CONFIGURATION));
+	}
+
+	@Test
+	public void changesWhileRunning() throws Exception {
+
+		Product readThenDeleted = products.get(0);
+		Product deletedBeforeSwap = products.get(1);
+		Product savedBeforeSwap = products.get(2);
+
+		// deleted once read, before its chunk is written
+		target.beforeWrite = documents -> {
+			for (IndexProduct document : documents) {
+				if (document.getId().equals(String.valueOf(readThenDeleted.getId()))) {
+					productService.delete(productService.findOne(readThenDeleted.getId(), store));
+					return;
+				}
+			}
+		};
+		target.beforePublish = () -> {
+			// deleted on a server, the search service calls the job
+			productService.delete(productService.findOne(deletedBeforeSwap.getId(), store));
+			productReindexService.deleted(store, deletedBeforeSwap.getId());
+
+			Product saved = productService.findOne(savedBeforeSwap.getId(), store);
+			saved.getDescriptions().iterator().next().setName("Renamed before swap");
+			productService.update(saved);
+		};
+
+		ReindexStatus status = await(productReindexService.reindex(store));
+		Assert.assertEquals(State.COMPLETED, status.getState());
+
+		ProductIndex index = indexes.getIndex(store.getCode().toLowerCase(), "en");
+		try {
+			Assert.assertNull(document(index, readThenDeleted));
+			Assert.assertNull(document(index, deletedBeforeSwap));
+			Assert.assertEquals("Renamed before swap", document(index, savedBeforeSwap).get("name"));
+			Assert.assertNotNull(document(index, products.get(3)));
+		} finally {
+			index.decRef();
+		}
+	}
+
+	@Test
+	public void resumeAfterRestart() throws Exception {
+
+		target.failAt = 2;
+		ReindexStatus failed = await(productReindexService.reindex(store));
+		Assert.assertEquals(State.FAILED, failed.getState());
+		Assert.assertTrue(failed.getProcessed() > 0);
+		Assert.assertTrue(failed.getProcessed() < failed.getTotal());
+
+		// server restarted, the state is read from the store configuration
+		jobs().clear();
+		// saved once the job stopped
+		ReindexStatus saved = await(productReindexService.getStatus(store));
+		Assert.assertEquals(State.FAILED, saved.getState());
+		Assert.assertEquals(failed.getProcessed(), saved.getProcessed());
+		Assert.assertEquals(failed.getIndexes(), saved.getIndexes());
+
+		ReindexStatus resumed = await(productReindexService.reindex(store));
+		Assert.assertEquals(State.COMPLETED, resumed.getState());
+		// same indexes, the products written before the failure are not counted again
+		Assert.assertEquals(failed.getIndexes().get("en"), resumed.getIndexes().get("en"));
+		Assert.assertEquals(resumed.getTotal(), resumed.getProcessed());
+
+		ProductIndex index = indexes.getIndex(store.getCode().toLowerCase(), "en");
+		try {
+			for (Product product : products) {
+				Assert.assertNotNull(document(index, product));
+			}
+		} finally {
+			index.decRef();
+		}
+	}
+
+	private ReindexStatus await(ReindexStatus status) throws Exception {
+		long start = System.currentTimeMillis();
+		while (status.getState() == State.RUNNING && System.currentTimeMillis() - start < WAIT) {
+			Thread.sleep(20);
+			status = productReindexService.getStatus(store);
+		}
+		return status;
+	}
+
+	private Document document(ProductIndex index, Product product) throws IOException {
+		index.refresh();
+		IndexSearcher searcher = index.acquire();
+		try {
+			TopDocs docs = searcher.search(new TermQuery(new Term("id", String.valueOf(product.getId()))), 1);
+			return docs.scoreDocs.length == 0 ? null : searcher.doc(docs.scoreDocs[0].doc);
+		} finally {
+			index.release(searcher);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private Map<Integer, ?> jobs() {
+		return (Map<Integer, ?>) ReflectionTestUtils.getField(productReindexService, "jobs");
+	}
+
+	private Product product(String sku, String name) throws Exception {
+		Product product = new Product();
+		product.setSku(sku);
+		product.setAvailable(true);
+		product.setType(productTypeService.getProductType(ProductType.GENERAL_TYPE));
+		product.setMerchantStore(store);
+		ProductDescription description = new ProductDescription();
+		description.setName(name);
+		description.setLanguage(en);
+		description.setProduct(product);
+		product.getDescriptions().add(description);
+		ProductAvailability availability = new ProductAvailability();
+		availability.setProductQuantity(10);
+		availability.setRegion("*");
+		availability.setProduct(product);
+		ProductPrice price = new ProductPrice();
+		price.setDefaultPrice(true);
+		price.setProductPriceAmount(new BigDecimal("9.99"));
+		price.setProductAvailability(availability);
+		availability.getPrices().add(price);
+		product.getAvailabilities().add(availability);
+		productService.create(product);
+		return product;
+	}
+
+	interface BeforeWrite {
+		void accept(List<IndexProduct> documents) throws Exception;
+	}
+
+	interface BeforePublish {
+		void run() throws Exception;
+	}
+
+	/**
+	 * Lucene indexes recording the chunks written, failing and changing
+	 * products on request
+	 */
+	static class Target implements ReindexTarget {
+
+		private final LuceneIndexes indexes;
+		private final List<Integer> chunks = new ArrayList<Integer>();
+		private final AtomicInteger writes = new AtomicInteger();
+		private volatile int failAt = -1;
+		private volatile BeforeWrite beforeWrite;
+		private volatile BeforePublish beforePublish;
+
+		Target(LuceneIndexes indexes) {
+			this.indexes = indexes;
+		}
+
+		@Override
+		public int write(MerchantStore store, String job, List<IndexProduct> documents) throws Exception {
+			if (writes.incrementAndGet() == failAt) {
+				throw new IOException("Search backend not available");
+			}
+			if (beforeWrite != null) {
+				beforeWrite.accept(documents);
+			}
+			Set<String> ids = new HashSet<String>();
+			for (IndexProduct document : documents) {
+				ids.add(document.getId());
+			}
+			chunks.add(ids.size());
+			return indexes.write(store, job, documents);
+		}
+
+		@Override
+		public void delete(MerchantStore store, String job, Collection<String> languages, Collection<Long> ids) throws Exception {
+			indexes.delete(store, job, languages, ids);
+		}
+
+		@Override
+		public void publish(MerchantStore store, String job) throws Exception {
+			if (beforePublish != null) {
+				beforePublish.run();
+			}
+			indexes.publish(store, job);
+		}
+
+		@Override
+		public String getIndexName(MerchantStore store, String language, String job) {
+			return indexes.getIndexName(store, language, job);
+		}
+	}
+
+}
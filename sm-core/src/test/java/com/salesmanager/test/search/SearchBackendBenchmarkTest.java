@@ -0,0 +1,193 @@
+package com.salesmanager.test.search;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.http.HttpHost;
+import org.elasticsearch.action.admin.indices.delete.DeleteIndexRequest;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.support.WriteRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.indices.CreateIndexRequest;
+import org.elasticsearch.client.indices.GetIndexRequest;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.aggregations.AggregationBuilders;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.salesmanager.core.business.services.search.lucene.LuceneIndexes;
+import com.salesmanager.core.business.services.search.lucene.LuceneSearchServiceImpl;
+import com.salesmanager.core.business.services.search.lucene.ProductIndex;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.search.IndexProduct;
+import com.salesmanager.core.model.search.SearchFacet;
+import com.salesmanager.core.model.search.SearchResponse;
+import com.salesmanager.test.common.Benchmark;
+
+/**
+ * Searches of the embedded lucene backend. When benchmarks are enabled the
+ * query latency is timed, and compared with the same queries sent to an
+ * elasticsearch node on localhost:9200 when one is running
+ */
+public class SearchBackendBenchmarkTest {
+
+	private static final int PRODUCTS = 20000;
+	private static final int QUERIES = 2000;
+	private static final String STORE = "benchmark";
+	private static final String REMOTE_INDEX = "product_en_benchmark";
+	private static final String[] TERMS = { "red", "leather bag", "blue shoes", "wool", "table lamp" };
+
+	private static final String[] COLORS = { "red", "blue", "green", "black", "white" };
+	private static final String[] MATERIALS = { "leather", "wool", "cotton", "wood", "steel" };
+	private static final String[] ITEMS = { "bag", "shoes", "table", "lamp", "chair", "jacket", "hat", "belt" };
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private LuceneIndexes indexes;
+	private LuceneSearchServiceImpl searchService;
+	private MerchantStore store;
+
+	@Before
+	public void index() throws Exception {
+		File path = folder.newFolder("search");
+		indexes = new LuceneIndexes(path);
+		searchService = new LuceneSearchServiceImpl(indexes);
+
+		store = new MerchantStore();
+		store.setCode(STORE);
+
+		ProductIndex index = indexes.getIndex(STORE, "en");
+		index.update(products());
+		index.refresh();
+		index.decRef();
+	}
+
+	@After
+	public void close() {
+		indexes.close();
+	}
+
+	@Test
+	public void searchLucene() throws Exception {
+
+		SearchResponse response = searchService.search(store, "en", "leather bag", 10, 0);
+		Assert.assertEquals(10, response.getEntries().size());
+		Assert.assertTrue(response.getTotalCount() > 10);
+		Assert.assertTrue(response.getEntries().get(0).getIndexProduct().getName().contains("leather bag"));
+
+		long counted = 0;
+		for (SearchFacet facet : response.getFacets().get("manufacturer")) {
+			counted += facet.getCount();
+		}
+		Assert.assertEquals(response.getTotalCount(), counted);
+		Assert.assertFalse(response.getFacets().get("categories").isEmpty());
+
+		// searchable once refreshed, before any commit
+		ProductIndex index = indexes.getIndex(STORE, "en");
+		index.update(Arrays.asList(product(PRODUCTS + 1, "purple velvet sofa")));
+		index.refresh();
+		Assert.assertEquals(1, searchService.search(store, "en", "velvet", 10, 0).getTotalCount());
+
+		List<String> keywords = searchService.searchForKeywords("keyword_en_" + STORE, "purp", 5).getKeywords();
+		Assert.assertTrue(keywords.contains("purple velvet sofa"));
+
+		index.delete(String.valueOf(PRODUCTS + 1));
+		index.refresh();
+		index.decRef();
+		Assert.assertEquals(0, searchService.search(store, "en", "velvet", 10, 0).getTotalCount());
+
+		if (Benchmark.isEnabled()) {
+			int[] query = { 0 };
+			Benchmark.run("lucene search", QUERIES,
+					() -> searchService.search(store, "en", TERMS[query[0]++ % TERMS.length], 20, 0));
+		}
+	}
+
+	@Test
+	public void searchRemote() throws Exception {
+
+		try (RestHighLevelClient client = new RestHighLevelClient(RestClient.builder(new HttpHost("localhost", 9200, "http")))) {
+
+			Benchmark.assumeEnabled();
+			boolean running;
+			try {
+				running = client.ping(RequestOptions.DEFAULT);
+			} catch (Exception e) {
+				running = false;
+			}
+			Assume.assumeTrue("no elasticsearch node on localhost:9200", running);
+
+			if (client.indices().exists(new GetIndexRequest(REMOTE_INDEX), RequestOptions.DEFAULT)) {
+				client.indices().delete(new DeleteIndexRequest(REMOTE_INDEX), RequestOptions.DEFAULT);
+			}
+			client.indices().create(new CreateIndexRequest(REMOTE_INDEX), RequestOptions.DEFAULT);
+
+			List<IndexProduct> products = products();
+			for (int i = 0; i < products.size(); i += 1000) {
+				BulkRequest bulk = new BulkRequest();
+				for (IndexProduct product : products.subList(i, Math.min(i + 1000, products.size()))) {
+					bulk.add(new IndexRequest(REMOTE_INDEX).id(product.getId()).source(product.toJSONString(), XContentType.JSON));
+				}
+				client.bulk(bulk, RequestOptions.DEFAULT);
+			}
+			client.bulk(new BulkRequest().setRefreshPolicy(WriteRequest.RefreshPolicy.IMMEDIATE)
+					.add(new IndexRequest(REMOTE_INDEX).id("0").source(product(0, "red wool hat").toJSONString(), XContentType.JSON)),
+					RequestOptions.DEFAULT);
+
+			int[] query = { 0 };
+			Benchmark.run("elasticsearch search", QUERIES,
+					() -> client.search(request(TERMS[query[0]++ % TERMS.length]), RequestOptions.DEFAULT));
+
+			client.indices().delete(new DeleteIndexRequest(REMOTE_INDEX), RequestOptions.DEFAULT);
+		}
+	}
+
+	private SearchRequest request(String term) {
+		SearchSourceBuilder source = new SearchSourceBuilder()
+				.query(QueryBuilders.multiMatchQuery(term, "name^3", "tags^2", "description"))
+				.aggregation(AggregationBuilders.terms("categories").field("categories.keyword"))
+				.aggregation(AggregationBuilders.terms("manufacturer").field("manufacturer.keyword"))
+				.size(20);
+		return new SearchRequest(REMOTE_INDEX).source(source);
+	}
+
+	private List<IndexProduct> products() {
+		List<IndexProduct> products = new ArrayList<IndexProduct>();
+		for (int i = 0; i < PRODUCTS; i++) {
+			String name = COLORS[i % COLORS.length] + " " + MATERIALS[(i / 5) % MATERIALS.length] + " "
+					+ ITEMS[(i / 25) % ITEMS.length];
+			products.add(product(i, name));
+		}
+		return products;
+	}
+
+	private IndexProduct product(int id, String name) {
+		IndexProduct product = new IndexProduct();
+		product.setId(String.valueOf(id));
+		product.setStore(STORE);
+		product.setLang("en");
+		product.setAvailable(true);
+		product.setName(name);
+		product.setDescription("A " + name + " made to last, product number " + id);
+		product.setPrice(10d + id % 90);
+		product.setManufacturer(String.valueOf(id % 10));
+		product.setCategories(Arrays.asList("category" + (id % 20), "all"));
+		product.setTags(Arrays.asList(name.split(" ")));
+		return product;
+	}
+
+}
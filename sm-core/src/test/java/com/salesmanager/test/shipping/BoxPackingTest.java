@@ -0,0 +1,177 @@
+package com.salesmanager.test.shipping;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.salesmanager.core.business.modules.integration.shipping.impl.BoxPacker;
+import com.salesmanager.core.business.modules.integration.shipping.impl.BoxPacker.Box;
+import com.salesmanager.core.business.modules.integration.shipping.impl.BoxPacker.BoxType;
+import com.salesmanager.core.business.modules.integration.shipping.impl.BoxPacker.Item;
+import com.salesmanager.test.common.Benchmark;
+
+/**
+ * Packs carts with {@link BoxPacker} and compares the boxes with the volume
+ * and weight fill used before (each unit placed while 75% of the volume
+ * left can hold it, whatever its shape).
+ */
+public class BoxPackingTest {
+
+	private static final BoxType LARGE = new BoxType("large", 30, 20, 40, 0.5, 30);
+	private static final BoxType MEDIUM = new BoxType("medium", 20, 15, 20, 0.3, 15);
+	private static final BoxType SMALL = new BoxType("small", 10, 10, 10, 0.1, 5);
+
+	private static final int CARTS = 500;
+	private static final int PACKINGS = 2000;
+
+	@Test
+	public void sameItems() throws Exception {
+		List<Box> boxes = new BoxPacker(Collections.singletonList(LARGE)).pack(
+				Arrays.asList(new Item(10, 10, 10, 0.5, 60), new Item(10, 10, 10, 0.5, 40)));
+		// 3 x 2 x 4 per box
+		Assert.assertEquals(5, boxes.size());
+		Assert.assertEquals(24, boxes.get(0).getItemCount());
+		Assert.assertEquals(100, count(boxes));
+		Assert.assertEquals(12.5, boxes.get(0).getWeight(), 0.0001);
+	}
+
+	@Test
+	public void orientation() throws Exception {
+		// fits lying along the length of the box only
+		List<Box> boxes = new BoxPacker(Collections.singletonList(LARGE)).pack(
+				Collections.singletonList(new Item(40, 10, 10, 1, 6)));
+		Assert.assertEquals(1, boxes.size());
+		Assert.assertEquals(6, boxes.get(0).getItemCount());
+
+		Assert.assertNull(new BoxPacker(Collections.singletonList(LARGE)).pack(
+				Collections.singletonList(new Item(41, 10, 10, 1, 1))));
+	}
+
+	@Test
+	public void weightLimit() throws Exception {
+		List<Box> boxes = new BoxPacker(Collections.singletonList(LARGE)).pack(
+				Collections.singletonList(new Item(5, 5, 5, 7, 10)));
+		Assert.assertEquals(3, boxes.size());
+		for (Box box : boxes) {
+			Assert.assertTrue(box.getItemsWeight() <= LARGE.getMaxWeight());
+		}
+		Assert.assertNull(new BoxPacker(Collections.singletonList(LARGE)).pack(
+				Collections.singletonList(new Item(5, 5, 5, 31, 1))));
+	}
+
+	@Test
+	public void smallestBox() throws Exception {
+		BoxPacker packer = new BoxPacker(Arrays.asList(LARGE, MEDIUM, SMALL));
+		List<Box> boxes = packer.pack(Collections.singletonList(new Item(5, 5, 5, 1, 2)));
+		Assert.assertEquals(1, boxes.size());
+		Assert.assertEquals("small", boxes.get(0).getType().getCode());
+
+		boxes = packer.pack(Arrays.asList(new Item(25, 15, 35, 4, 1), new Item(5, 5, 5, 1, 3)));
+		Assert.assertEquals(1, boxes.size());
+		Assert.assertEquals("large", boxes.get(0).getType().getCode());
+	}
+
+	@Test
+	public void comparison() throws Exception {
+
+		BoxPacker single = new BoxPacker(Collections.singletonList(LARGE));
+		BoxPacker multiple = new BoxPacker(Arrays.asList(LARGE, MEDIUM, SMALL));
+
+		// 3 fit in the box, the volume fill puts 6
+		List<Item> thin = Collections.singletonList(new Item(16, 11, 21, 1, 6));
+		Assert.assertEquals(1, fill(thin));
+		Assert.assertEquals(2, single.pack(thin).size());
+
+		Random random = new Random(42);
+		int packedBoxes = 0;
+		int lowerBound = 0;
+		double fillVolume = 0;
+		double packedVolume = 0;
+		for (int c = 0; c < CARTS; c++) {
+			List<Item> cart = new ArrayList<Item>();
+			int lines = 1 + random.nextInt(5);
+			for (int i = 0; i < lines; i++) {
+				cart.add(new Item(2 + random.nextInt(15), 2 + random.nextInt(12), 2 + random.nextInt(20),
+						0.1 + random.nextInt(30) / 10.0, 1 + random.nextInt(20)));
+			}
+
+			fillVolume += fill(cart) * LARGE.getVolume();
+
+			List<Box> packed = single.pack(cart);
+			packedBoxes += packed.size();
+			lowerBound += lowerBound(cart);
+			Assert.assertTrue(packed.size() >= lowerBound(cart));
+			for (Box box : multiple.pack(cart)) {
+				packedVolume += box.getType().getVolume();
+			}
+		}
+		// the volume fill ships fewer boxes by ignoring the shape of the
+		// items, packed boxes stay close to the volume and weight bound
+		Assert.assertTrue(packedBoxes <= 1.1 * lowerBound);
+		Assert.assertTrue(packedVolume < fillVolume);
+
+	}
+
+	@Test
+	public void packingTime() throws Exception {
+
+		BoxPacker multiple = new BoxPacker(Arrays.asList(LARGE, MEDIUM, SMALL));
+		List<Item> large = new ArrayList<Item>();
+		for (int i = 0; i < 20; i++) {
+			large.add(new Item(3 + i % 5, 4, 5, 0.3, 50));
+		}
+		Benchmark.run("packing 1000 units in " + multiple.pack(large).size() + " boxes", PACKINGS,
+				() -> multiple.pack(large));
+		Benchmark.run("volume fill of 1000 units in " + fill(large) + " boxes", PACKINGS, () -> fill(large));
+	}
+
+	private int count(List<Box> boxes) {
+		int count = 0;
+		for (Box box : boxes) {
+			count += box.getItemCount();
+		}
+		return count;
+	}
+
+	private int lowerBound(List<Item> cart) {
+		double volume = 0;
+		double weight = 0;
+		for (Item item : cart) {
+			volume += item.getQuantity() * item.getWidth() * item.getHeight() * item.getLength();
+			weight += item.getQuantity() * item.getWeight();
+		}
+		return (int) Math.max(Math.ceil(volume / LARGE.getVolume()), Math.ceil(weight / LARGE.getMaxWeight()));
+	}
+
+	/**
+	 * Boxes used by the previous volume and weight fill of individual units
+	 */
+	private int fill(List<Item> cart) {
+		List<double[]> boxes = new ArrayList<double[]>();
+		boxes.add(new double[] { LARGE.getVolume(), LARGE.getMaxWeight() });
+		for (Item item : cart) {
+			double volume = item.getWidth() * item.getHeight() * item.getLength();
+			for (int i = 0; i < item.getQuantity(); i++) {
+				boolean assigned = false;
+				for (double[] box : boxes) {
+					if (box[0] * .75 >= volume && box[1] >= item.getWeight()) {
+						box[0] -= volume;
+						box[1] -= item.getWeight();
+						assigned = true;
+						break;
+					}
+				}
+				if (!assigned) {
+					boxes.add(new double[] { LARGE.getVolume() - volume, LARGE.getMaxWeight() - item.getWeight() });
+				}
+			}
+		}
+		return boxes.size();
+	}
+
+}
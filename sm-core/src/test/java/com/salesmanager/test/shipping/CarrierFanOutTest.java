@@ -0,0 +1,207 @@
+package com.salesmanager.test.shipping;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.impl.client.BasicResponseHandler;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.salesmanager.core.business.modules.integration.shipping.CarrierHttpClient;
+import com.salesmanager.core.business.modules.integration.shipping.CarrierUnavailableException;
+import com.salesmanager.core.business.services.shipping.ShippingQuoteFanOut;
+import com.salesmanager.core.model.shipping.ShippingOption;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Runs {@link CarrierHttpClient} and {@link ShippingQuoteFanOut} against a
+ * local stub of a fast, a slow and a failing carrier
+ */
+public class CarrierFanOutTest {
+
+	private static final int READ_TIMEOUT = 500;
+	private static final int FAILURES = 3;
+	private static final int OPEN_TIME = 1000;
+
+	private HttpServer server;
+	private final AtomicInteger received = new AtomicInteger();
+	private final Set<Integer> clientPorts = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+
+	private CarrierHttpClient client;
+	private ShippingQuoteFanOut fanOut;
+
+	@Before
+	public void start() throws Exception {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/fast", exchange -> answer(exchange, 200, 0));
+		server.createContext("/slow", exchange -> answer(exchange, 200, 3 * READ_TIMEOUT));
+		server.createContext("/failing", exchange -> answer(exchange, 500, 0));
+		server.setExecutor(Executors.newCachedThreadPool());
+		server.start();
+
+		client = new CarrierHttpClient();
+		ReflectionTestUtils.setField(client, "maxConnections", 10);
+		ReflectionTestUtils.setField(client, "connectTimeout", 500);
+		ReflectionTestUtils.setField(client, "readTimeout", READ_TIMEOUT);
+		ReflectionTestUtils.setField(client, "keepAlive", 30000L);
+		ReflectionTestUtils.setField(client, "failureThreshold", FAILURES);
+		ReflectionTestUtils.setField(client, "openTime", (long) OPEN_TIME);
+		client.init();
+
+		fanOut = new ShippingQuoteFanOut();
+		ReflectionTestUtils.setField(fanOut, "threads", 8);
+		fanOut.init();
+	}
+
+	@After
+	public void stop() throws Exception {
+		fanOut.shutdown();
+		client.shutdown();
+		server.stop(0);
+	}
+
+	@Test
+	public void pooledConnections() throws Exception {
+		for (int i = 0; i < 50; i++) {
+			Assert.assertEquals("12.50", call("fast"));
+		}
+		// kept alive and reused
+		Assert.assertTrue(clientPorts.size() <= 2);
+		Assert.assertEquals(50, client.getLatencies("fast").getCount());
+	}
+
+	@Test
+	public void readTimeout() throws Exception {
+		long start = System.currentTimeMillis();
+		try {
+			call("slow");
+			Assert.fail("slow carrier answered");
+		} catch (IOException e) {
+			Assert.assertTrue(System.currentTimeMillis() - start < 3 * READ_TIMEOUT);
+		}
+	}
+
+	@Test
+	public void circuitBreaker() throws Exception {
+		for (int i = 0; i < FAILURES; i++) {
+			try {
+				call("failing");
+				Assert.fail("failing carrier answered");
+			} catch (CarrierUnavailableException e) {
+				Assert.fail("breaker opened too early");
+			} catch (IOException expected) {
+			}
+		}
+		Assert.assertTrue(client.isOpen("failing"));
+
+		int calls = received.get();
+		try {
+			call("failing");
+			Assert.fail("open breaker let a call through");
+		} catch (CarrierUnavailableException expected) {
+		}
+		Assert.assertEquals(calls, received.get());
+
+		// one trial call once open long enough, failing again opens the breaker again
+		Thread.sleep(OPEN_TIME + 100);
+		try {
+			call("failing");
+		} catch (CarrierUnavailableException e) {
+			Assert.fail("no trial call");
+		} catch (IOException expected) {
+		}
+		Assert.assertEquals(calls + 1, received.get());
+		Assert.assertTrue(client.isOpen("failing"));
+	}
+
+	@Test
+	public void partialOptions() throws Exception {
+
+		Map<String, Callable<List<ShippingOption>>> modules = new LinkedHashMap<String, Callable<List<ShippingOption>>>();
+		modules.put("slow", () -> options("slow"));
+		modules.put("fast", () -> options("fast"));
+		modules.put("failing", () -> options("failing"));
+
+		long start = System.currentTimeMillis();
+		Map<String, List<ShippingOption>> options = fanOut.getShippingOptions(modules, 2 * READ_TIMEOUT);
+		long elapsed = System.currentTimeMillis() - start;
+
+		Assert.assertEquals(Collections.singleton("fast"), options.keySet());
+		Assert.assertEquals(0, new BigDecimal("12.50").compareTo(options.get("fast").get(0).getOptionPrice()));
+		Assert.assertTrue(elapsed < 3 * READ_TIMEOUT);
+	}
+
+	@Test
+	public void noOptions() throws Exception {
+
+		Map<String, Callable<List<ShippingOption>>> modules = new LinkedHashMap<String, Callable<List<ShippingOption>>>();
+		modules.put("fast", () -> options("fast"));
+		modules.put("none", () -> null);
+
+		// answered without options, not a partial result
+		Map<String, List<ShippingOption>> options = fanOut.getShippingOptions(modules, 2 * READ_TIMEOUT);
+		Assert.assertEquals(modules.size(), options.size());
+		Assert.assertTrue(options.get("none").isEmpty());
+	}
+
+	@Test
+	public void carrierListener() throws Exception {
+
+		call("fast");
+
+		// carriers called before and after the listener was added
+		Set<String> carriers = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+		client.onNewCarrier(carriers::add);
+		Assert.assertEquals(Collections.singleton("fast"), carriers);
+
+		call("fast");
+		client.getLatencies("other");
+		Assert.assertEquals(2, carriers.size());
+		Assert.assertTrue(carriers.contains("other"));
+	}
+
+	private List<ShippingOption> options(String carrier) throws IOException {
+		ShippingOption option = new ShippingOption();
+		option.setOptionCode(carrier);
+		option.setOptionPrice(new BigDecimal(call(carrier)));
+		return Collections.singletonList(option);
+	}
+
+	private String call(String carrier) throws IOException {
+		HttpGet get = new HttpGet("http://localhost:" + server.getAddress().getPort() + "/" + carrier);
+		return client.execute(carrier, get, new BasicResponseHandler());
+	}
+
+	private void answer(HttpExchange exchange, int status, long delay) throws IOException {
+		received.incrementAndGet();
+		clientPorts.add(exchange.getRemoteAddress().getPort());
+		try {
+			Thread.sleep(delay);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		byte[] body = "12.50".getBytes(StandardCharsets.UTF_8);
+		exchange.sendResponseHeaders(status, body.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body);
+		}
+	}
+
+}
@@ -0,0 +1,137 @@
+package com.salesmanager.test.shipping;
+
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.kie.api.KieBase;
+import org.kie.api.KieServices;
+import org.kie.api.builder.KieFileSystem;
+import org.kie.api.builder.ReleaseId;
+import org.kie.api.runtime.KieSession;
+import org.kie.internal.io.ResourceFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.salesmanager.core.business.configuration.DroolsBeanFactory;
+import com.salesmanager.core.business.modules.integration.shipping.impl.DecisionResponse;
+import com.salesmanager.core.business.modules.integration.shipping.impl.ShippingInputParameters;
+import com.salesmanager.test.common.Benchmark;
+
+/**
+ * Price by distance rules run through the compiled rules cache
+ *
+ * - rules are compiled once, each execution has its own global
+ * - a changed rule file is compiled again once the reload interval passed,
+ *   the replaced module is removed from the kie repository
+ * - the cached rules price as the rules compiled for each session, both
+ *   timed when benchmarks are enabled
+ */
+public class DroolsRulesBenchmarkTest extends com.salesmanager.test.common.AbstractSalesManagerCoreTestCase {
+
+	private static final String RULES = DroolsBeanFactory.RULES_PATH + "PriceByDistance.drl";
+	private static final int ITERATIONS = 5000;
+	private static final int COMPILATIONS = 5;
+
+	@Inject
+	private DroolsBeanFactory droolsBeanFactory;
+
+	private Object reloadInterval;
+
+	@Before
+	public void setUp() {
+		reloadInterval = ReflectionTestUtils.getField(droolsBeanFactory, "reloadInterval");
+	}
+
+	@After
+	public void tearDown() {
+		ReflectionTestUtils.setField(droolsBeanFactory, "reloadInterval", reloadInterval);
+	}
+
+	@Test
+	public void compiledOnce() throws Exception {
+
+		Assert.assertEquals("140", price(1000));
+		long compilations = droolsBeanFactory.getCompilationCount();
+		KieBase kieBase = droolsBeanFactory.getKieBase(RULES);
+
+		// no global left from the previous execution
+		Assert.assertNull(price(5000));
+		Assert.assertEquals("140", price(1000));
+		Assert.assertSame(kieBase, droolsBeanFactory.getKieBase(RULES));
+		Assert.assertEquals(compilations, droolsBeanFactory.getCompilationCount());
+	}
+
+	@Test
+	public void reloadChanged() throws Exception {
+
+		ReflectionTestUtils.setField(droolsBeanFactory, "reloadInterval", 1L);
+		KieBase kieBase = droolsBeanFactory.getKieBase(RULES);
+		long compilations = droolsBeanFactory.getCompilationCount();
+
+		// file not changed, checked but not compiled
+		Thread.sleep(1100);
+		Assert.assertSame(kieBase, droolsBeanFactory.getKieBase(RULES));
+		Assert.assertEquals(compilations, droolsBeanFactory.getCompilationCount());
+
+		// compiled rules older than the file
+		Object compiled = ((Map<?, ?>) ReflectionTestUtils.getField(droolsBeanFactory, "kieBases")).get(RULES);
+		ReflectionTestUtils.setField(compiled, "lastModified", -1L);
+		ReleaseId releaseId = (ReleaseId) ReflectionTestUtils.getField(compiled, "releaseId");
+		Assert.assertSame(kieBase, droolsBeanFactory.getKieBase(RULES));
+
+		Thread.sleep(1100);
+		Assert.assertNotSame(kieBase, droolsBeanFactory.getKieBase(RULES));
+		Assert.assertEquals(compilations + 1, droolsBeanFactory.getCompilationCount());
+		Assert.assertEquals("140", price(1000));
+		// already removed
+		Assert.assertNull(KieServices.Factory.get().getRepository().removeKieModule(releaseId));
+	}
+
+	@Test
+	public void executeRules() throws Exception {
+
+		Assert.assertEquals(compileAndPrice(1000), price(1000));
+		Assert.assertEquals(compileAndPrice(5000), price(5000));
+	}
+
+	@Test
+	public void executeRulesTiming() throws Exception {
+
+		Benchmark.run("compile and execute price by distance rules", COMPILATIONS, () -> compileAndPrice(1000));
+		Benchmark.run("execute cached price by distance rules", ITERATIONS, () -> price(1000));
+	}
+
+	private String price(long distance) {
+		ShippingInputParameters parameters = new ShippingInputParameters();
+		parameters.setDistance(distance);
+		DecisionResponse response = new DecisionResponse();
+		droolsBeanFactory.execute(RULES, "decision", response, parameters);
+		return response.getCustomPrice();
+	}
+
+	/**
+	 * Rules compiled for every session as they were before the cache
+	 */
+	private String compileAndPrice(long distance) {
+		KieServices kieServices = KieServices.Factory.get();
+		KieFileSystem kieFileSystem = kieServices.newKieFileSystem().write(ResourceFactory.newClassPathResource(RULES));
+		kieServices.newKieBuilder(kieFileSystem).buildAll();
+		KieSession kieSession = kieServices.newKieContainer(kieServices.getRepository().getDefaultReleaseId()).newKieSession();
+		try {
+			ShippingInputParameters parameters = new ShippingInputParameters();
+			parameters.setDistance(distance);
+			DecisionResponse response = new DecisionResponse();
+			kieSession.insert(parameters);
+			kieSession.setGlobal("decision", response);
+			kieSession.fireAllRules();
+			return response.getCustomPrice();
+		} finally {
+			kieSession.dispose();
+		}
+	}
+
+}
@@ -0,0 +1,183 @@
+package com.salesmanager.test.shipping;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Inject;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.salesmanager.core.business.services.shipping.ShippingQuoteCache;
+import com.salesmanager.core.business.services.shipping.ShippingQuoteService;
+import com.salesmanager.core.model.common.Delivery;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.reference.language.Language;
+import com.salesmanager.core.model.shipping.PackageDetails;
+import com.salesmanager.core.model.shipping.Quote;
+import com.salesmanager.core.model.shipping.ShippingOption;
+import com.salesmanager.core.model.shipping.ShippingOrigin;
+import com.salesmanager.core.model.shipping.ShippingQuote;
+import com.salesmanager.test.common.AbstractSalesManagerCoreTestCase;
+import com.salesmanager.test.common.Benchmark;
+
+/**
+ * Concurrent quotes for the same destination and packages are calculated
+ * once, old saved quotes are purged
+ */
+public class ShippingQuoteCacheTest extends AbstractSalesManagerCoreTestCase {
+
+	private static final int THREADS = 8;
+	private static final int LOOKUPS = 100000;
+
+	@Inject
+	private ShippingQuoteCache shippingQuoteCache;
+
+	@Inject
+	private ShippingQuoteService shippingQuoteService;
+
+	@Test
+	public void fingerprint() throws Exception {
+
+		MerchantStore store = merchantService.getByCode(MerchantStore.DEFAULT_STORE);
+		Language en = languageService.getByCode("en");
+		ShippingOrigin origin = origin(store);
+
+		String fingerprint = shippingQuoteCache.fingerprint(store, origin, delivery(store, "h2h 1a1"), false,
+				Arrays.asList(box(2), box(5)), new BigDecimal("10.5"), en);
+		// postal code spacing and case, package order, total scale
+		Assert.assertEquals(fingerprint, shippingQuoteCache.fingerprint(store, origin, delivery(store, "H2H1A1"), false,
+				Arrays.asList(box(5), box(2)), new BigDecimal("10.50"), en));
+		Assert.assertNotEquals(fingerprint, shippingQuoteCache.fingerprint(store, origin, delivery(store, "H2H1A2"),
+				false, Arrays.asList(box(5), box(2)), new BigDecimal("10.50"), en));
+		Assert.assertNotEquals(fingerprint, shippingQuoteCache.fingerprint(store, origin, delivery(store, "H2H1A1"),
+				false, Arrays.asList(box(5), box(3)), new BigDecimal("10.50"), en));
+		Assert.assertNotEquals(fingerprint, shippingQuoteCache.fingerprint(store, origin, delivery(store, "H2H1A1"),
+				false, Arrays.asList(box(5), box(2)), new BigDecimal("11.50"), en));
+	}
+
+	@Test
+	public void singleCalculation() throws Exception {
+
+		AtomicInteger calculations = new AtomicInteger();
+		Callable<ShippingQuote> loader = () -> {
+			calculations.incrementAndGet();
+			Thread.sleep(200);
+			return quote();
+		};
+
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		try {
+			List<Future<ShippingQuote>> quotes = new ArrayList<Future<ShippingQuote>>();
+			for (int i = 0; i < THREADS; i++) {
+				quotes.add(executor.submit(() -> shippingQuoteCache.get("single", loader)));
+			}
+			List<ShippingQuote> received = new ArrayList<ShippingQuote>();
+			for (Future<ShippingQuote> quote : quotes) {
+				ShippingQuote q = quote.get(10, TimeUnit.SECONDS);
+				Assert.assertEquals(0, new BigDecimal("12.00").compareTo(q.getSelectedShippingOption().getOptionPrice()));
+				Assert.assertSame(q.getShippingOptions().get(0), q.getSelectedShippingOption());
+				for (ShippingQuote other : received) {
+					Assert.assertNotSame(other.getSelectedShippingOption(), q.getSelectedShippingOption());
+				}
+				received.add(q);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		Assert.assertEquals(1, calculations.get());
+
+		if (Benchmark.isEnabled()) {
+			Benchmark.run("cached shipping quote", LOOKUPS, () -> shippingQuoteCache.get("single", loader));
+			Assert.assertEquals(1, calculations.get());
+		}
+	}
+
+	@Test
+	public void moduleFailure() throws Exception {
+
+		AtomicInteger calculations = new AtomicInteger();
+		Callable<ShippingQuote> loader = () -> {
+			calculations.incrementAndGet();
+			ShippingQuote quote = new ShippingQuote();
+			quote.getQuoteInformations().put(ShippingQuoteCache.MODULE_FAILURE, Boolean.TRUE);
+			return quote;
+		};
+		Assert.assertTrue(shippingQuoteCache.get("failure", loader).getQuoteInformations().isEmpty());
+		shippingQuoteCache.get("failure", loader);
+		Assert.assertEquals(2, calculations.get());
+	}
+
+	@Test
+	public void purge() throws Exception {
+
+		Quote old = savedQuote(new Date(System.currentTimeMillis() - TimeUnit.DAYS.toMillis(30)));
+		Quote recent = savedQuote(new Date());
+
+		Assert.assertTrue(shippingQuoteService.purgeExpiredQuotes() >= 1);
+		List<Long> kept = new ArrayList<Long>();
+		for (Quote quote : shippingQuoteService.list()) {
+			kept.add(quote.getId());
+		}
+		Assert.assertFalse(kept.contains(old.getId()));
+		Assert.assertTrue(kept.contains(recent.getId()));
+		shippingQuoteService.delete(recent);
+	}
+
+	private Quote savedQuote(Date quoteDate) throws Exception {
+		Quote quote = new Quote();
+		quote.setModule("weightBased");
+		quote.setOptionCode("STD");
+		quote.setPrice(new BigDecimal("12.00"));
+		quote.setQuoteDate(quoteDate);
+		shippingQuoteService.saveAll(Collections.singletonList(quote));
+		return quote;
+	}
+
+	private ShippingQuote quote() {
+		ShippingOption option = new ShippingOption();
+		option.setOptionCode("STD");
+		option.setOptionPrice(new BigDecimal("12.00"));
+		ShippingQuote quote = new ShippingQuote();
+		quote.setShippingModuleCode("weightBased");
+		quote.setShippingOptions(new ArrayList<ShippingOption>(Collections.singletonList(option)));
+		quote.setSelectedShippingOption(option);
+		return quote;
+	}
+
+	private ShippingOrigin origin(MerchantStore store) {
+		ShippingOrigin origin = new ShippingOrigin();
+		origin.setCountry(store.getCountry());
+		origin.setPostalCode(store.getStorepostalcode());
+		origin.setZone(store.getZone());
+		return origin;
+	}
+
+	private Delivery delivery(MerchantStore store, String postalCode) {
+		Delivery delivery = new Delivery();
+		delivery.setCountry(store.getCountry());
+		delivery.setPostalCode(postalCode);
+		return delivery;
+	}
+
+	private PackageDetails box(double weight) {
+		PackageDetails box = new PackageDetails();
+		box.setShippingWeight(weight);
+		box.setShippingLength(10);
+		box.setShippingWidth(10);
+		box.setShippingHeight(10);
+		box.setShippingQuantity(1);
+		return box;
+	}
+
+}
@@ -0,0 +1,116 @@
+package com.salesmanager.test.shoppingcart;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.inject.Inject;
+import javax.sql.DataSource;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.shoppingcart.ShoppingCart;
+import com.salesmanager.test.common.Benchmark;
+
+/**
+ * 64 threads creating shopping carts at once, every cart gets its own id and
+ * the SM_SEQUENCER row stays ahead of the ids given
+ */
+public class CartIdContentionTest extends com.salesmanager.test.common.AbstractSalesManagerCoreTestCase {
+
+	private static final int THREADS = 64;
+	private static final int CARTS = 20;
+	/** allocationSize of the ShoppingCart table generator **/
+	private static final int ALLOCATION_SIZE = 50;
+
+	@Inject
+	private DataSource dataSource;
+
+	@Test
+	public void createCarts() throws Exception {
+
+		MerchantStore store = merchantService.getByCode(MerchantStore.DEFAULT_STORE);
+		Set<Long> ids = createCarts(store);
+
+		Assert.assertEquals(THREADS * CARTS, ids.size());
+
+		long max = 0;
+		for (Long id : ids) {
+			max = Math.max(max, id);
+		}
+		Assert.assertTrue(sequencerValue("SHP_CRT_SEQ_NEXT_VAL") * ALLOCATION_SIZE > max);
+
+		deleteCarts(store, ids);
+
+	}
+
+	@Test
+	public void createCartsTiming() throws Exception {
+
+		MerchantStore store = merchantService.getByCode(MerchantStore.DEFAULT_STORE);
+		Benchmark.run("create " + THREADS + " x " + CARTS + " carts", 1, () -> deleteCarts(store, createCarts(store)));
+
+	}
+
+	private Set<Long> createCarts(MerchantStore store) throws Exception {
+
+		Set<Long> ids = ConcurrentHashMap.newKeySet();
+		ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+		List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+		for (int i = 0; i < THREADS; i++) {
+			tasks.add(() -> {
+				for (int c = 0; c < CARTS; c++) {
+					ShoppingCart cart = new ShoppingCart();
+					cart.setMerchantStore(store);
+					cart.setShoppingCartCode(UUID.randomUUID().toString());
+					shoppingCartService.create(cart);
+					ids.add(cart.getId());
+				}
+				return null;
+			});
+		}
+
+		try {
+			for (Future<Void> result : executor.invokeAll(tasks)) {
+				result.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+		return ids;
+	}
+
+	private void deleteCarts(MerchantStore store, Set<Long> ids) throws Exception {
+		for (Long id : ids) {
+			// empty carts are obsolete, deleted when read
+			ShoppingCart cart = shoppingCartService.getById(id, store);
+			if (cart != null) {
+				shoppingCartService.deleteCart(cart);
+			}
+		}
+	}
+
+	private long sequencerValue(String row) throws Exception {
+		try (Connection connection = dataSource.getConnection();
+				PreparedStatement select = connection.prepareStatement(
+						"select SEQ_COUNT from SALESMANAGER.SM_SEQUENCER where SEQ_NAME = ?")) {
+			select.setString(1, row);
+			try (ResultSet rs = select.executeQuery()) {
+				Assert.assertTrue(rs.next());
+				return rs.getLong(1);
+			}
+		}
+	}
+
+}
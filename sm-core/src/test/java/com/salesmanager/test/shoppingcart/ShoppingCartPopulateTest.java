@@ -0,0 +1,237 @@
+package com.salesmanager.test.shoppingcart;
+
+import java.math.BigDecimal;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.salesmanager.core.model.catalog.product.Product;
+import com.salesmanager.core.model.catalog.product.attribute.ProductAttribute;
+import com.salesmanager.core.model.catalog.product.attribute.ProductOption;
+import com.salesmanager.core.model.catalog.product.attribute.ProductOptionDescription;
+import com.salesmanager.core.model.catalog.product.attribute.ProductOptionType;
+import com.salesmanager.core.model.catalog.product.attribute.ProductOptionValue;
+import com.salesmanager.core.model.catalog.product.attribute.ProductOptionValueDescription;
+import com.salesmanager.core.model.catalog.product.availability.ProductAvailability;
+import com.salesmanager.core.model.catalog.product.description.ProductDescription;
+import com.salesmanager.core.model.catalog.product.price.ProductPrice;
+import com.salesmanager.core.model.catalog.product.price.ProductPriceDescription;
+import com.salesmanager.core.model.catalog.product.type.ProductType;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.reference.language.Language;
+import com.salesmanager.core.model.shoppingcart.ShoppingCart;
+import com.salesmanager.core.model.shoppingcart.ShoppingCartAttributeItem;
+import com.salesmanager.core.model.shoppingcart.ShoppingCartItem;
+
+/**
+ * Shopping cart refreshed when it is read
+ *
+ * - products of the cart are loaded in one batch, available or not, with
+ *   their collections
+ * - prices are set on every item and an unchanged cart is not written back
+ * - a cart is written back when an attribute was removed from a product or
+ *   a product was deleted
+ */
+public class ShoppingCartPopulateTest extends com.salesmanager.test.common.AbstractSalesManagerCoreTestCase {
+
+	private MerchantStore store;
+	private Language en;
+	private ProductOption option;
+	private ProductOptionValue large;
+	private Product shirt;
+	private Product hat;
+	private ProductAttribute largeAttribute;
+	private String cartCode;
+
+	@Before
+	public void setUp() throws Exception {
+
+		store = merchantService.getByCode(MerchantStore.DEFAULT_STORE);
+		en = languageService.getByCode("en");
+
+		option = new ProductOption();
+		option.setMerchantStore(store);
+		option.setCode("populatesize");
+		option.setProductOptionType(ProductOptionType.Radio.name());
+		ProductOptionDescription optionDescription = new ProductOptionDescription();
+		optionDescription.setLanguage(en);
+		optionDescription.setName("Size");
+		optionDescription.setProductOption(option);
+		option.getDescriptions().add(optionDescription);
+		productOptionService.saveOrUpdate(option);
+
+		large = new ProductOptionValue();
+		large.setMerchantStore(store);
+		large.setCode("populatelarge");
+		ProductOptionValueDescription largeDescription = new ProductOptionValueDescription();
+		largeDescription.setLanguage(en);
+		largeDescription.setName("Large");
+		largeDescription.setProductOptionValue(large);
+		large.getDescriptions().add(largeDescription);
+		productOptionValueService.saveOrUpdate(large);
+
+		shirt = product("POPULATE1", "Populated shirt", new BigDecimal("20.00"), true);
+		largeAttribute = new ProductAttribute();
+		largeAttribute.setProduct(shirt);
+		largeAttribute.setProductOption(option);
+		largeAttribute.setProductOptionValue(large);
+		largeAttribute.setProductAttributePrice(new BigDecimal("5.00"));
+		largeAttribute.setProductAttributeWeight(BigDecimal.ZERO);
+		shirt.getAttributes().add(largeAttribute);
+		productService.create(shirt);
+
+		// not available any more, still shown in the cart
+		hat = product("POPULATE2", "Populated hat", new BigDecimal("10.00"), false);
+		productService.create(hat);
+
+		ShoppingCart cart = new ShoppingCart();
+		cart.setMerchantStore(store);
+		cartCode = UUID.randomUUID().toString();
+		cart.setShoppingCartCode(cartCode);
+
+		ShoppingCartItem shirtItem = new ShoppingCartItem(cart, shirt);
+		shirtItem.setQuantity(2);
+		shirtItem.getAttributes().add(new ShoppingCartAttributeItem(shirtItem, largeAttribute));
+		cart.getLineItems().add(shirtItem);
+
+		ShoppingCartItem hatItem = new ShoppingCartItem(cart, hat);
+		hatItem.setQuantity(1);
+		cart.getLineItems().add(hatItem);
+
+		shoppingCartService.create(cart);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		ShoppingCart cart = shoppingCartService.getByCode(cartCode, store);
+		if (cart != null) {
+			shoppingCartService.delete(cart);
+		}
+		for (Product product : new Product[] { shirt, hat }) {
+			Product saved = productService.findOne(product.getId(), store);
+			if (saved != null) {
+				productService.delete(saved);
+			}
+		}
+		productOptionValueService.delete(large);
+		productOptionService.delete(option);
+	}
+
+	@Test
+	public void listByIds() throws Exception {
+
+		Set<Long> ids = new HashSet<Long>();
+		ids.add(shirt.getId());
+		ids.add(hat.getId());
+		ids.add(-1L);
+
+		List<Product> products = productService.listByIds(ids);
+		Assert.assertEquals(2, products.size());
+
+		// read outside of a session, collections are loaded
+		for (Product product : products) {
+			Assert.assertFalse(product.getDescriptions().isEmpty());
+			Assert.assertFalse(product.getAvailabilities().isEmpty());
+			Assert.assertFalse(product.getAvailabilities().iterator().next().getPrices().isEmpty());
+			if (product.getId().equals(shirt.getId())) {
+				Assert.assertEquals(1, product.getAttributes().size());
+			}
+		}
+	}
+
+	@Test
+	public void unchangedCartNotWritten() throws Exception {
+
+		long populated = shoppingCartService.getPopulatedCartCount();
+		long writeBacks = shoppingCartService.getCartWriteBackCount();
+
+		ShoppingCart cart = shoppingCartService.getByCode(cartCode, store);
+		Assert.assertNotNull(cart);
+		Assert.assertEquals(2, cart.getLineItems().size());
+
+		for (ShoppingCartItem item : cart.getLineItems()) {
+			Assert.assertNotNull(item.getProduct());
+			Assert.assertFalse(item.isObsolete());
+			if (item.getProductId().equals(shirt.getId())) {
+				Assert.assertEquals(0, new BigDecimal("25.00").compareTo(item.getItemPrice()));
+				Assert.assertEquals(0, new BigDecimal("50.00").compareTo(item.getSubTotal()));
+				Assert.assertEquals(1, item.getAttributes().size());
+			} else {
+				Assert.assertEquals(0, new BigDecimal("10.00").compareTo(item.getItemPrice()));
+			}
+		}
+
+		Assert.assertEquals(populated + 1, shoppingCartService.getPopulatedCartCount());
+		Assert.assertEquals(writeBacks, shoppingCartService.getCartWriteBackCount());
+	}
+
+	@Test
+	public void changedCartWritten() throws Exception {
+
+		long writeBacks = shoppingCartService.getCartWriteBackCount();
+
+		// attribute removed from the product, the cart attribute is deleted
+		productAttributeService.delete(productAttributeService.getById(largeAttribute.getId()));
+
+		ShoppingCart cart = shoppingCartService.getByCode(cartCode, store);
+		Assert.assertNotNull(cart);
+		Assert.assertEquals(writeBacks + 1, shoppingCartService.getCartWriteBackCount());
+		for (ShoppingCartItem item : cart.getLineItems()) {
+			if (item.getProductId().equals(shirt.getId())) {
+				Assert.assertEquals(0, new BigDecimal("20.00").compareTo(item.getItemPrice()));
+			}
+		}
+
+		// read again, nothing left to write
+		Assert.assertNotNull(shoppingCartService.getByCode(cartCode, store));
+		Assert.assertEquals(writeBacks + 1, shoppingCartService.getCartWriteBackCount());
+
+		// product deleted, the cart is obsolete and removed
+		productService.delete(productService.findOne(hat.getId(), store));
+		Assert.assertNull(shoppingCartService.getByCode(cartCode, store));
+		Assert.assertEquals(writeBacks + 2, shoppingCartService.getCartWriteBackCount());
+	}
+
+	private Product product(String sku, String name, BigDecimal amount, boolean available) throws Exception {
+
+		Product product = new Product();
+		product.setSku(sku);
+		product.setAvailable(available);
+		product.setType(productTypeService.getProductType(ProductType.GENERAL_TYPE));
+		product.setMerchantStore(store);
+
+		ProductDescription description = new ProductDescription();
+		description.setName(name);
+		description.setLanguage(en);
+		description.setProduct(product);
+		product.getDescriptions().add(description);
+
+		ProductAvailability availability = new ProductAvailability();
+		availability.setProductDateAvailable(new Date());
+		availability.setProductQuantity(100);
+		availability.setRegion("*");
+		availability.setProduct(product);
+
+		ProductPrice price = new ProductPrice();
+		price.setDefaultPrice(true);
+		price.setProductPriceAmount(amount);
+		price.setProductAvailability(availability);
+		ProductPriceDescription priceDescription = new ProductPriceDescription();
+		priceDescription.setName("Base price");
+		priceDescription.setProductPrice(price);
+		priceDescription.setLanguage(en);
+		price.getDescriptions().add(priceDescription);
+		availability.getPrices().add(price);
+		product.getAvailabilities().add(availability);
+
+		return product;
+	}
+
+}
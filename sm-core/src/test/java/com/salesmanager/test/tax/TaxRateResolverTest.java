@@ -0,0 +1,343 @@
+package com.salesmanager.test.tax;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.inject.Inject;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.salesmanager.core.business.services.order.ordertotal.OrderTotalEngine;
+import com.salesmanager.core.business.services.tax.TaxClassService;
+import com.salesmanager.core.business.services.tax.TaxRateResolver;
+import com.salesmanager.core.business.services.tax.TaxRateResolver.TaxRateTable;
+import com.salesmanager.core.business.services.tax.TaxRateService;
+import com.salesmanager.core.business.services.tax.TaxService;
+import com.salesmanager.core.business.utils.ExpiringCache;
+import com.salesmanager.core.model.catalog.product.Product;
+import com.salesmanager.core.model.catalog.product.availability.ProductAvailability;
+import com.salesmanager.core.model.catalog.product.description.ProductDescription;
+import com.salesmanager.core.model.catalog.product.type.ProductType;
+import com.salesmanager.core.model.common.Billing;
+import com.salesmanager.core.model.common.Delivery;
+import com.salesmanager.core.model.customer.Customer;
+import com.salesmanager.core.model.customer.CustomerGender;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.order.OrderTotalSummary;
+import com.salesmanager.core.model.reference.country.Country;
+import com.salesmanager.core.model.reference.language.Language;
+import com.salesmanager.core.model.reference.zone.Zone;
+import com.salesmanager.core.model.shoppingcart.ShoppingCart;
+import com.salesmanager.core.model.shoppingcart.ShoppingCartItem;
+import com.salesmanager.core.model.tax.taxclass.TaxClass;
+import com.salesmanager.core.model.tax.taxrate.TaxRate;
+import com.salesmanager.core.model.tax.taxrate.TaxRateDescription;
+import com.salesmanager.test.common.Benchmark;
+
+/**
+ * Tax rates of a store resolved from the in memory table
+ *
+ * - rates of a country and zone, or of a state province, for a tax class
+ *   in priority order
+ * - a saved or deleted rate replaces the table
+ * - a table is loaded again once its time to live passed
+ * - shopping cart total of 50 lines taxed from the table
+ *
+ * With benchmarks enabled the table is timed against querying the rates and
+ * the default tax class of each line as done before the table.
+ */
+public class TaxRateResolverTest extends com.salesmanager.test.common.AbstractSalesManagerCoreTestCase {
+
+	private static final int ITERATIONS = 5000;
+	private static final int LINES = 50;
+	private static final int CALCULATIONS = 500;
+
+	@Inject
+	private TaxRateResolver taxRateResolver;
+
+	@Inject
+	private TaxRateService taxRateService;
+
+	@Inject
+	private TaxClassService taxClassService;
+
+	@Inject
+	private TaxService taxService;
+
+	@Inject
+	private OrderTotalEngine orderTotalEngine;
+
+	private MerchantStore store;
+	private Language en;
+	private Language fr;
+	private Country canada;
+	private Country france;
+	private Zone quebec;
+	private Zone ontario;
+	private TaxClass defaultTaxClass;
+	private TaxClass reduced;
+	private List<TaxRate> rates = new ArrayList<TaxRate>();
+	private long ttl;
+	private Customer customer;
+	private Product product;
+
+	@Before
+	public void setUp() throws Exception {
+
+		store = merchantService.getByCode(MerchantStore.DEFAULT_STORE);
+		en = languageService.getByCode("en");
+		fr = languageService.getByCode("fr");
+		canada = countryService.getByCode("CA");
+		france = countryService.getByCode("FR");
+		quebec = zoneService.getByCode("QC");
+		ontario = zoneService.getByCode("ON");
+
+		ttl = (Long) ReflectionTestUtils.getField(taxRateResolver, "ttl");
+
+		defaultTaxClass = taxClassService.getByCode(TaxClass.DEFAULT_TAX_CLASS);
+		reduced = new TaxClass("RESOLVERTX");
+		reduced.setTitle("Reduced");
+		reduced.setMerchantStore(store);
+		taxClassService.saveOrUpdate(reduced);
+
+		// saved in reverse priority
+		rate("RESOLVERQST", canada, quebec, null, defaultTaxClass, 1, "9.975", "QST");
+		rate("RESOLVERGST", canada, null, null, defaultTaxClass, 0, "5", "GST");
+		rate("RESOLVERHST", canada, ontario, null, defaultTaxClass, 0, "13", "HST");
+		rate("RESOLVERRED", canada, quebec, null, reduced, 0, "2", "Reduced");
+		rate("RESOLVERTVA", france, null, "Paris", defaultTaxClass, 0, "20", "TVA");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		tables().setTtl(ttl);
+		orderTotalEngine.clear();
+		if (product != null) {
+			productService.delete(product);
+		}
+		if (customer != null) {
+			customerService.delete(customer);
+		}
+		for (TaxRate rate : rates) {
+			TaxRate saved = taxRateService.getByCode(rate.getCode(), store);
+			if (saved != null) {
+				taxRateService.delete(saved);
+			}
+		}
+		taxClassService.delete(taxClassService.getById(reduced.getId()));
+	}
+
+	@Test
+	public void resolveRates() throws Exception {
+
+		TaxRateTable table = taxRateResolver.getTable(store);
+		Assert.assertEquals(TaxClass.DEFAULT_TAX_CLASS, table.getDefaultTaxClass().getCode());
+
+		List<TaxRate> quebecRates = table.getRates(canada, quebec, defaultTaxClass);
+		Assert.assertEquals(2, quebecRates.size());
+		Assert.assertEquals("RESOLVERGST", quebecRates.get(0).getCode());
+		Assert.assertEquals("RESOLVERQST", quebecRates.get(1).getCode());
+		Assert.assertSame(quebecRates, table.getRates(canada, quebec, defaultTaxClass));
+
+		List<TaxRate> reducedRates = table.getRates(canada, quebec, reduced);
+		Assert.assertEquals(1, reducedRates.size());
+		Assert.assertEquals("RESOLVERRED", reducedRates.get(0).getCode());
+
+		List<TaxRate> parisRates = table.getRates(france, "Paris", defaultTaxClass);
+		Assert.assertEquals(1, parisRates.size());
+		Assert.assertTrue(table.getRates(france, "Lyon", defaultTaxClass).isEmpty());
+
+		Assert.assertEquals("GST", table.getLabel(quebecRates.get(0), en));
+		// no french description
+		Assert.assertEquals("GST", table.getLabel(quebecRates.get(0), fr));
+	}
+
+	@Test
+	public void changedRates() throws Exception {
+
+		TaxRateTable table = taxRateResolver.getTable(store);
+		Assert.assertSame(table, taxRateResolver.getTable(store));
+		Assert.assertEquals(2, table.getRates(canada, quebec, defaultTaxClass).size());
+
+		TaxRate qst = taxRateService.getById(rates.get(0).getId());
+		taxRateService.delete(qst);
+
+		TaxRateTable reloaded = taxRateResolver.getTable(store);
+		Assert.assertNotSame(table, reloaded);
+		Assert.assertTrue(reloaded.getVersion() > table.getVersion());
+		Assert.assertEquals(1, reloaded.getRates(canada, quebec, defaultTaxClass).size());
+
+		rate("RESOLVERPST", canada, quebec, null, defaultTaxClass, 2, "7", "PST");
+		Assert.assertEquals(2, taxRateResolver.getTable(store).getRates(canada, quebec, defaultTaxClass).size());
+	}
+
+	@Test
+	public void expiredTable() throws Exception {
+
+		tables().setTtl(1);
+		taxRateResolver.invalidate(store);
+		TaxRateTable table = taxRateResolver.getTable(store);
+		Assert.assertSame(table, taxRateResolver.getTable(store));
+
+		// rate saved by another server, not seen until the table expires
+		Thread.sleep(1100);
+		TaxRateTable reloaded = taxRateResolver.getTable(store);
+		Assert.assertNotSame(table, reloaded);
+		Assert.assertTrue(reloaded.getVersion() > table.getVersion());
+	}
+
+	@Test
+	public void shoppingCartTotal() throws Exception {
+
+		ShoppingCart cart = cart();
+		OrderTotalSummary expected = orderService.calculateShoppingCartTotal(cart, customer, store, en);
+		Assert.assertTrue(expected.getTaxTotal().signum() > 0);
+
+		// GST and QST of each line
+		Assert.assertEquals(new BigDecimal("74.88"), expected.getTaxTotal());
+
+		orderTotalEngine.clear();
+		OrderTotalSummary resolved = orderService.calculateShoppingCartTotal(cart, customer, store, en);
+		Assert.assertEquals(0, expected.getTaxTotal().compareTo(resolved.getTaxTotal()));
+	}
+
+	@Test
+	public void resolveRatesTiming() throws Exception {
+		Benchmark.run("query tax rates", ITERATIONS, () -> query());
+		Benchmark.run("tax rate table", ITERATIONS,
+				() -> taxRateResolver.getTable(store).getRates(canada, quebec, defaultTaxClass));
+	}
+
+	@Test
+	public void shoppingCartTotalTiming() throws Exception {
+
+		Benchmark.assumeEnabled();
+		ShoppingCart cart = cart();
+		Benchmark.run("shopping cart total of " + LINES + " lines, per line tax queries", CALCULATIONS, () -> {
+			orderTotalEngine.clear();
+			orderService.calculateShoppingCartTotal(cart, customer, store, en);
+			queryLines();
+		});
+		Benchmark.run("shopping cart total of " + LINES + " lines, tax rate table", CALCULATIONS, () -> {
+			orderTotalEngine.clear();
+			orderService.calculateShoppingCartTotal(cart, customer, store, en);
+		});
+	}
+
+	/**
+	 * Queries a shopping cart tax calculation made before the table, the
+	 * tax configuration, the default tax class of each line without tax
+	 * class and the rates of the tax class
+	 */
+	private void queryLines() throws Exception {
+		taxService.getTaxConfiguration(store);
+		for (int i = 0; i < LINES; i++) {
+			taxClassService.getByCode(TaxClass.DEFAULT_TAX_CLASS);
+		}
+		query();
+	}
+
+	private ShoppingCart cart() throws Exception {
+
+		Billing billing = new Billing();
+		billing.setAddress("Billing address");
+		billing.setCity("Montreal");
+		billing.setCountry(canada);
+		billing.setZone(quebec);
+		billing.setFirstName("Carl");
+		billing.setLastName("Samson");
+		billing.setPostalCode("H2H2H2");
+
+		Delivery delivery = new Delivery();
+		delivery.setAddress("Shipping address");
+		delivery.setCountry(canada);
+		delivery.setZone(quebec);
+
+		customer = new Customer();
+		customer.setMerchantStore(store);
+		customer.setDefaultLanguage(en);
+		customer.setEmailAddress("taxresolver@email.com");
+		customer.setPassword("-1999");
+		customer.setNick("taxresolver");
+		customer.setGender(CustomerGender.M);
+		customer.setDateOfBirth(new Date());
+		customer.setBilling(billing);
+		customer.setDelivery(delivery);
+		customerService.create(customer);
+
+		// no tax class, the default tax class applies
+		product = new Product();
+		product.setSku("RESOLVERCART");
+		product.setType(productTypeService.getProductType(ProductType.GENERAL_TYPE));
+		product.setMerchantStore(store);
+		ProductDescription description = new ProductDescription();
+		description.setName("Tax resolver product");
+		description.setLanguage(en);
+		description.setProduct(product);
+		product.getDescriptions().add(description);
+
+		ProductAvailability availability = new ProductAvailability();
+		availability.setProductDateAvailable(new Date());
+		availability.setProductQuantity(100);
+		availability.setRegion("*");
+		availability.setProduct(product);
+		product.getAvailabilities().add(availability);
+		productService.create(product);
+
+		Set<ShoppingCartItem> items = new LinkedHashSet<ShoppingCartItem>();
+		for (int i = 0; i < LINES; i++) {
+			ShoppingCartItem item = new ShoppingCartItem(product);
+			item.setQuantity(1);
+			item.setItemPrice(new BigDecimal("10.00"));
+			items.add(item);
+		}
+		ShoppingCart cart = new ShoppingCart();
+		cart.setMerchantStore(store);
+		cart.setLineItems(items);
+		return cart;
+	}
+
+	/**
+	 * Queries made by each tax calculation before the table
+	 */
+	private List<TaxRate> query() throws Exception {
+		TaxClass taxClass = taxClassService.getByCode(TaxClass.DEFAULT_TAX_CLASS);
+		return taxRateService.listByCountryZoneAndTaxClass(canada, quebec, taxClass, store, en);
+	}
+
+	private ExpiringCache<?, ?> tables() {
+		return (ExpiringCache<?, ?>) ReflectionTestUtils.getField(taxRateResolver, "tables");
+	}
+
+	private void rate(String code, Country country, Zone zone, String stateProvince, TaxClass taxClass,
+			int priority, String rate, String name) throws Exception {
+
+		TaxRate taxRate = new TaxRate();
+		taxRate.setCode(code);
+		taxRate.setMerchantStore(store);
+		taxRate.setCountry(country);
+		taxRate.setZone(zone);
+		taxRate.setStateProvince(stateProvince);
+		taxRate.setTaxClass(taxClass);
+		taxRate.setTaxPriority(priority);
+		taxRate.setTaxRate(new BigDecimal(rate));
+
+		TaxRateDescription description = new TaxRateDescription();
+		description.setName(name);
+		description.setLanguage(en);
+		description.setTaxRate(taxRate);
+		taxRate.getDescriptions().add(description);
+
+		taxRateService.saveOrUpdate(taxRate);
+		rates.add(taxRate);
+	}
+
+}
@@ -0,0 +1,98 @@
+package com.salesmanager.test.user;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+import javax.inject.Inject;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.salesmanager.core.business.services.merchant.MerchantStoreCache;
+import com.salesmanager.core.business.services.user.GroupService;
+import com.salesmanager.core.business.services.user.PrincipalCache;
+import com.salesmanager.core.business.services.user.PrincipalSnapshot;
+import com.salesmanager.core.business.services.user.UserService;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.user.Group;
+import com.salesmanager.core.model.user.User;
+import com.salesmanager.test.common.AbstractSalesManagerCoreTestCase;
+import com.salesmanager.test.common.Benchmark;
+
+/**
+ * Users and stores are read once for request authorization and read again
+ * after a user or a store is saved
+ */
+public class PrincipalCacheTest extends AbstractSalesManagerCoreTestCase {
+
+	private static final int LOOKUPS = 100000;
+
+	@Inject
+	private PrincipalCache principalCache;
+
+	@Inject
+	private MerchantStoreCache merchantStoreCache;
+
+	@Inject
+	private UserService userService;
+
+	@Inject
+	private GroupService groupService;
+
+	@Test
+	public void principal() throws Exception {
+
+		MerchantStore store = merchantService.getByCode(MerchantStore.DEFAULT_STORE);
+		Group group = groupService.findByName("SUPERADMIN");
+
+		User user = new User("principal@test.com", "password", "principal@test.com");
+		user.setFirstName("Principal");
+		user.setLastName("Test");
+		user.setMerchantStore(store);
+		user.setGroups(new ArrayList<Group>(Collections.singletonList(group)));
+		userService.create(user);
+
+		try {
+			PrincipalSnapshot principal = principalCache.get("principal@test.com");
+			Assert.assertNotNull(principal);
+			Assert.assertEquals(MerchantStore.DEFAULT_STORE, principal.getMerchant());
+			Assert.assertEquals(MerchantStore.DEFAULT_STORE, principal.getParentMerchant());
+			Assert.assertTrue(principal.isInGroup("SUPERADMIN"));
+			Assert.assertTrue(principal.getPermissions().contains("SUPERADMIN"));
+			Assert.assertSame(principal, principalCache.get("principal@test.com"));
+			Assert.assertNull(principalCache.get("unknown@test.com"));
+
+			if (Benchmark.isEnabled()) {
+				Benchmark.run("principal lookup", LOOKUPS, () -> principalCache.get("principal@test.com"));
+			}
+
+			user = userService.getByUserName("principal@test.com");
+			user.setFirstName("Changed");
+			userService.saveOrUpdate(user);
+			Assert.assertEquals("Changed", principalCache.get("principal@test.com").getFirstName());
+		} finally {
+			userService.delete(userService.getByUserName("principal@test.com"));
+		}
+		Assert.assertNull(principalCache.get("principal@test.com"));
+	}
+
+	@Test
+	public void store() throws Exception {
+
+		MerchantStore store = merchantStoreCache.get(MerchantStore.DEFAULT_STORE);
+		Assert.assertNotNull(store);
+		Assert.assertSame(store, merchantStoreCache.get(MerchantStore.DEFAULT_STORE));
+		// associations are loaded with the store
+		Assert.assertNotNull(store.getDefaultLanguage().getCode());
+		Assert.assertFalse(store.getLanguages().isEmpty());
+
+		if (Benchmark.isEnabled()) {
+			Benchmark.run("store lookup", LOOKUPS, () -> merchantStoreCache.get(MerchantStore.DEFAULT_STORE));
+		}
+
+		MerchantStore saved = merchantService.getByCode(MerchantStore.DEFAULT_STORE);
+		merchantService.saveOrUpdate(saved);
+		Assert.assertNotSame(store, merchantStoreCache.get(MerchantStore.DEFAULT_STORE));
+	}
+
+}
@@ -0,0 +1,186 @@
+package com.salesmanager.test.utils;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.http.HttpHost;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.client.RestClient;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.common.xcontent.XContentType;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.salesmanager.core.business.modules.common.BulkIndexer;
+import com.salesmanager.core.business.modules.common.BulkIndexer.OverflowPolicy;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Runs {@link BulkIndexer} against a local stub of the elasticsearch bulk
+ * endpoint
+ */
+public class BulkIndexerTest {
+
+	private HttpServer server;
+	private final AtomicInteger received = new AtomicInteger();
+	private final AtomicBoolean available = new AtomicBoolean(true);
+
+	@Before
+	public void startServer() throws Exception {
+		server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+		server.createContext("/", this::bulk);
+		server.start();
+	}
+
+	@After
+	public void stopServer() {
+		server.stop(0);
+	}
+
+	@Test
+	public void testFlushBySize() throws Exception {
+
+		BulkIndexer indexer = new BulkIndexer(client(), 100, 10, 60000, OverflowPolicy.DROP, null);
+
+		for (int i = 0; i < 25; i++) {
+			Assert.assertTrue(indexer.add(request(i)));
+		}
+		indexer.flush();
+
+		Assert.assertEquals(25, received.get());
+		Assert.assertEquals(25, indexer.getIndexedCount());
+		Assert.assertEquals(3, indexer.getBatchCount());
+		Assert.assertEquals(0, indexer.getQueueDepth());
+
+		indexer.close();
+	}
+
+	@Test
+	public void testDropWhenFull() throws Exception {
+
+		BulkIndexer indexer = new BulkIndexer(client(), 5, 100, 60000, OverflowPolicy.DROP, null);
+
+		for (int i = 0; i < 8; i++) {
+			indexer.add(request(i));
+		}
+
+		Assert.assertEquals(5, indexer.getQueueDepth());
+		Assert.assertEquals(3, indexer.getDroppedCount());
+
+		indexer.close();
+	}
+
+	@Test
+	public void testSpillAndReplay() throws Exception {
+
+		File spill = File.createTempFile("bulk-indexer", ".ndjson");
+		spill.delete();
+
+		BulkIndexer indexer = new BulkIndexer(client(), 100, 10, 60000, OverflowPolicy.SPILL, spill);
+
+		available.set(false);
+		for (int i = 0; i < 5; i++) {
+			indexer.add(request(i));
+		}
+		indexer.flush();
+
+		Assert.assertEquals(0, received.get());
+		Assert.assertEquals(5, indexer.getSpilledCount());
+		Assert.assertTrue(spill.exists());
+
+		available.set(true);
+		indexer.flush();
+
+		Assert.assertEquals(5, received.get());
+		Assert.assertEquals(5, indexer.getReplayedCount());
+		Assert.assertFalse(spill.exists());
+
+		indexer.close();
+	}
+
+	@Test
+	public void testSpillWhenFull() throws Exception {
+
+		File spill = File.createTempFile("bulk-indexer", ".ndjson");
+		spill.delete();
+
+		BulkIndexer indexer = new BulkIndexer(client(), 5, 100, 60000, OverflowPolicy.SPILL, spill);
+
+		// kept in the spill file, not dropped
+		for (int i = 0; i < 8; i++) {
+			Assert.assertTrue(indexer.add(request(i)));
+		}
+
+		Assert.assertEquals(5, indexer.getQueueDepth());
+		Assert.assertEquals(3, indexer.getSpilledCount());
+		Assert.assertEquals(0, indexer.getDroppedCount());
+
+		indexer.flush();
+		Assert.assertEquals(8, received.get());
+		Assert.assertFalse(spill.exists());
+
+		indexer.close();
+	}
+
+	private RestHighLevelClient client() {
+		return new RestHighLevelClient(
+				RestClient.builder(new HttpHost("localhost", server.getAddress().getPort(), "http")));
+	}
+
+	private IndexRequest request(int id) {
+		IndexRequest request = new IndexRequest("events_test");
+		request.id(String.valueOf(id));
+		request.source("{\"event\":\"test\"}", XContentType.JSON);
+		return request;
+	}
+
+	private void bulk(HttpExchange exchange) throws java.io.IOException {
+
+		if (!available.get()) {
+			exchange.sendResponseHeaders(503, -1);
+			exchange.close();
+			return;
+		}
+
+		int documents = 0;
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.startsWith("{\"index\"")) {
+					documents++;
+				}
+			}
+		}
+		received.addAndGet(documents);
+
+		StringBuilder body = new StringBuilder("{\"took\":1,\"errors\":false,\"items\":[");
+		for (int i = 0; i < documents; i++) {
+			if (i > 0) {
+				body.append(',');
+			}
+			body.append("{\"index\":{\"_index\":\"events_test\",\"_type\":\"_doc\",\"_id\":\"").append(i)
+					.append("\",\"_version\":1,\"result\":\"created\",")
+					.append("\"_shards\":{\"total\":1,\"successful\":1,\"failed\":0},")
+					.append("\"_seq_no\":0,\"_primary_term\":1,\"status\":201}}");
+		}
+		body.append("]}");
+
+		byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().add("Content-Type", "application/json");
+		exchange.sendResponseHeaders(200, bytes.length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(bytes);
+		}
+	}
+
+}
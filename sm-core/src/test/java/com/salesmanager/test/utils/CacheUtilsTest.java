@@ -0,0 +1,121 @@
+package com.salesmanager.test.utils;
+
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.cache.Cache;
+
+import com.salesmanager.core.business.utils.CacheStatistics;
+import com.salesmanager.core.business.utils.CacheUtils;
+import com.salesmanager.core.model.merchant.MerchantStore;
+
+import net.sf.ehcache.Ehcache;
+
+/**
+ * Object cache keys indexed by store
+ *
+ * - keys of a store are listed and flushed without touching the keys of
+ *   other stores or global keys
+ * - entries removed by the cache provider leave the index
+ * - hits, misses, puts and evictions counted by store and region
+ */
+public class CacheUtilsTest extends com.salesmanager.test.common.AbstractSalesManagerCoreTestCase {
+
+	private static final String GLOBAL_KEY = "CACHEUTILSTEST_GLOBAL";
+
+	@Inject
+	private CacheUtils cache;
+
+	@Inject
+	@Qualifier("serviceCache")
+	private Cache serviceCache;
+
+	private MerchantStore store;
+	private MerchantStore other;
+
+	@Before
+	public void setUp() throws Exception {
+		store = merchantService.getByCode(MerchantStore.DEFAULT_STORE);
+		other = new MerchantStore();
+		other.setId(99999);
+		cache.removeAllFromCache(store);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		cache.removeAllFromCache(store);
+		cache.removeAllFromCache(other);
+		cache.removeFromCache(GLOBAL_KEY);
+	}
+
+	@Test
+	public void storeKeys() throws Exception {
+
+		cache.putInCache("a", key(store, "CACHEUTILSTEST-en"));
+		cache.putInCache("b", key(store, "12_CACHEUTILSTEST-fr"));
+		cache.putInCache("c", key(other, "CACHEUTILSTEST-en"));
+		cache.putInCache("d", GLOBAL_KEY);
+
+		Assert.assertEquals(2, cache.getCacheKeys(store).size());
+		Assert.assertTrue(cache.getCacheKeys(store).contains("CACHEUTILSTEST-en"));
+		Assert.assertTrue(cache.getCacheKeys(store).contains("12_CACHEUTILSTEST-fr"));
+		Assert.assertEquals(1, cache.getCacheKeys(other).size());
+
+		cache.removeFromCache(key(store, "12_CACHEUTILSTEST-fr"));
+		Assert.assertEquals(1, cache.getCacheKeys(store).size());
+
+		// only the keys of the store are flushed
+		cache.removeAllFromCache(store);
+		Assert.assertTrue(cache.getCacheKeys(store).isEmpty());
+		Assert.assertNull(cache.getFromCache(key(store, "CACHEUTILSTEST-en")));
+		Assert.assertEquals("c", cache.getFromCache(key(other, "CACHEUTILSTEST-en")));
+		Assert.assertEquals("d", cache.getFromCache(GLOBAL_KEY));
+	}
+
+	@Test
+	public void removedByProvider() throws Exception {
+
+		cache.putInCache("a", key(store, "CACHEUTILSTEST-en"));
+		Assert.assertEquals(1, cache.getCacheKeys(store).size());
+
+		((Ehcache) serviceCache.getNativeCache()).remove(key(store, "CACHEUTILSTEST-en"));
+		Assert.assertTrue(cache.getCacheKeys(store).isEmpty());
+	}
+
+	@Test
+	public void statistics() throws Exception {
+
+		CacheStatistics before = cache.getStatistics(store).get("CACHEUTILSTEST");
+		long hits = before == null ? 0 : before.getHits();
+		long misses = before == null ? 0 : before.getMisses();
+		long puts = before == null ? 0 : before.getPuts();
+
+		cache.getFromCache(key(store, "CACHEUTILSTEST-en"));
+		cache.putInCache("a", key(store, "CACHEUTILSTEST-en"));
+		// entity ids are not part of the region
+		cache.putInCache("b", key(store, "12_CACHEUTILSTEST-fr"));
+		cache.getFromCache(key(store, "CACHEUTILSTEST-en"));
+		cache.getFromCache(key(store, "12_CACHEUTILSTEST-fr"));
+		cache.putInCache("d", GLOBAL_KEY);
+
+		CacheStatistics region = cache.getStatistics(store).get("CACHEUTILSTEST");
+		Assert.assertEquals(hits + 2, region.getHits());
+		Assert.assertEquals(misses + 1, region.getMisses());
+		Assert.assertEquals(puts + 2, region.getPuts());
+
+		Map<String, Map<String, CacheStatistics>> statistics = cache.getStatistics();
+		Assert.assertTrue(statistics.get(CacheUtils.GLOBAL_NAMESPACE).containsKey("CACHEUTILSTEST"));
+		Assert.assertEquals(region.getPuts(), statistics.get(String.valueOf(store.getId())).get("CACHEUTILSTEST").getPuts());
+	}
+
+	private String key(MerchantStore merchantStore, String key) {
+		return merchantStore.getId() + "_" + key;
+	}
+
+}
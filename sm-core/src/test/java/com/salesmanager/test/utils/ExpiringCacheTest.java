@@ -0,0 +1,115 @@
+package com.salesmanager.test.utils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.salesmanager.core.business.utils.ExpiringCache;
+
+/**
+ * Objects kept by an expiring cache
+ *
+ * - a value is loaded again once its ttl passed or its version changed
+ * - a value loaded while its key was invalidated is not kept
+ * - least recently used values are dropped over the maximum weight
+ * - a ttl of 0 loads on every call
+ */
+public class ExpiringCacheTest {
+
+	@Test
+	public void expiredValue() throws Exception {
+
+		ExpiringCache<String, String> cache = new ExpiringCache<String, String>(1);
+		AtomicInteger loads = new AtomicInteger();
+
+		Assert.assertEquals("a1", cache.get("a", () -> "a" + loads.incrementAndGet()));
+		Assert.assertEquals("a1", cache.get("a", () -> "a" + loads.incrementAndGet()));
+
+		Thread.sleep(1100);
+		Assert.assertEquals("a2", cache.get("a", () -> "a" + loads.incrementAndGet()));
+
+		Thread.sleep(1100);
+		cache.evictExpired();
+		Assert.assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void versionChanged() throws Exception {
+
+		ExpiringCache<String, String> cache = new ExpiringCache<String, String>(60);
+
+		Assert.assertEquals("v1", cache.get("a", 1, () -> "v1"));
+		Assert.assertEquals("v1", cache.get("a", 1, () -> "other"));
+		Assert.assertEquals("v2", cache.get("a", 2, () -> "v2"));
+		Assert.assertEquals(2, cache.getLoadCount());
+	}
+
+	@Test
+	public void invalidatedWhileLoading() throws Exception {
+
+		ExpiringCache<String, String> cache = new ExpiringCache<String, String>(60);
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<String> loading = executor.submit(() -> cache.get("a", () -> {
+				started.countDown();
+				release.await();
+				return "before";
+			}));
+			Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+			cache.invalidate("a");
+			release.countDown();
+			Assert.assertEquals("before", loading.get(10, TimeUnit.SECONDS));
+		} finally {
+			executor.shutdownNow();
+		}
+
+		Assert.assertEquals("after", cache.get("a", () -> "after"));
+		Assert.assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void maxWeight() throws Exception {
+
+		ExpiringCache<String, String> cache = new ExpiringCache<String, String>(60).maxWeight(10, String::length)
+				.keepIf(value -> value.length() <= 5);
+
+		cache.put("a", "aaaa");
+		cache.put("b", "bbbb");
+		Assert.assertNotNull(cache.get("a"));
+		cache.put("c", "cccc");
+
+		// b least recently used
+		Assert.assertNull(cache.get("b"));
+		Assert.assertNotNull(cache.get("a"));
+		Assert.assertNotNull(cache.get("c"));
+		Assert.assertEquals(8, cache.getWeight());
+
+		cache.put("d", "dddddd");
+		Assert.assertNull(cache.get("d"));
+
+		cache.clear();
+		Assert.assertEquals(0, cache.getWeight());
+	}
+
+	@Test
+	public void disabled() throws Exception {
+
+		ExpiringCache<String, String> cache = new ExpiringCache<String, String>(0);
+		AtomicInteger loads = new AtomicInteger();
+
+		cache.get("a", () -> "a" + loads.incrementAndGet());
+		cache.get("a", () -> "a" + loads.incrementAndGet());
+		Assert.assertEquals(2, loads.get());
+		Assert.assertEquals(0, cache.size());
+	}
+
+}
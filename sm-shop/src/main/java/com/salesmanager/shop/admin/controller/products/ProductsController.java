@@ -126,16 +126,7 @@ public class ProductsController {
 					}
 					
 					//get all sub categories
-					StringBuilder lineage = new StringBuilder();
-					lineage.append(category.getLineage()).append(category.getId()).append("/");
-					
-					List<Category> categories = categoryService.getListByLineage(store, lineage.toString());
-					
-					List<Long> categoryIds = new ArrayList<Long>();
-					
-					for(Category cat : categories) {
-						categoryIds.add(cat.getId());
-					}
+					List<Long> categoryIds = new ArrayList<Long>(categoryService.getDescendantIds(store, category.getId()));
 					categoryIds.add(category.getId());
 					criteria.setCategoryIds(categoryIds);
 				
@@ -0,0 +1,37 @@
+package com.salesmanager.shop.application.config;
+
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import com.salesmanager.core.business.utils.CacheStatistics;
+import com.salesmanager.core.business.utils.CacheUtils;
+
+/**
+ * Object cache hits, misses, puts and evictions by store and region
+ * /actuator/storecache lists every namespace, /actuator/storecache/{storeId}
+ * (or global) a single one
+ */
+@Component
+@Endpoint(id = "storecache")
+public class CacheStatisticsEndpoint {
+
+  @Inject
+  private CacheUtils cache;
+
+  @ReadOperation
+  public Map<String, Map<String, CacheStatistics>> statistics() {
+    return cache.getStatistics();
+  }
+
+  @ReadOperation
+  public Map<String, CacheStatistics> namespace(@Selector String namespace) {
+    return cache.getStatistics().get(namespace);
+  }
+
+}
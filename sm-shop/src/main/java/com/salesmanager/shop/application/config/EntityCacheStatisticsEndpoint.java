@@ -0,0 +1,36 @@
+package com.salesmanager.shop.application.config;
+
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.Selector;
+import org.springframework.stereotype.Component;
+
+import com.salesmanager.core.business.utils.EntityCacheStatistics;
+
+/**
+ * Second level cache hits, misses, puts, size and hit ratio by region
+ * /actuator/entitycache lists every region, /actuator/entitycache/{region}
+ * a single one
+ */
+@Component
+@Endpoint(id = "entitycache")
+public class EntityCacheStatisticsEndpoint {
+
+  @Inject
+  private EntityCacheStatistics statistics;
+
+  @ReadOperation
+  public Map<String, EntityCacheStatistics.Region> regions() {
+    return statistics.getRegions();
+  }
+
+  @ReadOperation
+  public EntityCacheStatistics.Region region(@Selector String region) {
+    return statistics.getRegion(region);
+  }
+
+}
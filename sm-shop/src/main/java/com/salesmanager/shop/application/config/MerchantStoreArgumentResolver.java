@@ -17,9 +17,9 @@ import org.springframework.web.context.request.NativeWebRequest;
 import org.springframework.web.method.support.HandlerMethodArgumentResolver;
 import org.springframework.web.method.support.ModelAndViewContainer;
 
+import com.salesmanager.core.business.services.merchant.MerchantStoreCache;
 import com.salesmanager.core.model.merchant.MerchantStore;
 import com.salesmanager.shop.store.api.exception.UnauthorizedException;
-import com.salesmanager.shop.store.controller.store.facade.StoreFacade;
 import com.salesmanager.shop.store.controller.user.facade.UserFacade;
 
 @Component
@@ -29,7 +29,7 @@ public class MerchantStoreArgumentResolver implements HandlerMethodArgumentResol
 	public static final String REQUEST_PARAMATER_STORE = "store";
 
 	@Autowired
-	private StoreFacade storeFacade;
+	private MerchantStoreCache merchantStoreCache;
 
 	@Autowired
 	private UserFacade userFacade;
@@ -44,8 +44,7 @@ public class MerchantStoreArgumentResolver implements HandlerMethodArgumentResol
 			NativeWebRequest webRequest, WebDataBinderFactory binderFactory) throws Exception {
 		String storeValue = Optional.ofNullable(webRequest.getParameter(REQUEST_PARAMATER_STORE))
 				.filter(StringUtils::isNotBlank).orElse(DEFAULT_STORE);
-		// todo get from cache
-		MerchantStore storeModel = storeFacade.get(storeValue);
+		MerchantStore storeModel = merchantStoreCache.get(storeValue);
 
 		HttpServletRequest httpServletRequest = webRequest.getNativeRequest(HttpServletRequest.class);
 
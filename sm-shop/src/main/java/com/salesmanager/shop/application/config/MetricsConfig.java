@@ -0,0 +1,142 @@
+package com.salesmanager.shop.application.config;
+
+import javax.inject.Inject;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.salesmanager.core.business.configuration.DroolsBeanFactory;
+import com.salesmanager.core.business.modules.cms.common.ImageResourceCache;
+import com.salesmanager.core.business.modules.common.BulkIndexer;
+import com.salesmanager.core.business.modules.integration.shipping.CarrierHttpClient;
+import com.salesmanager.core.business.services.catalog.product.image.ProductImageRenditionService;
+import com.salesmanager.core.business.services.shoppingcart.ShoppingCartService;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Publishes sm-core service statistics to the actuator metrics endpoint
+ */
+@Configuration
+public class MetricsConfig {
+
+  @Inject
+  private ShoppingCartService shoppingCartService;
+
+  @Inject
+  private DroolsBeanFactory droolsBeanFactory;
+
+  @Inject
+  private BulkIndexer bulkIndexer;
+
+  @Inject
+  private ImageResourceCache imageResourceCache;
+
+  @Inject
+  private ProductImageRenditionService productImageRenditionService;
+
+  @Inject
+  private CarrierHttpClient carrierHttpClient;
+
+  @Bean
+  public MeterBinder shoppingCartMetrics() {
+    return registry -> {
+      FunctionCounter.builder("shopizer.cart.populated", shoppingCartService,
+          ShoppingCartService::getPopulatedCartCount)
+          .description("Shopping carts refreshed from the catalog")
+          .register(registry);
+      FunctionCounter.builder("shopizer.cart.writeback", shoppingCartService,
+          ShoppingCartService::getCartWriteBackCount)
+          .description("Refreshed shopping carts written back to the database")
+          .register(registry);
+    };
+  }
+
+  @Bean
+  public MeterBinder rulesMetrics() {
+    return registry -> FunctionCounter.builder("shopizer.rules.compilations", droolsBeanFactory,
+        DroolsBeanFactory::getCompilationCount)
+        .description("Drools rule resources compiled")
+        .register(registry);
+  }
+
+  @Bean
+  public MeterBinder indexerMetrics() {
+    return registry -> {
+      Gauge.builder("shopizer.indexer.queue", bulkIndexer, BulkIndexer::getQueueDepth)
+          .description("Event documents waiting to be indexed")
+          .register(registry);
+      Gauge.builder("shopizer.indexer.batch.size", bulkIndexer, BulkIndexer::getLastBatchSize)
+          .description("Size of the last bulk request")
+          .register(registry);
+      FunctionCounter.builder("shopizer.indexer.indexed", bulkIndexer, BulkIndexer::getIndexedCount)
+          .register(registry);
+      FunctionCounter.builder("shopizer.indexer.batches", bulkIndexer, BulkIndexer::getBatchCount)
+          .register(registry);
+      FunctionCounter.builder("shopizer.indexer.failures", bulkIndexer, BulkIndexer::getFailureCount)
+          .register(registry);
+      FunctionCounter.builder("shopizer.indexer.dropped", bulkIndexer, BulkIndexer::getDroppedCount)
+          .register(registry);
+      FunctionCounter.builder("shopizer.indexer.spilled", bulkIndexer, BulkIndexer::getSpilledCount)
+          .register(registry);
+    };
+  }
+
+  @Bean
+  public MeterBinder imageCacheMetrics() {
+    return registry -> {
+      Gauge.builder("shopizer.images.cache.bytes", imageResourceCache, ImageResourceCache::getBytes)
+          .description("Size of the product images held in memory")
+          .register(registry);
+      Gauge.builder("shopizer.images.cache.size", imageResourceCache, ImageResourceCache::getSize)
+          .register(registry);
+      FunctionCounter.builder("shopizer.images.cache.hits", imageResourceCache, ImageResourceCache::getHitCount)
+          .register(registry);
+      FunctionCounter.builder("shopizer.images.cache.misses", imageResourceCache, ImageResourceCache::getMissCount)
+          .register(registry);
+    };
+  }
+
+  @Bean
+  public MeterBinder imageRenditionMetrics() {
+    return registry -> {
+      Gauge.builder("shopizer.images.renditions.queue", productImageRenditionService,
+          ProductImageRenditionService::getQueueDepth)
+          .description("Images waiting for their renditions")
+          .register(registry);
+      FunctionCounter.builder("shopizer.images.renditions.generated", productImageRenditionService,
+          ProductImageRenditionService::getGeneratedCount)
+          .register(registry);
+      FunctionCounter.builder("shopizer.images.renditions.rejected", productImageRenditionService,
+          ProductImageRenditionService::getRejectedCount)
+          .description("Renditions not queued because the queue was full")
+          .register(registry);
+    };
+  }
+
+  @Bean
+  public MeterBinder carrierMetrics() {
+    return registry -> carrierHttpClient.onNewCarrier(carrier -> {
+      for (double percentile : new double[] { 50, 95, 99 }) {
+        Gauge.builder("shopizer.shipping.carrier.latency", carrierHttpClient,
+            client -> client.getLatencies(carrier).getPercentile(percentile))
+            .description("Duration of the calls to a shipping carrier in milliseconds")
+            .tag("carrier", carrier)
+            .tag("percentile", String.valueOf((int) percentile))
+            .register(registry);
+      }
+      FunctionCounter.builder("shopizer.shipping.carrier.calls", carrierHttpClient,
+          client -> client.getLatencies(carrier).getCount())
+          .tag("carrier", carrier)
+          .register(registry);
+      Gauge.builder("shopizer.shipping.carrier.breaker.open", carrierHttpClient,
+          client -> client.isOpen(carrier) ? 1 : 0)
+          .description("1 while calls to a shipping carrier are refused")
+          .tag("carrier", carrier)
+          .register(registry);
+    });
+  }
+
+}
@@ -31,7 +31,7 @@ import com.salesmanager.shop.store.security.services.CredentialsService;
 import com.salesmanager.shop.store.security.services.CredentialsServiceImpl;
 
 /**
- * Main entry point for security - admin - customer - auth - private - services
+ * Main entry point for security - admin - customer - auth - private - services - actuator
  * 
  * @author dur9213
  *
@@ -277,6 +277,53 @@ public class MultipleEntryPointsSecurityConfig {
 
 	}
 
+	/**
+	 * actuator - health and info are public, other endpoints (metrics,
+	 * storecache, entitycache) are for administrators
+	 *
+	 */
+	@Configuration
+	@Order(4)
+	public static class ActuatorConfigurationAdapter extends WebSecurityConfigurerAdapter {
+
+		@Autowired
+		private WebUserServices userDetailsService;
+
+		public ActuatorConfigurationAdapter() {
+			super();
+		}
+
+		@Override
+		public void configure(AuthenticationManagerBuilder auth) throws Exception {
+			auth.userDetailsService(userDetailsService);
+		}
+
+		@Override
+		protected void configure(HttpSecurity http) throws Exception {
+			http
+			.antMatcher("/actuator/**")
+					.authorizeRequests()
+					.antMatchers("/actuator/health", "/actuator/health/**").permitAll()
+					.antMatchers("/actuator/info").permitAll()
+					.antMatchers("/actuator/**").hasRole("ADMIN")
+					.anyRequest().authenticated()
+					.and()
+					.httpBasic()
+					.authenticationEntryPoint(actuatorAuthenticationEntryPoint())
+					.and()
+					.csrf().disable();
+
+		}
+
+		@Bean
+		public AuthenticationEntryPoint actuatorAuthenticationEntryPoint() {
+			BasicAuthenticationEntryPoint entryPoint = new BasicAuthenticationEntryPoint();
+			entryPoint.setRealmName("actuator-realm");
+			return entryPoint;
+		}
+
+	}
+
 	/**
 	 * api - private
 	 * 
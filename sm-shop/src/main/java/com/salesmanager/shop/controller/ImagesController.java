@@ -2,22 +2,31 @@ package com.salesmanager.shop.controller;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.Channels;
 import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.apache.commons.lang3.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
 import org.springframework.stereotype.Controller;
 import org.springframework.util.ResourceUtils;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
-import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.business.modules.cms.common.ImageResource;
 import com.salesmanager.core.business.services.catalog.product.image.ProductImageService;
 import com.salesmanager.core.business.services.content.ContentService;
 import com.salesmanager.core.model.catalog.product.file.ProductImageSize;
@@ -26,6 +35,10 @@ import com.salesmanager.core.model.content.OutputContentFile;
 
 /**
  * When handling images and files from the application server
+ * 
+ * Images are streamed to the response with ETag, Last-Modified and
+ * Cache-Control headers, conditional requests are answered with a 304
+ * without reading the image and single byte ranges are supported
  * @author c.samson
  *
  */
@@ -42,7 +55,11 @@ public class ImagesController {
 	@Inject
 	private ProductImageService productImageService;
 	
-	private byte[] tempImage = null;
+	/** seconds **/
+	@Value("${config.cms.image.maxAge:86400}")
+	private long maxAge;
+	
+	private ImageResource tempImage = null;
 	
 	@PostConstruct
 	public void init() {
@@ -50,7 +67,7 @@ public class ImagesController {
 			File file = ResourceUtils.getFile("classpath:static/not-found.png");
 			if(file != null) {
 				byte[] bFile = Files.readAllBytes(file.toPath());
-				this.tempImage = bFile;
+				this.tempImage = ImageResource.of(file.getName(), "image/png", bFile, -1L);
 			}
 
 			
@@ -69,7 +86,7 @@ public class ImagesController {
 	 * @throws ServiceException 
 	 */
 	@RequestMapping("/static/files/{storeCode}/{imageType}/{imageName}.{extension}")
-	public @ResponseBody byte[] printImage(@PathVariable final String storeCode, @PathVariable final String imageType, @PathVariable final String imageName, @PathVariable final String extension) throws IOException, ServiceException {
+	public void printImage(@PathVariable final String storeCode, @PathVariable final String imageType, @PathVariable final String imageName, @PathVariable final String extension, HttpServletRequest request, HttpServletResponse response) throws IOException, ServiceException {
 
 		// example -> /static/files/DEFAULT/CONTENT/myImage.png
 		
@@ -90,10 +107,10 @@ public class ImagesController {
 		OutputContentFile image =contentService.getContentFile(storeCode, imgType, new StringBuilder().append(imageName).append(".").append(extension).toString());
 		
 		
-		if(image!=null) {
-			return image.getFile().toByteArray();
+		if(image!=null && image.getFile()!=null) {
+			writeImage(ImageResource.of(image), true, request, response);
 		} else {
-			return tempImage;
+			writeImage(tempImage, false, request, response);
 		}
 
 	}
@@ -111,7 +128,7 @@ public class ImagesController {
 	 * @throws IOException
 	 */
 	@RequestMapping("/static/{storeCode}/{imageType}/{productCode}/{imageName}.{extension}")
-	public @ResponseBody byte[] printImage(@PathVariable final String storeCode, @PathVariable final String productCode, @PathVariable final String imageType, @PathVariable final String imageName, @PathVariable final String extension) throws IOException {
+	public void printImage(@PathVariable final String storeCode, @PathVariable final String productCode, @PathVariable final String imageType, @PathVariable final String imageName, @PathVariable final String extension, HttpServletRequest request, HttpServletResponse response) throws IOException {
 
 		// product image
 		// example small product image -> /static/DEFAULT/products/TB12345/product1.jpg
@@ -133,17 +150,17 @@ public class ImagesController {
 		
 
 		
-		OutputContentFile image = null;
+		ImageResource image = null;
 		try {
-			image = productImageService.getProductImage(storeCode, productCode, new StringBuilder().append(imageName).append(".").append(extension).toString(), size);
+			image = productImageService.getProductImageResource(storeCode, productCode, new StringBuilder().append(imageName).append(".").append(extension).toString(), size);
 		} catch (ServiceException e) {
 			LOGGER.error("Cannot retrieve image " + imageName, e);
 		}
 		if(image!=null) {
-			return image.getFile().toByteArray();
+			writeImage(image, true, request, response);
 		} else {
 			//empty image placeholder
-			return tempImage;
+			writeImage(tempImage, false, request, response);
 		}
 
 	}
@@ -160,13 +177,15 @@ public class ImagesController {
 	 */
 	@RequestMapping(value="/static/products/{storeCode}/{productCode}/{imageSize}/{imageName}.{extension}",
 			produces = {"image/gif", "image/jpg", "image/png", "application/octet-stream"})
-	public @ResponseBody byte[] printImage(@PathVariable final String storeCode, @PathVariable final String productCode, @PathVariable final String imageSize, @PathVariable final String imageName, @PathVariable final String extension, HttpServletRequest request) throws IOException {
+	public void printProductImageBySize(@PathVariable final String storeCode, @PathVariable final String productCode, @PathVariable final String imageSize, @PathVariable final String imageName, @PathVariable final String extension, HttpServletRequest request, HttpServletResponse response) throws IOException {
 
 		// product image small
 		// example small product image -> /static/products/DEFAULT/TB12345/SMALL/product1.jpg
 		
 		// example large product image -> /static/products/DEFAULT/TB12345/LARGE/product1.jpg
 
+		// example rendition configured for the store -> /static/products/DEFAULT/TB12345/THUMB/product1.jpg
+
 
 		/**
 		 * List of possible imageType
@@ -183,17 +202,23 @@ public class ImagesController {
 	
 
 		
-		OutputContentFile image = null;
+		String fileName = new StringBuilder().append(imageName).append(".").append(extension).toString();
+		ImageResource image = null;
 		try {
-			image = productImageService.getProductImage(storeCode, productCode, new StringBuilder().append(imageName).append(".").append(extension).toString(), size);
+			if(size == ProductImageSize.SMALL) {
+				image = productImageService.getProductImageRendition(storeCode, productCode, fileName, imageSize);
+			}
+			if(image == null) {
+				image = productImageService.getProductImageResource(storeCode, productCode, fileName, size);
+			}
 		} catch (ServiceException e) {
 			LOGGER.error("Cannot retrieve image " + imageName, e);
 		}
 		if(image!=null) {
-			return image.getFile().toByteArray();
+			writeImage(image, true, request, response);
 		} else {
 			//empty image placeholder
-			return tempImage;
+			writeImage(tempImage, false, request, response);
 		}
 
 	}
@@ -210,7 +235,7 @@ public class ImagesController {
 	 */
 	@RequestMapping(value="/static/products/{storeCode}/{productCode}/{imageName}.{extension}",
 	produces = {"image/gif", "image/jpg", "image/png", "application/octet-stream"})
-	public @ResponseBody byte[] printImage(@PathVariable final String storeCode, @PathVariable final String productCode, @PathVariable final String imageName, @PathVariable final String extension, HttpServletRequest request) throws IOException {
+	public void printProductImageDefault(@PathVariable final String storeCode, @PathVariable final String productCode, @PathVariable final String imageName, @PathVariable final String extension, HttpServletRequest request, HttpServletResponse response) throws IOException {
 
 		// product image
 		// example small product image -> /static/products/DEFAULT/TB12345/product1.jpg?size=small
@@ -238,18 +263,78 @@ public class ImagesController {
 		
 
 		
-		OutputContentFile image = null;
+		ImageResource image = null;
 		try {
-			image = productImageService.getProductImage(storeCode, productCode, new StringBuilder().append(imageName).append(".").append(extension).toString(), size);
+			image = productImageService.getProductImageResource(storeCode, productCode, new StringBuilder().append(imageName).append(".").append(extension).toString(), size);
 		} catch (ServiceException e) {
 			LOGGER.error("Cannot retrieve image " + imageName, e);
 		}
 		if(image!=null) {
-			return image.getFile().toByteArray();
+			writeImage(image, true, request, response);
 		} else {
 			//empty image placeholder
-			return tempImage;
+			writeImage(tempImage, false, request, response);
+		}
+
+	}
+
+	/**
+	 * Answers conditional and range requests and streams the image
+	 * @param image
+	 * @param cacheable false for the placeholder image
+	 * @param request
+	 * @param response
+	 * @throws IOException
+	 */
+	private void writeImage(ImageResource image, boolean cacheable, HttpServletRequest request, HttpServletResponse response) throws IOException {
+
+		if(image == null) {
+			response.sendError(HttpServletResponse.SC_NOT_FOUND);
+			return;
+		}
+
+		if(new ServletWebRequest(request, response).checkNotModified(image.getETag(), image.getLastModified())) {
+			return;//304
+		}
+
+		CacheControl cacheControl = cacheable ? CacheControl.maxAge(maxAge, TimeUnit.SECONDS).cachePublic() : CacheControl.noCache();
+		response.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl.getHeaderValue());
+		response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+		if(image.getMimeType()!=null) {
+			response.setContentType(image.getMimeType());
+		}
+
+		long position = 0;
+		long length = image.getContentLength();
+
+		String range = request.getHeader(HttpHeaders.RANGE);
+		String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+		if(range!=null && (ifRange==null || ifRange.equals(image.getETag()))) {
+			try {
+				List<HttpRange> ranges = HttpRange.parseRanges(range);
+				if(ranges.size()==1) {//multipart ranges are answered with the full image
+					long start = ranges.get(0).getRangeStart(image.getContentLength());
+					long end = ranges.get(0).getRangeEnd(image.getContentLength());
+					if(start >= image.getContentLength()) {
+						throw new IllegalArgumentException("Range starts after the end of the image");
+					}
+					position = start;
+					length = end - start + 1;
+					response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+					response.setHeader(HttpHeaders.CONTENT_RANGE, new StringBuilder().append("bytes ").append(start).append("-").append(end).append("/").append(image.getContentLength()).toString());
+				}
+			} catch (IllegalArgumentException e) {
+				response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + image.getContentLength());
+				response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+				return;
+			}
+		}
+
+		response.setContentLengthLong(length);
+		if("HEAD".equals(request.getMethod())) {
+			return;
 		}
+		image.writeTo(Channels.newChannel(response.getOutputStream()), position, length);
 
 	}
 
@@ -0,0 +1,69 @@
+package com.salesmanager.shop.filter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+import com.salesmanager.core.model.content.ContentDescription;
+import com.salesmanager.core.model.reference.language.Language;
+import com.salesmanager.shop.model.catalog.category.ReadableCategory;
+
+/**
+ * Objects displayed on every storefront page of a store: merchant
+ * configurations and, for each language, content boxes, content page names
+ * and top categories. A snapshot is never modified, a new snapshot replaces
+ * it when the store content version changes or it expired. Empty results are
+ * kept as well so stores without content do not query the database again.
+ */
+public class StorefrontSnapshot {
+
+	private final Map<String, Object> configs;
+	private final Map<String, StorefrontContent> contents = new ConcurrentHashMap<String, StorefrontContent>();
+
+	StorefrontSnapshot(Map<String, Object> configs) {
+		this.configs = Collections.unmodifiableMap(configs);
+	}
+
+	public Map<String, Object> getConfigs() {
+		return configs;
+	}
+
+	/**
+	 * Content of a language, loaded the first time the language is requested
+	 */
+	StorefrontContent getContent(Language language, Function<Language, StorefrontContent> loader) {
+		return contents.computeIfAbsent(language.getCode(), code -> loader.apply(language));
+	}
+
+	public static class StorefrontContent {
+
+		private final Map<String, ContentDescription> contentObjects;
+		private final List<ContentDescription> contentPages;
+		private final List<ReadableCategory> topCategories;
+
+		StorefrontContent(Map<String, ContentDescription> contentObjects, List<ContentDescription> contentPages,
+				List<ReadableCategory> topCategories) {
+			this.contentObjects = Collections.unmodifiableMap(contentObjects);
+			this.contentPages = Collections.unmodifiableList(contentPages);
+			this.topCategories = Collections.unmodifiableList(topCategories);
+		}
+
+		/**
+		 * Visible boxes and sections by content code
+		 */
+		public Map<String, ContentDescription> getContentObjects() {
+			return contentObjects;
+		}
+
+		public List<ContentDescription> getContentPages() {
+			return contentPages;
+		}
+
+		public List<ReadableCategory> getTopCategories() {
+			return topCategories;
+		}
+	}
+
+}
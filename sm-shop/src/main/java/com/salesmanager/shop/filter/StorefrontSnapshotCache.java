@@ -0,0 +1,196 @@
+package com.salesmanager.shop.filter;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import javax.annotation.PostConstruct;
+import javax.inject.Inject;
+
+import org.apache.commons.collections4.CollectionUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.salesmanager.core.business.services.content.ContentService;
+import com.salesmanager.core.business.services.system.MerchantConfigurationService;
+import com.salesmanager.core.business.utils.CoreConfiguration;
+import com.salesmanager.core.business.utils.ExpiringCache;
+import com.salesmanager.core.business.utils.StoreContentVersions;
+import com.salesmanager.core.model.content.Content;
+import com.salesmanager.core.model.content.ContentDescription;
+import com.salesmanager.core.model.content.ContentType;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.reference.language.Language;
+import com.salesmanager.core.model.system.MerchantConfig;
+import com.salesmanager.core.model.system.MerchantConfiguration;
+import com.salesmanager.core.model.system.MerchantConfigurationType;
+import com.salesmanager.shop.constants.Constants;
+import com.salesmanager.shop.filter.StorefrontSnapshot.StorefrontContent;
+import com.salesmanager.shop.model.catalog.category.ReadableCategory;
+import com.salesmanager.shop.model.catalog.category.ReadableCategoryList;
+import com.salesmanager.shop.store.api.exception.ServiceRuntimeException;
+import com.salesmanager.shop.store.controller.category.facade.CategoryFacade;
+
+/**
+ * Storefront snapshot of each store. A snapshot is built the first time a
+ * store is requested and replaced when the store content version changed
+ * (configuration, content or category saved or deleted, cache cleared by
+ * the administrator) or after config.storefront.snapshotTtl seconds.
+ */
+@Component
+public class StorefrontSnapshotCache {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(StorefrontSnapshotCache.class);
+
+	@Inject
+	private ContentService contentService;
+
+	@Inject
+	private MerchantConfigurationService merchantConfigurationService;
+
+	@Inject
+	private CategoryFacade categoryFacade;
+
+	@Inject
+	private CoreConfiguration coreConfiguration;
+
+	@Inject
+	private StoreContentVersions storeContentVersions;
+
+	@Value("${config.storefront.snapshotTtl:60}")
+	private long ttl;
+
+	private ExpiringCache<Integer, StorefrontSnapshot> snapshots;
+
+	@PostConstruct
+	public void init() {
+		snapshots = new ExpiringCache<Integer, StorefrontSnapshot>(ttl);
+	}
+
+	public StorefrontSnapshot getSnapshot(MerchantStore store) {
+
+		if (!store.isUseCache()) {
+			return new StorefrontSnapshot(getConfigurations(store));
+		}
+		return snapshots.get(store.getId(), storeContentVersions.getVersion(store),
+				() -> new StorefrontSnapshot(getConfigurations(store)));
+	}
+
+	public StorefrontContent getContent(StorefrontSnapshot snapshot, MerchantStore store, Language language) {
+		return snapshot.getContent(language, lang -> loadContent(store, lang));
+	}
+
+	private StorefrontContent loadContent(MerchantStore store, Language language) {
+
+		Map<String, ContentDescription> contentObjects = new HashMap<String, ContentDescription>();
+		List<ContentDescription> contentPages = new ArrayList<ContentDescription>();
+		List<ReadableCategory> topCategories = new ArrayList<ReadableCategory>();
+
+		try {
+
+			// boxes and sections
+			List<ContentType> contentTypes = new ArrayList<ContentType>();
+			contentTypes.add(ContentType.BOX);
+			contentTypes.add(ContentType.SECTION);
+
+			List<Content> contents = contentService.listByType(contentTypes, store, language);
+			if (contents != null) {
+				for (Content content : contents) {
+					if (content.isVisible() && hasLanguage(content, language)) {
+						contentObjects.put(content.getCode(), content.getDescription());
+					}
+				}
+			}
+
+			// page names
+			contentTypes = new ArrayList<ContentType>();
+			contentTypes.add(ContentType.PAGE);
+
+			List<ContentDescription> pages = contentService.listNameByType(contentTypes, store, language);
+			if (pages != null) {
+				contentPages.addAll(pages);
+			}
+
+			// top categories
+			ReadableCategoryList categoryList = categoryFacade.getCategoryHierarchy(store, null, 0, language, null, 0, 200);
+			if (categoryList.getCategories() != null) {
+				topCategories.addAll(categoryList.getCategories().stream().filter(ReadableCategory::isVisible)
+						.collect(Collectors.toList()));
+			}
+
+		} catch (Exception e) {
+			// not kept in the snapshot, loaded again on next request
+			throw new ServiceRuntimeException("Cannot load storefront content of store " + store.getCode(), e);
+		}
+
+		return new StorefrontContent(contentObjects, contentPages, topCategories);
+	}
+
+	private boolean hasLanguage(Content content, Language language) {
+		if (CollectionUtils.isEmpty(content.getDescriptions())) {
+			return false;
+		}
+		for (ContentDescription description : content.getDescriptions()) {
+			if (description.getLanguage().getCode().equals(language.getCode())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private Map<String, Object> getConfigurations(MerchantStore store) {
+
+		Map<String, Object> configs = new HashMap<String, Object>();
+		try {
+
+			List<MerchantConfiguration> merchantConfiguration = merchantConfigurationService
+					.listByType(MerchantConfigurationType.CONFIG, store);
+
+			// get social
+			List<MerchantConfiguration> socialConfigs = merchantConfigurationService
+					.listByType(MerchantConfigurationType.SOCIAL, store);
+
+			if (!CollectionUtils.isEmpty(socialConfigs)) {
+				if (CollectionUtils.isEmpty(merchantConfiguration)) {
+					merchantConfiguration = new ArrayList<MerchantConfiguration>();
+				}
+				merchantConfiguration.addAll(socialConfigs);
+			}
+
+			if (CollectionUtils.isEmpty(merchantConfiguration)) {
+				return configs;
+			}
+
+			for (MerchantConfiguration configuration : merchantConfiguration) {
+				configs.put(configuration.getKey(), configuration.getValue());
+			}
+
+			configs.put(Constants.SHOP_SCHEME, coreConfiguration.getProperty(Constants.SHOP_SCHEME));
+			configs.put(Constants.FACEBOOK_APP_ID, coreConfiguration.getProperty(Constants.FACEBOOK_APP_ID));
+
+			// get MerchantConfig
+			MerchantConfig merchantConfig = merchantConfigurationService.getMerchantConfig(store);
+			if (merchantConfig != null) {
+
+				ObjectMapper m = new ObjectMapper();
+				@SuppressWarnings("unchecked")
+				Map<String, Object> props = m.convertValue(merchantConfig, Map.class);
+
+				for (String key : props.keySet()) {
+					configs.put(key, props.get(key));
+				}
+			}
+		} catch (Exception e) {
+			LOGGER.error("Exception while getting configurations", e);
+		}
+
+		return configs;
+
+	}
+
+}
@@ -1,6 +1,8 @@
 package com.salesmanager.shop.populator.catalog;
 
+import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -12,6 +14,7 @@ import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.Validate;
 
 import com.salesmanager.core.business.exception.ConversionException;
+import com.salesmanager.core.business.exception.ServiceException;
 import com.salesmanager.core.business.services.catalog.product.PricingService;
 import com.salesmanager.core.business.utils.AbstractDataPopulator;
 import com.salesmanager.core.model.catalog.category.Category;
@@ -23,6 +26,7 @@ import com.salesmanager.core.model.catalog.product.attribute.ProductOptionValueD
 import com.salesmanager.core.model.catalog.product.availability.ProductAvailability;
 import com.salesmanager.core.model.catalog.product.description.ProductDescription;
 import com.salesmanager.core.model.catalog.product.image.ProductImage;
+import com.salesmanager.core.model.catalog.product.manufacturer.Manufacturer;
 import com.salesmanager.core.model.catalog.product.manufacturer.ManufacturerDescription;
 import com.salesmanager.core.model.catalog.product.price.FinalPrice;
 import com.salesmanager.core.model.catalog.product.price.ProductPrice;
@@ -81,6 +85,30 @@ public class ReadableProductPopulator extends
 		Validate.notNull(pricingService, "Requires to set PricingService");
 		Validate.notNull(imageUtils, "Requires to set imageUtils");
 
+		return populate(source, target, store, language, new Page(store));
+	}
+
+	/**
+	 * Populates a page of products in the order of the list. Manufacturers,
+	 * types, categories and image urls are converted once for the page and
+	 * amounts are formatted once by distinct value
+	 */
+	public List<ReadableProduct> populateAll(List<Product> products, MerchantStore store, Language language)
+			throws ConversionException {
+		Validate.notNull(pricingService, "Requires to set PricingService");
+		Validate.notNull(imageUtils, "Requires to set imageUtils");
+
+		Page page = new Page(store);
+		List<ReadableProduct> readableProducts = new ArrayList<ReadableProduct>(products.size());
+		for(Product product : products) {
+			readableProducts.add(populate(product, new ReadableProduct(), store, language, page));
+		}
+		return readableProducts;
+	}
+
+	private ReadableProduct populate(Product source,
+			ReadableProduct target, MerchantStore store, Language language, Page page)
+			throws ConversionException {
 
 		try {
 
@@ -132,7 +160,7 @@ public class ReadableProductPopulator extends
 			target.setSortOrder(source.getSortOrder());
 
 			if(source.getType() != null) {
-				target.setType(this.type(source.getType(), language));
+				target.setType(page.type(source.getType(), language));
 			}
 
 			if(source.getOwner() != null) {
@@ -181,15 +209,7 @@ public class ReadableProductPopulator extends
 			}
 
 			if(source.getManufacturer()!=null) {
-				ManufacturerDescription manufacturer = source.getManufacturer().getDescriptions().iterator().next();
-				ReadableManufacturer manufacturerEntity = new ReadableManufacturer();
-				com.salesmanager.shop.model.catalog.manufacturer.ManufacturerDescription d = new com.salesmanager.shop.model.catalog.manufacturer.ManufacturerDescription();
-				d.setName(manufacturer.getName());
-				manufacturerEntity.setDescription(d);
-				manufacturerEntity.setId(source.getManufacturer().getId());
-				manufacturerEntity.setOrder(source.getManufacturer().getOrder());
-				manufacturerEntity.setCode(source.getManufacturer().getCode());
-				target.setManufacturer(manufacturerEntity);
+				target.setManufacturer(page.manufacturer(source.getManufacturer()));
 			}
 
 /*			if(source.getType() != null) {
@@ -204,8 +224,6 @@ public class ReadableProductPopulator extends
 			if(images!=null && images.size()>0) {
 				List<ReadableImage> imageList = new ArrayList<ReadableImage>();
 
-				String contextPath = imageUtils.getContextPath();
-
 				for(ProductImage img : images) {
 					ReadableImage prdImage = new ReadableImage();
 					prdImage.setImageName(img.getProductImage());
@@ -214,10 +232,7 @@ public class ReadableProductPopulator extends
 					if (img.getImageType() == 1 && img.getProductImageUrl()!=null) {
 						prdImage.setImageUrl(img.getProductImageUrl());
 					} else {
-						StringBuilder imgPath = new StringBuilder();
-						imgPath.append(contextPath).append(imageUtils.buildProductImageUtils(store, source.getSku(), img.getProductImage()));
-
-						prdImage.setImageUrl(imgPath.toString());
+						prdImage.setImageUrl(page.imageUrl(source, img));
 					}
 					prdImage.setId(img.getId());
 					prdImage.setImageType(img.getImageType());
@@ -240,14 +255,11 @@ public class ReadableProductPopulator extends
 
 			if(!CollectionUtils.isEmpty(source.getCategories())) {
 
-				ReadableCategoryPopulator categoryPopulator = new ReadableCategoryPopulator();
 				List<ReadableCategory> categoryList = new ArrayList<ReadableCategory>();
 
 				for(Category category : source.getCategories()) {
 
-					ReadableCategory readableCategory = new ReadableCategory();
-					categoryPopulator.populate(category, readableCategory, store, language);
-					categoryList.add(readableCategory);
+					categoryList.add(page.category(category, language));
 
 				}
 
@@ -416,7 +428,7 @@ public class ReadableProductPopulator extends
 								valueDescription.setLanguage(language.getCode());
 								//optValue.setLang(language.getCode());
 								if(attribute.getProductAttributePrice()!=null && attribute.getProductAttributePrice().doubleValue()>0) {
-									String formatedPrice = pricingService.getDisplayAmount(attribute.getProductAttributePrice(), store);
+									String formatedPrice = page.displayAmount(attribute.getProductAttributePrice());
 									optValue.setPrice(formatedPrice);
 								}
 
@@ -502,9 +514,9 @@ public class ReadableProductPopulator extends
 
 			if(price != null) {
 
-				target.setFinalPrice(pricingService.getDisplayAmount(price.getFinalPrice(), store));
+				target.setFinalPrice(page.displayAmount(price.getFinalPrice()));
 				target.setPrice(price.getFinalPrice());
-				target.setOriginalPrice(pricingService.getDisplayAmount(price.getOriginalPrice(), store));
+				target.setOriginalPrice(page.displayAmount(price.getOriginalPrice()));
 
 				if(price.isDiscounted()) {
 					target.setDiscounted(true);
@@ -592,6 +604,18 @@ public class ReadableProductPopulator extends
 
 	}
 
+	private ReadableManufacturer manufacturer(Manufacturer source) {
+		ManufacturerDescription manufacturer = source.getDescriptions().iterator().next();
+		ReadableManufacturer manufacturerEntity = new ReadableManufacturer();
+		com.salesmanager.shop.model.catalog.manufacturer.ManufacturerDescription d = new com.salesmanager.shop.model.catalog.manufacturer.ManufacturerDescription();
+		d.setName(manufacturer.getName());
+		manufacturerEntity.setDescription(d);
+		manufacturerEntity.setId(source.getId());
+		manufacturerEntity.setOrder(source.getOrder());
+		manufacturerEntity.setCode(source.getCode());
+		return manufacturerEntity;
+	}
+
 	private ReadableProductType type (ProductType type, Language language) {
 		ReadableProductType readableType = new ReadableProductType();
 		readableType.setCode(type.getCode());
@@ -684,6 +708,76 @@ public class ReadableProductPopulator extends
 
 
 
+	/**
+	 * Conversions shared by the products populated together, the readable
+	 * manufacturers, types and categories are the same instances for the
+	 * products of the page
+	 */
+	private class Page {
+
+		private final MerchantStore store;
+		private final String contextPath;
+		private final ReadableCategoryPopulator categoryPopulator = new ReadableCategoryPopulator();
+		private final Map<Long, ReadableManufacturer> manufacturers = new HashMap<Long, ReadableManufacturer>();
+		private final Map<Long, ReadableProductType> types = new HashMap<Long, ReadableProductType>();
+		private final Map<Long, ReadableCategory> categories = new HashMap<Long, ReadableCategory>();
+		private final Map<BigDecimal, String> amounts = new HashMap<BigDecimal, String>();
+
+		Page(MerchantStore store) {
+			this.store = store;
+			this.contextPath = imageUtils.getContextPath();
+		}
+
+		ReadableManufacturer manufacturer(Manufacturer manufacturer) {
+			ReadableManufacturer readable = manufacturers.get(manufacturer.getId());
+			if(readable == null) {
+				readable = ReadableProductPopulator.this.manufacturer(manufacturer);
+				if(manufacturer.getId() != null) {
+					manufacturers.put(manufacturer.getId(), readable);
+				}
+			}
+			return readable;
+		}
+
+		ReadableProductType type(ProductType type, Language language) {
+			ReadableProductType readable = types.get(type.getId());
+			if(readable == null) {
+				readable = ReadableProductPopulator.this.type(type, language);
+				if(type.getId() != null) {
+					types.put(type.getId(), readable);
+				}
+			}
+			return readable;
+		}
+
+		ReadableCategory category(Category category, Language language) throws ConversionException {
+			ReadableCategory readable = categories.get(category.getId());
+			if(readable == null) {
+				readable = categoryPopulator.populate(category, new ReadableCategory(), store, language);
+				if(category.getId() != null) {
+					categories.put(category.getId(), readable);
+				}
+			}
+			return readable;
+		}
+
+		/**
+		 * Every image belongs to a single product, only the context path is shared
+		 */
+		String imageUrl(Product product, ProductImage image) {
+			return contextPath + imageUtils.buildProductImageUtils(store, product.getSku(), image.getProductImage());
+		}
+
+		String displayAmount(BigDecimal amount) throws ServiceException {
+			String formatted = amounts.get(amount);
+			if(formatted == null) {
+				formatted = pricingService.getDisplayAmount(amount, store);
+				amounts.put(amount, formatted);
+			}
+			return formatted;
+		}
+	}
+
 	@Override
 	protected ReadableProduct createTarget() {
 		// TODO Auto-generated method stub
@@ -505,16 +505,7 @@ public class ShopProductRESTController extends BaseClass{
 				}
 				
 				
-				String lineage = new StringBuilder().append(cat.getLineage()).append(cat.getId()).append("/").toString();
-				
-				List<Category> categories = categoryService.getListByLineage(store, lineage);
-				
-				List<Long> ids = new ArrayList<Long>();
-				if(categories!=null && categories.size()>0) {
-					for(Category c : categories) {
-						ids.add(c.getId());
-					}
-				} 
+				List<Long> ids = new ArrayList<Long>(categoryService.getDescendantIds(merchantStore, cat.getId()));
 				ids.add(cat.getId());
 				
 				
@@ -0,0 +1,120 @@
+package com.salesmanager.shop.store.api.v1.product;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.Principal;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.multipart.MultipartFile;
+
+import com.salesmanager.core.business.exception.ServiceException;
+import com.salesmanager.core.business.services.catalog.product.bulk.ImportReport;
+import com.salesmanager.core.business.services.catalog.product.bulk.ProductImportService;
+import com.salesmanager.core.business.services.catalog.product.bulk.ProductRecordFormat;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.reference.language.Language;
+import com.salesmanager.shop.constants.Constants;
+import com.salesmanager.shop.model.user.ReadableUser;
+import com.salesmanager.shop.store.api.exception.RestApiException;
+import com.salesmanager.shop.store.api.exception.UnauthorizedException;
+import com.salesmanager.shop.store.controller.user.facade.UserFacade;
+
+import io.swagger.annotations.ApiImplicitParam;
+import io.swagger.annotations.ApiImplicitParams;
+import io.swagger.annotations.ApiOperation;
+import springfox.documentation.annotations.ApiIgnore;
+
+/**
+ * Bulk import and export of the products of a store
+ */
+@Controller
+@RequestMapping("/api/v1")
+public class ProductImportApi {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(ProductImportApi.class);
+
+	@Inject
+	private ProductImportService productImportService;
+
+	@Inject
+	private UserFacade userFacade;
+
+	@PostMapping("/private/products/import")
+	@ApiOperation(httpMethod = "POST", value = "Imports products", notes = "Creates or updates the products of a CSV or JSON_LINES file by sku, invalid records are reported and skipped", produces = "application/json")
+	@ApiImplicitParams({ @ApiImplicitParam(name = "store", dataType = "String", defaultValue = "DEFAULT"),
+			@ApiImplicitParam(name = "lang", dataType = "String", defaultValue = "en") })
+	public ResponseEntity<ImportReport> importProducts(@RequestParam(value = "file") MultipartFile file,
+			@RequestParam(value = "format", required = false, defaultValue = "CSV") ProductRecordFormat format,
+			@ApiIgnore MerchantStore merchantStore, @ApiIgnore Language language, HttpServletRequest request) {
+
+		authorize(merchantStore, language, request);
+		try (InputStream in = file.getInputStream()) {
+			return new ResponseEntity<ImportReport>(productImportService.importProducts(merchantStore, in, format), HttpStatus.OK);
+		} catch (IOException | ServiceException e) {
+			LOGGER.error("Error while importing products", e);
+			throw new RestApiException("Error while importing products", e);
+		}
+	}
+
+	@GetMapping("/private/products/export")
+	@ApiOperation(httpMethod = "GET", value = "Exports products", notes = "Every product of the store as CSV or JSON_LINES")
+	@ApiImplicitParams({ @ApiImplicitParam(name = "store", dataType = "String", defaultValue = "DEFAULT"),
+			@ApiImplicitParam(name = "lang", dataType = "String", defaultValue = "en") })
+	public void exportProducts(
+			@RequestParam(value = "format", required = false, defaultValue = "CSV") ProductRecordFormat format,
+			@ApiIgnore MerchantStore merchantStore, @ApiIgnore Language language, HttpServletRequest request,
+			HttpServletResponse response) {
+
+		authorize(merchantStore, language, request);
+		boolean csv = format == ProductRecordFormat.CSV;
+		response.setContentType(csv ? "text/csv;charset=UTF-8" : "application/x-ndjson;charset=UTF-8");
+		response.setHeader("Content-Disposition", "attachment; filename=\"products-" + merchantStore.getCode()
+				+ (csv ? ".csv" : ".jsonl") + "\"");
+		try {
+			productImportService.exportProducts(merchantStore, response.getOutputStream(), format);
+		} catch (IOException | ServiceException e) {
+			LOGGER.error("Error while exporting products", e);
+			throw new RestApiException("Error while exporting products", e);
+		}
+	}
+
+	private void authorize(MerchantStore merchantStore, Language language, HttpServletRequest request) {
+
+		// superadmin, admin and admin_catalogue
+		String authenticatedUser = userFacade.authenticatedUser();
+		if (authenticatedUser == null) {
+			throw new UnauthorizedException();
+		}
+
+		Principal principal = request.getUserPrincipal();
+		String userName = principal.getName();
+		ReadableUser user = userFacade.findByUserName(userName, null, language);
+
+		if (user == null) {
+			throw new UnauthorizedException();
+		}
+
+		userFacade.authorizedGroup(authenticatedUser, Stream.of(Constants.GROUP_SUPERADMIN, Constants.GROUP_ADMIN,
+				Constants.GROUP_ADMIN_CATALOGUE, Constants.GROUP_ADMIN_RETAIL)
+				.collect(Collectors.toList()));
+
+		if (!user.getMerchant().equals(merchantStore.getCode())) {
+			throw new UnauthorizedException();
+		}
+	}
+
+}
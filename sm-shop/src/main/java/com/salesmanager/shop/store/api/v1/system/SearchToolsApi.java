@@ -12,13 +12,16 @@ import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 
+import com.salesmanager.core.business.services.search.ReindexStatus;
 import com.salesmanager.core.model.merchant.MerchantStore;
 import com.salesmanager.core.model.reference.language.Language;
 import com.salesmanager.shop.constants.Constants;
 import com.salesmanager.shop.model.user.ReadableUser;
+import com.salesmanager.shop.store.api.exception.ResourceNotFoundException;
 import com.salesmanager.shop.store.api.exception.RestApiException;
 import com.salesmanager.shop.store.api.exception.UnauthorizedException;
 import com.salesmanager.shop.store.controller.search.facade.SearchFacade;
@@ -49,10 +52,34 @@ public class SearchToolsApi {
 	private UserFacade userFacade;
 
 	@PostMapping("/private/system/search/index")
-	@ApiOperation(httpMethod = "POST", value = "Indexes all products", notes = "", produces = "application/json")
+	@ApiOperation(httpMethod = "POST", value = "Indexes all products", notes = "Starts or resumes a background reindex of the catalogue", produces = "application/json")
 	@ApiImplicitParams({ @ApiImplicitParam(name = "store", dataType = "String", defaultValue = "DEFAULT"),
 			@ApiImplicitParam(name = "lang", dataType = "String", defaultValue = "en") })
-	public ResponseEntity<Void> contact(@ApiIgnore MerchantStore merchantStore, @ApiIgnore Language language, HttpServletRequest request) {
+	public ResponseEntity<ReindexStatus> contact(@ApiIgnore MerchantStore merchantStore, @ApiIgnore Language language, HttpServletRequest request) {
+
+		authorize(merchantStore, language, request);
+		try {
+			return new ResponseEntity<ReindexStatus>(searchFacade.indexAllData(merchantStore), HttpStatus.ACCEPTED);
+		} catch (Exception e) {
+			throw new RestApiException("Exception while indexing store data", e);
+		}
+	}
+
+	@GetMapping("/private/system/search/index")
+	@ApiOperation(httpMethod = "GET", value = "Progress of the last catalogue reindex", notes = "Products processed, rate (products / second) and eta (seconds)", produces = "application/json")
+	@ApiImplicitParams({ @ApiImplicitParam(name = "store", dataType = "String", defaultValue = "DEFAULT"),
+			@ApiImplicitParam(name = "lang", dataType = "String", defaultValue = "en") })
+	public ResponseEntity<ReindexStatus> indexStatus(@ApiIgnore MerchantStore merchantStore, @ApiIgnore Language language, HttpServletRequest request) {
+
+		authorize(merchantStore, language, request);
+		ReindexStatus status = searchFacade.getIndexStatus(merchantStore);
+		if (status == null) {
+			throw new ResourceNotFoundException("No index job for store [" + merchantStore.getCode() + "]");
+		}
+		return new ResponseEntity<ReindexStatus>(status, HttpStatus.OK);
+	}
+
+	private void authorize(MerchantStore merchantStore, Language language, HttpServletRequest request) {
 
 		// superadmin, admin and admin_catalogue
 		String authenticatedUser = userFacade.authenticatedUser();
@@ -75,12 +102,6 @@ public class SearchToolsApi {
 		if(!user.getMerchant().equals(merchantStore.getCode())) {
 			throw new UnauthorizedException();
 		}
-		try {
-			searchFacade.indexAllData(merchantStore);
-		} catch (Exception e) {
-			throw new RestApiException("Exception while indexing store data", e);
-		}
-		return new ResponseEntity<Void>(HttpStatus.CREATED);
 	}
 
 }
@@ -178,13 +178,19 @@ public class ShoppingCategoryController {
 		pageInformation.setPageUrl(categoryProxy.getDescription().getFriendlyUrl());
 		
 		//** retrieves category id drill down**//
-		String lineage = new StringBuilder().append(category.getLineage()).append(Constants.CATEGORY_LINEAGE_DELIMITER).toString();
+		//lineage ends with the id of the category, the category is part of the list
+		String lineage = category.getLineage();
 
 		
 		
 		request.setAttribute(Constants.REQUEST_PAGE_INFORMATION, pageInformation);
 		
-		List<Category> categs = categoryService.getListByLineage(store, lineage);
+		List<Category> categs = new ArrayList<Category>();
+		for(Category c : categoryService.getListByLineage(store, lineage)) {
+			if(!c.getId().equals(category.getId())) {
+				categs.add(c);
+			}
+		}
 		categs.add(category);
 
 
@@ -477,16 +483,7 @@ public class ShoppingCategoryController {
 				response.sendError(503, "Category is null");//TODO localized message
 			}
 			
-			String lineage = new StringBuilder().append(cat.getLineage()).append(cat.getId()).append("/").toString();
-			
-			List<Category> categories = categoryService.getListByLineage(store, lineage);
-			
-			List<Long> ids = new ArrayList<Long>();
-			if(categories!=null && categories.size()>0) {
-				for(Category c : categories) {
-					ids.add(c.getId());
-				}
-			} 
+			List<Long> ids = new ArrayList<Long>(categoryService.getDescendantIds(merchantStore, cat.getId()));
 			ids.add(cat.getId());
 			
 			Language lang = langs.get(language);
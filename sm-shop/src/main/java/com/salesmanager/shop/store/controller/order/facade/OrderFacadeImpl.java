@@ -27,7 +27,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 import org.springframework.validation.BindingResult;
 import org.springframework.validation.FieldError;
@@ -1327,15 +1326,15 @@ public class OrderFacadeImpl implements OrderFacade {
 
 			//email management
 			if ("true".equals(coreConfiguration.getProperty("ORDER_EMAIL_API"))) {
-				// send email
-				try {
-
-					notify(modelOrder, customer, store, language, locale);
-
-
-				} catch (Exception e) {
-					LOGGER.error("Cannot send order confirmation email", e);
-				}
+				// send email once the order is placed
+				Order placedOrder = modelOrder;
+				orderService.submitPostOrderTask(() -> {
+					try {
+						notify(placedOrder, customer, store, language, locale);
+					} catch (Exception e) {
+						LOGGER.error("Cannot send order confirmation email", e);
+					}
+				});
 			}
 
 			return modelOrder;
@@ -1348,7 +1347,6 @@ public class OrderFacadeImpl implements OrderFacade {
 
 	}
 
-	@Async
 	private void notify(Order order, Customer customer, MerchantStore store, Language language, Locale locale) throws Exception {
 
 		// send order confirmation email to customer
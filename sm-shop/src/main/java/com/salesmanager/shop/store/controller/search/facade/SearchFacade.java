@@ -1,5 +1,6 @@
 package com.salesmanager.shop.store.controller.search.facade;
 
+import com.salesmanager.core.business.services.search.ReindexStatus;
 import com.salesmanager.core.model.merchant.MerchantStore;
 import com.salesmanager.core.model.reference.language.Language;
 import com.salesmanager.core.model.search.SearchResponse;
@@ -17,10 +18,19 @@ public interface SearchFacade {
 
 	/**
 	 * This utility method will re-index all products in the catalogue
+	 * in the background
 	 * @param store
+	 * @return status of the reindex job
 	 * @throws Exception
 	 */
-	public void indexAllData(MerchantStore store) throws Exception;
+	public ReindexStatus indexAllData(MerchantStore store) throws Exception;
+
+	/**
+	 * Progress of the last re-index of the catalogue
+	 * @param store
+	 * @return null if the catalogue was never re-indexed
+	 */
+	ReindexStatus getIndexStatus(MerchantStore store);
 	
 	/**
 	 * Produces a search request against elastic search
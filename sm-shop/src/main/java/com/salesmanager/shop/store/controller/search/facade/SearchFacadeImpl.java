@@ -13,7 +13,6 @@ import org.apache.commons.collections4.CollectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Qualifier;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
 
 import com.salesmanager.core.business.exception.ConversionException;
@@ -21,6 +20,8 @@ import com.salesmanager.core.business.exception.ServiceException;
 import com.salesmanager.core.business.services.catalog.category.CategoryService;
 import com.salesmanager.core.business.services.catalog.product.PricingService;
 import com.salesmanager.core.business.services.catalog.product.ProductService;
+import com.salesmanager.core.business.services.search.ProductReindexService;
+import com.salesmanager.core.business.services.search.ReindexStatus;
 import com.salesmanager.core.business.services.search.SearchService;
 import com.salesmanager.core.business.utils.CoreConfiguration;
 import com.salesmanager.core.model.catalog.category.Category;
@@ -57,6 +58,9 @@ public class SearchFacadeImpl implements SearchFacade {
 	@Inject
 	private ProductService productService;
 
+	@Inject
+	private ProductReindexService productReindexService;
+
 	@Inject
 	private CategoryService categoryService;
 
@@ -72,18 +76,17 @@ public class SearchFacadeImpl implements SearchFacade {
 	private final static int AUTOCOMPLETE_ENTRIES_COUNT = 15;
 
 	/**
-	 * Index all products from the catalogue Better stop the system, remove ES
-	 * indexex manually restart ES and run this query
+	 * Index all products from the catalogue in new indexes, searches use the
+	 * current indexes until every product is indexed
 	 */
 	@Override
-	@Async
-	public void indexAllData(MerchantStore store) throws Exception {
-		List<Product> products = productService.listByStore(store);
-
-		for (Product product : products) {
-			searchService.index(store, product);
-		}
+	public ReindexStatus indexAllData(MerchantStore store) throws Exception {
+		return productReindexService.reindex(store);
+	}
 
+	@Override
+	public ReindexStatus getIndexStatus(MerchantStore store) {
+		return productReindexService.getStatus(store);
 	}
 
 	@Override
@@ -123,11 +126,7 @@ public class SearchFacadeImpl implements SearchFacade {
 
 			ProductList productList = productService.listByStore(merchantStore, language, searchCriteria);
 
-			List<ReadableProduct> readableProducts = productList.getProducts().stream()
-					.map(product -> convertProductToReadableProduct(product, merchantStore, language))
-					.collect(Collectors.toList());
-
-			returnList.getProducts().addAll(readableProducts);
+			returnList.getProducts().addAll(convertProductsToReadableProducts(productList.getProducts(), merchantStore, language));
 			returnList.setProductCount(productList.getProducts().size());
 		}
 
@@ -186,7 +185,7 @@ public class SearchFacadeImpl implements SearchFacade {
 		}
 	}
 
-	private ReadableProduct convertProductToReadableProduct(Product product, MerchantStore merchantStore,
+	private List<ReadableProduct> convertProductsToReadableProducts(List<Product> products, MerchantStore merchantStore,
 			Language language) {
 
 		ReadableProductPopulator populator = new ReadableProductPopulator();
@@ -194,7 +193,7 @@ public class SearchFacadeImpl implements SearchFacade {
 		populator.setimageUtils(imageUtils);
 
 		try {
-			return populator.populate(product, new ReadableProduct(), merchantStore, language);
+			return populator.populateAll(products, merchantStore, language);
 		} catch (ConversionException e) {
 			throw new ConversionRuntimeException(e);
 		}
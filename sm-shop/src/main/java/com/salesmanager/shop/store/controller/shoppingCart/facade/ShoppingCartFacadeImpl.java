@@ -34,6 +34,7 @@ import com.salesmanager.core.business.exception.ConversionException;
 import com.salesmanager.core.business.exception.ServiceException;
 import com.salesmanager.core.business.services.catalog.product.PricingService;
 import com.salesmanager.core.business.services.catalog.product.ProductService;
+import com.salesmanager.core.business.services.catalog.product.availability.InventoryService;
 import com.salesmanager.core.business.services.catalog.product.attribute.ProductAttributeService;
 import com.salesmanager.core.business.services.shoppingcart.ShoppingCartCalculationService;
 import com.salesmanager.core.business.services.shoppingcart.ShoppingCartService;
@@ -94,6 +95,9 @@ public class ShoppingCartFacadeImpl
     @Inject
     private ProductAttributeService productAttributeService;
 
+    @Inject
+    private InventoryService inventoryService;
+
 	@Inject
 	@Qualifier("img")
 	private ImageFilePath imageUtils;
@@ -237,6 +241,8 @@ public class ShoppingCartFacadeImpl
         	throw new Exception( "Item with id " + product.getId() + " is not available");
         }
 
+        checkAvailableQuantity(cartModel, product, getQuantityInCart(cartModel, product) + shoppingCartItem.getQuantity());
+
         if(!DateUtil.dateBeforeEqualsDate(product.getDateAvailable(), new Date())) {
         	throw new Exception( "Item with id " + product.getId() + " is not available");
         }
@@ -425,6 +431,31 @@ public class ShoppingCartFacadeImpl
     }
 
 
+    /**
+     * Quantities held by other shopping carts are not available
+     * @param quantity of the product held by the cart once modified
+     */
+    private void checkAvailableQuantity(final ShoppingCart cartModel, final Product product, final int quantity)
+        throws Exception
+    {
+        if(inventoryService.getAvailableQuantity(product, cartModel.getShoppingCartCode()) < quantity) {
+        	throw new Exception( "Item with id " + product.getId() + " is not available");
+        }
+    }
+
+    private int getQuantityInCart(final ShoppingCart cartModel, final Product product)
+    {
+        int quantity = 0;
+        if(cartModel.getLineItems() != null) {
+        	for(com.salesmanager.core.model.shoppingcart.ShoppingCartItem cartItem : cartModel.getLineItems()) {
+        		if(cartItem.getProduct().getId().longValue() == product.getId().longValue()) {
+        			quantity += cartItem.getQuantity();
+        		}
+        	}
+        }
+        return quantity;
+    }
+
     @Override
     public ShoppingCart createCartModel( final String shoppingCartCode, final MerchantStore store,final Customer customer )
         throws Exception
@@ -902,6 +933,7 @@ public class ShoppingCartFacadeImpl
 
 
 		com.salesmanager.core.model.shoppingcart.ShoppingCartItem itemModel = createCartItem(cartModel, item, store);
+		checkAvailableQuantity(cartModel, itemModel.getProduct(), getQuantityInCart(cartModel, itemModel.getProduct()) + item.getQuantity());
 
 		//need to check if the item is already in the cart
         boolean duplicateFound = false;
@@ -978,6 +1010,10 @@ public class ShoppingCartFacadeImpl
 
 
 		com.salesmanager.core.model.shoppingcart.ShoppingCartItem itemModel = createCartItem(cartModel, item, store);
+		//the quantity of the product replaces the one in the cart
+		if(item.getQuantity() > 0) {
+			checkAvailableQuantity(cartModel, itemModel.getProduct(), item.getQuantity());
+		}
 
         boolean itemModified = false;
         //check if existing product
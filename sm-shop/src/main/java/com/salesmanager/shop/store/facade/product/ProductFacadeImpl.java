@@ -1,7 +1,6 @@
 package com.salesmanager.shop.store.facade.product;
 
 import java.util.ArrayList;
-import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -315,23 +314,15 @@ public class ProductFacadeImpl implements ProductFacade {
 		
 		Page<Product> modelProductList = productService.listByStore(store, language, criterias, criterias.getStartPage(), criterias.getMaxCount());
 		
+		// products come by sort order from the query
 		List<Product> products = modelProductList.getContent();
 		
-		List<Product> prds = products.stream().sorted(Comparator.comparing(Product::getSortOrder)).collect(Collectors.toList());
-		products = prds;
-		
 		ReadableProductPopulator populator = new ReadableProductPopulator();
 		populator.setPricingService(pricingService);
 		populator.setimageUtils(imageUtils);
 
 		ReadableProductList productList = new ReadableProductList();
-		for (Product product : products) {
-
-			// create new proxy product
-			ReadableProduct readProduct = populator.populate(product, new ReadableProduct(), store, language);
-			productList.getProducts().add(readProduct);
-
-		}
+		productList.getProducts().addAll(populator.populateAll(products, store, language));
 
 		// productList.setTotalPages(products.getTotalCount());
 		productList.setRecordsTotal(modelProductList.getTotalElements());
@@ -468,14 +459,9 @@ public class ProductFacadeImpl implements ProductFacade {
 		List<ProductRelationship> relatedItems = productRelationshipService.getByType(store, product,
 				ProductRelationshipType.RELATED_ITEM);
 		if (relatedItems != null && relatedItems.size() > 0) {
-			List<ReadableProduct> items = new ArrayList<ReadableProduct>();
-			for (ProductRelationship relationship : relatedItems) {
-				Product relatedProduct = relationship.getRelatedProduct();
-				ReadableProduct proxyProduct = populator.populate(relatedProduct, new ReadableProduct(), store,
-						language);
-				items.add(proxyProduct);
-			}
-			return items;
+			List<Product> relatedProducts = relatedItems.stream().map(ProductRelationship::getRelatedProduct)
+					.collect(Collectors.toList());
+			return populator.populateAll(relatedProducts, store, language);
 		}
 		return null;
 	}
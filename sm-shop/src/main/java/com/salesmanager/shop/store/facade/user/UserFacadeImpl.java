@@ -34,6 +34,8 @@ import com.salesmanager.core.business.services.merchant.MerchantStoreService;
 import com.salesmanager.core.business.services.reference.language.LanguageService;
 import com.salesmanager.core.business.services.system.EmailService;
 import com.salesmanager.core.business.services.user.PermissionService;
+import com.salesmanager.core.business.services.user.PrincipalCache;
+import com.salesmanager.core.business.services.user.PrincipalSnapshot;
 import com.salesmanager.core.business.services.user.UserService;
 import com.salesmanager.core.model.common.CredentialsReset;
 import com.salesmanager.core.model.common.Criteria;
@@ -91,6 +93,9 @@ public class UserFacadeImpl implements UserFacade {
 	@Inject
 	private PermissionService permissionService;
 
+	@Inject
+	private PrincipalCache principalCache;
+
 	@Inject
 	private LanguageService languageService;
 
@@ -271,11 +276,13 @@ public class UserFacadeImpl implements UserFacade {
 	@Override
 	public void authorizedGroup(String userName, List<String> groupName) {
 
-		ReadableUser readableUser = findByUserName(userName, languageService.defaultLanguage());
+		PrincipalSnapshot principal = principalCache.get(userName);
+		if (principal == null) {
+			throw new ResourceNotFoundException("User [" + userName + "] not found");
+		}
 
-		// unless superadmin
-		for (ReadableGroup group : readableUser.getGroups()) {
-			if (groupName.contains(group.getName())) {
+		for (String group : principal.getGroups()) {
+			if (groupName.contains(group)) {
 				return;
 			}
 		}
@@ -659,46 +666,26 @@ public class UserFacadeImpl implements UserFacade {
 
 				String currentPrincipalName = authentication.getName();
 
-				LOGGER.info("Principal " + currentPrincipalName);
+				LOGGER.debug("Principal " + currentPrincipalName);
 
-				ReadableUser readableUser = findByUserName(currentPrincipalName, languageService.defaultLanguage());
+				PrincipalSnapshot principal = principalCache.get(currentPrincipalName);
 
-				if (readableUser == null) {
+				if (principal == null) {
 					return false;
 				}
 
-				// current user match;
-				String merchant = readableUser.getMerchant();
-
 				//user store is store request param
-				if (store.getCode().equalsIgnoreCase(merchant)) {
+				if (store.getCode().equalsIgnoreCase(principal.getMerchant())) {
 					return true;
 				}
 
-				Set<String> roles = authentication.getAuthorities().stream().map(r -> r.getAuthority())
-						.collect(Collectors.toSet());
-
 				// is superadmin
-				for (ReadableGroup group : readableUser.getGroups()) {
-					if (Constants.GROUP_SUPERADMIN.equals(group.getName())) {
-						return true;
-					}
+				if (principal.isInGroup(Constants.GROUP_SUPERADMIN)) {
+					return true;
 				}
 
-				boolean authorized = false;
-
 				// user store can be parent and requested store is child
-				// get parent
-				// TODO CACHE
-				MerchantStore parent = merchantStoreService.getParent(merchant);
-
-				// user can be in parent
-				if (parent != null && parent.getCode().equals(store.getCode())) {
-					authorized = true;
-				}
-
-				// else false
-				return authorized;
+				return principal.getParentMerchant().equals(store.getCode());
 			} catch (Exception e) {
 				throw new UnauthorizedException("Cannot authorize user " + authentication.getPrincipal().toString()
 						+ " for store " + store.getCode(), e.getMessage());
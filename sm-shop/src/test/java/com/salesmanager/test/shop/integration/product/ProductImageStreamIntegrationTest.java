@@ -0,0 +1,194 @@
+package com.salesmanager.test.shop.integration.product;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.springframework.http.HttpStatus.NOT_MODIFIED;
+import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.HttpStatus.PARTIAL_CONTENT;
+import static org.springframework.http.HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE;
+
+import java.io.InputStream;
+import java.util.Arrays;
+
+import javax.inject.Inject;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.salesmanager.core.business.services.catalog.product.ProductService;
+import com.salesmanager.core.business.services.catalog.product.image.ProductImageService;
+import com.salesmanager.core.business.services.catalog.product.type.ProductTypeService;
+import com.salesmanager.core.business.services.merchant.MerchantStoreService;
+import com.salesmanager.core.business.services.reference.language.LanguageService;
+import com.salesmanager.core.model.catalog.product.Product;
+import com.salesmanager.core.model.catalog.product.description.ProductDescription;
+import com.salesmanager.core.model.catalog.product.image.ProductImage;
+import com.salesmanager.core.model.catalog.product.type.ProductType;
+import com.salesmanager.core.model.content.FileContentType;
+import com.salesmanager.core.model.content.ImageContentFile;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.shop.application.ShopApplication;
+import com.salesmanager.test.shop.common.ServicesTestSupport;
+
+/**
+ * Product image served by the images controller
+ *
+ * - ETag, Last-Modified and Cache-Control on the image
+ * - 304 for a matching If-None-Match
+ * - single byte ranges, If-Range and unsatisfiable ranges
+ * - the placeholder of a missing image is not cached
+ */
+@SpringBootTest(classes = ShopApplication.class, webEnvironment = WebEnvironment.RANDOM_PORT)
+@RunWith(SpringRunner.class)
+public class ProductImageStreamIntegrationTest extends ServicesTestSupport {
+
+	private static final String SKU = "IMAGESTREAM1";
+	private static final String IMAGE_NAME = "imagestream.jpg";
+	private static final String IMAGE = "/static/products/" + MerchantStore.DEFAULT_STORE + "/" + SKU + "/" + IMAGE_NAME;
+
+	@Inject
+	private ProductService productService;
+
+	@Inject
+	private ProductImageService productImageService;
+
+	@Inject
+	private ProductTypeService productTypeService;
+
+	@Inject
+	private MerchantStoreService merchantStoreService;
+
+	@Inject
+	private LanguageService languageService;
+
+	private Product product;
+
+	@Before
+	public void setUp() throws Exception {
+
+		MerchantStore store = merchantStoreService.getByCode(MerchantStore.DEFAULT_STORE);
+
+		product = new Product();
+		product.setSku(SKU);
+		product.setType(productTypeService.getProductType(ProductType.GENERAL_TYPE));
+		product.setMerchantStore(store);
+		ProductDescription description = new ProductDescription();
+		description.setName("Streamed image product");
+		description.setLanguage(languageService.getByCode("en"));
+		description.setProduct(product);
+		product.getDescriptions().add(description);
+		productService.create(product);
+
+		ProductImage productImage = new ProductImage();
+		productImage.setProductImage(IMAGE_NAME);
+		InputStream inputStream = Thread.currentThread().getContextClassLoader().getResourceAsStream("image.jpg");
+		ImageContentFile content = new ImageContentFile();
+		content.setFileName(IMAGE_NAME);
+		content.setFile(inputStream);
+		content.setFileContentType(FileContentType.PRODUCT);
+		productImageService.addProductImage(product, productImage, content);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		Product saved = productService.getById(product.getId());
+		if (saved != null) {
+			productService.delete(saved);
+		}
+	}
+
+	@Test
+	public void conditionalRequests() throws Exception {
+
+		ResponseEntity<byte[]> response = get(IMAGE, new HttpHeaders());
+		assertThat(response.getStatusCode(), is(OK));
+		byte[] image = response.getBody();
+		Assert.assertTrue(image.length > 0);
+		Assert.assertEquals(image.length, response.getHeaders().getContentLength());
+
+		String etag = response.getHeaders().getETag();
+		Assert.assertNotNull(etag);
+		Assert.assertTrue(response.getHeaders().getLastModified() > 0);
+		Assert.assertTrue(response.getHeaders().getCacheControl().contains("max-age="));
+		Assert.assertTrue(response.getHeaders().getCacheControl().contains("public"));
+		Assert.assertEquals("bytes", response.getHeaders().getFirst(HttpHeaders.ACCEPT_RANGES));
+
+		HttpHeaders ifNoneMatch = new HttpHeaders();
+		ifNoneMatch.setIfNoneMatch(etag);
+		ResponseEntity<byte[]> notModified = get(IMAGE, ifNoneMatch);
+		assertThat(notModified.getStatusCode(), is(NOT_MODIFIED));
+		Assert.assertNull(notModified.getBody());
+
+		HttpHeaders ifModifiedSince = new HttpHeaders();
+		ifModifiedSince.setIfModifiedSince(response.getHeaders().getLastModified());
+		assertThat(get(IMAGE, ifModifiedSince).getStatusCode(), is(NOT_MODIFIED));
+
+		// same image again
+		HttpHeaders otherEtag = new HttpHeaders();
+		otherEtag.setIfNoneMatch("\"other\"");
+		ResponseEntity<byte[]> modified = get(IMAGE, otherEtag);
+		assertThat(modified.getStatusCode(), is(OK));
+		Assert.assertArrayEquals(image, modified.getBody());
+	}
+
+	@Test
+	public void rangeRequests() throws Exception {
+
+		ResponseEntity<byte[]> full = get(IMAGE, new HttpHeaders());
+		byte[] image = full.getBody();
+		String etag = full.getHeaders().getETag();
+
+		HttpHeaders range = new HttpHeaders();
+		range.set(HttpHeaders.RANGE, "bytes=0-9");
+		ResponseEntity<byte[]> partial = get(IMAGE, range);
+		assertThat(partial.getStatusCode(), is(PARTIAL_CONTENT));
+		Assert.assertEquals("bytes 0-9/" + image.length, partial.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+		Assert.assertArrayEquals(Arrays.copyOfRange(image, 0, 10), partial.getBody());
+
+		HttpHeaders suffix = new HttpHeaders();
+		suffix.set(HttpHeaders.RANGE, "bytes=-5");
+		ResponseEntity<byte[]> last = get(IMAGE, suffix);
+		assertThat(last.getStatusCode(), is(PARTIAL_CONTENT));
+		Assert.assertArrayEquals(Arrays.copyOfRange(image, image.length - 5, image.length), last.getBody());
+
+		// range of the same image only
+		HttpHeaders ifRange = new HttpHeaders();
+		ifRange.set(HttpHeaders.RANGE, "bytes=0-9");
+		ifRange.set(HttpHeaders.IF_RANGE, etag);
+		assertThat(get(IMAGE, ifRange).getStatusCode(), is(PARTIAL_CONTENT));
+		ifRange.set(HttpHeaders.IF_RANGE, "\"other\"");
+		ResponseEntity<byte[]> changed = get(IMAGE, ifRange);
+		assertThat(changed.getStatusCode(), is(OK));
+		Assert.assertArrayEquals(image, changed.getBody());
+
+		HttpHeaders outside = new HttpHeaders();
+		outside.set(HttpHeaders.RANGE, "bytes=" + (image.length + 10) + "-");
+		ResponseEntity<byte[]> unsatisfiable = get(IMAGE, outside);
+		assertThat(unsatisfiable.getStatusCode(), is(REQUESTED_RANGE_NOT_SATISFIABLE));
+		Assert.assertEquals("bytes */" + image.length, unsatisfiable.getHeaders().getFirst(HttpHeaders.CONTENT_RANGE));
+	}
+
+	@Test
+	public void missingImage() throws Exception {
+
+		ResponseEntity<byte[]> response = get("/static/products/" + MerchantStore.DEFAULT_STORE + "/" + SKU + "/missing.jpg", new HttpHeaders());
+		assertThat(response.getStatusCode(), is(OK));
+		Assert.assertTrue(response.getBody().length > 0);
+		Assert.assertTrue(response.getHeaders().getCacheControl().contains("no-cache"));
+	}
+
+	private ResponseEntity<byte[]> get(String path, HttpHeaders headers) {
+		return testRestTemplate.exchange(path, HttpMethod.GET, new HttpEntity<>(headers), byte[].class);
+	}
+
+}
@@ -0,0 +1,57 @@
+package com.salesmanager.test.shop.integration.product;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.springframework.http.HttpStatus.OK;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.salesmanager.shop.application.ShopApplication;
+import com.salesmanager.shop.model.catalog.product.LightPersistableProduct;
+import com.salesmanager.shop.model.catalog.product.ReadableProduct;
+import com.salesmanager.test.shop.common.ServicesTestSupport;
+
+/**
+ * A price changed through the product inventory update is the price read
+ * next, the price book does not keep the previous one
+ */
+@SpringBootTest(classes = ShopApplication.class, webEnvironment = WebEnvironment.RANDOM_PORT)
+@RunWith(SpringRunner.class)
+public class ProductPriceUpdateIntegrationTest extends ServicesTestSupport {
+
+	@Test
+	public void updatePrice() throws Exception {
+
+		ReadableProduct product = sampleProduct("PRICEUPDATE1");
+		String before = readProduct(product.getId()).getFinalPrice();
+
+		LightPersistableProduct update = new LightPersistableProduct();
+		update.setAvailable(true);
+		update.setQuantity(100);
+		update.setPrice("25.00");
+
+		ResponseEntity<Void> response = testRestTemplate.exchange("/api/v1/private/product/" + product.getId(),
+				HttpMethod.PATCH, new HttpEntity<>(update, getHeader()), Void.class);
+		assertThat(response.getStatusCode(), is(OK));
+
+		String after = readProduct(product.getId()).getFinalPrice();
+		Assert.assertNotEquals(before, after);
+		Assert.assertTrue(after, after.contains("25"));
+	}
+
+	private ReadableProduct readProduct(Long id) {
+		ResponseEntity<ReadableProduct> response = testRestTemplate.exchange("/api/v1/products/" + id, HttpMethod.GET,
+				new HttpEntity<>(getHeader()), ReadableProduct.class);
+		assertThat(response.getStatusCode(), is(OK));
+		return response.getBody();
+	}
+
+}
@@ -0,0 +1,60 @@
+package com.salesmanager.test.shop.integration.search;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.springframework.http.HttpStatus.ACCEPTED;
+import static org.springframework.http.HttpStatus.OK;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.salesmanager.core.business.services.search.ReindexStatus;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.shop.application.ShopApplication;
+import com.salesmanager.test.shop.common.ServicesTestSupport;
+
+/**
+ * Catalogue reindex started and followed through the api. The job runs
+ * in the background, its status is read until it ended whatever the
+ * search backend answered.
+ */
+@SpringBootTest(classes = ShopApplication.class, webEnvironment = WebEnvironment.RANDOM_PORT)
+@RunWith(SpringRunner.class)
+public class ReindexApiIntegrationTest extends ServicesTestSupport {
+
+	private static final String INDEX = "/api/v1/private/system/search/index";
+	private static final long WAIT = 30000;
+
+	@Test
+	public void startThenStatus() throws Exception {
+
+		ResponseEntity<ReindexStatus> started = testRestTemplate.exchange(INDEX, HttpMethod.POST,
+				new HttpEntity<>(getHeader()), ReindexStatus.class);
+		assertThat(started.getStatusCode(), is(ACCEPTED));
+		Assert.assertEquals(MerchantStore.DEFAULT_STORE, started.getBody().getStore());
+		Assert.assertNotNull(started.getBody().getStarted());
+
+		ReindexStatus status = started.getBody();
+		long start = System.currentTimeMillis();
+		while (status.getState() == ReindexStatus.State.RUNNING && System.currentTimeMillis() - start < WAIT) {
+			Thread.sleep(100);
+			ResponseEntity<ReindexStatus> response = testRestTemplate.exchange(INDEX, HttpMethod.GET,
+					new HttpEntity<>(getHeader()), ReindexStatus.class);
+			assertThat(response.getStatusCode(), is(OK));
+			status = response.getBody();
+			Assert.assertEquals(started.getBody().getStarted(), status.getStarted());
+			Assert.assertTrue(status.getProcessed() <= status.getTotal());
+		}
+
+		Assert.assertNotEquals(ReindexStatus.State.RUNNING, status.getState());
+		Assert.assertNotNull(status.getEnded());
+	}
+
+}
@@ -0,0 +1,115 @@
+package com.salesmanager.test.shop.integration.store;
+
+import javax.inject.Inject;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.salesmanager.core.business.repositories.system.MerchantConfigurationRepository;
+import com.salesmanager.core.business.services.merchant.MerchantStoreService;
+import com.salesmanager.core.business.services.system.MerchantConfigurationService;
+import com.salesmanager.core.business.utils.ExpiringCache;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.system.MerchantConfiguration;
+import com.salesmanager.core.model.system.MerchantConfigurationType;
+import com.salesmanager.shop.application.ShopApplication;
+import com.salesmanager.shop.filter.StorefrontSnapshot;
+import com.salesmanager.shop.filter.StorefrontSnapshotCache;
+import com.salesmanager.test.shop.common.ServicesTestSupport;
+
+/**
+ * Storefront snapshot of a store
+ *
+ * - a configuration saved on this server replaces the snapshot
+ * - a configuration saved by another server, which does not change the
+ *   version kept here, is shown once the snapshot expired
+ */
+@SpringBootTest(classes = ShopApplication.class, webEnvironment = WebEnvironment.RANDOM_PORT)
+@RunWith(SpringRunner.class)
+public class StorefrontSnapshotIntegrationTest extends ServicesTestSupport {
+
+	private static final String KEY = "SNAPSHOT_TEST";
+
+	@Inject
+	private StorefrontSnapshotCache storefrontSnapshotCache;
+
+	@Inject
+	private MerchantStoreService merchantStoreService;
+
+	@Inject
+	private MerchantConfigurationService merchantConfigurationService;
+
+	@Inject
+	private MerchantConfigurationRepository merchantConfigurationRepository;
+
+	private MerchantStore store;
+	private long ttl;
+
+	@Before
+	public void setUp() throws Exception {
+		store = merchantStoreService.getByCode(MerchantStore.DEFAULT_STORE);
+		store.setUseCache(true);
+		ttl = (Long) ReflectionTestUtils.getField(storefrontSnapshotCache, "ttl");
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		snapshots().setTtl(ttl);
+		MerchantConfiguration configuration = merchantConfigurationService.getMerchantConfiguration(KEY, store);
+		if (configuration != null) {
+			merchantConfigurationService.delete(configuration);
+		}
+	}
+
+	@Test
+	public void savedOnThisServer() throws Exception {
+
+		StorefrontSnapshot before = storefrontSnapshotCache.getSnapshot(store);
+		Assert.assertSame(before, storefrontSnapshotCache.getSnapshot(store));
+
+		merchantConfigurationService.saveOrUpdate(configuration("local"));
+
+		StorefrontSnapshot after = storefrontSnapshotCache.getSnapshot(store);
+		Assert.assertNotSame(before, after);
+		Assert.assertEquals("local", after.getConfigs().get(KEY));
+	}
+
+	@Test
+	public void savedOnAnotherServer() throws Exception {
+
+		snapshots().setTtl(1L);
+		snapshots().clear();
+		StorefrontSnapshot before = storefrontSnapshotCache.getSnapshot(store);
+
+		// saved without changing the version of this server
+		merchantConfigurationRepository.saveAndFlush(configuration("remote"));
+		Assert.assertSame(before, storefrontSnapshotCache.getSnapshot(store));
+		Assert.assertNull(storefrontSnapshotCache.getSnapshot(store).getConfigs().get(KEY));
+
+		Thread.sleep(1100);
+		StorefrontSnapshot after = storefrontSnapshotCache.getSnapshot(store);
+		Assert.assertNotSame(before, after);
+		Assert.assertEquals("remote", after.getConfigs().get(KEY));
+	}
+
+	private ExpiringCache<?, ?> snapshots() {
+		return (ExpiringCache<?, ?>) ReflectionTestUtils.getField(storefrontSnapshotCache, "snapshots");
+	}
+
+	private MerchantConfiguration configuration(String value) {
+		MerchantConfiguration configuration = new MerchantConfiguration();
+		configuration.setMerchantStore(store);
+		configuration.setKey(KEY);
+		configuration.setValue(value);
+		configuration.setMerchantConfigurationType(MerchantConfigurationType.CONFIG);
+		return configuration;
+	}
+
+}
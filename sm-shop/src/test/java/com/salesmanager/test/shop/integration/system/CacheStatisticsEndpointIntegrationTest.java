@@ -0,0 +1,103 @@
+package com.salesmanager.test.shop.integration.system;
+
+import static org.hamcrest.core.Is.is;
+import static org.junit.Assert.assertThat;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.HttpStatus.UNAUTHORIZED;
+
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.SpringBootTest.WebEnvironment;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import com.salesmanager.core.business.services.merchant.MerchantStoreService;
+import com.salesmanager.core.business.utils.CacheUtils;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.shop.application.ShopApplication;
+import com.salesmanager.test.shop.common.ServicesTestSupport;
+
+/**
+ * Object cache statistics read from the storecache actuator endpoint, for
+ * every namespace and for a single store, by an administrator only
+ */
+@SpringBootTest(classes = ShopApplication.class, webEnvironment = WebEnvironment.RANDOM_PORT,
+		properties = { "management.endpoint.storecache.enabled=true", "management.endpoint.info.enabled=true",
+				"management.endpoints.web.exposure.include=storecache,info" })
+@RunWith(SpringRunner.class)
+public class CacheStatisticsEndpointIntegrationTest extends ServicesTestSupport {
+
+	private static final String ENDPOINT = "/actuator/storecache";
+	private static final String REGION = "CACHEENDPOINTTEST";
+
+	@Inject
+	private CacheUtils cache;
+
+	@Inject
+	private MerchantStoreService merchantStoreService;
+
+	private MerchantStore store;
+
+	@Before
+	public void setUp() throws Exception {
+		store = merchantStoreService.getByCode(MerchantStore.DEFAULT_STORE);
+		String key = store.getId() + "_" + REGION + "-en";
+		cache.getFromCache(key);
+		cache.putInCache("value", key);
+		cache.getFromCache(key);
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		cache.removeAllFromCache(store);
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void storeStatistics() throws Exception {
+
+		ResponseEntity<Map> response = admin().getForEntity(ENDPOINT + "/" + store.getId(), Map.class);
+		assertThat(response.getStatusCode(), is(OK));
+
+		Map<String, Object> region = (Map<String, Object>) response.getBody().get(REGION);
+		Assert.assertNotNull(region);
+		Assert.assertTrue(((Number) region.get("hits")).longValue() >= 1);
+		Assert.assertTrue(((Number) region.get("misses")).longValue() >= 1);
+		Assert.assertTrue(((Number) region.get("puts")).longValue() >= 1);
+		Assert.assertNotNull(region.get("evictions"));
+	}
+
+	@SuppressWarnings("unchecked")
+	@Test
+	public void allStatistics() throws Exception {
+
+		ResponseEntity<Map> response = admin().getForEntity(ENDPOINT, Map.class);
+		assertThat(response.getStatusCode(), is(OK));
+		Map<String, Object> namespaces = response.getBody();
+		Assert.assertTrue(((Map<String, Object>) namespaces.get(String.valueOf(store.getId()))).containsKey(REGION));
+
+		assertThat(admin().getForEntity(ENDPOINT + "/unknown", Map.class).getStatusCode(), is(NOT_FOUND));
+	}
+
+	@Test
+	public void administratorOnly() throws Exception {
+
+		assertThat(testRestTemplate.getForEntity(ENDPOINT, String.class).getStatusCode(), is(UNAUTHORIZED));
+		assertThat(testRestTemplate.getForEntity("/actuator/info", String.class).getStatusCode(), is(OK));
+	}
+
+	private TestRestTemplate admin() {
+		return testRestTemplate.withBasicAuth("admin@shopizer.com", "password");
+	}
+
+}
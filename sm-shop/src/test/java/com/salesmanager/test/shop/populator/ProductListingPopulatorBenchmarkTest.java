@@ -0,0 +1,206 @@
+package com.salesmanager.test.shop.populator;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.salesmanager.core.business.services.catalog.product.PricingService;
+import com.salesmanager.core.business.services.catalog.product.PricingServiceImpl;
+import com.salesmanager.core.business.services.catalog.product.price.PriceBook;
+import com.salesmanager.core.business.utils.ProductPriceUtils;
+import com.salesmanager.core.model.catalog.category.Category;
+import com.salesmanager.core.model.catalog.category.CategoryDescription;
+import com.salesmanager.core.model.catalog.product.Product;
+import com.salesmanager.core.model.catalog.product.availability.ProductAvailability;
+import com.salesmanager.core.model.catalog.product.description.ProductDescription;
+import com.salesmanager.core.model.catalog.product.image.ProductImage;
+import com.salesmanager.core.model.catalog.product.manufacturer.Manufacturer;
+import com.salesmanager.core.model.catalog.product.manufacturer.ManufacturerDescription;
+import com.salesmanager.core.model.catalog.product.price.ProductPrice;
+import com.salesmanager.core.model.catalog.product.type.ProductType;
+import com.salesmanager.core.model.merchant.MerchantStore;
+import com.salesmanager.core.model.reference.country.Country;
+import com.salesmanager.core.model.reference.currency.Currency;
+import com.salesmanager.core.model.reference.language.Language;
+import com.salesmanager.shop.model.catalog.product.ReadableProduct;
+import com.salesmanager.shop.populator.catalog.ReadableProductPopulator;
+import com.salesmanager.shop.utils.LocalImageFilePathUtils;
+import com.salesmanager.test.shop.common.Benchmark;
+
+/**
+ * A listing page of 48 products sharing manufacturers, types, categories and
+ * prices, populated one product at a time as before and with populateAll
+ */
+public class ProductListingPopulatorBenchmarkTest {
+
+	private static final int PAGE_SIZE = 48;
+	private static final int ITERATIONS = 2000;
+
+	private MerchantStore store;
+	private Language language;
+	private PricingService pricingService;
+	private LocalImageFilePathUtils imageUtils;
+	private List<Product> products;
+
+	@Before
+	public void setUp() {
+
+		language = new Language();
+		language.setId(1);
+		language.setCode("en");
+
+		Country country = new Country();
+		country.setIsoCode("CA");
+
+		Currency currency = new Currency();
+		currency.setCurrency(java.util.Currency.getInstance("CAD"));
+
+		store = new MerchantStore();
+		store.setCode(MerchantStore.DEFAULT_STORE);
+		store.setDomainName("localhost:8080");
+		store.setDefaultLanguage(language);
+		store.setCountry(country);
+		store.setCurrency(currency);
+		store.setCurrencyFormatNational(true);
+
+		ProductPriceUtils priceUtils = new ProductPriceUtils();
+		ReflectionTestUtils.setField(priceUtils, "priceBook", new PriceBook(300));
+		pricingService = new PricingServiceImpl();
+		ReflectionTestUtils.setField(pricingService, "priceUtil", priceUtils);
+
+		imageUtils = new LocalImageFilePathUtils();
+		Properties properties = new Properties();
+		properties.setProperty("CONTEXT_PATH", "");
+		imageUtils.setProperties(properties);
+
+		List<Manufacturer> manufacturers = new ArrayList<Manufacturer>();
+		for (long i = 1; i <= 4; i++) {
+			Manufacturer manufacturer = new Manufacturer();
+			manufacturer.setId(i);
+			manufacturer.setCode("manufacturer" + i);
+			ManufacturerDescription description = new ManufacturerDescription();
+			description.setId(i);
+			description.setName("Manufacturer " + i);
+			description.setLanguage(language);
+			manufacturer.setDescriptions(new HashSet<ManufacturerDescription>(Collections.singleton(description)));
+			manufacturers.add(manufacturer);
+		}
+
+		List<ProductType> types = new ArrayList<ProductType>();
+		for (long i = 1; i <= 2; i++) {
+			ProductType type = new ProductType();
+			type.setId(i);
+			type.setCode("type" + i);
+			types.add(type);
+		}
+
+		List<Category> categories = new ArrayList<Category>();
+		for (long i = 1; i <= 6; i++) {
+			Category category = new Category();
+			category.setId(i);
+			category.setCode("category" + i);
+			category.setLineage("/" + i + "/");
+			category.setDepth(0);
+			category.setVisible(true);
+			CategoryDescription description = new CategoryDescription();
+			description.setId(i);
+			description.setName("Category " + i);
+			description.setLanguage(language);
+			category.setDescriptions(new HashSet<CategoryDescription>(Collections.singleton(description)));
+			categories.add(category);
+		}
+
+		products = new ArrayList<Product>();
+		for (long i = 1; i <= PAGE_SIZE; i++) {
+			Product product = new Product();
+			product.setId(i);
+			product.setSku("sku" + i);
+			product.setSortOrder((int) i);
+			product.setAvailable(true);
+			product.setProductShipeable(true);
+			product.setManufacturer(manufacturers.get((int) (i % manufacturers.size())));
+			product.setType(types.get((int) (i % types.size())));
+			product.setCategories(new HashSet<Category>(categories.subList((int) (i % 3), (int) (i % 3) + 2)));
+
+			ProductDescription description = new ProductDescription();
+			description.setId(i);
+			description.setName("Product " + i);
+			description.setSeUrl("product-" + i);
+			description.setLanguage(language);
+			product.setDescriptions(new HashSet<ProductDescription>(Collections.singleton(description)));
+
+			ProductPrice price = new ProductPrice();
+			price.setId(i);
+			price.setCode(ProductPrice.DEFAULT_PRICE_CODE);
+			price.setDefaultPrice(true);
+			price.setProductPriceAmount(new BigDecimal(10 + (i % 3) * 5).setScale(2));
+			price.setDescriptions(new HashSet<>());
+			ProductAvailability availability = new ProductAvailability();
+			availability.setId(i);
+			availability.setRegion("*");
+			availability.setProductQuantity(10);
+			availability.setPrices(new HashSet<ProductPrice>(Collections.singleton(price)));
+			product.setAvailabilities(new HashSet<ProductAvailability>(Collections.singleton(availability)));
+
+			product.setImages(new HashSet<ProductImage>());
+			for (long j = 0; j < 3; j++) {
+				ProductImage image = new ProductImage();
+				image.setId(i * 10 + j);
+				image.setProductImage("image" + j + ".jpg");
+				image.setDefaultImage(j == 0);
+				product.getImages().add(image);
+			}
+			products.add(product);
+		}
+	}
+
+	@Test
+	public void populateListing() throws Exception {
+
+		List<ReadableProduct> single = populateOneByOne();
+		List<ReadableProduct> page = populator().populateAll(products, store, language);
+
+		Assert.assertEquals(PAGE_SIZE, page.size());
+		for (int i = 0; i < PAGE_SIZE; i++) {
+			Assert.assertEquals(products.get(i).getId(), page.get(i).getId());
+			Assert.assertEquals(single.get(i).getFinalPrice(), page.get(i).getFinalPrice());
+			Assert.assertEquals(single.get(i).getManufacturer().getCode(), page.get(i).getManufacturer().getCode());
+			Assert.assertEquals(single.get(i).getImage().getImageUrl(), page.get(i).getImage().getImageUrl());
+			Assert.assertEquals(single.get(i).getCategories().size(), page.get(i).getCategories().size());
+		}
+		// shared by the products of the page
+		Assert.assertSame(page.get(0).getManufacturer(), page.get(4).getManufacturer());
+	}
+
+	@Test
+	public void populateListingTiming() throws Exception {
+
+		Benchmark.run(PAGE_SIZE + " products populated one by one", ITERATIONS, this::populateOneByOne);
+		Benchmark.run(PAGE_SIZE + " products populated with populateAll", ITERATIONS,
+				() -> populator().populateAll(products, store, language));
+	}
+
+	private List<ReadableProduct> populateOneByOne() throws Exception {
+		List<ReadableProduct> readableProducts = new ArrayList<ReadableProduct>();
+		for (Product product : products) {
+			readableProducts.add(populator().populate(product, new ReadableProduct(), store, language));
+		}
+		return readableProducts;
+	}
+
+	private ReadableProductPopulator populator() {
+		ReadableProductPopulator populator = new ReadableProductPopulator();
+		populator.setPricingService(pricingService);
+		populator.setimageUtils(imageUtils);
+		return populator;
+	}
+
+}